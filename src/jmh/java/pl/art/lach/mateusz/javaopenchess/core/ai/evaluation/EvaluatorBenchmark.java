@@ -0,0 +1,82 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.evaluation;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+/**
+ * Evaluations per second, alone and after each legal move, as in search leaves.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluatorBenchmark
+{
+    @Param({"INITIAL", "MIDDLEGAME", "KIWIPETE"})
+    public PerftPosition position;
+
+    private BitboardPosition bitboardPosition;
+
+    private final MoveList moves = new MoveList();
+
+    private final Evaluator evaluator = new TaperedEvaluator();
+
+    @Setup
+    public void setup() throws ReadGameError
+    {
+        bitboardPosition = Perft.loadGame(position.getFen()).getChessboard().getBitboardPosition();
+        MoveGenerator.generateLegal(bitboardPosition, moves);
+    }
+
+    @Benchmark
+    public int evaluate()
+    {
+        return evaluator.evaluate(bitboardPosition);
+    }
+
+    @Benchmark
+    public int evaluateAfterEachMove()
+    {
+        int sum = 0;
+        for (int i = 0; i < moves.size(); i++)
+        {
+            int move = moves.get(i);
+            long undo = bitboardPosition.makeMove(move);
+            sum += evaluator.evaluate(bitboardPosition);
+            bitboardPosition.unmakeMove(move, undo);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.mcts;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+/**
+ * Playouts per second of Monte Carlo tree search by number of threads,
+ * it should grow linearly up to number of cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MonteCarloTreeSearchBenchmark
+{
+    private static final int PLAYOUTS = 2000;
+
+    @Param({"INITIAL", "MIDDLEGAME", "KIWIPETE"})
+    public PerftPosition position;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private BitboardPosition bitboardPosition;
+
+    private MonteCarloTreeSearch search;
+
+    @Setup
+    public void setup() throws ReadGameError
+    {
+        bitboardPosition = Perft.loadGame(position.getFen()).getChessboard().getBitboardPosition();
+        search = new MonteCarloTreeSearch(threads, MonteCarloTreeSearch.DEFAULT_POOL_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PLAYOUTS)
+    public int search()
+    {
+        return search.search(bitboardPosition, PLAYOUTS).getBestMove();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+/**
+ * FEN import into existing game and export of the same position.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FenNotationBenchmark
+{
+    @Param({"INITIAL", "MIDDLEGAME", "KIWIPETE"})
+    public PerftPosition position;
+
+    private final DataImporter importer = DataTransferFactory.getImporterInstance(TransferFormat.FEN);
+
+    private final DataExporter exporter = DataTransferFactory.getExporterInstance(TransferFormat.FEN);
+
+    private Game game;
+
+    @Setup
+    public void setup() throws ReadGameError
+    {
+        game = Perft.loadGame(position.getFen());
+    }
+
+    @Benchmark
+    public Game importData() throws ReadGameError
+    {
+        importer.importData(position.getFen(), game);
+        return game;
+    }
+
+    @Benchmark
+    public String exportData()
+    {
+        return exporter.exportData(game);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.moves;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.GameBuilder;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.players.PlayerType;
+import pl.art.lach.mateusz.javaopenchess.utils.GameModes;
+import pl.art.lach.mateusz.javaopenchess.utils.GameTypes;
+
+/**
+ * Replaying moves section of long PGN game (89 plies) from initial position.
+ * Every invocation gets fresh game of two local players (computer player would
+ * answer every replayed move), so setup isn't a part of measured time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MovesHistoryBenchmark
+{
+    private static final String LONG_GAME = "1. Ng1-f3 Ng8-f6 2. g2-g3 g7-g6 3. Bf1-g2 Bf8-g7 4. 0-0 Nb8-c6 "
+        + "5. Nb1-c3 b7-b6 6. d2-d3 Bc8-b7 7. Bc1-g5 d7-d6 8. Nc3-d5 Nf6xd5 9. Qd1-d2 Qd8-d7 "
+        + "10. a2-a4 a7-a5 11. b2-b3 0-0-0 12. Nf3-d4 Bg7-f8 13. Nd4xc6 Bb7xc6 14. Qd2-c3 Qd7-f5 "
+        + "15. Bg2-h3 Rd8-d7 16. Bh3xf5 Bf8-g7 17. Bf5xd7+ Kc8-b8 18. Bd7xc6 Kb8-a7 19. Bc6xd5 f7-f5 "
+        + "20. Bg5xe7 f5-f4 21. e2-e4 f4xe3 22. Qc3xc7+ Ka7-a6 23. f2xe3 Bg7xa1 24. Rf1xa1 b6-b5 "
+        + "25. c2-c4 b5xc4 26. d3xc4 g6-g5 27. Be7xg5 h7-h6 28. Bg5xh6 Rh8xh6 29. Qc7-g7 Rh6xh2 "
+        + "30. Bd5-f3 d6-d5 31. c4xd5 Rh2-f2 32. Kg1-h1 Rf2-e2 33. Bf3-e4 Re2xe3 34. Be4-d3+ Re3xd3 "
+        + "35. Qg7-g8 Rd3xg3 36. d5-d6 Rg3-g7 37. Qg8-h7 Rg7-d7 38. b3-b4 a5xb4 39. a4-a5 Rd7xd6 "
+        + "40. Ra1-b1 Ka6xa5 41. Rb1xb4 Ka5-a6 42. Qh7-b1 Ka6-a7 43. Rb4-a4+ Rd6-a6 44. Ra4-a3 Ka7-a8 "
+        + "45. Ra3xa6# ";
+
+    private Game game;
+
+    @Setup(Level.Invocation)
+    public void setup()
+    {
+        game = new GameBuilder()
+            .setWhitePlayerType(PlayerType.LOCAL_USER)
+            .setBlackPlayerType(PlayerType.LOCAL_USER)
+            .setGameMode(GameModes.NEW_GAME)
+            .setGameType(GameTypes.LOCAL)
+            .setPiecesForNewGame(true)
+            .setCreateUi(false)
+            .build();
+    }
+
+    @Benchmark
+    public int setMoves() throws ReadGameError
+    {
+        game.getMoves().setMoves(LONG_GAME);
+        return game.getMoves().getMoves().size();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.pieces;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Colors;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.King;
+
+/**
+ * Move generation for all pieces of side to move. Legacy piece behaviors and
+ * bitboard MoveGenerator are measured on the same positions as fixed baselines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGenerationBenchmark
+{
+    @Param({"MIDDLEGAME", "KIWIPETE", "DISCOVERED_CHECKS"})
+    public PerftPosition position;
+
+    private List<Piece> pieces;
+
+    private King king;
+
+    private BitboardPosition bitboardPosition;
+
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() throws ReadGameError
+    {
+        Game game = Perft.loadGame(position.getFen());
+        Chessboard chessboard = game.getChessboard();
+        Colors color = game.getActivePlayer().getColor();
+        pieces = chessboard.getAllPieces(color);
+        king = Colors.WHITE == color ? chessboard.getKingWhite() : chessboard.getKingBlack();
+        bitboardPosition = chessboard.getBitboardPosition();
+    }
+
+    @Benchmark
+    public void getAllMoves(Blackhole blackhole)
+    {
+        for (Piece piece : pieces)
+        {
+            blackhole.consume(piece.getAllMoves());
+        }
+    }
+
+    @Benchmark
+    public void getAllMovesFromBehaviors(Blackhole blackhole)
+    {
+        for (Piece piece : pieces)
+        {
+            blackhole.consume(piece.getAllMovesFromBehaviors());
+        }
+    }
+
+    @Benchmark
+    public KingState getKingState()
+    {
+        return king.getKingState();
+    }
+
+    @Benchmark
+    public int generateLegal()
+    {
+        moves.clear();
+        MoveGenerator.generateLegal(bitboardPosition, moves);
+        return moves.size();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.art.lach.mateusz.javaopenchess.network.Move;
+
+/**
+ * Fan-out of one move from player to opponent and all observers of table.
+ * Clients write to discarding streams, so only serialization and table
+ * bookkeeping are measured, not network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TableBenchmark
+{
+    @Param({"0", "16", "256"})
+    public int observers;
+
+    private final Move move = new Move(4, 6, 4, 4, "");
+
+    private Table table;
+
+    private SClient player;
+
+    /**
+     * New table for every iteration, because table remembers all sent moves.
+     */
+    @Setup(Level.Iteration)
+    public void setup() throws IOException
+    {
+        Server.isPrintEnable = false;
+        table = new Table("", true, false);
+        player = createClient("player1");
+        table.addPlayer(player);
+        table.addPlayer(createClient("player2"));
+        for (int i = 0; i < observers; i++)
+        {
+            table.addObserver(createClient("observer" + i));
+        }
+    }
+
+    @Benchmark
+    public Table sendMoveToAll() throws IOException
+    {
+        table.sendMoveToAll(player, move);
+        return table;
+    }
+
+    /**
+     * Client's reading thread gets empty stream and ends at once. It's bound
+     * to separate table, so its disconnection isn't sent to benchmarked one.
+     */
+    private static SClient createClient(String nick) throws IOException
+    {
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(streamHeader()));
+        ObjectOutputStream output = new ObjectOutputStream(new DiscardingOutputStream());
+        return new SClient(null, input, output, nick, new Table("", false, false));
+    }
+
+    private static byte[] streamHeader() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ObjectOutputStream(bytes).close();
+        return bytes.toByteArray();
+    }
+
+    private static class DiscardingOutputStream extends OutputStream
+    {
+        @Override
+        public void write(int b)
+        {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+        }
+    }
+}
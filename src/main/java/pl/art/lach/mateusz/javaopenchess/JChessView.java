@@ -1036,6 +1036,15 @@ public class JChessView extends FrameView implements ActionListener, ComponentLi
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Shows message in status bar, it's cleared after timeout.
+     */
+    public void setStatusMessage(String text)
+    {
+        statusMessageLabel.setText(text);
+        messageTimer.restart();
+    }
+
     public Game getActiveTabGame() throws ArrayIndexOutOfBoundsException
     {
         Game activeGame = (Game) this.gamesPane.getComponentAt(this.gamesPane.getSelectedIndex());
@@ -24,7 +24,13 @@ import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Bishop;
 import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.UndoStack;
 import pl.art.lach.mateusz.javaopenchess.core.moves.Castling;
 import pl.art.lach.mateusz.javaopenchess.core.moves.Move;
 import pl.art.lach.mateusz.javaopenchess.core.moves.MovesHistory;
@@ -84,12 +90,51 @@ public class Chessboard
     
     private int halfCounter = 0;
     
+    /**
+     * Bitboard mirror of squares, kept in lockstep with move/undo/redo
+     * and with every Square.setPiece call on squares of this chessboard.
+     */
+    private final BitboardPosition bitboardPosition = new BitboardPosition();
+    
     /**
      * For FEN notation. 
      * In case if state has been imported and exported after some move actions.
      */
     private int fullMoveCounterAdd = 0;
 
+    /**
+     * Moves played by makeMove(), with primitive undo records.
+     */
+    private final UndoStack undoStack = new UndoStack();
+
+    /**
+     * Piece objects of moves on undoStack, by ply; they are references
+     * to pieces already on board, so makeMove() doesn't allocate them.
+     */
+    private Piece[] movedPieces = new Piece[UndoStack.DEFAULT_CAPACITY];
+
+    private Piece[] capturedPieces = new Piece[UndoStack.DEFAULT_CAPACITY];
+
+    private boolean[] movedPiecesWereMotioned = new boolean[UndoStack.DEFAULT_CAPACITY];
+
+    /**
+     * Pieces created for promotions, by ply. They are kept after unmakeMove(),
+     * so replaying the same promotion again reuses them.
+     */
+    private Piece[] promotedPieces = new Piece[UndoStack.DEFAULT_CAPACITY];
+
+    private final List<ChessboardListener> listeners = new ArrayList<>();
+
+    /**
+     * Keys of positions before recent moves, for draw by repetition.
+     */
+    private final PositionHistory positionHistory = new PositionHistory();
+
+    /**
+     * Check status and legal moves of current position, computed on first use.
+     */
+    private volatile GameState gameState;
+
     /** 
      * Chessboard class constructor
      * @param settings reference to Settings class object for this chessboard
@@ -108,7 +153,7 @@ public class Chessboard
         {
             for (int y = 0; y <= LAST_SQUARE; y++)
             {
-                this.squares[i][y] = new Square(i, y, null);
+                this.squares[i][y] = new Square(this, i, y);
             }
         }
         this.movesObject = moves;
@@ -266,11 +311,25 @@ public class Chessboard
      * @param clearForwardHistory if true, history will be cleared 
      */
     public void move(Square begin, Square end, boolean refresh, boolean clearForwardHistory)
+    {
+        positionHistory.push(bitboardPosition.getZobristKey(), halfCounter);
+        invalidateGameState();
+        movePiece(begin, end, refresh, clearForwardHistory, false);
+        refreshCastlingRights();
+    }
+
+    /**
+     * Moves piece without recording position in history, rook of castling is moved this way.
+     * @param castlingRook true for rook of castling, half move clock and side to move
+     * are then left for the king's move
+     */
+    private void movePiece(Square begin, Square end, boolean refresh, boolean clearForwardHistory, boolean castlingRook)
     {
         Castling castling = Castling.NONE;
         Piece promotedPiece = null;
         Piece takenPiece = null;
         boolean wasEnPassant = false;
+        boolean movedPieceWasMotioned = wasMotioned(begin.piece);
         if (null != end.piece)
         {
             takenPiece = end.piece;
@@ -286,10 +345,12 @@ public class Chessboard
 
         if (King.class == end.getPiece().getClass())
         {
+            setTwoSquareMovedPawn(null);
             castling = moveKing(end, castling, begin);
         }
         else if (Rook.class == end.getPiece().getClass())
         {
+            setTwoSquareMovedPawn(null);
             moveRook(end);
         }
         else if (Pawn.class == end.getPiece().getClass())
@@ -312,9 +373,42 @@ public class Chessboard
             repaint();
         }
         
-        handleHalfMoveCounter(end, takenPiece);
+        if (!castlingRook)
+        {
+            handleHalfMoveCounter(end, takenPiece);
+        }
+        refreshSquare(begin.getPozX(), begin.getPozY());
+        refreshSquare(end.getPozX(), end.getPozY());
+        if (wasEnPassant)
+        {
+            refreshSquare(end.getPozX(), begin.getPozY());
+        }
+        if (!castlingRook)
+        {
+            refreshSideToMove(end.getPiece(), true);
+        }
         handleHistory(clearForwardHistory, tempBegin, tempEnd, castling, wasEnPassant, promotedPiece);
-        
+        if (clearForwardHistory)
+        {
+            Move registered = this.movesObject.getLastMoveFromHistory();
+            if (null != registered)
+            {
+                registered.setMovedPieceWasMotioned(movedPieceWasMotioned);
+            }
+        }
+    }
+
+    private static boolean wasMotioned(Piece piece)
+    {
+        if (null != piece && King.class == piece.getClass())
+        {
+            return ((King) piece).getWasMotioned();
+        }
+        if (null != piece && Rook.class == piece.getClass())
+        {
+            return ((Rook) piece).getWasMotioned();
+        }
+        return false;
     }
 
     private void handleHalfMoveCounter(Square end, Piece takenPiece)
@@ -327,6 +421,7 @@ public class Chessboard
         {
             halfCounter = 0;
         }
+        bitboardPosition.setHalfMoveClock(halfCounter);
     }
 
     private static boolean isHalfMove(Square end, Piece takenPiece)
@@ -406,11 +501,11 @@ public class Chessboard
         castling = King.getCastling(begin, end);
         if (Castling.SHORT_CASTLING == castling)
         {
-            move(getSquare(7, begin.getPozY()), getSquare(end.getPozX() - 1, begin.getPozY()), false, false);
+            movePiece(getSquare(7, begin.getPozY()), getSquare(end.getPozX() - 1, begin.getPozY()), false, false, true);
         }
         else if (Castling.LONG_CASTLING == castling)
         {
-            move(getSquare(0, begin.getPozY()), getSquare(end.getPozX() + 1, begin.getPozY()), false, false);
+            movePiece(getSquare(0, begin.getPozY()), getSquare(end.getPozX() + 1, begin.getPozY()), false, false, true);
         }
         //endOf Castling
         return castling;
@@ -445,6 +540,7 @@ public class Chessboard
                     this.squares[to.pozX][to.pozY].piece = first.getPromotedPiece();
                     Piece promoted = this.getSquares()[to.getPozX()][to.getPozY()].piece;
                     promoted.setSquare(this.getSquares()[to.getPozX()][to.getPozY()]);
+                    refreshSquare(to.getPozX(), to.getPozY());
                 }
                 return true;
             }
@@ -464,6 +560,7 @@ public class Chessboard
 
         if (canUndo(last))
         {
+            invalidateGameState();
             return processUndoOperation(last, refresh);
         }
         return false;
@@ -487,7 +584,11 @@ public class Chessboard
             }
             else if (Rook.class == moved.getClass())
             {
-                ((Rook) moved).setWasMotioned(false);
+                ((Rook) moved).setWasMotioned(last.getMovedPieceWasMotioned());
+            }
+            else if (King.class == moved.getClass())
+            {
+                ((King) moved).setWasMotioned(last.getMovedPieceWasMotioned());
             }
             else if (Pawn.class == moved.getClass() && last.wasEnPassant())
             {
@@ -498,7 +599,18 @@ public class Chessboard
                 handlePawnPromotion(end);
             }
             
-            //check one more move back for en passant
+            if (taken != null && !last.wasEnPassant())
+            {
+                this.squares[end.pozX][end.pozY].piece = taken;
+                taken.setSquare(this.getSquares()[end.getPozX()][end.getPozY()]);
+            }
+            else
+            {
+                this.squares[end.pozX][end.pozY].piece = null;
+            }
+
+            //check one more move back for en passant (after taken piece is back,
+            //because it could be the pawn which can be taken en passant)
             Move oneMoveEarlier = this.movesObject.getLastMoveFromHistory();
             if (oneMoveEarlier != null && oneMoveEarlier.wasPawnTwoFieldsMove())
             {
@@ -514,26 +626,22 @@ public class Chessboard
             {
                 this.setTwoSquareMovedPawn(null);
             }
-
-            if (taken != null && !last.wasEnPassant())
-            {
-                this.squares[end.pozX][end.pozY].piece = taken;
-                taken.setSquare(this.getSquares()[end.getPozX()][end.getPozY()]);
-            }
-            else
-            {
-                this.squares[end.pozX][end.pozY].piece = null;
-            }
             
             if (refresh)
             {
                 this.unselect();//unselect square
                 repaint();
             }
-            if (0 < halfCounter)
+            int previousHalfCounter = positionHistory.getLastHalfMoveClock();
+            if (positionHistory.pop())
+            {
+                halfCounter = previousHalfCounter;
+            }
+            else if (0 < halfCounter)
             {
                 halfCounter--;
             }
+            refreshAfterUndo(last, begin, end);
         }
         catch (ArrayIndexOutOfBoundsException | NullPointerException exc)
         {
@@ -546,6 +654,27 @@ public class Chessboard
         return true;
     }
 
+    private void refreshAfterUndo(Move last, Square begin, Square end)
+    {
+        int rowY = begin.getPozY();
+        refreshSquare(begin.getPozX(), rowY);
+        refreshSquare(end.getPozX(), end.getPozY());
+        if (last.getCastlingMove() != Castling.NONE)
+        {
+            refreshSquare(FIRST_SQUARE, rowY);
+            refreshSquare(LAST_SQUARE, rowY);
+            refreshSquare(end.getPozX() - 1, rowY);
+            refreshSquare(end.getPozX() + 1, rowY);
+        }
+        if (last.wasEnPassant())
+        {
+            refreshSquare(end.getPozX(), rowY);
+        }
+        refreshSideToMove(last.getMovedPiece(), false);
+        refreshCastlingRights();
+        bitboardPosition.setHalfMoveClock(halfCounter);
+    }
+
     private void handleUndoCastling(Move last, Square end, Square begin, Piece moved)
     {
         Piece rook = null;
@@ -632,6 +761,12 @@ public class Chessboard
                 squares[i][j].setPiece(null);
             }
         }
+        setTwoSquareMovedPawn(null);
+        positionHistory.clear();
+        undoStack.clear();
+        invalidateGameState();
+        Arrays.fill(movedPieces, null);
+        Arrays.fill(capturedPieces, null);
     }
 
     /**
@@ -808,6 +943,7 @@ public class Chessboard
     public void setTwoSquareMovedPawn(Pawn twoSquareMovedPawn)
     {
         this.twoSquareMovedPawn = twoSquareMovedPawn;
+        refreshEnPassantSquare();
     }
 
     /**
@@ -824,6 +960,408 @@ public class Chessboard
     public void setHalfCounter(int halfCounter)
     {
         this.halfCounter = halfCounter;
+        bitboardPosition.setHalfMoveClock(halfCounter);
+    }
+
+    /**
+     * @return bitboard representation of current state of this chessboard
+     */
+    public BitboardPosition getBitboardPosition()
+    {
+        return bitboardPosition;
+    }
+
+    /**
+     * @return 64-bit Zobrist key of current position (pieces, side to move,
+     * castling rights and en passant file), maintained incrementally
+     */
+    public long getZobristKey()
+    {
+        return bitboardPosition.getZobristKey();
+    }
+
+    /**
+     * Sets side to move in bitboard position (active player is kept by Game).
+     * @param color color of player which has a move
+     */
+    public void setSideToMove(Colors color)
+    {
+        if (null != color)
+        {
+            bitboardPosition.setSideToMove(BitboardPosition.colorIndex(color));
+        }
+    }
+
+    /**
+     * Copies content of given square of this chessboard to bitboard position,
+     * when piece is set up outside of a move (castling rights are refreshed too).
+     * @param square square which content has changed
+     */
+    void refreshSquare(Square square)
+    {
+        refreshSquare(square.getPozX(), square.getPozY());
+        refreshCastlingRights();
+    }
+
+    /**
+     * Copies content of square to bitboard position, castling rights are
+     * refreshed once by the caller when whole move or undo is done.
+     */
+    private void refreshSquare(int pozX, int pozY)
+    {
+        Square square = getSquare(pozX, pozY);
+        if (null == square)
+        {
+            return;
+        }
+        bitboardPosition.set(Bitboards.index(pozX, pozY), BitboardPosition.pieceCode(square.piece));
+    }
+
+    /**
+     * Recalculates castling rights from King and Rook motion flags. Moves and undos
+     * call it once, when they are done; changing motion flag doesn't call it.
+     */
+    public void refreshCastlingRights()
+    {
+        int rights = 0;
+        if (canCastle(Colors.WHITE, BOTTOM, LAST_SQUARE))
+        {
+            rights |= BitboardPosition.CASTLE_WHITE_KING;
+        }
+        if (canCastle(Colors.WHITE, BOTTOM, FIRST_SQUARE))
+        {
+            rights |= BitboardPosition.CASTLE_WHITE_QUEEN;
+        }
+        if (canCastle(Colors.BLACK, TOP, LAST_SQUARE))
+        {
+            rights |= BitboardPosition.CASTLE_BLACK_KING;
+        }
+        if (canCastle(Colors.BLACK, TOP, FIRST_SQUARE))
+        {
+            rights |= BitboardPosition.CASTLE_BLACK_QUEEN;
+        }
+        bitboardPosition.setCastlingRights(rights);
+    }
+
+    private boolean canCastle(Colors color, int row, int rookX)
+    {
+        Piece king = squares[Squares.SQ_E.getValue()][row].piece;
+        Piece rook = squares[rookX][row].piece;
+        return null != king && King.class == king.getClass() && !((King) king).getWasMotioned()
+            && null != rook && Rook.class == rook.getClass() && !((Rook) rook).getWasMotioned()
+            && isOfColor(king, color) && isOfColor(rook, color);
+    }
+
+    private static boolean isOfColor(Piece piece, Colors color)
+    {
+        return null != piece.getPlayer() && color == piece.getPlayer().getColor();
+    }
+
+    private void refreshEnPassantSquare()
+    {
+        int enPassantSquare = BitboardPosition.NO_SQUARE;
+        Pawn pawn = this.twoSquareMovedPawn;
+        if (null != pawn && null != pawn.getSquare() && null != pawn.getPlayer())
+        {
+            int pawnSquare = Bitboards.index(pawn.getSquare());
+            enPassantSquare = Colors.WHITE == pawn.getPlayer().getColor() ? pawnSquare - 8 : pawnSquare + 8;
+        }
+        bitboardPosition.setEnPassantSquare(enPassantSquare);
+    }
+
+    private void refreshSideToMove(Piece movedPiece, boolean afterMove)
+    {
+        if (null != movedPiece && null != movedPiece.getPlayer() && null != movedPiece.getPlayer().getColor())
+        {
+            int color = BitboardPosition.colorIndex(movedPiece.getPlayer().getColor());
+            bitboardPosition.setSideToMove(afterMove ? BitboardPosition.opponent(color) : color);
+        }
+    }
+
+    /**
+     * Plays move on board without recording history, notation or refreshing
+     * UI, listeners are notified instead. Undo record is pushed on preallocated
+     * stack, so nothing is allocated, except pieces of first promotions.
+     * Moves played by move() aren't on that stack, so both ways shouldn't be mixed.
+     * @param move legal move in this position (see Moves, MoveGenerator)
+     */
+    public void makeMove(int move)
+    {
+        int ply = undoStack.size();
+        ensureUndoCapacity(ply + 1);
+        Square begin = getSquare(Moves.from(move));
+        Square end = getSquare(Moves.to(move));
+        Square captureSquare = Moves.isEnPassant(move) ? squares[end.pozX][begin.pozY] : end;
+        Piece moved = begin.piece;
+        Piece captured = captureSquare.piece;
+        movedPieces[ply] = moved;
+        capturedPieces[ply] = captured;
+        movedPiecesWereMotioned[ply] = wasMotioned(moved);
+        positionHistory.push(bitboardPosition.getZobristKey(), halfCounter);
+        undoStack.make(bitboardPosition, move);
+        invalidateGameState();
+        if (null != captured)
+        {
+            captured.setSquare(null);
+            captureSquare.piece = null;
+        }
+        begin.piece = null;
+        Piece placed = moved;
+        if (Moves.isPromotion(move))
+        {
+            moved.setSquare(null);
+            placed = getPromotedPiece(ply, moved.getPlayer(), Moves.promotion(move));
+        }
+        end.piece = placed;
+        placed.setSquare(end);
+        setMotioned(placed, true);
+        if (Moves.isCastling(move))
+        {
+            moveCastlingRook(begin, end, false);
+        }
+        this.twoSquareMovedPawn = Moves.isDoublePush(move) ? (Pawn) moved : null;
+        this.halfCounter = bitboardPosition.getHalfMoveClock();
+        for (int i = 0; i < listeners.size(); i++)
+        {
+            listeners.get(i).moveMade(this, move);
+        }
+    }
+
+    /**
+     * Takes back last move played by makeMove().
+     * @return move taken back
+     * @throws IllegalStateException if there is no such move
+     */
+    public int unmakeMove()
+    {
+        if (undoStack.isEmpty())
+        {
+            throw new IllegalStateException("no move played by makeMove() to take back");
+        }
+        int ply = undoStack.size() - 1;
+        int move = undoStack.unmake(bitboardPosition);
+        positionHistory.pop();
+        invalidateGameState();
+        Square begin = getSquare(Moves.from(move));
+        Square end = getSquare(Moves.to(move));
+        Square captureSquare = Moves.isEnPassant(move) ? squares[end.pozX][begin.pozY] : end;
+        Piece moved = movedPieces[ply];
+        Piece placed = end.piece;
+        if (Moves.isCastling(move))
+        {
+            moveCastlingRook(begin, end, true);
+        }
+        end.piece = null;
+        if (placed != moved)
+        {
+            placed.setSquare(null);
+        }
+        begin.piece = moved;
+        moved.setSquare(begin);
+        setMotioned(moved, movedPiecesWereMotioned[ply]);
+        Piece captured = capturedPieces[ply];
+        if (null != captured)
+        {
+            captureSquare.piece = captured;
+            captured.setSquare(captureSquare);
+        }
+        movedPieces[ply] = null;
+        capturedPieces[ply] = null;
+        this.twoSquareMovedPawn = getPawnToTakeEnPassant();
+        this.halfCounter = bitboardPosition.getHalfMoveClock();
+        for (int i = 0; i < listeners.size(); i++)
+        {
+            listeners.get(i).moveUnmade(this, move);
+        }
+        return move;
+    }
+
+    private Square getSquare(int square)
+    {
+        return squares[Bitboards.pozX(square)][Bitboards.pozY(square)];
+    }
+
+    private void ensureUndoCapacity(int capacity)
+    {
+        if (capacity > movedPieces.length)
+        {
+            int length = Math.max(capacity, 2 * movedPieces.length);
+            movedPieces = Arrays.copyOf(movedPieces, length);
+            capturedPieces = Arrays.copyOf(capturedPieces, length);
+            movedPiecesWereMotioned = Arrays.copyOf(movedPiecesWereMotioned, length);
+            promotedPieces = Arrays.copyOf(promotedPieces, length);
+        }
+    }
+
+    private Piece getPromotedPiece(int ply, Player player, int type)
+    {
+        Piece piece = promotedPieces[ply];
+        if (null == piece || piece.getPlayer() != player
+            || BitboardPosition.typeOf(BitboardPosition.pieceCode(piece)) != type)
+        {
+            piece = createPiece(player, type);
+            promotedPieces[ply] = piece;
+        }
+        return piece;
+    }
+
+    private Piece createPiece(Player player, int type)
+    {
+        switch (type)
+        {
+            case BitboardPosition.KNIGHT:
+                return new Knight(this, player);
+            case BitboardPosition.BISHOP:
+                return new Bishop(this, player);
+            case BitboardPosition.ROOK:
+                return new Rook(this, player);
+            default:
+                return new Queen(this, player);
+        }
+    }
+
+    private static void setMotioned(Piece piece, boolean motioned)
+    {
+        if (King.class == piece.getClass())
+        {
+            ((King) piece).setWasMotioned(motioned);
+        }
+        else if (Rook.class == piece.getClass())
+        {
+            ((Rook) piece).setWasMotioned(motioned);
+        }
+    }
+
+    /**
+     * Moves rook of castling, king is already moved (or moved back) by caller.
+     * Castling rook has never moved before castling.
+     */
+    private void moveCastlingRook(Square kingBegin, Square kingEnd, boolean back)
+    {
+        boolean kingSide = kingEnd.pozX > kingBegin.pozX;
+        Square rookBegin = squares[kingSide ? LAST_SQUARE : FIRST_SQUARE][kingBegin.pozY];
+        Square rookEnd = squares[kingSide ? kingEnd.pozX - 1 : kingEnd.pozX + 1][kingBegin.pozY];
+        Square source = back ? rookEnd : rookBegin;
+        Square target = back ? rookBegin : rookEnd;
+        Piece rook = source.piece;
+        source.piece = null;
+        target.piece = rook;
+        rook.setSquare(target);
+        ((Rook) rook).setWasMotioned(!back);
+    }
+
+    /**
+     * @return pawn which can be taken en passant in bitboard position, null if there is none
+     */
+    private Pawn getPawnToTakeEnPassant()
+    {
+        int enPassantSquare = bitboardPosition.getEnPassantSquare();
+        if (BitboardPosition.NO_SQUARE == enPassantSquare)
+        {
+            return null;
+        }
+        boolean whiteToMove = BitboardPosition.WHITE == bitboardPosition.getSideToMove();
+        Piece pawn = getSquare(whiteToMove ? enPassantSquare - 8 : enPassantSquare + 8).piece;
+        return null != pawn && Pawn.class == pawn.getClass() ? (Pawn) pawn : null;
+    }
+
+    /**
+     * @return true if current position occurred at least twice before,
+     * with the same side to move, since last capture or pawn move
+     */
+    public boolean isThreefoldRepetition()
+    {
+        return positionHistory.isThreefoldRepetition(bitboardPosition.getZobristKey(), halfCounter);
+    }
+
+    /**
+     * @return true if there was no capture nor pawn move in last fifty moves of each player
+     */
+    public boolean isFiftyMoveRule()
+    {
+        return PositionHistory.isFiftyMoveRule(halfCounter);
+    }
+
+    /**
+     * Returns check status, legal moves and end of game state of current position.
+     * State is computed once per position: it's dropped by move(), undo(), redo(),
+     * makeMove(), unmakeMove() and clear() (used by game import), and it's also
+     * computed again when position was changed other way, e.g. pawn promoted after move().
+     * @return state of current position for side to move
+     */
+    public GameState getGameState()
+    {
+        GameState state = gameState;
+        if (null == state || !state.isStateOf(bitboardPosition))
+        {
+            state = new GameState(bitboardPosition);
+            gameState = state;
+        }
+        return state;
+    }
+
+    /**
+     * Drops cached state of position, it's called when position changes.
+     */
+    public void invalidateGameState()
+    {
+        gameState = null;
+    }
+
+    /**
+     * @return keys of positions before recent moves, played by move() and makeMove()
+     */
+    public PositionHistory getPositionHistory()
+    {
+        return positionHistory;
+    }
+
+    /**
+     * @return moves played by makeMove() and their undo records
+     */
+    public UndoStack getUndoStack()
+    {
+        return undoStack;
+    }
+
+    /**
+     * @param ply index of move on undo stack
+     * @return piece moved at ply (pawn for promotions)
+     */
+    public Piece getMovedPiece(int ply)
+    {
+        return movedPieces[ply];
+    }
+
+    /**
+     * @param ply index of move on undo stack
+     * @return piece captured at ply, null if move wasn't a capture
+     */
+    public Piece getCapturedPiece(int ply)
+    {
+        return capturedPieces[ply];
+    }
+
+    /**
+     * @param ply index of move on undo stack
+     * @return true if king or rook moved at ply has moved before
+     */
+    public boolean getMovedPieceWasMotioned(int ply)
+    {
+        return movedPiecesWereMotioned[ply];
+    }
+
+    /**
+     * @param listener notified about moves played by makeMove() and unmakeMove()
+     */
+    public void addChessboardListener(ChessboardListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    public void removeChessboardListener(ChessboardListener listener)
+    {
+        listeners.remove(listener);
     }
 
     /**
@@ -0,0 +1,38 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core;
+
+/**
+ * Receives moves played and taken back by Chessboard.makeMove()
+ * and Chessboard.unmakeMove(). Board doesn't record history, notation
+ * or refresh UI on its own there, listeners do it when they are needed.
+ */
+public interface ChessboardListener
+{
+    /**
+     * Called after move was played, undo record of move is already
+     * on top of chessboard's undo stack.
+     * @param chessboard chessboard after move
+     * @param move move played (see Moves)
+     */
+    void moveMade(Chessboard chessboard, int move);
+
+    /**
+     * Called after move was taken back.
+     * @param chessboard chessboard after move was taken back
+     * @param move move taken back (see Moves)
+     */
+    void moveUnmade(Chessboard chessboard, int move);
+}
@@ -35,6 +35,7 @@ import org.apache.log4j.Logger;
 import pl.art.lach.mateusz.javaopenchess.JChessApp;
 import pl.art.lach.mateusz.javaopenchess.JChessView;
 import pl.art.lach.mateusz.javaopenchess.core.ai.AI;
+import pl.art.lach.mateusz.javaopenchess.core.ai.ComputerMoveExecutor;
 import pl.art.lach.mateusz.javaopenchess.core.data_transfer.DataExporter;
 import pl.art.lach.mateusz.javaopenchess.core.data_transfer.DataImporter;
 import pl.art.lach.mateusz.javaopenchess.core.data_transfer.DataTransferFactory;
@@ -133,8 +134,15 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
 
     private AI ai = null;
 
+    /**
+     * Runs computer moves requested from GUI, so event thread isn't blocked.
+     */
+    private final ComputerMoveExecutor computerMoveExecutor = new ComputerMoveExecutor();
+
     private boolean isEndOfGame = false;
 
+    private String endOfGameMessage;
+
     private HistoryButtons historyButtons;
 
     public Game() {
@@ -274,9 +282,11 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
      * Method to Start new game
      */
     public void newGame() {
+        computerMoveExecutor.cancel();
+        stopPondering();
         getChessboard().setPieces4NewGame(getSettings().getPlayerWhite(), getSettings().getPlayerBlack());
 
-        activePlayer = getSettings().getPlayerWhite();
+        setActivePlayer(getSettings().getPlayerWhite());
         if (activePlayer.getPlayerType() != PlayerType.LOCAL_USER) {
             this.setBlockedChessboard(true);
         }
@@ -315,10 +325,21 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
      *                "black wins" etc.)
      */
     public void endGame(String message) {
+        stopPondering();
         this.setBlockedChessboard(true);
         this.isEndOfGame = true;
+        this.endOfGameMessage = message;
         LOG.debug(message);
-        JOptionPane.showMessageDialog(null, message);
+        if (null != chessboardView) {
+            JOptionPane.showMessageDialog(null, message);
+        }
+    }
+
+    /**
+     * @return message shown at end of game, null if game goes on
+     */
+    public String getEndOfGameMessage() {
+        return endOfGameMessage;
     }
 
     /**
@@ -330,7 +351,10 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
         } else {
             activePlayer = getSettings().getPlayerWhite();
         }
-        this.getGameClock().switchClocks();
+        getChessboard().setSideToMove(activePlayer.getColor());
+        if (null != getGameClock()) {
+            this.getGameClock().switchClocks();
+        }
     }
 
     /**
@@ -344,6 +368,9 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
 
     public void setActivePlayer(Player player) {
         this.activePlayer = player;
+        if (null != player) {
+            getChessboard().setSideToMove(player.getColor());
+        }
     }
 
     /**
@@ -412,12 +439,17 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
         boolean status = false;
 
         if (this.getSettings().getGameType() != GameTypes.NETWORK) {
+            boolean searchCancelled = computerMoveExecutor.cancel();
+            stopPondering();
             status = getChessboard().undo();
             if (status) {
                 this.switchActivePlayer();
             } else {
                 getChessboard().repaint();
             }
+            if (searchCancelled && this.getActivePlayer().getPlayerType() == PlayerType.LOCAL_USER) {
+                this.setBlockedChessboard(false);
+            }
             if (this.getSettings().isGameVersusComputer()) {
                 if (this.getActivePlayer().getPlayerType() == PlayerType.COMPUTER) {
                     this.undo();
@@ -435,6 +467,7 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
         boolean result = false;
 
         if (this.getSettings().getGameType() == GameTypes.LOCAL) {
+            computerMoveExecutor.cancel();
             while (getChessboard().undo()) {
                 result = true;
             }
@@ -449,6 +482,7 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
         boolean result = false;
 
         if (this.getSettings().getGameType() == GameTypes.LOCAL) {
+            cancelComputerBeforeRedo();
             while (getChessboard().redo()) {
                 result = true;
             }
@@ -460,6 +494,7 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
     }
 
     public boolean redo() {
+        cancelComputerBeforeRedo();
         boolean status = getChessboard().redo();
         if (this.getSettings().getGameType() == GameTypes.LOCAL) {
             if (status) {
@@ -474,6 +509,18 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
         return status;
     }
 
+    /**
+     * Redo changes chessboard, so computer mustn't read it meanwhile. Chessboard
+     * blocked for cancelled search is unblocked.
+     */
+    private void cancelComputerBeforeRedo() {
+        boolean searchCancelled = computerMoveExecutor.cancel();
+        stopPondering();
+        if (searchCancelled) {
+            this.setBlockedChessboard(false);
+        }
+    }
+
     @Override
     public void mousePressed(MouseEvent event) {
         if (event.getButton() == MouseEvent.BUTTON3) {
@@ -510,9 +557,7 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
                 invokeMoveAction(sq);
             }
             if (canDoComputerMove()) {
-                doComputerMove();
-                highlighTabIfInactive();
-
+                startComputerMove();
             }
 
         } catch (NullPointerException exc) {
@@ -537,25 +582,45 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
 
         // switch player
         this.nextMove();
+        this.checkEndOfGame();
+    }
 
-        // checkmate or stalemate
+    /**
+     * Ends game if active player is checkmated or stalemated, or if game is drawn
+     * by threefold repetition or fifty-move rule. Called after every move.
+     * 
+     * @return true if game has ended
+     */
+    private boolean checkEndOfGame() {
         King king;
         if (getSettings().getPlayerWhite() == activePlayer) {
             king = getChessboard().getKingWhite();
         } else {
             king = getChessboard().getKingBlack();
         }
+        if (null == king) {
+            return false;
+        }
 
         switch (king.getKingState()) {
         case CHECKMATED:
             this.endGame(String.format("Checkmate! %s player lose!", king.getPlayer().getColor().toString()));
-            break;
+            return true;
         case STEALMATED:
             this.endGame("Stalemate! Draw!");
-            break;
+            return true;
         case FINE:
             break;
         }
+        if (getChessboard().isThreefoldRepetition()) {
+            this.endGame("Threefold repetition! Draw!");
+            return true;
+        }
+        if (getChessboard().isFiftyMoveRule()) {
+            this.endGame("Fifty-move rule! Draw!");
+            return true;
+        }
+        return false;
     }
 
     private boolean canInvokeMoveAction(Square sq) {
@@ -596,8 +661,11 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
 
     private void highlighTabIfInactive() throws ArrayIndexOutOfBoundsException {
         JChessView jChessView = JChessApp.getJavaChessView();
+        if (null == jChessView) {
+            return;
+        }
         int tabNumber = jChessView.getTabNumber(this);
-        if (jChessView.getActiveTabGame() != this) {
+        if (0 <= tabNumber && jChessView.getActiveTabGame() != this) {
             jChessView.getGamesPane().setForegroundAt(tabNumber, JChessTabbedPane.EVENT_COLOR);
         }
     }
@@ -607,14 +675,85 @@ public class Game extends JPanel implements ComponentListener, MouseListener {
                 && this.getActivePlayer().getPlayerType() == PlayerType.COMPUTER && null != this.getAi();
     }
 
+    /**
+     * Searches computer move on calling thread and plays it.
+     */
     public void doComputerMove() {
         Move lastMove = this.getMoves().getLastMoveFromHistory();
-        Move move = this.getAi().getMove(this, lastMove);
+        playComputerMove(this.getAi().getMove(this, lastMove));
+    }
+
+    /**
+     * Starts searching computer move in background and returns at once. Move is
+     * played on Swing event thread, chessboard is blocked until then or until
+     * search fails. Search is cancelled by undo, new game and closing game.
+     */
+    public void startComputerMove() {
+        this.setBlockedChessboard(true);
+        computerMoveExecutor.submit(getAi(), this, move -> {
+            playComputerMove(move);
+            updateFenStateText();
+            repaint();
+            highlighTabIfInactive();
+        }, this::showComputerProgress, this::computerMoveFailed);
+    }
+
+    /**
+     * @return true if computer move search was cancelled
+     */
+    public boolean cancelComputerMove() {
+        return computerMoveExecutor.cancel();
+    }
+
+    public boolean isComputerThinking() {
+        return computerMoveExecutor.isSearching();
+    }
+
+    /**
+     * Cancels computer move search and stops its thread, called when game tab is
+     * closed.
+     */
+    public void close() {
+        computerMoveExecutor.shutdown();
+        stopPondering();
+    }
+
+    /**
+     * Stops search of computer on opponent's time, position it expected won't
+     * be played.
+     */
+    private void stopPondering() {
+        if (null != getAi()) {
+            getAi().stopPondering();
+        }
+    }
+
+    private void playComputerMove(Move move) {
         getChessboard().move(move.getFrom(), move.getTo());
         if (null != move.getPromotedPiece()) {
             move.getTo().setPiece(move.getPromotedPiece());
         }
         this.nextMove();
+        this.checkEndOfGame();
+    }
+
+    private void computerMoveFailed(RuntimeException exc) {
+        this.setBlockedChessboard(false);
+        String message = String.format(Settings.lang("computer_move_failed"), exc.getMessage());
+        JChessView jChessView = JChessApp.getJavaChessView();
+        if (null != jChessView) {
+            jChessView.setStatusMessage(message);
+        }
+        if (null != chessboardView) {
+            JOptionPane.showMessageDialog(null, message);
+        }
+    }
+
+    private void showComputerProgress(int depth, int score, long nodes) {
+        JChessView jChessView = JChessApp.getJavaChessView();
+        if (null != jChessView && jChessView.getTabNumber(this) == jChessView.getGamesPane().getSelectedIndex()) {
+            jChessView.setStatusMessage(String.format(Settings.lang("computer_thinking"), depth, score, nodes));
+        }
     }
 
     @Override
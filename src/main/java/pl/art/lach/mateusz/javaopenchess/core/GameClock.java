@@ -199,6 +199,15 @@ public class GameClock extends JPanel implements Runnable
         this.clockBlackPlayer.init(t2);
     }
 
+    /**
+     * @param color color of player
+     * @return time left on clock of player, in seconds
+     */
+    public int getLeftTime(Colors color)
+    {
+        return Colors.WHITE == color ? this.clockWhitePlayer.getLeftTime() : this.clockBlackPlayer.getLeftTime();
+    }
+
     /** Method with is setting the players clocks
      * @param p1 Capt player information
      * @param p2 Capt player information
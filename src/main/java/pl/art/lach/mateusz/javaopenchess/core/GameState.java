@@ -0,0 +1,155 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core;
+
+import java.util.HashSet;
+import java.util.Set;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.KingState;
+
+/**
+ * State of position for side to move: check, legal moves and whether
+ * the game is over. It's computed once per position by Chessboard.getGameState(),
+ * so notation, move highlighting, end of game checks and AIs don't generate
+ * moves again and again for the same position.
+ */
+public class GameState
+{
+    private final long key;
+
+    private final int sideToMove;
+
+    private final boolean inCheck;
+
+    private final MoveList legalMoves = new MoveList();
+
+    private final KingState kingState;
+
+    /**
+     * @param position position to compute state of, it isn't kept
+     */
+    public GameState(BitboardPosition position)
+    {
+        this.key = position.getZobristKey();
+        this.sideToMove = position.getSideToMove();
+        this.inCheck = position.isInCheck(sideToMove);
+        MoveGenerator.generateLegal(position, legalMoves);
+        if (!legalMoves.isEmpty())
+        {
+            this.kingState = KingState.FINE;
+        }
+        else
+        {
+            this.kingState = inCheck ? KingState.CHECKMATED : KingState.STEALMATED;
+        }
+    }
+
+    /**
+     * @return true if this is state of given position (compared by Zobrist key)
+     */
+    public boolean isStateOf(BitboardPosition position)
+    {
+        return key == position.getZobristKey();
+    }
+
+    public long getKey()
+    {
+        return key;
+    }
+
+    /**
+     * @return color of side to move (see BitboardPosition.WHITE and BLACK)
+     */
+    public int getSideToMove()
+    {
+        return sideToMove;
+    }
+
+    /**
+     * @return true if king of side to move is in check
+     */
+    public boolean isInCheck()
+    {
+        return inCheck;
+    }
+
+    public KingState getKingState()
+    {
+        return kingState;
+    }
+
+    public boolean isCheckmate()
+    {
+        return KingState.CHECKMATED == kingState;
+    }
+
+    public boolean isStalemate()
+    {
+        return KingState.STEALMATED == kingState;
+    }
+
+    public int getLegalMoveCount()
+    {
+        return legalMoves.size();
+    }
+
+    public int getLegalMove(int index)
+    {
+        return legalMoves.get(index);
+    }
+
+    public boolean isLegal(int move)
+    {
+        return legalMoves.contains(move);
+    }
+
+    /**
+     * @return copy of legal moves of side to move
+     */
+    public MoveList getLegalMoves()
+    {
+        MoveList copy = new MoveList(Math.max(1, legalMoves.size()));
+        for (int i = 0; i < legalMoves.size(); i++)
+        {
+            copy.add(legalMoves.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * @param chessboard chessboard which squares are returned
+     * @param from index of square (see Bitboards)
+     * @return target squares of legal moves from given square, promotions
+     * to different pieces give one square
+     */
+    public Set<Square> getTargetSquares(Chessboard chessboard, int from)
+    {
+        Set<Square> squares = new HashSet<>();
+        for (int i = 0; i < legalMoves.size(); i++)
+        {
+            int move = legalMoves.get(i);
+            if (Moves.from(move) == from)
+            {
+                int to = Moves.to(move);
+                squares.add(chessboard.getSquare(Bitboards.pozX(to), Bitboards.pozY(to)));
+            }
+        }
+        return squares;
+    }
+}
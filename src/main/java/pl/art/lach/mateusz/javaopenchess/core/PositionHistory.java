@@ -0,0 +1,146 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core;
+
+/**
+ * Ring buffer of Zobrist keys of positions before last moves, with half move
+ * clock before every move, for threefold repetition and fifty-move rule.
+ * Position can repeat only since the last irreversible move (capture or pawn move),
+ * so repetitions are searched only as far back as half move clock says and
+ * no more than the last CAPACITY moves have to be kept.
+ */
+public class PositionHistory
+{
+    /**
+     * More than plies of fifty-move rule, power of two.
+     */
+    public static final int CAPACITY = 128;
+
+    public static final int FIFTY_MOVE_RULE_PLIES = 100;
+
+    private static final int MASK = CAPACITY - 1;
+
+    private static final int REPETITIONS_FOR_DRAW = 3;
+
+    private final long[] keys = new long[CAPACITY];
+
+    private final int[] halfMoveClocks = new int[CAPACITY];
+
+    /**
+     * Index where next key is stored.
+     */
+    private int next;
+
+    /**
+     * Number of keys kept, older ones are overwritten.
+     */
+    private int size;
+
+    /**
+     * @param key Zobrist key of position before move
+     * @param halfMoveClock half move clock before move
+     */
+    public void push(long key, int halfMoveClock)
+    {
+        keys[next] = key;
+        halfMoveClocks[next] = halfMoveClock;
+        next = (next + 1) & MASK;
+        size = Math.min(size + 1, CAPACITY);
+    }
+
+    /**
+     * Removes key of position before move taken back.
+     * @return false if key was already overwritten by newer ones
+     */
+    public boolean pop()
+    {
+        if (0 == size)
+        {
+            return false;
+        }
+        next = (next - 1) & MASK;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return half move clock before last move, -1 if it isn't kept
+     */
+    public int getLastHalfMoveClock()
+    {
+        return 0 == size ? -1 : halfMoveClocks[(next - 1) & MASK];
+    }
+
+    /**
+     * @param key key of current position
+     * @param halfMoveClock half move clock of current position
+     * @return how many times current position occurred before, with the same side to move
+     */
+    public int countRepetitions(long key, int halfMoveClock)
+    {
+        int limit = Math.min(halfMoveClock, size);
+        int count = 0;
+        // position before last move has other side to move
+        for (int back = 2; back <= limit; back += 2)
+        {
+            if (keys[(next - back) & MASK] == key)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isThreefoldRepetition(long key, int halfMoveClock)
+    {
+        return REPETITIONS_FOR_DRAW - 1 <= countRepetitions(key, halfMoveClock);
+    }
+
+    public static boolean isFiftyMoveRule(int halfMoveClock)
+    {
+        return FIFTY_MOVE_RULE_PLIES <= halfMoveClock;
+    }
+
+    /**
+     * @param halfMoveClock half move clock of current position
+     * @return keys of positions since last irreversible move, oldest first
+     */
+    public long[] getKeys(int halfMoveClock)
+    {
+        int count = Math.min(halfMoveClock, size);
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++)
+        {
+            result[i] = keys[(next - count + i) & MASK];
+        }
+        return result;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return 0 == size;
+    }
+
+    public void clear()
+    {
+        next = 0;
+        size = 0;
+    }
+}
@@ -43,6 +43,12 @@ public class Square
      * object Piece on square (and extending Piecie)
      */
     public Piece piece = null;
+    
+    /**
+     * Chessboard owning this square, null for detached copies (eg. in moves history).
+     * Used to keep chessboard's bitboard position in sync with setPiece calls.
+     */
+    private Chessboard chessboard = null;
 
     public Square(int pozX, int pozY, Piece piece)
     {
@@ -51,6 +57,12 @@ public class Square
         this.piece = piece;
     }
 
+    Square(Chessboard chessboard, int pozX, int pozY)
+    {
+        this(pozX, pozY, (Piece) null);
+        this.chessboard = chessboard;
+    }
+
 
     public Square(Square square)
     {
@@ -71,6 +83,10 @@ public class Square
         {
             this.piece.setSquare(this);
         }
+        if (null != chessboard)
+        {
+            chessboard.refreshSquare(this);
+        }
     }
 
     /**
@@ -24,5 +24,20 @@ import pl.art.lach.mateusz.javaopenchess.core.moves.Move;
 public interface AI
 {
     public Move getMove(Game game, Move lastMove);
-    
+
+    /**
+     * AI which reports its progress overrides this method, others ignore listener.
+     * @param listener listener called from thread running getMove(), null to remove it
+     */
+    public default void setProgressListener(SearchProgressListener listener)
+    {
+    }
+
+    /**
+     * AI searching on opponent's time stops that search, because position
+     * it expected won't be played (eg. move was undone or game is over).
+     */
+    public default void stopPondering()
+    {
+    }
 }
@@ -15,6 +15,8 @@
 package pl.art.lach.mateusz.javaopenchess.core.ai;
 
 import pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai.*;
+import pl.art.lach.mateusz.javaopenchess.core.book.OpeningBook;
+import pl.art.lach.mateusz.javaopenchess.core.tablebase.Tablebase;
 
 /**
  * Factory for AI classes.
@@ -33,8 +35,30 @@ public class AIFactory {
         {
             result = new Level2();
         }
+        else if (3 == level)
+        {
+            result = createWithBookAndTablebase(new Level3());
+        }
+        else if (4 == level)
+        {
+            result = createWithBookAndTablebase(new Level4());
+        }
+        else if (5 == level)
+        {
+            result = new Level5();
+        }
         return result;
     }
+
+    /**
+     * Sets opening book and endgame tables from working directory, if there are any.
+     */
+    private static Level3 createWithBookAndTablebase(Level3 ai)
+    {
+        ai.setOpeningBook(OpeningBook.openDefault());
+        ai.setTablebase(Tablebase.openDefault());
+        return ai;
+    }
     
     public static final AI getAI(String level)
     {
@@ -0,0 +1,201 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.moves.Move;
+
+/**
+ * Runs AI.getMove() on worker thread, so Swing event thread isn't blocked while
+ * computer thinks. Found move, failure and progress of search are passed to
+ * callbacks on callback executor (Swing event thread by default), where it's
+ * safe to change chessboard. Results of cancelled searches are dropped.
+ */
+public class ComputerMoveExecutor
+{
+    private static final Logger LOG = Logger.getLogger(ComputerMoveExecutor.class);
+
+    private static final String THREAD_NAME = "computer-move";
+
+    private static final long NO_TASK = 0L;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Executor callbackExecutor;
+
+    /**
+     * Held by worker while AI reads chessboard, so cancel() can wait until it's done.
+     */
+    private final Object searchLock = new Object();
+
+    private long lastTaskId = NO_TASK;
+
+    private long pendingTaskId = NO_TASK;
+
+    private Future<?> pendingFuture;
+
+    public ComputerMoveExecutor()
+    {
+        this(SwingUtilities::invokeLater);
+    }
+
+    /**
+     * @param callbackExecutor executor running callbacks, tests can use Runnable::run
+     */
+    public ComputerMoveExecutor(Executor callbackExecutor)
+    {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Starts searching for move of active player, earlier search is cancelled.
+     * Chessboard must not be changed until move is found or search is cancelled.
+     * @param ai AI searching for move
+     * @param game game in which computer moves
+     * @param moveConsumer receives found move
+     * @param progressListener receives progress of search, can be null
+     * @param failureConsumer receives exception thrown by AI, can be null
+     */
+    public void submit(AI ai, Game game, Consumer<Move> moveConsumer, SearchProgressListener progressListener,
+        Consumer<RuntimeException> failureConsumer)
+    {
+        cancel();
+        Move lastMove = game.getMoves().getLastMoveFromHistory();
+        synchronized (this)
+        {
+            long taskId = ++lastTaskId;
+            pendingTaskId = taskId;
+            pendingFuture = worker.submit(() -> search(taskId, ai, game, lastMove, moveConsumer, progressListener,
+                failureConsumer));
+        }
+    }
+
+    /**
+     * Cancels pending search and waits until AI stops reading chessboard,
+     * so chessboard can be changed when this method returns.
+     * @return true if there was pending search
+     */
+    public boolean cancel()
+    {
+        Future<?> future;
+        boolean wasPending;
+        synchronized (this)
+        {
+            wasPending = NO_TASK != pendingTaskId;
+            pendingTaskId = NO_TASK;
+            future = pendingFuture;
+            pendingFuture = null;
+        }
+        if (null != future)
+        {
+            future.cancel(true);
+        }
+        synchronized (searchLock)
+        {
+            return wasPending;
+        }
+    }
+
+    /**
+     * Cancels pending search and stops worker thread, executor can't be used anymore.
+     */
+    public void shutdown()
+    {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    /**
+     * @return true if search was submitted and its move wasn't passed to consumer yet
+     */
+    public synchronized boolean isSearching()
+    {
+        return NO_TASK != pendingTaskId;
+    }
+
+    private void search(long taskId, AI ai, Game game, Move lastMove, Consumer<Move> moveConsumer,
+        SearchProgressListener progressListener, Consumer<RuntimeException> failureConsumer)
+    {
+        Move move;
+        synchronized (searchLock)
+        {
+            if (!isPending(taskId))
+            {
+                return;
+            }
+            if (null != progressListener)
+            {
+                ai.setProgressListener((depth, score, nodes) -> callbackExecutor.execute(() -> {
+                    if (isPending(taskId))
+                    {
+                        progressListener.searchProgress(depth, score, nodes);
+                    }
+                }));
+            }
+            try
+            {
+                move = ai.getMove(game, lastMove);
+            }
+            catch (RuntimeException exc)
+            {
+                LOG.error("computer move search failed: ", exc);
+                callbackExecutor.execute(() -> {
+                    if (complete(taskId) && null != failureConsumer)
+                    {
+                        failureConsumer.accept(exc);
+                    }
+                });
+                return;
+            }
+            finally
+            {
+                ai.setProgressListener(null);
+            }
+        }
+        callbackExecutor.execute(() -> {
+            if (complete(taskId))
+            {
+                moveConsumer.accept(move);
+            }
+        });
+    }
+
+    private synchronized boolean isPending(long taskId)
+    {
+        return taskId == pendingTaskId;
+    }
+
+    private synchronized boolean complete(long taskId)
+    {
+        if (taskId != pendingTaskId)
+        {
+            return false;
+        }
+        pendingTaskId = NO_TASK;
+        pendingFuture = null;
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai;
+
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Square;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.moves.Move;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.PieceFactory;
+
+/**
+ * Converts moves found by search engines (packed ints, see Moves) into
+ * Move objects which can be played on Chessboard.
+ */
+public final class MoveConverter
+{
+    private static final String[] PROMOTION_PIECES = {null, "Knight", "Bishop", "Rook", "Queen"};
+
+    private MoveConverter()
+    {
+    }
+
+    /**
+     * @return move for given chessboard, null for Moves.NO_MOVE
+     */
+    public static Move toMove(Chessboard chessboard, int move)
+    {
+        if (Moves.NO_MOVE == move)
+        {
+            return null;
+        }
+        Square from = getSquare(chessboard, Moves.from(move));
+        Square to = getSquare(chessboard, Moves.to(move));
+        Piece piece = from.getPiece();
+        Piece promotedPiece = null;
+        if (Moves.isPromotion(move))
+        {
+            promotedPiece = PieceFactory.getPiece(
+                chessboard, piece.getPlayer().getColor(), PROMOTION_PIECES[Moves.promotion(move)], piece.getPlayer()
+            );
+        }
+        return new Move(from, to, piece, to.getPiece(), promotedPiece);
+    }
+
+    private static Square getSquare(Chessboard chessboard, int square)
+    {
+        return chessboard.getSquare(Bitboards.pozX(square), Bitboards.pozY(square));
+    }
+}
@@ -0,0 +1,29 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai;
+
+/**
+ * Receives progress of running computer move search.
+ */
+public interface SearchProgressListener
+{
+    /**
+     * Called after every finished iteration of search.
+     * @param depth depth of finished iteration in plies
+     * @param score score of best move in centipawns, from point of view of side to move
+     * @param nodes number of nodes searched so far
+     */
+    void searchProgress(int depth, int score, long nodes);
+}
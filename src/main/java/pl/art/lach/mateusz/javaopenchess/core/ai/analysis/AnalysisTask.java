@@ -0,0 +1,160 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.analysis;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.IterationListener;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.ParallelSearch;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.Search;
+
+/**
+ * Analysis running on its own thread, see Analyzer. Results of finished
+ * iterations are passed to listener as they come, last of them is kept
+ * and returned by await() when analysis ends.
+ */
+public class AnalysisTask
+{
+    private static final long JOIN_INTERVAL = 10L;
+
+    private final ParallelSearch search;
+
+    private final int maxDepth;
+
+    private final long timeLimit;
+
+    private final IterationListener listener;
+
+    private final Thread thread;
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile Search.Result lastResult;
+
+    /**
+     * Set once, before done is counted down.
+     */
+    private volatile Search.Result result;
+
+    AnalysisTask(ParallelSearch search, int maxDepth, long timeLimit, IterationListener listener)
+    {
+        this.search = search;
+        this.maxDepth = maxDepth;
+        this.timeLimit = timeLimit;
+        this.listener = listener;
+        this.thread = new Thread(this::run, "analysis");
+        this.thread.setDaemon(true);
+        search.setIterationListener(this::iterationFinished);
+    }
+
+    void start()
+    {
+        thread.start();
+    }
+
+    private void run()
+    {
+        try
+        {
+            result = search.search(maxDepth, timeLimit);
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    private void iterationFinished(Search.Result iteration)
+    {
+        lastResult = iteration;
+        if (null != listener)
+        {
+            listener.iterationFinished(iteration);
+        }
+    }
+
+    /**
+     * Stops analysis, await() returns result of last finished iteration.
+     * It doesn't wait for analysis thread.
+     */
+    public void cancel()
+    {
+        search.stop();
+    }
+
+    /**
+     * Waits until analysis reaches its depth or time limit, or is cancelled.
+     * @return result with best lines of last finished iteration
+     */
+    public Search.Result await() throws InterruptedException
+    {
+        done.await();
+        return result;
+    }
+
+    /**
+     * @return result of analysis, null if it didn't end in given time
+     */
+    public Search.Result await(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return done.await(timeout, unit) ? result : null;
+    }
+
+    /**
+     * Cancels analysis and waits for its thread, also when calling thread
+     * is interrupted (interrupt status is restored afterwards).
+     */
+    void cancelAndWait()
+    {
+        boolean interrupted = false;
+        while (thread.isAlive())
+        {
+            cancel();
+            try
+            {
+                thread.join(JOIN_INTERVAL);
+            }
+            catch (InterruptedException exc)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isDone()
+    {
+        return 0L == done.getCount();
+    }
+
+    /**
+     * @return result of last finished iteration, null if there was none yet
+     */
+    public Search.Result getLastResult()
+    {
+        return lastResult;
+    }
+
+    /**
+     * @return nodes searched so far by all threads
+     */
+    public long getNodes()
+    {
+        return search.getNodes();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.analysis;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.ai.AIFactory;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.PawnHashTable;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.TaperedEvaluator;
+import pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai.Level3;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.IterationListener;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.ParallelSearch;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.PrincipalVariation;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.Search;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.SearchFeature;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.TranspositionTable;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+/**
+ * Multi-PV analysis of positions, for GUI and batch analysis. It uses search
+ * of AI level taken from AIFactory (its selective techniques, threads,
+ * transposition table and endgame tables), so analysis shows what that AI
+ * would think. Levels not searching with alpha-beta are replaced by
+ * DEFAULT_LEVEL. Only one analysis runs at a time, starting next one stops
+ * the previous.<br/>
+ * Usage: Analyzer [--lines=N] [--depth=N] [--time=ms] fen...
+ */
+public class Analyzer
+{
+    public static final int DEFAULT_LEVEL = 4;
+
+    public static final int DEFAULT_LINES = 3;
+
+    public static final int DEFAULT_DEPTH = 8;
+
+    /**
+     * Time limit of analysis which runs until it's cancelled.
+     */
+    public static final long INFINITE = 0L;
+
+    public static final int MAX_DEPTH = Search.MAX_PLY - 1;
+
+    private static final String OPTION_LINES = "--lines=";
+
+    private static final String OPTION_DEPTH = "--depth=";
+
+    private static final String OPTION_TIME = "--time=";
+
+    private static final long NANOS_IN_MILLISECOND = 1_000_000L;
+
+    private final Level3 settings;
+
+    /**
+     * Transposition table is shared with AI, evaluators are not,
+     * as they can't be used by two searches at the same time.
+     */
+    private final TranspositionTable transpositionTable;
+
+    private final List<TaperedEvaluator> evaluators;
+
+    /**
+     * Guarded by this.
+     */
+    private AnalysisTask running;
+
+    public Analyzer()
+    {
+        this(DEFAULT_LEVEL);
+    }
+
+    /**
+     * @param level AI level as in AIFactory
+     */
+    public Analyzer(int level)
+    {
+        this(createSettings(level));
+    }
+
+    /**
+     * @param settings AI which search settings are used
+     */
+    public Analyzer(Level3 settings)
+    {
+        this.settings = settings;
+        this.transpositionTable = settings.getTranspositionTable();
+        this.evaluators = ParallelSearch.createEvaluators(settings.getThreads(), PawnHashTable.DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * Levels without alpha-beta search are replaced by DEFAULT_LEVEL before
+     * AIFactory is called, so their AI (eg. threads of MCTS) isn't created at all.
+     */
+    private static Level3 createSettings(int level)
+    {
+        boolean searchLevel = 3 == level || 4 == level;
+        return (Level3) AIFactory.getAI(searchLevel ? level : DEFAULT_LEVEL);
+    }
+
+    /**
+     * Starts analysis on its own thread. Position is copied at once,
+     * so it can be changed afterwards.
+     * @param position position to analyze
+     * @param lines number of best lines, there are less of them when there are less legal moves
+     * @param maxDepth maximal depth in plies
+     * @param timeLimit time limit in milliseconds, INFINITE for none
+     * @param listener notified after every finished iteration on analysis thread, null for none
+     * @return running analysis
+     */
+    public synchronized AnalysisTask start(BitboardPosition position, int lines, int maxDepth, long timeLimit,
+        IterationListener listener)
+    {
+        stop();
+        ParallelSearch search = new ParallelSearch(position.copy(), transpositionTable, evaluators);
+        search.setFeatures(settings.getFeatures());
+        search.setTablebase(settings.getTablebase());
+        search.setMultiPv(lines);
+        running = new AnalysisTask(search, maxDepth, timeLimit, listener);
+        running.start();
+        return running;
+    }
+
+    /**
+     * Starts analysis which goes on until it's cancelled, or forced mate is found
+     * in analysis of single line.
+     * @see #start(BitboardPosition, int, int, long, IterationListener)
+     */
+    public AnalysisTask startInfinite(BitboardPosition position, int lines, IterationListener listener)
+    {
+        return start(position, lines, MAX_DEPTH, INFINITE, listener);
+    }
+
+    /**
+     * Analyzes position on calling thread, for batch analysis.
+     * @return result with best lines of last finished iteration
+     */
+    public Search.Result analyze(BitboardPosition position, int lines, int maxDepth, long timeLimit)
+        throws InterruptedException
+    {
+        AnalysisTask task = start(position, lines, maxDepth, timeLimit, null);
+        try
+        {
+            return task.await();
+        }
+        finally
+        {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Stops running analysis and waits until it ends.
+     */
+    public synchronized void stop()
+    {
+        if (null != running)
+        {
+            running.cancelAndWait();
+            running = null;
+        }
+    }
+
+    /**
+     * @return current position of game
+     */
+    public static BitboardPosition positionOf(Game game)
+    {
+        return game.getChessboard().getBitboardPosition();
+    }
+
+    /**
+     * @return position loaded from FEN
+     */
+    public static BitboardPosition positionOf(String fen) throws ReadGameError
+    {
+        return BitboardPosition.fromFen(fen);
+    }
+
+    public Set<SearchFeature> getFeatures()
+    {
+        return settings.getFeatures();
+    }
+
+    public int getThreads()
+    {
+        return evaluators.size();
+    }
+
+    public static void main(String[] args) throws ReadGameError, InterruptedException
+    {
+        int lines = DEFAULT_LINES;
+        int depth = DEFAULT_DEPTH;
+        long time = INFINITE;
+        List<String> fens = new ArrayList<>();
+        for (String arg : args)
+        {
+            if (arg.startsWith(OPTION_LINES))
+            {
+                lines = Integer.parseInt(arg.substring(OPTION_LINES.length()));
+            }
+            else if (arg.startsWith(OPTION_DEPTH))
+            {
+                depth = Integer.parseInt(arg.substring(OPTION_DEPTH.length()));
+            }
+            else if (arg.startsWith(OPTION_TIME))
+            {
+                time = Long.parseLong(arg.substring(OPTION_TIME.length()));
+            }
+            else
+            {
+                fens.add(arg);
+            }
+        }
+        PrintStream out = System.out;
+        if (fens.isEmpty())
+        {
+            out.println("Usage: Analyzer [--lines=N] [--depth=N] [--time=ms] fen...");
+            return;
+        }
+        Analyzer analyzer = new Analyzer();
+        for (String fen : fens)
+        {
+            Search.Result result = analyzer.analyze(positionOf(fen), lines, depth, time);
+            out.println(String.format("%s: %d nodes in %d ms", fen, result.getNodes(),
+                result.getNanos() / NANOS_IN_MILLISECOND));
+            for (PrincipalVariation line : result.getLines())
+            {
+                out.println("  " + line);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.evaluation;
+
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+
+/**
+ * Static evaluation of position, shared by AI searches.
+ * Implementations may keep caches, so one instance should be used
+ * by one searching thread at a time.
+ */
+public interface Evaluator
+{
+    /**
+     * @return score of position in centipawns from side to move point of view
+     */
+    int evaluate(BitboardPosition position);
+}
@@ -0,0 +1,160 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.evaluation;
+
+import java.util.Arrays;
+
+/**
+ * Cache of pawn structure evaluation, indexed by pawn key of position.
+ * Pawns move rarely, so the same structure is evaluated in most nodes of search.
+ * Every entry keeps middlegame and endgame score of structure (from white
+ * point of view) and set of passed pawns of both colors.
+ * Table isn't thread-safe, every searching thread should have its own.
+ * Empty entries hold position without pawns (key 0), which is a valid
+ * entry with zero scores and no passed pawns.
+ */
+public class PawnHashTable
+{
+    public static final int DEFAULT_SIZE_MB = 1;
+
+    public static final int NOT_FOUND = -1;
+
+    private static final int BYTES_PER_ENTRY = 2 * Long.BYTES + 2 * Integer.BYTES;
+
+    private static final long BYTES_IN_MB = 1024L * 1024L;
+
+    private final long[] keys;
+
+    private final int[] middlegameScores;
+
+    private final int[] endgameScores;
+
+    private final long[] passedPawns;
+
+    private final int mask;
+
+    private long probes;
+
+    private long hits;
+
+    /**
+     * @param sizeInMb memory used by table, rounded down to power of two entries
+     */
+    public PawnHashTable(int sizeInMb)
+    {
+        long entries = Math.max(1L, sizeInMb * BYTES_IN_MB / BYTES_PER_ENTRY);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        keys = new long[size];
+        middlegameScores = new int[size];
+        endgameScores = new int[size];
+        passedPawns = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return index of entry for given pawn key, NOT_FOUND if it isn't cached
+     */
+    public int probe(long pawnKey)
+    {
+        probes++;
+        int index = (int) pawnKey & mask;
+        if (keys[index] == pawnKey)
+        {
+            hits++;
+            return index;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Stores evaluation of pawn structure, replacing previous entry.
+     * @return index of stored entry
+     */
+    public int store(long pawnKey, int middlegameScore, int endgameScore, long passed)
+    {
+        int index = (int) pawnKey & mask;
+        keys[index] = pawnKey;
+        middlegameScores[index] = middlegameScore;
+        endgameScores[index] = endgameScore;
+        passedPawns[index] = passed;
+        return index;
+    }
+
+    public int getMiddlegameScore(int index)
+    {
+        return middlegameScores[index];
+    }
+
+    public int getEndgameScore(int index)
+    {
+        return endgameScores[index];
+    }
+
+    /**
+     * @return passed pawns of both colors
+     */
+    public long getPassedPawns(int index)
+    {
+        return passedPawns[index];
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(middlegameScores, 0);
+        Arrays.fill(endgameScores, 0);
+        Arrays.fill(passedPawns, 0L);
+        resetStatistics();
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int getSize()
+    {
+        return keys.length;
+    }
+
+    public long getProbes()
+    {
+        return probes;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return hits to probes ratio (0.0 - 1.0)
+     */
+    public double getHitRate()
+    {
+        return 0L == probes ? 0.0 : (double) hits / probes;
+    }
+
+    public void resetStatistics()
+    {
+        probes = 0L;
+        hits = 0L;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("PawnHashTable: %d entries, %d probes, %d hits (%.1f%%)",
+            getSize(), getProbes(), getHits(), 100.0 * getHitRate());
+    }
+}
@@ -0,0 +1,317 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.evaluation;
+
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.PieceSquareTables.MAX_PHASE;
+
+/**
+ * Evaluation with separate middlegame and endgame scores, blended by game phase.
+ * Material and piece-square values are kept incrementally by BitboardPosition,
+ * pawn structure is cached in pawn hash table, mobility and king safety
+ * are computed here.
+ */
+public class TaperedEvaluator implements Evaluator
+{
+    private static final int DOUBLED_PAWN_MIDDLEGAME = -10;
+
+    private static final int DOUBLED_PAWN_ENDGAME = -20;
+
+    private static final int ISOLATED_PAWN_MIDDLEGAME = -10;
+
+    private static final int ISOLATED_PAWN_ENDGAME = -15;
+
+    /**
+     * Bonuses of passed pawn by rank, counted from side of pawn's owner.
+     */
+    private static final int[] PASSED_PAWN_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+
+    private static final int[] PASSED_PAWN_ENDGAME = {0, 10, 15, 25, 45, 75, 110, 0};
+
+    /**
+     * Bonuses per square reachable by piece, squares attacked by enemy pawns excluded.
+     */
+    private static final int[] MOBILITY_MIDDLEGAME = {0, 4, 3, 2, 1, 0};
+
+    private static final int[] MOBILITY_ENDGAME = {0, 4, 3, 4, 2, 0};
+
+    /**
+     * Typical number of reachable squares, mobility below it is penalized.
+     */
+    private static final int[] MOBILITY_BASE = {0, 4, 6, 7, 13, 0};
+
+    private static final int PAWN_SHIELD_BONUS = 10;
+
+    private static final int OPEN_FILE_NEAR_KING_PENALTY = -15;
+
+    /**
+     * Attack units per square around enemy king attacked by piece.
+     */
+    private static final int[] KING_ATTACK_WEIGHTS = {0, 2, 2, 3, 5, 0};
+
+    private static final int MIN_KING_ATTACKERS = 2;
+
+    private static final int MAX_KING_DANGER = 400;
+
+    private static final long[] FILES = new long[8];
+
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    /**
+     * Squares in front of pawn on its and adjacent files, which must be free
+     * of enemy pawns for pawn to be passed.
+     */
+    private static final long[][] PASSED_PAWN_MASKS = new long[2][NUMBER_OF_SQUARES];
+
+    /**
+     * Squares on king's and adjacent files, one and two ranks in front of king.
+     */
+    private static final long[][] PAWN_SHIELDS = new long[2][NUMBER_OF_SQUARES];
+
+    static
+    {
+        for (int file = 0; file < 8; file++)
+        {
+            FILES[file] = FILE_A << file;
+        }
+        for (int file = 0; file < 8; file++)
+        {
+            ADJACENT_FILES[file] = (0 < file ? FILES[file - 1] : EMPTY) | (7 > file ? FILES[file + 1] : EMPTY);
+        }
+        for (int square = 0; square < NUMBER_OF_SQUARES; square++)
+        {
+            long span = FILES[file(square)] | ADJACENT_FILES[file(square)];
+            long above = rank(square) < 7 ? -1L << (8 * (rank(square) + 1)) : EMPTY;
+            long below = (1L << (8 * rank(square))) - 1;
+            PASSED_PAWN_MASKS[WHITE][square] = span & above;
+            PASSED_PAWN_MASKS[BLACK][square] = span & below;
+            long twoAbove = rank(square) < 5 ? above & ((1L << (8 * (rank(square) + 3))) - 1) : above;
+            long twoBelow = below & (-1L << Math.max(0, 8 * (rank(square) - 2)));
+            PAWN_SHIELDS[WHITE][square] = span & twoAbove;
+            PAWN_SHIELDS[BLACK][square] = span & twoBelow;
+        }
+    }
+
+    private final PawnHashTable pawnHashTable;
+
+    private int middlegame;
+
+    private int endgame;
+
+    private int pawnMiddlegame;
+
+    private int pawnEndgame;
+
+    private long passedPawns;
+
+    public TaperedEvaluator()
+    {
+        this(new PawnHashTable(PawnHashTable.DEFAULT_SIZE_MB));
+    }
+
+    /**
+     * @param pawnHashTable cache of pawn structure, used only by this evaluator
+     */
+    public TaperedEvaluator(PawnHashTable pawnHashTable)
+    {
+        this.pawnHashTable = pawnHashTable;
+    }
+
+    @Override
+    public int evaluate(BitboardPosition position)
+    {
+        middlegame = position.getMiddlegameScore();
+        endgame = position.getEndgameScore();
+        evaluatePawns(position);
+        evaluatePieces(position, WHITE);
+        evaluatePieces(position, BLACK);
+        int phase = Math.min(position.getPhase(), MAX_PHASE);
+        int score = (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+        return WHITE == position.getSideToMove() ? score : -score;
+    }
+
+    public PawnHashTable getPawnHashTable()
+    {
+        return pawnHashTable;
+    }
+
+    /**
+     * Adds pawn structure of both sides to middlegame and endgame scores,
+     * taking it from pawn hash table when possible.
+     */
+    private void evaluatePawns(BitboardPosition position)
+    {
+        long pawnKey = position.getPawnKey();
+        int index = pawnHashTable.probe(pawnKey);
+        if (PawnHashTable.NOT_FOUND == index)
+        {
+            pawnMiddlegame = 0;
+            pawnEndgame = 0;
+            passedPawns = EMPTY;
+            evaluatePawnStructure(position, WHITE);
+            evaluatePawnStructure(position, BLACK);
+            index = pawnHashTable.store(pawnKey, pawnMiddlegame, pawnEndgame, passedPawns);
+        }
+        middlegame += pawnHashTable.getMiddlegameScore(index);
+        endgame += pawnHashTable.getEndgameScore(index);
+        evaluateBlockedPassedPawns(position, pawnHashTable.getPassedPawns(index));
+    }
+
+    private void evaluatePawnStructure(BitboardPosition position, int color)
+    {
+        long pawns = position.getPieces(color, PAWN);
+        long enemyPawns = position.getPieces(opponent(color), PAWN);
+        int sign = WHITE == color ? 1 : -1;
+        int middlegameScore = 0;
+        int endgameScore = 0;
+        for (int file = 0; file < 8; file++)
+        {
+            int count = count(pawns & FILES[file]);
+            if (1 < count)
+            {
+                middlegameScore += DOUBLED_PAWN_MIDDLEGAME * (count - 1);
+                endgameScore += DOUBLED_PAWN_ENDGAME * (count - 1);
+            }
+            if (0 < count && 0L == (pawns & ADJACENT_FILES[file]))
+            {
+                middlegameScore += ISOLATED_PAWN_MIDDLEGAME * count;
+                endgameScore += ISOLATED_PAWN_ENDGAME * count;
+            }
+        }
+        for (long remaining = pawns; 0L != remaining; remaining &= remaining - 1)
+        {
+            int square = first(remaining);
+            if (0L == (enemyPawns & PASSED_PAWN_MASKS[color][square]))
+            {
+                int rank = relativeRank(color, square);
+                middlegameScore += PASSED_PAWN_MIDDLEGAME[rank];
+                endgameScore += PASSED_PAWN_ENDGAME[rank];
+                passedPawns |= bit(square);
+            }
+        }
+        pawnMiddlegame += sign * middlegameScore;
+        pawnEndgame += sign * endgameScore;
+    }
+
+    /**
+     * Passed pawn with any piece right in front of it loses half of its endgame bonus.
+     * Depends on pieces, so it's not cached with pawn structure.
+     */
+    private void evaluateBlockedPassedPawns(BitboardPosition position, long passed)
+    {
+        long occupied = position.getOccupied();
+        long white = passed & position.getPieces(WHITE, PAWN);
+        long black = passed & position.getPieces(BLACK, PAWN);
+        for (long blocked = white & (occupied >>> 8); 0L != blocked; blocked &= blocked - 1)
+        {
+            endgame -= PASSED_PAWN_ENDGAME[relativeRank(WHITE, first(blocked))] / 2;
+        }
+        for (long blocked = black & (occupied << 8); 0L != blocked; blocked &= blocked - 1)
+        {
+            endgame += PASSED_PAWN_ENDGAME[relativeRank(BLACK, first(blocked))] / 2;
+        }
+    }
+
+    /**
+     * Adds mobility of pieces, their attacks on enemy king and pawn shield
+     * of own king.
+     */
+    private void evaluatePieces(BitboardPosition position, int color)
+    {
+        int enemy = opponent(color);
+        int sign = WHITE == color ? 1 : -1;
+        long occupied = position.getOccupied();
+        long available = ~position.getOccupancy(color) & ~pawnAttacks(enemy, position.getPieces(enemy, PAWN));
+        int enemyKing = position.getKingSquare(enemy);
+        long kingZone = NO_SQUARE == enemyKing ? EMPTY : kingAttacks(enemyKing) | bit(enemyKing);
+        int middlegameScore = 0;
+        int endgameScore = 0;
+        int kingAttackers = 0;
+        int kingAttackUnits = 0;
+        for (int type = KNIGHT; type < KING; type++)
+        {
+            for (long pieces = position.getPieces(color, type); 0L != pieces; pieces &= pieces - 1)
+            {
+                long attacks = attacks(type, first(pieces), occupied);
+                int mobility = count(attacks & available) - MOBILITY_BASE[type];
+                middlegameScore += MOBILITY_MIDDLEGAME[type] * mobility;
+                endgameScore += MOBILITY_ENDGAME[type] * mobility;
+                long kingAttacks = attacks & kingZone;
+                if (0L != kingAttacks)
+                {
+                    kingAttackers++;
+                    kingAttackUnits += KING_ATTACK_WEIGHTS[type] * count(kingAttacks);
+                }
+            }
+        }
+        if (MIN_KING_ATTACKERS <= kingAttackers)
+        {
+            middlegameScore += Math.min(kingAttackUnits * kingAttackUnits / 4, MAX_KING_DANGER);
+        }
+        int king = position.getKingSquare(color);
+        if (NO_SQUARE != king)
+        {
+            long pawns = position.getPieces(color, PAWN);
+            middlegameScore += PAWN_SHIELD_BONUS * count(pawns & PAWN_SHIELDS[color][king]);
+            for (int file = Math.max(0, file(king) - 1); file <= Math.min(7, file(king) + 1); file++)
+            {
+                if (0L == (pawns & FILES[file]))
+                {
+                    middlegameScore += OPEN_FILE_NEAR_KING_PENALTY;
+                }
+            }
+        }
+        middlegame += sign * middlegameScore;
+        endgame += sign * endgameScore;
+    }
+
+    /**
+     * @return rank of square counted from side of given color, 0 - 7
+     */
+    private static int relativeRank(int color, int square)
+    {
+        return WHITE == color ? rank(square) : 7 - rank(square);
+    }
+
+    private static long attacks(int type, int square, long occupied)
+    {
+        switch (type)
+        {
+            case KNIGHT:
+                return knightAttacks(square);
+            case BISHOP:
+                return bishopAttacks(square, occupied);
+            case ROOK:
+                return rookAttacks(square, occupied);
+            default:
+                return queenAttacks(square, occupied);
+        }
+    }
+
+    /**
+     * @return squares attacked by all given pawns of color
+     */
+    private static long pawnAttacks(int color, long pawns)
+    {
+        if (WHITE == color)
+        {
+            return ((pawns << 7) & ~FILE_H) | ((pawns << 9) & ~FILE_A);
+        }
+        return ((pawns >>> 9) & ~FILE_H) | ((pawns >>> 7) & ~FILE_A);
+    }
+}
@@ -0,0 +1,352 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.GameClock;
+import pl.art.lach.mateusz.javaopenchess.core.ai.AI;
+import pl.art.lach.mateusz.javaopenchess.core.ai.MoveConverter;
+import pl.art.lach.mateusz.javaopenchess.core.ai.SearchProgressListener;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.PawnHashTable;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.TaperedEvaluator;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.ParallelSearch;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.Ponderer;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.Search;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.SearchFeature;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.TimeManager;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.TranspositionTable;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.book.OpeningBook;
+import pl.art.lach.mateusz.javaopenchess.core.moves.Move;
+import pl.art.lach.mateusz.javaopenchess.core.tablebase.Tablebase;
+
+/**
+ * AI searching game tree with alpha-beta, see Search. It searches deeper
+ * as long as it has time, so it plays stronger on faster CPU. In game with
+ * time limit, time for move is taken from game clock (see TimeManager),
+ * otherwise fixed move time is used. With pondering enabled it goes on
+ * searching on opponent's time, see Ponderer. Moves found in opening book
+ * are played at once, without search, and endgames of few pieces are
+ * played perfectly with tablebase.
+ */
+public class Level3 implements AI
+{
+    private static final Logger LOG = Logger.getLogger(Level3.class);
+
+    private static final long MILLISECONDS_IN_SECOND = 1000L;
+
+    public static final long DEFAULT_MOVE_TIME = 2000L;
+
+    public static final int DEFAULT_MAX_DEPTH = Search.MAX_PLY - 1;
+
+    /**
+     * All cores are used by default.
+     */
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Pondering is enabled for AI created by default constructor, which is used in GUI.
+     */
+    public static final boolean DEFAULT_PONDERING = true;
+
+    private final long moveTime;
+
+    private final int maxDepth;
+
+    /**
+     * Kept between moves, so results of previous searches are reused.
+     */
+    private final TranspositionTable transpositionTable;
+
+    private final int threads;
+
+    /**
+     * null if pondering is disabled.
+     */
+    private final Ponderer ponderer;
+
+    /**
+     * Evaluator of every search thread, kept between moves with their pawn hash tables.
+     */
+    private final List<TaperedEvaluator> evaluators;
+
+    private final Set<SearchFeature> features;
+
+    private volatile SearchProgressListener progressListener;
+
+    /**
+     * null if book isn't used.
+     */
+    private volatile OpeningBook openingBook;
+
+    /**
+     * null if endgame tables aren't used.
+     */
+    private volatile Tablebase tablebase;
+
+    private final Random random = new Random();
+
+    public Level3()
+    {
+        this(DEFAULT_MOVE_TIME, DEFAULT_MAX_DEPTH, TranspositionTable.DEFAULT_SIZE_MB,
+            DEFAULT_THREADS, DEFAULT_PONDERING);
+    }
+
+    /**
+     * @param moveTime time for single move in milliseconds, 0 means no limit
+     * @param maxDepth maximal search depth in plies
+     */
+    public Level3(long moveTime, int maxDepth)
+    {
+        this(moveTime, maxDepth, TranspositionTable.DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * @param moveTime time for single move in milliseconds, 0 means no limit
+     * @param maxDepth maximal search depth in plies
+     * @param hashSize size of transposition table in MB
+     */
+    public Level3(long moveTime, int maxDepth, int hashSize)
+    {
+        this(moveTime, maxDepth, hashSize, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param moveTime time for single move in milliseconds, 0 means no limit
+     * @param maxDepth maximal search depth in plies
+     * @param hashSize size of transposition table in MB
+     * @param threads number of search threads, 1 gives deterministic search
+     */
+    public Level3(long moveTime, int maxDepth, int hashSize, int threads)
+    {
+        this(moveTime, maxDepth, hashSize, threads, false);
+    }
+
+    /**
+     * @param moveTime time for single move in milliseconds, 0 means no limit
+     * @param maxDepth maximal search depth in plies
+     * @param hashSize size of transposition table in MB
+     * @param threads number of search threads, 1 gives deterministic search
+     * @param pondering if true, AI searches also on opponent's time
+     */
+    public Level3(long moveTime, int maxDepth, int hashSize, int threads, boolean pondering)
+    {
+        this(moveTime, maxDepth, hashSize, threads, pondering, PawnHashTable.DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * @param moveTime time for single move in milliseconds, 0 means no limit
+     * @param maxDepth maximal search depth in plies
+     * @param hashSize size of transposition table in MB
+     * @param threads number of search threads, 1 gives deterministic search
+     * @param pondering if true, AI searches also on opponent's time
+     * @param pawnHashSize size of pawn hash table of every search thread in MB
+     */
+    public Level3(long moveTime, int maxDepth, int hashSize, int threads, boolean pondering, int pawnHashSize)
+    {
+        this(moveTime, maxDepth, hashSize, threads, pondering, pawnHashSize, EnumSet.noneOf(SearchFeature.class));
+    }
+
+    /**
+     * @param moveTime time for single move in milliseconds, 0 means no limit
+     * @param maxDepth maximal search depth in plies
+     * @param hashSize size of transposition table in MB
+     * @param threads number of search threads, 1 gives deterministic search
+     * @param pondering if true, AI searches also on opponent's time
+     * @param pawnHashSize size of pawn hash table of every search thread in MB
+     * @param features selective search techniques, none gives full-width search
+     */
+    public Level3(long moveTime, int maxDepth, int hashSize, int threads, boolean pondering, int pawnHashSize,
+        Set<SearchFeature> features)
+    {
+        this.moveTime = moveTime;
+        this.maxDepth = maxDepth;
+        this.transpositionTable = new TranspositionTable(hashSize);
+        this.threads = Math.max(1, threads);
+        this.evaluators = ParallelSearch.createEvaluators(this.threads, pawnHashSize);
+        this.features = features.isEmpty() ? EnumSet.noneOf(SearchFeature.class) : EnumSet.copyOf(features);
+        this.ponderer = pondering ? new Ponderer(transpositionTable, evaluators) : null;
+        if (null != ponderer)
+        {
+            ponderer.setFeatures(this.features);
+        }
+    }
+
+    @Override
+    public Move getMove(Game game, Move lastMove)
+    {
+        Chessboard chessboard = game.getChessboard();
+        BitboardPosition position = chessboard.getBitboardPosition();
+        int bookMove = getBookMove(position);
+        if (Moves.NO_MOVE != bookMove)
+        {
+            LOG.debug("Level3: book move " + Moves.toString(bookMove));
+            stopPondering();
+            return MoveConverter.toMove(chessboard, bookMove);
+        }
+        long[] history = chessboard.getPositionHistory().getKeys(chessboard.getHalfCounter());
+        TimeManager timeManager = createTimeManager(game);
+        Search.Result result = null;
+        if (null != ponderer)
+        {
+            result = ponderer.finish(position, timeManager, progressListener);
+        }
+        if (null == result)
+        {
+            ParallelSearch search = new ParallelSearch(position, transpositionTable, evaluators);
+            search.setProgressListener(progressListener);
+            search.setFeatures(features);
+            search.setTablebase(tablebase);
+            search.setHistory(history);
+            result = search.search(maxDepth, timeManager);
+        }
+        LOG.debug(String.format("Level3: %s, %s, %s, %s", result, timeManager, transpositionTable,
+            evaluators.get(0).getPawnHashTable()));
+        if (null != ponderer && !Thread.currentThread().isInterrupted())
+        {
+            ponderer.start(position, result.getBestMove(), maxDepth, history);
+            LOG.debug(ponderer);
+        }
+        return MoveConverter.toMove(chessboard, result.getBestMove());
+    }
+
+    private int getBookMove(BitboardPosition position)
+    {
+        OpeningBook book = openingBook;
+        if (null == book)
+        {
+            return Moves.NO_MOVE;
+        }
+        synchronized (random)
+        {
+            return book.getMove(position, random);
+        }
+    }
+
+    /**
+     * @return time manager sharing time left on clock of active player,
+     * or giving fixed move time in game without time limit
+     */
+    TimeManager createTimeManager(Game game)
+    {
+        GameClock clock = game.getGameClock();
+        if (null == clock || !game.getSettings().isTimeLimitSet())
+        {
+            return TimeManager.fixed(moveTime);
+        }
+        long remainingTime = clock.getLeftTime(game.getActivePlayer().getColor()) * MILLISECONDS_IN_SECOND;
+        int movesPlayed = game.getMoves().getMoveBackStack().size() / 2;
+        return TimeManager.fromClock(remainingTime, 0L, movesPlayed);
+    }
+
+    @Override
+    public void setProgressListener(SearchProgressListener listener)
+    {
+        this.progressListener = listener;
+    }
+
+    @Override
+    public void stopPondering()
+    {
+        if (null != ponderer)
+        {
+            ponderer.stop();
+        }
+    }
+
+    /**
+     * @param openingBook book to play moves from, null to always search
+     */
+    public void setOpeningBook(OpeningBook openingBook)
+    {
+        this.openingBook = openingBook;
+    }
+
+    public OpeningBook getOpeningBook()
+    {
+        return openingBook;
+    }
+
+    /**
+     * @param tablebase endgame tables used by search and pondering, null for none
+     */
+    public void setTablebase(Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+        if (null != ponderer)
+        {
+            ponderer.setTablebase(tablebase);
+        }
+    }
+
+    public Tablebase getTablebase()
+    {
+        return tablebase;
+    }
+
+    public boolean isPondering()
+    {
+        return null != ponderer && ponderer.isPondering();
+    }
+
+    /**
+     * @return ponderer of this AI, null if pondering is disabled
+     */
+    public Ponderer getPonderer()
+    {
+        return ponderer;
+    }
+
+    public long getMoveTime()
+    {
+        return moveTime;
+    }
+
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    public Set<SearchFeature> getFeatures()
+    {
+        return Collections.unmodifiableSet(features);
+    }
+
+    public TranspositionTable getTranspositionTable()
+    {
+        return transpositionTable;
+    }
+
+    /**
+     * @return pawn hash table of main search thread
+     */
+    public PawnHashTable getPawnHashTable()
+    {
+        return evaluators.get(0).getPawnHashTable();
+    }
+}
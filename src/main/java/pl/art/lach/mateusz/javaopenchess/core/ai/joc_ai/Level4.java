@@ -0,0 +1,47 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai;
+
+import java.util.EnumSet;
+import java.util.Set;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.PawnHashTable;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.SearchFeature;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.TranspositionTable;
+
+/**
+ * Level3 with selective search: null move and futility pruning, late move
+ * reductions, principal variation search and aspiration windows
+ * (see SearchFeature). It reaches much deeper in the same time, at the cost
+ * of missing some moves which are pruned or reduced by mistake.
+ */
+public class Level4 extends Level3
+{
+    public Level4()
+    {
+        super(DEFAULT_MOVE_TIME, DEFAULT_MAX_DEPTH, TranspositionTable.DEFAULT_SIZE_MB,
+            DEFAULT_THREADS, DEFAULT_PONDERING, PawnHashTable.DEFAULT_SIZE_MB, EnumSet.allOf(SearchFeature.class));
+    }
+
+    /**
+     * @param moveTime time for single move in milliseconds, 0 means no limit
+     * @param maxDepth maximal search depth in plies
+     * @param features selective search techniques to use, eg. all but one for testing
+     */
+    public Level4(long moveTime, int maxDepth, Set<SearchFeature> features)
+    {
+        super(moveTime, maxDepth, TranspositionTable.DEFAULT_SIZE_MB,
+            DEFAULT_THREADS, false, PawnHashTable.DEFAULT_SIZE_MB, features);
+    }
+}
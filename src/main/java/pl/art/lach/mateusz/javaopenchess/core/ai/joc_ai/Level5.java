@@ -0,0 +1,90 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai;
+
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.ai.AI;
+import pl.art.lach.mateusz.javaopenchess.core.ai.MoveConverter;
+import pl.art.lach.mateusz.javaopenchess.core.ai.mcts.MonteCarloTreeSearch;
+import pl.art.lach.mateusz.javaopenchess.core.moves.Move;
+
+/**
+ * AI using Monte Carlo tree search instead of alpha-beta, see MonteCarloTreeSearch.
+ * Its strength is set only by number of playouts per move. All cores share
+ * playouts, so with twice as many cores the same budget takes half the time.
+ */
+public class Level5 implements AI
+{
+    private static final Logger LOG = Logger.getLogger(Level5.class);
+
+    public static final int DEFAULT_PLAYOUTS = 20000;
+
+    /**
+     * All cores are used by default.
+     */
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final int playouts;
+
+    /**
+     * Kept between moves, so tree of previous search is reused.
+     */
+    private final MonteCarloTreeSearch search;
+
+    public Level5()
+    {
+        this(DEFAULT_PLAYOUTS);
+    }
+
+    /**
+     * @param playouts playouts per move
+     */
+    public Level5(int playouts)
+    {
+        this(playouts, DEFAULT_THREADS, MonteCarloTreeSearch.DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * @param playouts playouts per move
+     * @param threads number of threads running playouts
+     * @param poolSize maximal number of nodes of search tree
+     */
+    public Level5(int playouts, int threads, int poolSize)
+    {
+        this.playouts = playouts;
+        this.search = new MonteCarloTreeSearch(Math.max(1, threads), poolSize);
+    }
+
+    @Override
+    public Move getMove(Game game, Move lastMove)
+    {
+        Chessboard chessboard = game.getChessboard();
+        MonteCarloTreeSearch.Result result = search.search(chessboard.getBitboardPosition(), playouts);
+        LOG.debug("Level5: " + result);
+        return MoveConverter.toMove(chessboard, result.getBestMove());
+    }
+
+    public int getPlayouts()
+    {
+        return playouts;
+    }
+
+    public MonteCarloTreeSearch getSearch()
+    {
+        return search;
+    }
+}
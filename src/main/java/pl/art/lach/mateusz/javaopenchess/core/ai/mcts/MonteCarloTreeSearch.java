@@ -0,0 +1,370 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.TaperedEvaluator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+/**
+ * Monte Carlo tree search with UCT. All threads grow one shared tree (tree parallelism),
+ * visit counted on the way down works as virtual loss, so threads spread over
+ * different paths. Strength depends only on number of playouts; threads share
+ * the budget, so the same budget is used up proportionally faster on more cores.<br/>
+ * Tree is kept between moves: if position of next search is root's child or grandchild,
+ * its subtree is copied to spare pool and becomes new root.
+ */
+public class MonteCarloTreeSearch
+{
+    /**
+     * Playout result of won game, results are kept as integers.
+     */
+    static final int WIN = 1000;
+
+    static final int DRAW = WIN / 2;
+
+    /**
+     * UCT exploration constant.
+     */
+    static final double EXPLORATION = Math.sqrt(2.0);
+
+    public static final int DEFAULT_POOL_SIZE = 1 << 20;
+
+    private static final String THREAD_NAME = "MonteCarloTreeSearch";
+
+    private static final long NANOS_IN_MILLISECOND = 1_000_000L;
+
+    /**
+     * Idle threads end after this time, so forgotten search keeps no threads.
+     */
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 10L;
+
+    private NodePool pool;
+
+    /**
+     * Target of copying reused subtree, swapped with pool then.
+     */
+    private NodePool spare;
+
+    private int root = NodePool.NO_NODE;
+
+    private BitboardPosition rootPosition;
+
+    private final List<PlayoutWorker> workers = new ArrayList<>();
+
+    private final ExecutorService executor;
+
+    private volatile boolean stopped;
+
+    /**
+     * @param threads number of threads running playouts
+     * @param poolSize maximal number of nodes of tree, two pools of this size are allocated
+     */
+    public MonteCarloTreeSearch(int threads, int poolSize)
+    {
+        this.pool = new NodePool(poolSize);
+        this.spare = new NodePool(poolSize);
+        for (int i = 0; i < threads; i++)
+        {
+            workers.add(new PlayoutWorker(new TaperedEvaluator(), i));
+        }
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads,
+            THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+        threadPool.allowCoreThreadTimeOut(true);
+        this.executor = threadPool;
+    }
+
+    /**
+     * Runs given number of playouts from position. Interrupting calling thread stops search.
+     * @return most visited move, Moves.NO_MOVE in result if there are no legal moves
+     */
+    public synchronized Result search(BitboardPosition position, int playouts)
+    {
+        long start = System.nanoTime();
+        stopped = false;
+        int reusedVisits = setRoot(position);
+        MoveList rootMoves = new MoveList();
+        MoveGenerator.generateLegal(position, rootMoves);
+        if (1 >= rootMoves.size())
+        {
+            int move = rootMoves.isEmpty() ? Moves.NO_MOVE : rootMoves.get(0);
+            return new Result(move, 0, 0, reusedVisits, pool.size(), System.nanoTime() - start);
+        }
+        AtomicInteger budget = new AtomicInteger(playouts);
+        NodePool searchPool = pool;
+        int searchRoot = root;
+        BitboardPosition searchPosition = rootPosition;
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (PlayoutWorker worker : workers)
+        {
+            futures.add(executor.submit(() -> worker.run(this, searchPool, searchRoot, searchPosition, budget)));
+        }
+        int played = 0;
+        boolean interrupted = false;
+        for (Future<Integer> future : futures)
+        {
+            // workers must finish before tree is used again, even if calling thread is interrupted
+            while (true)
+            {
+                try
+                {
+                    played += future.get();
+                    break;
+                }
+                catch (InterruptedException exc)
+                {
+                    stop();
+                    interrupted = true;
+                }
+                catch (ExecutionException exc)
+                {
+                    throw new IllegalStateException(exc.getCause());
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        int best = getMostVisitedChild(root);
+        long time = System.nanoTime() - start;
+        if (NodePool.NO_NODE == best)
+        {
+            return new Result(rootMoves.get(0), 0, played, reusedVisits, pool.size(), time);
+        }
+        double winRate = pool.getScore(best) / (double) (WIN * Math.max(1, pool.getVisits(best)));
+        return new Result(pool.getMove(best), winRate, played, reusedVisits, pool.size(), time);
+    }
+
+    /**
+     * Finds node of position in tree of previous search, or starts new tree.
+     * @return visits of reused root
+     */
+    private int setRoot(BitboardPosition position)
+    {
+        int node = findNode(position);
+        if (NodePool.NO_NODE == node)
+        {
+            pool.clear();
+            root = pool.allocate(1);
+        }
+        else if (node != root)
+        {
+            spare.clear();
+            root = spare.copySubtree(pool, node);
+            NodePool previous = pool;
+            pool = spare;
+            spare = previous;
+        }
+        rootPosition = position.copy();
+        return pool.getVisits(root);
+    }
+
+    /**
+     * @return root, its child or grandchild with given position, NO_NODE if there's none
+     */
+    private int findNode(BitboardPosition position)
+    {
+        if (NodePool.NO_NODE == root)
+        {
+            return NodePool.NO_NODE;
+        }
+        long key = position.getZobristKey();
+        if (rootPosition.getZobristKey() == key)
+        {
+            return root;
+        }
+        BitboardPosition child = rootPosition.copy();
+        for (int node : getChildren(root))
+        {
+            long undo = child.makeMove(pool.getMove(node));
+            if (child.getZobristKey() == key)
+            {
+                return node;
+            }
+            for (int grandchild : getChildren(node))
+            {
+                long grandchildUndo = child.makeMove(pool.getMove(grandchild));
+                boolean found = child.getZobristKey() == key;
+                child.unmakeMove(pool.getMove(grandchild), grandchildUndo);
+                if (found)
+                {
+                    return grandchild;
+                }
+            }
+            child.unmakeMove(pool.getMove(node), undo);
+        }
+        return NodePool.NO_NODE;
+    }
+
+    private int[] getChildren(int node)
+    {
+        int count = Math.max(0, pool.getChildCount(node));
+        int[] children = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            children[i] = pool.getFirstChild(node) + i;
+        }
+        return children;
+    }
+
+    private int getMostVisitedChild(int node)
+    {
+        int best = NodePool.NO_NODE;
+        for (int child : getChildren(node))
+        {
+            if (NodePool.NO_NODE == best || pool.getVisits(child) > pool.getVisits(best))
+            {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stops running search, it returns best move found so far.
+     */
+    public void stop()
+    {
+        stopped = true;
+    }
+
+    boolean isStopped()
+    {
+        return stopped;
+    }
+
+    /**
+     * @return root moves of last search with their visits and win rates, one per line
+     */
+    public synchronized String getRootStatistics()
+    {
+        StringBuilder result = new StringBuilder();
+        for (int child : getChildren(root))
+        {
+            result.append(String.format("%s %d %.3f%n", Moves.toString(pool.getMove(child)), pool.getVisits(child),
+                pool.getScore(child) / (double) (WIN * Math.max(1, pool.getVisits(child)))));
+        }
+        return result.toString();
+    }
+
+    public int getThreads()
+    {
+        return workers.size();
+    }
+
+    /**
+     * Result of search.
+     */
+    public static class Result
+    {
+        private final int bestMove;
+
+        private final double winRate;
+
+        private final int playouts;
+
+        private final int reusedVisits;
+
+        private final int nodes;
+
+        private final long time;
+
+        Result(int bestMove, double winRate, int playouts, int reusedVisits, int nodes, long time)
+        {
+            this.bestMove = bestMove;
+            this.winRate = winRate;
+            this.playouts = playouts;
+            this.reusedVisits = reusedVisits;
+            this.nodes = nodes;
+            this.time = time;
+        }
+
+        public int getBestMove()
+        {
+            return bestMove;
+        }
+
+        /**
+         * @return average result of playouts of best move, from 0 (loss) to 1 (win)
+         */
+        public double getWinRate()
+        {
+            return winRate;
+        }
+
+        /**
+         * @return playouts run by this search
+         */
+        public int getPlayouts()
+        {
+            return playouts;
+        }
+
+        /**
+         * @return visits of root reused from previous search
+         */
+        public int getReusedVisits()
+        {
+            return reusedVisits;
+        }
+
+        /**
+         * @return nodes of tree
+         */
+        public int getNodes()
+        {
+            return nodes;
+        }
+
+        /**
+         * @return time in nanoseconds
+         */
+        public long getTime()
+        {
+            return time;
+        }
+
+        /**
+         * @return playouts per second
+         */
+        public long getPlayoutsPerSecond()
+        {
+            return 0L == time ? 0L : playouts * 1_000_000_000L / time;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("best move %s, win rate %.3f, %d playouts (%d reused), %d nodes in %d ms",
+                Moves.toString(bestMove), winRate, playouts, reusedVisits, nodes, time / NANOS_IN_MILLISECOND);
+        }
+    }
+}
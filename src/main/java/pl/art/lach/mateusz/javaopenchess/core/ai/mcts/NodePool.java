@@ -0,0 +1,236 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.mcts;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated nodes of search tree, kept in parallel arrays and referenced
+ * by index, so search creates no objects. Children of node are allocated as
+ * one block when node is expanded. Visits, scores and child counts are atomic,
+ * so many threads can walk and grow the same tree.
+ */
+public class NodePool
+{
+    public static final int NO_NODE = -1;
+
+    /**
+     * Child count of leaf which has not been expanded yet.
+     */
+    public static final int NOT_EXPANDED = -1;
+
+    /**
+     * Child count of node expanded right now by some thread.
+     */
+    public static final int EXPANDING = -2;
+
+    private final int capacity;
+
+    private final int[] moves;
+
+    private final int[] firstChildren;
+
+    /**
+     * Written after children are initialized, so reading it first makes them visible.
+     */
+    private final AtomicIntegerArray childCounts;
+
+    private final AtomicIntegerArray visits;
+
+    /**
+     * Sum of playout results, from point of view of side which played node's move.
+     */
+    private final AtomicLongArray scores;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param capacity maximal number of nodes
+     */
+    public NodePool(int capacity)
+    {
+        this.capacity = capacity;
+        this.moves = new int[capacity];
+        this.firstChildren = new int[capacity];
+        this.childCounts = new AtomicIntegerArray(capacity);
+        this.visits = new AtomicIntegerArray(capacity);
+        this.scores = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Allocates block of nodes, which are initialized as unvisited leaves of no move.
+     * @return index of first node of block, NO_NODE if pool is full
+     */
+    public int allocate(int count)
+    {
+        if (isFull())
+        {
+            return NO_NODE;
+        }
+        int first = size.getAndAdd(count);
+        if (capacity < first + count)
+        {
+            size.set(capacity);
+            return NO_NODE;
+        }
+        for (int node = first; node < first + count; node++)
+        {
+            moves[node] = 0;
+            firstChildren[node] = NO_NODE;
+            visits.set(node, 0);
+            scores.set(node, 0L);
+            childCounts.set(node, NOT_EXPANDED);
+        }
+        return first;
+    }
+
+    /**
+     * Copies node with its whole subtree from another pool.
+     * It mustn't be called while other threads change any of pools.
+     * @return index of copy, NO_NODE if this pool is full
+     */
+    public int copySubtree(NodePool source, int node)
+    {
+        int copy = allocate(1);
+        if (NO_NODE != copy)
+        {
+            copyNode(source, node, copy);
+        }
+        return copy;
+    }
+
+    private void copyNode(NodePool source, int node, int copy)
+    {
+        moves[copy] = source.moves[node];
+        visits.set(copy, source.visits.get(node));
+        scores.set(copy, source.scores.get(node));
+        int count = source.getChildCount(node);
+        if (0 >= count)
+        {
+            childCounts.set(copy, 0 == count ? 0 : NOT_EXPANDED);
+            return;
+        }
+        int firstChild = allocate(count);
+        if (NO_NODE == firstChild)
+        {
+            return;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            copyNode(source, source.firstChildren[node] + i, firstChild + i);
+        }
+        firstChildren[copy] = firstChild;
+        childCounts.set(copy, count);
+    }
+
+    /**
+     * Removes all nodes.
+     */
+    public void clear()
+    {
+        size.set(0);
+    }
+
+    public boolean isFull()
+    {
+        return capacity <= size.get();
+    }
+
+    /**
+     * @return true if calling thread may expand node, other threads see it as EXPANDING then
+     */
+    public boolean startExpanding(int node)
+    {
+        return childCounts.compareAndSet(node, NOT_EXPANDED, EXPANDING);
+    }
+
+    /**
+     * Publishes children of node expanded by calling thread.
+     * @param firstChild first node of children block, NO_NODE if node stays not expanded
+     * @param count number of children, 0 for terminal node
+     */
+    public void finishExpanding(int node, int firstChild, int count)
+    {
+        if (NO_NODE == firstChild && 0 < count)
+        {
+            childCounts.set(node, NOT_EXPANDED);
+            return;
+        }
+        firstChildren[node] = firstChild;
+        childCounts.set(node, count);
+    }
+
+    /**
+     * @return number of children, NOT_EXPANDED or EXPANDING
+     */
+    public int getChildCount(int node)
+    {
+        return childCounts.get(node);
+    }
+
+    public int getFirstChild(int node)
+    {
+        return firstChildren[node];
+    }
+
+    public int getMove(int node)
+    {
+        return moves[node];
+    }
+
+    public void setMove(int node, int move)
+    {
+        moves[node] = move;
+    }
+
+    public int getVisits(int node)
+    {
+        return visits.get(node);
+    }
+
+    /**
+     * Counts visit when thread enters node, before playout result is known.
+     * Until score is added it works as virtual loss, turning other threads to other nodes.
+     */
+    public void addVisit(int node)
+    {
+        visits.incrementAndGet(node);
+    }
+
+    public long getScore(int node)
+    {
+        return scores.get(node);
+    }
+
+    public void addScore(int node, long score)
+    {
+        scores.addAndGet(node, score);
+    }
+
+    /**
+     * @return number of allocated nodes
+     */
+    public int size()
+    {
+        return Math.min(capacity, size.get());
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+}
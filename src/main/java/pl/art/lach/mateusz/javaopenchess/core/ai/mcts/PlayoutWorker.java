@@ -0,0 +1,256 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.mcts;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.Evaluator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Thread of Monte Carlo tree search. Every playout selects path from root by UCT,
+ * expands leaf, plays game to the end or to PLAYOUT_PLIES with light policy
+ * (captures preferred, otherwise random moves) and adds result to nodes of path.
+ * Position, move lists and stacks are allocated once and reused by all playouts.
+ */
+class PlayoutWorker
+{
+    /**
+     * Playouts not finished by then are scored by evaluator. Short playouts
+     * give less noisy results than random games played to the end.
+     */
+    static final int PLAYOUT_PLIES = 8;
+
+    /**
+     * Probability of playing capture in playout, if there's any.
+     */
+    private static final double CAPTURE_PROBABILITY = 0.75;
+
+    /**
+     * Evaluation (in centipawns) giving about 73% chance of win.
+     */
+    private static final double EVALUATION_SCALE = 400.0;
+
+    private static final int FIFTY_MOVES_RULE_PLIES = 100;
+
+    /**
+     * Leaf is expanded when it's visited this number of times, so tree doesn't
+     * fill pool with children of nodes visited once.
+     */
+    private static final int EXPANSION_VISITS = 4;
+
+    private static final int MAX_PATH = 1024;
+
+    private final Evaluator evaluator;
+
+    private final Random random;
+
+    private final MoveList moves = new MoveList();
+
+    private final MoveList captures = new MoveList();
+
+    private final int[] path = new int[MAX_PATH];
+
+    private final int[] playedMoves = new int[MAX_PATH + PLAYOUT_PLIES];
+
+    private final long[] undos = new long[MAX_PATH + PLAYOUT_PLIES];
+
+    private int played;
+
+    private BitboardPosition position;
+
+    PlayoutWorker(Evaluator evaluator, long seed)
+    {
+        this.evaluator = evaluator;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Runs playouts until budget is used up or search is stopped.
+     * @param rootPosition position of root, it's copied
+     * @param budget playouts left to all threads
+     * @return number of playouts run by this worker
+     */
+    int run(MonteCarloTreeSearch search, NodePool pool, int root, BitboardPosition rootPosition,
+        AtomicInteger budget)
+    {
+        position = rootPosition.copy();
+        int playouts = 0;
+        while (!search.isStopped() && 0 <= budget.decrementAndGet())
+        {
+            playout(pool, root);
+            playouts++;
+        }
+        return playouts;
+    }
+
+    private void playout(NodePool pool, int root)
+    {
+        int node = root;
+        int depth = 0;
+        path[0] = root;
+        pool.addVisit(root);
+        while (depth < MAX_PATH - 1)
+        {
+            int count = pool.getChildCount(node);
+            if (NodePool.NOT_EXPANDED == count && (root == node || EXPANSION_VISITS <= pool.getVisits(node))
+                && pool.startExpanding(node))
+            {
+                count = expand(pool, node);
+            }
+            if (0 >= count)
+            {
+                break;
+            }
+            node = select(pool, node, count);
+            play(pool.getMove(node));
+            path[++depth] = node;
+            pool.addVisit(node);
+        }
+        int result = simulate();
+        undoAll();
+        // result is from point of view of side to move in leaf, which is opponent
+        // of side which played leaf's move
+        for (int i = depth; 0 < i; i--)
+        {
+            result = MonteCarloTreeSearch.WIN - result;
+            pool.addScore(path[i], result);
+        }
+    }
+
+    private int expand(NodePool pool, int node)
+    {
+        moves.clear();
+        MoveGenerator.generateLegal(position, moves);
+        int count = moves.size();
+        int firstChild = 0 == count ? NodePool.NO_NODE : pool.allocate(count);
+        if (NodePool.NO_NODE != firstChild)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                pool.setMove(firstChild + i, moves.get(i));
+            }
+        }
+        pool.finishExpanding(node, firstChild, count);
+        return NodePool.NO_NODE == firstChild ? 0 : count;
+    }
+
+    /**
+     * @return child with best upper confidence bound, first unvisited child if there's any
+     */
+    private static int select(NodePool pool, int node, int count)
+    {
+        int firstChild = pool.getFirstChild(node);
+        double logVisits = Math.log(Math.max(1, pool.getVisits(node)));
+        int best = firstChild;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild; child < firstChild + count; child++)
+        {
+            int visits = pool.getVisits(child);
+            if (0 == visits)
+            {
+                return child;
+            }
+            double value = pool.getScore(child) / (double) (MonteCarloTreeSearch.WIN * visits)
+                + MonteCarloTreeSearch.EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue)
+            {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays game from current position.
+     * @return result from point of view of side to move when playout started
+     */
+    private int simulate()
+    {
+        int startingSide = position.getSideToMove();
+        for (int ply = 0; ply <= PLAYOUT_PLIES; ply++)
+        {
+            moves.clear();
+            MoveGenerator.generateLegal(position, moves);
+            int result = -1;
+            if (moves.isEmpty())
+            {
+                result = position.isInCheck(position.getSideToMove()) ? 0 : MonteCarloTreeSearch.DRAW;
+            }
+            else if (FIFTY_MOVES_RULE_PLIES <= position.getHalfMoveClock() || onlyKings())
+            {
+                result = MonteCarloTreeSearch.DRAW;
+            }
+            else if (PLAYOUT_PLIES == ply)
+            {
+                double winProbability = 1.0 / (1.0 + Math.exp(-evaluator.evaluate(position) / EVALUATION_SCALE));
+                result = (int) Math.round(winProbability * MonteCarloTreeSearch.WIN);
+            }
+            if (0 <= result)
+            {
+                return startingSide == position.getSideToMove() ? result : MonteCarloTreeSearch.WIN - result;
+            }
+            play(chooseMove());
+        }
+        return MonteCarloTreeSearch.DRAW;
+    }
+
+    private int chooseMove()
+    {
+        captures.clear();
+        for (int i = 0; i < moves.size(); i++)
+        {
+            if (Moves.isCapture(moves.get(i)))
+            {
+                captures.add(moves.get(i));
+            }
+        }
+        if (!captures.isEmpty() && random.nextDouble() < CAPTURE_PROBABILITY)
+        {
+            return captures.get(random.nextInt(captures.size()));
+        }
+        return moves.get(random.nextInt(moves.size()));
+    }
+
+    private boolean onlyKings()
+    {
+        return position.getOccupied() == (position.getPieces(WHITE, KING) | position.getPieces(BLACK, KING));
+    }
+
+    private void play(int move)
+    {
+        playedMoves[played] = move;
+        undos[played] = position.makeMove(move);
+        played++;
+    }
+
+    /**
+     * Takes back all moves, back to root position.
+     */
+    private void undoAll()
+    {
+        while (0 < played)
+        {
+            played--;
+            position.unmakeMove(playedMoves[played], undos[played]);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.ordering;
+
+import java.util.Arrays;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+/**
+ * Orders moves for alpha-beta search, so moves which probably cause cutoff
+ * are searched first:
+ * <ol>
+ * <li>hash move (best move from transposition table),</li>
+ * <li>captures and promotions which don't lose material (see StaticExchange),
+ * most valuable victim and least valuable attacker first (MVV-LVA),</li>
+ * <li>two killer moves of ply: quiet moves which caused cutoff in sibling nodes,</li>
+ * <li>other quiet moves by history heuristic: how often they caused cutoff anywhere,</li>
+ * <li>captures losing material.</li>
+ * </ol>
+ * All scores are kept in primitive arrays, ordering allocates nothing while
+ * searching. One instance per searching thread.
+ */
+public class MoveOrdering
+{
+    static final int HASH_MOVE_SCORE = 30_000_000;
+
+    static final int GOOD_CAPTURE_SCORE = 20_000_000;
+
+    static final int KILLER_SCORE = 10_000_000;
+
+    /**
+     * History scores are halved when any of them reaches this value,
+     * so they always stay below killers.
+     */
+    static final int MAX_HISTORY = 1_000_000;
+
+    static final int BAD_CAPTURE_SCORE = -10_000_000;
+
+    public static final int KILLERS_PER_PLY = 2;
+
+    private static final int SQUARES = Bitboards.NUMBER_OF_SQUARES;
+
+    private final int maxPly;
+
+    /**
+     * KILLERS_PER_PLY moves for every ply, the newest first.
+     */
+    private final int[] killers;
+
+    /**
+     * Butterfly table indexed by color, from square and to square.
+     */
+    private final int[] history = new int[2 * SQUARES * SQUARES];
+
+    /**
+     * Scores of moves of every ply, parallel to move list of that ply.
+     */
+    private final int[][] scores;
+
+    private final StaticExchange staticExchange = new StaticExchange();
+
+    /**
+     * @param maxPly number of plies for which moves are ordered at the same time
+     */
+    public MoveOrdering(int maxPly)
+    {
+        this.maxPly = maxPly;
+        this.killers = new int[maxPly * KILLERS_PER_PLY];
+        this.scores = new int[maxPly][MoveList.DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Prepares for new search: killers are forgotten, history is kept but
+     * counts less than new cutoffs.
+     */
+    public void newSearch()
+    {
+        Arrays.fill(killers, Moves.NO_MOVE);
+        for (int i = 0; i < history.length; i++)
+        {
+            history[i] >>= 1;
+        }
+    }
+
+    /**
+     * Forgets killers and history.
+     */
+    public void clear()
+    {
+        Arrays.fill(killers, Moves.NO_MOVE);
+        Arrays.fill(history, 0);
+    }
+
+    /**
+     * Scores all moves of list, next() gives them in order of scores.
+     * @param position position in which moves are played
+     * @param list moves, list mustn't change until all moves are taken by next()
+     * @param hashMove best move from transposition table, Moves.NO_MOVE if none
+     * @param ply ply of position, killers of this ply are used
+     */
+    public void score(BitboardPosition position, MoveList list, int hashMove, int ply)
+    {
+        int size = list.size();
+        if (scores[ply].length < size)
+        {
+            scores[ply] = new int[size];
+        }
+        int[] plyScores = scores[ply];
+        int color = position.getSideToMove();
+        for (int i = 0; i < size; i++)
+        {
+            plyScores[i] = score(position, list.get(i), hashMove, ply, color);
+        }
+    }
+
+    /**
+     * Moves move with the highest score among moves from index on to index
+     * (selection sort step), so moves are sorted only as far as search needs them.
+     * Static exchange of capture is evaluated only when capture is selected:
+     * losing capture goes to the end and selection is repeated.
+     * @param position position in which moves are played
+     * @return move at index after swap
+     */
+    public int next(BitboardPosition position, MoveList list, int index, int ply)
+    {
+        int[] plyScores = scores[ply];
+        while (true)
+        {
+            int best = index;
+            for (int i = index + 1; i < list.size(); i++)
+            {
+                if (plyScores[i] > plyScores[best])
+                {
+                    best = i;
+                }
+            }
+            if (best != index)
+            {
+                list.swap(index, best);
+                int score = plyScores[index];
+                plyScores[index] = plyScores[best];
+                plyScores[best] = score;
+            }
+            int move = list.get(index);
+            if (GOOD_CAPTURE_SCORE > plyScores[index] || HASH_MOVE_SCORE == plyScores[index]
+                || staticExchange.isGood(position, move))
+            {
+                return move;
+            }
+            plyScores[index] += BAD_CAPTURE_SCORE - GOOD_CAPTURE_SCORE;
+        }
+    }
+
+    /**
+     * @return true if move taken by next() at index is capture or promotion
+     * which doesn't lose material (or hash move); moves after it aren't such
+     */
+    public boolean isGoodCapture(int ply, int index)
+    {
+        return GOOD_CAPTURE_SCORE <= scores[ply][index];
+    }
+
+    /**
+     * Scores and sorts whole list at once.
+     */
+    public void sort(BitboardPosition position, MoveList list, int hashMove, int ply)
+    {
+        score(position, list, hashMove, ply);
+        for (int i = 0; i < list.size(); i++)
+        {
+            next(position, list, i, ply);
+        }
+    }
+
+    /**
+     * Called when move caused beta cutoff. Quiet move becomes killer of ply
+     * and gets history bonus, quiet moves searched before it get history malus.
+     * @param position position in which move was played (with move unmade)
+     * @param list moves of ply, ordered by next()
+     * @param index index of move which caused cutoff
+     * @param depth remaining depth of node, deeper cutoffs count more
+     */
+    public void cutoff(BitboardPosition position, MoveList list, int index, int ply, int depth)
+    {
+        int move = list.get(index);
+        if (!isQuiet(move))
+        {
+            return;
+        }
+        int offset = ply * KILLERS_PER_PLY;
+        if (killers[offset] != move)
+        {
+            for (int i = KILLERS_PER_PLY - 1; 0 < i; i--)
+            {
+                killers[offset + i] = killers[offset + i - 1];
+            }
+            killers[offset] = move;
+        }
+        int color = position.getSideToMove();
+        int bonus = depth * depth;
+        for (int i = 0; i < index; i++)
+        {
+            int tried = list.get(i);
+            if (isQuiet(tried))
+            {
+                int slot = historyIndex(color, tried);
+                history[slot] = Math.max(0, history[slot] - bonus);
+            }
+        }
+        int slot = historyIndex(color, move);
+        history[slot] += bonus;
+        if (MAX_HISTORY <= history[slot])
+        {
+            for (int i = 0; i < history.length; i++)
+            {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * @return true if move is one of killers of ply
+     */
+    public boolean isKiller(int move, int ply)
+    {
+        int offset = ply * KILLERS_PER_PLY;
+        for (int i = 0; i < KILLERS_PER_PLY; i++)
+        {
+            if (killers[offset + i] == move)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getHistory(int color, int move)
+    {
+        return history[historyIndex(color, move)];
+    }
+
+    public StaticExchange getStaticExchange()
+    {
+        return staticExchange;
+    }
+
+    public int getMaxPly()
+    {
+        return maxPly;
+    }
+
+    private int score(BitboardPosition position, int move, int hashMove, int ply, int color)
+    {
+        if (move == hashMove)
+        {
+            return HASH_MOVE_SCORE;
+        }
+        if (!isQuiet(move))
+        {
+            return GOOD_CAPTURE_SCORE + mvvLva(position, move);
+        }
+        int offset = ply * KILLERS_PER_PLY;
+        for (int i = 0; i < KILLERS_PER_PLY; i++)
+        {
+            if (killers[offset + i] == move)
+            {
+                return KILLER_SCORE - i;
+            }
+        }
+        return history[historyIndex(color, move)];
+    }
+
+    /**
+     * @return the bigger the more valuable is captured piece (or promoted
+     * piece), and the less valuable is capturing one
+     */
+    private static int mvvLva(BitboardPosition position, int move)
+    {
+        int order = Moves.isPromotion(move) ? Moves.promotion(move) * BitboardPosition.NUMBER_OF_PIECE_TYPES : 0;
+        if (Moves.isCapture(move))
+        {
+            int victim = Moves.isEnPassant(move)
+                ? BitboardPosition.PAWN
+                : BitboardPosition.typeOf(position.getPiece(Moves.to(move)));
+            int attacker = BitboardPosition.typeOf(position.getPiece(Moves.from(move)));
+            order += (victim + 1) * BitboardPosition.NUMBER_OF_PIECE_TYPES * BitboardPosition.NUMBER_OF_PIECE_TYPES
+                - attacker;
+        }
+        return order;
+    }
+
+    private static boolean isQuiet(int move)
+    {
+        return !Moves.isCapture(move) && !Moves.isPromotion(move);
+    }
+
+    private static int historyIndex(int color, int move)
+    {
+        return (color * SQUARES + Moves.from(move)) * SQUARES + Moves.to(move);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.ordering;
+
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+/**
+ * Static exchange evaluation: material balance of all captures on target
+ * square of a move, when both sides capture with their least valuable piece
+ * first and may stop capturing when it doesn't pay. Pieces uncovered behind
+ * capturing sliders (x-rays) take part too. Pins and checks are ignored.
+ * Instance keeps its swap list, so it allocates nothing; one instance per thread.
+ */
+public class StaticExchange
+{
+    /**
+     * King value is bigger than all other material together, so exchange
+     * never ends with capture of king.
+     */
+    public static final int[] VALUES = {100, 320, 330, 500, 900, 20000};
+
+    /**
+     * No exchange on single square can be longer than number of pieces.
+     */
+    private static final int MAX_EXCHANGE_LENGTH = 32;
+
+    private static final int EN_PASSANT_OFFSET = 8;
+
+    private final int[] swap = new int[MAX_EXCHANGE_LENGTH];
+
+    /**
+     * @param position position before move
+     * @param move legal move
+     * @return material won by side to move when exchange on target square
+     * is played out, negative if move loses material
+     */
+    public int evaluate(BitboardPosition position, int move)
+    {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int attacker = position.getPiece(from);
+        int color = BitboardPosition.colorOf(attacker);
+        long occupied = position.getOccupied() ^ Bitboards.bit(from);
+        int onSquare = VALUES[BitboardPosition.typeOf(attacker)];
+        if (Moves.isEnPassant(move))
+        {
+            occupied ^= Bitboards.bit(BitboardPosition.WHITE == color ? to - EN_PASSANT_OFFSET : to + EN_PASSANT_OFFSET);
+            swap[0] = VALUES[BitboardPosition.PAWN];
+        }
+        else
+        {
+            int victim = position.getPiece(to);
+            swap[0] = BitboardPosition.NO_PIECE == victim ? 0 : VALUES[BitboardPosition.typeOf(victim)];
+        }
+        if (Moves.isPromotion(move))
+        {
+            onSquare = VALUES[Moves.promotion(move)];
+            swap[0] += onSquare - VALUES[BitboardPosition.PAWN];
+        }
+        int side = BitboardPosition.opponent(color);
+        int length = 1;
+        while (length < MAX_EXCHANGE_LENGTH)
+        {
+            long attackers = position.getAttackersTo(to, occupied) & occupied;
+            long own = attackers & position.getOccupancy(side);
+            if (Bitboards.EMPTY == own)
+            {
+                break;
+            }
+            int type = leastValuable(position, own, side);
+            if (BitboardPosition.KING == type
+                && Bitboards.EMPTY != (attackers & position.getOccupancy(BitboardPosition.opponent(side))))
+            {
+                break;
+            }
+            swap[length] = onSquare - swap[length - 1];
+            onSquare = VALUES[type];
+            occupied ^= Bitboards.bit(Bitboards.first(own & position.getPieces(side, type)));
+            side = BitboardPosition.opponent(side);
+            length++;
+        }
+        while (0 < --length)
+        {
+            swap[length - 1] = Math.min(swap[length - 1], -swap[length]);
+        }
+        return swap[0];
+    }
+
+    /**
+     * @return true if move doesn't lose material, cheaper than evaluate()
+     * when captured piece is worth at least as much as capturing one
+     */
+    public boolean isGood(BitboardPosition position, int move)
+    {
+        if (Moves.isCapture(move) && !Moves.isPromotion(move))
+        {
+            int victim = Moves.isEnPassant(move)
+                ? BitboardPosition.PAWN
+                : BitboardPosition.typeOf(position.getPiece(Moves.to(move)));
+            if (VALUES[victim] >= VALUES[BitboardPosition.typeOf(position.getPiece(Moves.from(move)))])
+            {
+                return true;
+            }
+        }
+        return 0 <= evaluate(position, move);
+    }
+
+    private static int leastValuable(BitboardPosition position, long attackers, int color)
+    {
+        for (int type = BitboardPosition.PAWN; type < BitboardPosition.KING; type++)
+        {
+            if (Bitboards.EMPTY != (attackers & position.getPieces(color, type)))
+            {
+                return type;
+            }
+        }
+        return BitboardPosition.KING;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import pl.art.lach.mateusz.javaopenchess.core.ai.SearchProgressListener;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.Evaluator;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.PawnHashTable;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.TaperedEvaluator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.tablebase.Tablebase;
+
+/**
+ * Lazy SMP: main search runs on calling thread and helper threads search
+ * the same root at the same time, starting from different depths.
+ * They share transposition table, so main search finds results of helpers there.
+ * With one thread it's just a Search, so results are deterministic.
+ */
+public class ParallelSearch
+{
+    private static final long JOIN_INTERVAL = 10L;
+
+    private final BitboardPosition position;
+
+    private final TranspositionTable transpositionTable;
+
+    private final int threads;
+
+    /**
+     * Evaluator of every thread, main thread's first.
+     */
+    private final List<? extends Evaluator> evaluators;
+
+    private final List<Search> searches = new ArrayList<>();
+
+    private Set<SearchFeature> features = EnumSet.noneOf(SearchFeature.class);
+
+    private Tablebase tablebase;
+
+    private volatile SearchProgressListener progressListener;
+
+    private volatile IterationListener iterationListener;
+
+    private int multiPv = 1;
+
+    private long[] history = new long[0];
+
+    /**
+     * Guarded by searches, stop() called before search() starts threads isn't lost.
+     */
+    private boolean stopRequested;
+
+    /**
+     * @param position position to search (it's copied by every thread)
+     * @param transpositionTable table shared by all threads
+     * @param threads number of threads, including calling thread
+     */
+    public ParallelSearch(BitboardPosition position, TranspositionTable transpositionTable, int threads)
+    {
+        this(position, transpositionTable, createEvaluators(threads, PawnHashTable.DEFAULT_SIZE_MB));
+    }
+
+    /**
+     * @param position position to search (it's copied by every thread)
+     * @param transpositionTable table shared by all threads
+     * @param evaluators evaluator of every thread, including calling thread;
+     * they can be reused by next searches, but not by concurrent ones
+     */
+    public ParallelSearch(BitboardPosition position, TranspositionTable transpositionTable,
+        List<? extends Evaluator> evaluators)
+    {
+        this.position = position;
+        this.transpositionTable = transpositionTable;
+        this.evaluators = evaluators;
+        this.threads = evaluators.size();
+    }
+
+    /**
+     * @param threads number of threads, at least one evaluator is created
+     * @param pawnHashSize size of pawn hash table of every evaluator in MB
+     * @return evaluators for parallel search, each with its own pawn hash table
+     */
+    public static List<TaperedEvaluator> createEvaluators(int threads, int pawnHashSize)
+    {
+        List<TaperedEvaluator> evaluators = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, threads); i++)
+        {
+            evaluators.add(new TaperedEvaluator(new PawnHashTable(pawnHashSize)));
+        }
+        return evaluators;
+    }
+
+    /**
+     * Runs search on all threads, returns when main search ends.
+     * @see Search#search(int, long)
+     * @return result of thread which finished the deepest iteration,
+     * main thread wins ties; nodes are summed over all threads
+     */
+    public Search.Result search(int maxDepth, long timeLimit)
+    {
+        return search(maxDepth, TimeManager.fixed(timeLimit));
+    }
+
+    /**
+     * Runs search on all threads. Only main search uses time manager to decide
+     * when to stop, helpers are stopped together with it.
+     * @see Search#search(int, TimeManager)
+     */
+    public Search.Result search(int maxDepth, TimeManager timeManager)
+    {
+        long timeLimit = timeManager.getMaximumTime();
+        Search main = new Search(position, transpositionTable, evaluators.get(0));
+        main.setFeatures(features);
+        main.setTablebase(tablebase);
+        main.setHistory(history);
+        main.setProgressListener((depth, score, nodes) -> {
+            SearchProgressListener listener = progressListener;
+            if (null != listener)
+            {
+                listener.searchProgress(depth, score, getNodes());
+            }
+        });
+        main.setMultiPv(multiPv);
+        if (null != iterationListener)
+        {
+            main.setIterationListener(result -> {
+                IterationListener listener = iterationListener;
+                if (null != listener)
+                {
+                    listener.iterationFinished(new Search.Result(result.getBestMove(), result.getScore(),
+                        result.getDepth(), getNodes(), result.getNanos(), result.getLines()));
+                }
+            });
+        }
+        List<Thread> helperThreads = new ArrayList<>();
+        List<Search.Result> helperResults = new ArrayList<>();
+        synchronized (searches)
+        {
+            searches.clear();
+            searches.add(main);
+            for (int id = 1; id < threads; id++)
+            {
+                Search helper = new Search(position, transpositionTable, evaluators.get(id));
+                helper.setHelperId(id);
+                helper.setFeatures(features);
+                helper.setTablebase(tablebase);
+                helper.setHistory(history);
+                searches.add(helper);
+                Thread thread = new Thread(() -> {
+                    Search.Result result = helper.search(maxDepth, timeLimit);
+                    synchronized (helperResults)
+                    {
+                        helperResults.add(result);
+                    }
+                }, "search-helper-" + id);
+                thread.setDaemon(true);
+                helperThreads.add(thread);
+            }
+            if (stopRequested)
+            {
+                searches.forEach(Search::stop);
+            }
+        }
+        helperThreads.forEach(Thread::start);
+        Search.Result best = main.search(maxDepth, timeManager);
+        long nodes = best.getNodes();
+        stopHelpers(helperThreads);
+        synchronized (helperResults)
+        {
+            for (Search.Result result : helperResults)
+            {
+                nodes += result.getNodes();
+                // helpers search single line, so with multi-PV main result is kept
+                if (1 == multiPv && result.getDepth() > best.getDepth() && Moves.NO_MOVE != result.getBestMove())
+                {
+                    best = result;
+                }
+            }
+        }
+        return new Search.Result(best.getBestMove(), best.getScore(), best.getDepth(), nodes, best.getNanos(),
+            best.getLines());
+    }
+
+    /**
+     * Stops all threads, search() returns result of last finished iterations.
+     * Parallel search which wasn't started yet returns at once when started.
+     */
+    public void stop()
+    {
+        synchronized (searches)
+        {
+            stopRequested = true;
+            searches.forEach(Search::stop);
+        }
+    }
+
+    /**
+     * @param progressListener notified after every iteration of main search,
+     * with nodes summed over all threads; can be changed while search runs
+     */
+    public void setProgressListener(SearchProgressListener progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @param history keys of positions played before searched one, used by all threads
+     * @see Search#setHistory(long[])
+     */
+    public void setHistory(long[] history)
+    {
+        this.history = history.clone();
+    }
+
+    /**
+     * @param iterationListener notified after every iteration of main search, with best lines
+     * and nodes summed over all threads; null for none, it must be set before search starts
+     */
+    public void setIterationListener(IterationListener iterationListener)
+    {
+        this.iterationListener = iterationListener;
+    }
+
+    /**
+     * @param multiPv number of best lines searched by main thread, helpers search the best one only
+     * @see Search#setMultiPv(int)
+     */
+    public void setMultiPv(int multiPv)
+    {
+        this.multiPv = Math.max(1, multiPv);
+    }
+
+    /**
+     * @param features selective techniques used by all threads of next searches
+     */
+    public void setFeatures(Set<SearchFeature> features)
+    {
+        this.features = features;
+    }
+
+    /**
+     * @param tablebase endgame tables used by all threads of next searches, null for none
+     */
+    public void setTablebase(Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * @return nodes searched so far by all threads (approximate while search runs)
+     */
+    public long getNodes()
+    {
+        synchronized (searches)
+        {
+            return searches.stream().mapToLong(Search::getNodes).sum();
+        }
+    }
+
+    /**
+     * Helper may not have started its search yet, so it's stopped until it ends.
+     * Interrupted calling thread still waits for helpers, so none of them
+     * outlives search() and interrupt status is restored afterwards.
+     */
+    private void stopHelpers(List<Thread> helperThreads)
+    {
+        boolean interrupted = false;
+        for (int i = 0; i < helperThreads.size(); i++)
+        {
+            Thread thread = helperThreads.get(i);
+            Search helper = searches.get(i + 1);
+            while (thread.isAlive())
+            {
+                helper.stop();
+                try
+                {
+                    thread.join(JOIN_INTERVAL);
+                }
+                catch (InterruptedException exc)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.ai.SearchProgressListener;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.Evaluator;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.PawnHashTable;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.tablebase.Tablebase;
+
+/**
+ * Searches on opponent's time. After computer move, reply expected from
+ * opponent (hash move of transposition table) is played on copy of position
+ * and search of resulting position starts without time limit. If opponent
+ * plays expected move, that search gets real time limits and goes on,
+ * otherwise it's stopped and its result is dropped.
+ */
+public class Ponderer
+{
+    private static final Logger LOG = Logger.getLogger(Ponderer.class);
+
+    private static final String THREAD_NAME = "ponder";
+
+    /**
+     * Idle thread ends after this time, so forgotten ponderer keeps no thread.
+     */
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 10L;
+
+    private final ExecutorService executor = new ThreadPoolExecutor(0, 1,
+        THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private final TranspositionTable transpositionTable;
+
+    private final List<? extends Evaluator> evaluators;
+
+    private Set<SearchFeature> features = EnumSet.noneOf(SearchFeature.class);
+
+    private Tablebase tablebase;
+
+    private ParallelSearch search;
+
+    private TimeManager timeManager;
+
+    private Future<Search.Result> future;
+
+    private long positionKey;
+
+    private int predictedMove = Moves.NO_MOVE;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * @param transpositionTable table shared with real searches, it gives predicted moves
+     * @param threads number of threads of pondering search
+     */
+    public Ponderer(TranspositionTable transpositionTable, int threads)
+    {
+        this(transpositionTable, ParallelSearch.createEvaluators(threads, PawnHashTable.DEFAULT_SIZE_MB));
+    }
+
+    /**
+     * @param transpositionTable table shared with real searches, it gives predicted moves
+     * @param evaluators evaluators of threads of pondering search, they can be
+     * shared with real searches, because pondering ends before real search starts
+     */
+    public Ponderer(TranspositionTable transpositionTable, List<? extends Evaluator> evaluators)
+    {
+        this.transpositionTable = transpositionTable;
+        this.evaluators = evaluators;
+    }
+
+    /**
+     * Starts pondering, previous pondering is stopped.
+     * @param position position before computer move (it's copied)
+     * @param move computer move
+     * @param maxDepth maximal depth of pondering search
+     * @return true if expected reply was found and pondering started
+     */
+    public synchronized boolean start(BitboardPosition position, int move, int maxDepth)
+    {
+        return start(position, move, maxDepth, new long[0]);
+    }
+
+    /**
+     * Starts pondering, previous pondering is stopped.
+     * @param position position before computer move (it's copied)
+     * @param move computer move
+     * @param maxDepth maximal depth of pondering search
+     * @param history keys of positions played before position, oldest first
+     * @return true if expected reply was found and pondering started
+     */
+    public synchronized boolean start(BitboardPosition position, int move, int maxDepth, long[] history)
+    {
+        stop();
+        if (Moves.NO_MOVE == move)
+        {
+            return false;
+        }
+        BitboardPosition ponderPosition = position.copy();
+        long[] ponderHistory = Arrays.copyOf(history, history.length + 2);
+        ponderHistory[history.length] = ponderPosition.getZobristKey();
+        ponderPosition.makeMove(move);
+        ponderHistory[history.length + 1] = ponderPosition.getZobristKey();
+        int reply = TranspositionTable.getMove(transpositionTable.probe(ponderPosition.getZobristKey()));
+        MoveList replies = new MoveList();
+        MoveGenerator.generateLegal(ponderPosition, replies);
+        if (Moves.NO_MOVE == reply || !replies.contains(reply))
+        {
+            return false;
+        }
+        ponderPosition.makeMove(reply);
+        ParallelSearch ponderSearch = new ParallelSearch(ponderPosition, transpositionTable, evaluators);
+        ponderSearch.setFeatures(features);
+        ponderSearch.setTablebase(tablebase);
+        ponderSearch.setHistory(ponderHistory);
+        TimeManager ponderTime = TimeManager.pondering();
+        search = ponderSearch;
+        timeManager = ponderTime;
+        positionKey = ponderPosition.getZobristKey();
+        predictedMove = reply;
+        future = executor.submit(() -> ponderSearch.search(maxDepth, ponderTime));
+        LOG.debug("pondering on " + Moves.toString(reply));
+        return true;
+    }
+
+    /**
+     * Ends pondering when computer has to move in given position.
+     * @param position position in which computer moves
+     * @param realTime time limits of move, counted from now on
+     * @param progressListener listener of continued search, can be null
+     * @return result of pondering search continued with real time limits if
+     * given position is the pondered one, null if nothing was pondered or
+     * opponent played other move
+     */
+    public synchronized Search.Result finish(BitboardPosition position, TimeManager realTime,
+        SearchProgressListener progressListener)
+    {
+        if (null == future)
+        {
+            return null;
+        }
+        if (position.getZobristKey() != positionKey)
+        {
+            misses++;
+            stop();
+            return null;
+        }
+        hits++;
+        search.setProgressListener(progressListener);
+        timeManager.ponderHit(realTime);
+        Search.Result result = awaitResult();
+        clear();
+        return result;
+    }
+
+    /**
+     * Stops pondering search and waits until it ends.
+     */
+    public synchronized void stop()
+    {
+        if (null != future)
+        {
+            search.stop();
+            awaitResult();
+            clear();
+        }
+    }
+
+    /**
+     * @param features selective techniques of pondering searches, should be
+     * the same as in real searches
+     */
+    public synchronized void setFeatures(Set<SearchFeature> features)
+    {
+        this.features = features;
+    }
+
+    /**
+     * @param tablebase endgame tables of pondering searches, null for none
+     */
+    public synchronized void setTablebase(Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+    }
+
+    public synchronized boolean isPondering()
+    {
+        return null != future;
+    }
+
+    /**
+     * @return opponent move expected by current pondering, Moves.NO_MOVE if not pondering
+     */
+    public synchronized int getPredictedMove()
+    {
+        return predictedMove;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Waits for pondering search also when interrupted: interrupt stops
+     * search, and interrupt status is restored afterwards.
+     */
+    private Search.Result awaitResult()
+    {
+        boolean interrupted = false;
+        Search.Result result = null;
+        while (true)
+        {
+            try
+            {
+                result = future.get();
+                break;
+            }
+            catch (InterruptedException exc)
+            {
+                interrupted = true;
+                search.stop();
+            }
+            catch (ExecutionException exc)
+            {
+                LOG.error("pondering search failed: ", exc);
+                break;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private void clear()
+    {
+        future = null;
+        search = null;
+        timeManager = null;
+        predictedMove = Moves.NO_MOVE;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("ponder hits %d, misses %d", hits, misses);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+/**
+ * Line of moves expected by search, with score of its first move
+ * from point of view of side to move.
+ */
+public class PrincipalVariation
+{
+    private final int[] moves;
+
+    private final int score;
+
+    private final int depth;
+
+    /**
+     * @param moves moves of line, starting with move from root (they're copied)
+     * @param score score of line in centipawns, or mate score
+     * @param depth depth of iteration which found the line
+     */
+    public PrincipalVariation(int[] moves, int score, int depth)
+    {
+        this.moves = moves.clone();
+        this.score = score;
+        this.depth = depth;
+    }
+
+    /**
+     * @return moves of line, first one played from searched position
+     */
+    public int[] getMoves()
+    {
+        return moves.clone();
+    }
+
+    public int getMove(int index)
+    {
+        return moves[index];
+    }
+
+    public int getFirstMove()
+    {
+        return 0 == moves.length ? Moves.NO_MOVE : moves[0];
+    }
+
+    public int getLength()
+    {
+        return moves.length;
+    }
+
+    public int getScore()
+    {
+        return score;
+    }
+
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    public boolean isMate()
+    {
+        return Search.MATE_BOUND < Math.abs(score);
+    }
+
+    /**
+     * @return number of moves (not plies) to mate, negative if side to move
+     * is mated, 0 if score isn't mate
+     */
+    public int getMateIn()
+    {
+        if (!isMate())
+        {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return 0 < score ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    @Override
+    public String toString()
+    {
+        String value = isMate() ? "mate " + getMateIn() : "cp " + score;
+        return String.format("depth %d score %s pv %s", depth, value,
+            Arrays.stream(moves).mapToObj(Moves::toString).collect(Collectors.joining(" ")));
+    }
+}
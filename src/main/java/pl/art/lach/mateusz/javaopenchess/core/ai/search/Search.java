@@ -0,0 +1,933 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import pl.art.lach.mateusz.javaopenchess.core.ai.SearchProgressListener;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.Evaluator;
+import pl.art.lach.mateusz.javaopenchess.core.ai.evaluation.TaperedEvaluator;
+import pl.art.lach.mateusz.javaopenchess.core.ai.ordering.MoveOrdering;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.tablebase.Tablebase;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.KING;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.PAWN;
+
+/**
+ * Negamax alpha-beta search with iterative deepening and quiescence search
+ * on captures. Search runs on its own copy of position, using make/unmake,
+ * so chessboard displayed to user is never touched.
+ * Selective techniques (see SearchFeature) are off by default,
+ * so plain search gives full-width results.
+ * With multi-PV every iteration searches root again for the next best
+ * lines, without moves of lines found before.
+ */
+public class Search
+{
+    public static final int INFINITY = 32000;
+
+    public static final int MATE = 30000;
+
+    public static final int DRAW = 0;
+
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Scores above this value mean forced mate.
+     */
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    private static final int FIFTY_MOVES_RULE_PLIES = 100;
+
+    /**
+     * Time is checked once per this number of nodes (minus one, used as mask).
+     */
+    private static final long TIME_CHECK_INTERVAL = 2047L;
+
+    private static final long NANOS_IN_MILLISECOND = 1_000_000L;
+
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+
+    /**
+     * Null move is searched with depth reduced by NULL_MOVE_REDUCTION
+     * plus one per NULL_MOVE_DEPTH_DIVISOR plies of depth.
+     */
+    private static final int NULL_MOVE_REDUCTION = 2;
+
+    private static final int NULL_MOVE_DEPTH_DIVISOR = 4;
+
+    private static final int NO_NULL_MOVE = -1;
+
+    /**
+     * Margins of futility pruning by remaining depth.
+     */
+    private static final int[] FUTILITY_MARGINS = {0, 150, 300};
+
+    private static final int REVERSE_FUTILITY_MAX_DEPTH = 3;
+
+    private static final int REVERSE_FUTILITY_MARGIN = 120;
+
+    private static final int LATE_MOVE_MIN_DEPTH = 3;
+
+    /**
+     * Number of moves (hash move, good captures, killers usually)
+     * which are never reduced.
+     */
+    private static final int LATE_MOVE_MIN_INDEX = 3;
+
+    /**
+     * Late move reductions by depth and index of move, growing
+     * with logarithms of both.
+     */
+    private static final int[][] LATE_MOVE_REDUCTIONS = new int[MAX_PLY][MoveList.DEFAULT_CAPACITY];
+
+    private static final int ASPIRATION_MIN_DEPTH = 4;
+
+    private static final int ASPIRATION_WINDOW = 30;
+
+    static
+    {
+        for (int depth = 1; depth < MAX_PLY; depth++)
+        {
+            for (int index = 1; index < MoveList.DEFAULT_CAPACITY; index++)
+            {
+                LATE_MOVE_REDUCTIONS[depth][index] = (int) (0.75 + Math.log(depth) * Math.log(index) / 2.25);
+            }
+        }
+    }
+
+    private final BitboardPosition position;
+
+    private final TranspositionTable transpositionTable;
+
+    private final MoveList[] moves = new MoveList[MAX_PLY];
+
+    private final MoveOrdering moveOrdering = new MoveOrdering(MAX_PLY);
+
+    private final Evaluator evaluator;
+
+    private Set<SearchFeature> features = EnumSet.noneOf(SearchFeature.class);
+
+    private boolean nullMovePruning;
+
+    private boolean lateMoveReductions;
+
+    private boolean futilityPruning;
+
+    private boolean reverseFutilityPruning;
+
+    private boolean principalVariationSearch;
+
+    private boolean aspirationWindows;
+
+    private long nodes;
+
+    private int rootDepth;
+
+    private TimeManager timeManager;
+
+    private volatile boolean stopped;
+
+    /**
+     * Set by stop(), it's never cleared, so stop() called before search()
+     * starts isn't lost.
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * 0 for main search, helper threads of parallel search start iterative
+     * deepening from different depths, so they don't walk the same tree at the same time.
+     */
+    private int helperId;
+
+    private SearchProgressListener progressListener;
+
+    private IterationListener iterationListener;
+
+    /**
+     * Number of best lines searched, 1 for plain search.
+     */
+    private int multiPv = 1;
+
+    /**
+     * null if endgame tables aren't used.
+     */
+    private Tablebase tablebase;
+
+    /**
+     * Keys of positions played before root, followed by keys of positions
+     * on current search path, by ply.
+     */
+    private long[] keys = new long[MAX_PLY + 1];
+
+    private int historyLength;
+
+    /**
+     * Ply of position after last null move on current search path, NO_NULL_MOVE
+     * if there's none. Positions before it aren't compared in repetition check.
+     */
+    private int nullMovePly = NO_NULL_MOVE;
+
+    /**
+     * @param position position to search (it's copied)
+     */
+    public Search(BitboardPosition position)
+    {
+        this(position, new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB));
+    }
+
+    /**
+     * @param position position to search (it's copied)
+     * @param transpositionTable table of results, can be shared by many searches
+     */
+    public Search(BitboardPosition position, TranspositionTable transpositionTable)
+    {
+        this(position, transpositionTable, new TaperedEvaluator());
+    }
+
+    /**
+     * @param position position to search (it's copied)
+     * @param transpositionTable table of results, can be shared by many searches
+     * @param evaluator evaluation of leaf positions, used by this search only
+     */
+    public Search(BitboardPosition position, TranspositionTable transpositionTable, Evaluator evaluator)
+    {
+        this.position = position.copy();
+        this.transpositionTable = transpositionTable;
+        this.evaluator = evaluator;
+        for (int i = 0; i < moves.length; i++)
+        {
+            moves[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Searches with increasing depth until maxDepth is reached, time runs out
+     * or stop() is called. Only fully searched iterations are taken into account.
+     * Interrupting calling thread stops search too, even if it was interrupted
+     * before search started.
+     * @param maxDepth maximal depth in plies
+     * @param timeLimit time limit in milliseconds, 0 or less means no limit
+     * @return best move found, Moves.NO_MOVE in result if there are no legal moves
+     */
+    public Result search(int maxDepth, long timeLimit)
+    {
+        return search(maxDepth, TimeManager.fixed(timeLimit));
+    }
+
+    /**
+     * Searches with increasing depth until maxDepth is reached, time manager
+     * doesn't allow next iteration, maximum time runs out or stop() is called.
+     * @param maxDepth maximal depth in plies
+     * @param timeManager time manager of this search only, it's updated when best move changes
+     * @return best move found, Moves.NO_MOVE in result if there are no legal moves
+     */
+    public Result search(int maxDepth, TimeManager timeManager)
+    {
+        long start = System.nanoTime();
+        this.timeManager = timeManager;
+        stopped = stopRequested;
+        nodes = 0L;
+        if (0 == helperId)
+        {
+            transpositionTable.newSearch();
+        }
+        moveOrdering.newSearch();
+        keys[historyLength] = position.getZobristKey();
+        nullMovePly = NO_NULL_MOVE;
+        MoveList rootMoves = new MoveList();
+        MoveGenerator.generateLegal(position, rootMoves);
+        moveOrdering.sort(position, rootMoves,
+            TranspositionTable.getMove(transpositionTable.probe(position.getZobristKey())), 0);
+        Result result = new Result(Moves.NO_MOVE, rootMoves.isEmpty() ? terminalScore(0) : DRAW, 0, 0L, 0L);
+        // single move is played at once, unless lines are wanted for analysis
+        if (1 == rootMoves.size() && null == iterationListener)
+        {
+            return new Result(rootMoves.get(0), DRAW, 0, 0L, System.nanoTime() - start);
+        }
+        int lineCount = Math.min(multiPv, rootMoves.size());
+        int[] scores = new int[lineCount];
+        for (int depth = 1 + helperId % 2; depth <= Math.min(maxDepth, MAX_PLY - 1) && !rootMoves.isEmpty(); depth++)
+        {
+            rootDepth = depth;
+            scores[0] = aspirationWindows && ASPIRATION_MIN_DEPTH <= depth && 0 < result.getDepth()
+                ? searchAspiration(rootMoves, depth, result.getScore())
+                : searchRoot(rootMoves, 0, depth, -INFINITY, INFINITY);
+            for (int line = 1; line < lineCount && !stopped; line++)
+            {
+                scores[line] = searchRoot(rootMoves, line, depth, -INFINITY, INFINITY);
+            }
+            if (stopped)
+            {
+                break;
+            }
+            if (Moves.NO_MOVE != result.getBestMove() && result.getBestMove() != rootMoves.get(0))
+            {
+                timeManager.bestMoveChanged();
+            }
+            result = new Result(rootMoves.get(0), scores[0], depth, nodes, System.nanoTime() - start,
+                getLines(rootMoves, scores, depth));
+            if (null != progressListener)
+            {
+                progressListener.searchProgress(depth, scores[0], nodes);
+            }
+            if (null != iterationListener)
+            {
+                iterationListener.iterationFinished(result);
+            }
+            if ((MATE_BOUND < Math.abs(scores[0]) && 1 == lineCount) || !timeManager.canStartIteration())
+            {
+                break;
+            }
+        }
+        if (Moves.NO_MOVE == result.getBestMove() && !rootMoves.isEmpty())
+        {
+            result = new Result(rootMoves.get(0), DRAW, 0, nodes, System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Stops running search, result of last finished iteration is returned.
+     * Search which wasn't started yet returns at once when started, so stopped
+     * search can't be used again.
+     */
+    public void stop()
+    {
+        stopRequested = true;
+        stopped = true;
+    }
+
+    /**
+     * Searches root with window around score of previous iteration,
+     * widening it on side where search fails until score fits in.
+     */
+    private int searchAspiration(MoveList rootMoves, int depth, int previousScore)
+    {
+        int window = ASPIRATION_WINDOW;
+        int alpha = Math.max(previousScore - window, -INFINITY);
+        int beta = Math.min(previousScore + window, INFINITY);
+        while (true)
+        {
+            int score = searchRoot(rootMoves, 0, depth, alpha, beta);
+            if (stopped || (score > alpha && score < beta))
+            {
+                return score;
+            }
+            window *= 2;
+            if (score <= alpha)
+            {
+                alpha = Math.max(score - window, -INFINITY);
+            }
+            else
+            {
+                beta = Math.min(score + window, INFINITY);
+            }
+        }
+    }
+
+    /**
+     * Searches root moves from index first and moves the best one to that
+     * index, so next iteration starts with it. Moves before first are lines
+     * already found by multi-PV search. When all moves fail low order
+     * of moves is kept.
+     * @return score of best move, bound if it's outside of window
+     */
+    private int searchRoot(MoveList rootMoves, int first, int depth, int alpha, int beta)
+    {
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestIndex = first;
+        for (int i = first; i < rootMoves.size(); i++)
+        {
+            int move = rootMoves.get(i);
+            long undo = position.makeMove(move);
+            int score = searchMove(depth - 1, 0, 0, alpha, beta, first < i);
+            position.unmakeMove(move, undo);
+            if (stopped)
+            {
+                break;
+            }
+            if (score > bestScore)
+            {
+                bestScore = score;
+            }
+            if (score > alpha)
+            {
+                alpha = score;
+                bestIndex = i;
+            }
+            if (alpha >= beta)
+            {
+                break;
+            }
+        }
+        if (!stopped && bestScore > originalAlpha)
+        {
+            for (int i = bestIndex; i > first; i--)
+            {
+                rootMoves.swap(i, i - 1);
+            }
+            // only the best line is the score of root position
+            if (0 == first)
+            {
+                transpositionTable.store(position.getZobristKey(), rootMoves.get(0),
+                    TranspositionTable.toStoredScore(bestScore, 0), depth,
+                    bestScore >= beta ? TranspositionTable.BOUND_LOWER : TranspositionTable.BOUND_EXACT);
+            }
+        }
+        return bestScore;
+    }
+
+    /**
+     * @return best lines of finished iteration, in order they were found
+     */
+    private List<PrincipalVariation> getLines(MoveList rootMoves, int[] scores, int depth)
+    {
+        List<PrincipalVariation> lines = new ArrayList<>(scores.length);
+        for (int line = 0; line < scores.length; line++)
+        {
+            lines.add(new PrincipalVariation(getPrincipalVariation(rootMoves.get(line), depth), scores[line], depth));
+        }
+        return lines;
+    }
+
+    /**
+     * Follows hash moves from position after first move. Entries can be
+     * overwritten or belong to other positions, so line ends at first move
+     * which isn't legal, after maxLength moves or when position repeats.
+     */
+    private int[] getPrincipalVariation(int firstMove, int maxLength)
+    {
+        BitboardPosition line = position.copy();
+        MoveList legalMoves = new MoveList();
+        List<Long> keys = new ArrayList<>();
+        int[] pv = new int[Math.max(1, maxLength)];
+        int length = 0;
+        int move = firstMove;
+        while (Moves.NO_MOVE != move)
+        {
+            pv[length++] = move;
+            line.makeMove(move);
+            long key = line.getZobristKey();
+            if (length == pv.length || keys.contains(key))
+            {
+                break;
+            }
+            keys.add(key);
+            legalMoves.clear();
+            MoveGenerator.generateLegal(line, legalMoves);
+            move = TranspositionTable.getMove(transpositionTable.probe(key));
+            if (!legalMoves.contains(move))
+            {
+                break;
+            }
+        }
+        int[] result = new int[length];
+        System.arraycopy(pv, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Searches move already made on position. Reduced move is searched with
+     * null window first and it's searched again with full depth only when it
+     * beats alpha. With principal variation search moves after the first one
+     * are searched with null window and re-searched with full window only
+     * when score falls between alpha and beta.
+     * @param depth depth of position after move, before reduction
+     * @param ply ply of position before move
+     * @param nullWindowFirst true if it's not the first move searched in node
+     * @return score from point of view of side which played the move
+     */
+    private int searchMove(int depth, int reduction, int ply, int alpha, int beta, boolean nullWindowFirst)
+    {
+        if (0 < reduction)
+        {
+            int score = -negamax(depth - reduction, ply + 1, -alpha - 1, -alpha, true);
+            if (score <= alpha || stopped)
+            {
+                return score;
+            }
+        }
+        if (principalVariationSearch && nullWindowFirst && alpha + 1 < beta)
+        {
+            int score = -negamax(depth, ply + 1, -alpha - 1, -alpha, true);
+            if (score <= alpha || score >= beta || stopped)
+            {
+                return score;
+            }
+        }
+        return -negamax(depth, ply + 1, -beta, -alpha, true);
+    }
+
+    /**
+     * @param nullMoveAllowed false right after null move, so two null moves
+     * aren't played in a row
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, boolean nullMoveAllowed)
+    {
+        long key = position.getZobristKey();
+        keys[historyLength + ply] = key;
+        if (isRepetition(ply))
+        {
+            return DRAW;
+        }
+        // exact result, also at horizon, where quiescence would only guess
+        if (null != tablebase)
+        {
+            int value = tablebase.probe(position);
+            if (Tablebase.NOT_FOUND != value)
+            {
+                return tablebaseScore(value, ply);
+            }
+        }
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        if (inCheck && ply < 2 * rootDepth)
+        {
+            depth++;
+        }
+        if (0 >= depth)
+        {
+            return quiescence(ply, alpha, beta);
+        }
+        if (isTimeUp())
+        {
+            return DRAW;
+        }
+        if (FIFTY_MOVES_RULE_PLIES <= position.getHalfMoveClock())
+        {
+            return DRAW;
+        }
+        if (MAX_PLY - 1 <= ply)
+        {
+            return evaluator.evaluate(position);
+        }
+        long entry = transpositionTable.probe(key);
+        int hashMove = TranspositionTable.getMove(entry);
+        if (0L != entry && TranspositionTable.getDepth(entry) >= depth)
+        {
+            int score = TranspositionTable.fromStoredScore(TranspositionTable.getScore(entry), ply);
+            int bound = TranspositionTable.getBound(entry);
+            if (TranspositionTable.BOUND_EXACT == bound
+                || (TranspositionTable.BOUND_LOWER == bound && score >= beta)
+                || (TranspositionTable.BOUND_UPPER == bound && score <= alpha))
+            {
+                return score;
+            }
+        }
+        // without principal variation search windows are rarely null,
+        // so then pruning is allowed in all nodes
+        boolean pvNode = principalVariationSearch && alpha + 1 < beta;
+        int staticEval = -INFINITY;
+        if (!inCheck && !pvNode && (nullMovePruning || futilityPruning || reverseFutilityPruning))
+        {
+            staticEval = evaluator.evaluate(position);
+        }
+        if (reverseFutilityPruning && !inCheck && !pvNode && REVERSE_FUTILITY_MAX_DEPTH >= depth
+            && MATE_BOUND > Math.abs(beta) && staticEval - REVERSE_FUTILITY_MARGIN * depth >= beta)
+        {
+            return staticEval;
+        }
+        if (nullMovePruning && nullMoveAllowed && !inCheck && !pvNode && NULL_MOVE_MIN_DEPTH <= depth
+            && staticEval >= beta && hasPiecesOtherThanPawns(position.getSideToMove()))
+        {
+            int reduction = NULL_MOVE_REDUCTION + depth / NULL_MOVE_DEPTH_DIVISOR;
+            int enPassantSquare = position.makeNullMove();
+            int previousNullMovePly = nullMovePly;
+            nullMovePly = ply + 1;
+            int score = -negamax(depth - 1 - reduction, ply + 1, -beta, -beta + 1, false);
+            nullMovePly = previousNullMovePly;
+            position.unmakeNullMove(enPassantSquare);
+            if (stopped)
+            {
+                return DRAW;
+            }
+            if (score >= beta)
+            {
+                return MATE_BOUND < score ? beta : score;
+            }
+        }
+        MoveList list = moves[ply];
+        list.clear();
+        MoveGenerator.generateLegal(position, list);
+        if (list.isEmpty())
+        {
+            return inCheck ? terminalScore(ply) : DRAW;
+        }
+        boolean futile = futilityPruning && !inCheck && !pvNode && FUTILITY_MARGINS.length > depth
+            && MATE_BOUND > Math.abs(alpha) && staticEval + FUTILITY_MARGINS[depth] <= alpha;
+        moveOrdering.score(position, list, hashMove, ply);
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Moves.NO_MOVE;
+        int searchedMoves = 0;
+        for (int i = 0; i < list.size(); i++)
+        {
+            int move = moveOrdering.next(position, list, i, ply);
+            boolean quiet = !Moves.isCapture(move) && !Moves.isPromotion(move);
+            boolean prunable = futile && quiet && 0 < searchedMoves;
+            boolean late = lateMoveReductions && quiet && !inCheck
+                && LATE_MOVE_MIN_DEPTH <= depth && LATE_MOVE_MIN_INDEX <= i;
+            long undo = position.makeMove(move);
+            boolean givesCheck = (prunable || late) && position.isInCheck(position.getSideToMove());
+            if (prunable && !givesCheck)
+            {
+                position.unmakeMove(move, undo);
+                bestScore = Math.max(bestScore, staticEval + FUTILITY_MARGINS[depth]);
+                continue;
+            }
+            int reduction = late && !givesCheck ? Math.min(LATE_MOVE_REDUCTIONS[depth][i], depth - 2) : 0;
+            int score = searchMove(depth - 1, reduction, ply, alpha, beta, 0 < searchedMoves);
+            position.unmakeMove(move, undo);
+            searchedMoves++;
+            if (stopped)
+            {
+                return DRAW;
+            }
+            if (score > bestScore)
+            {
+                bestScore = score;
+                bestMove = move;
+            }
+            if (score > alpha)
+            {
+                alpha = score;
+            }
+            if (alpha >= beta)
+            {
+                moveOrdering.cutoff(position, list, i, ply, depth);
+                break;
+            }
+        }
+        int bound = bestScore >= beta
+            ? TranspositionTable.BOUND_LOWER
+            : (bestScore > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER);
+        transpositionTable.store(key, TranspositionTable.BOUND_UPPER == bound ? Moves.NO_MOVE : bestMove,
+            TranspositionTable.toStoredScore(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * Searches captures and promotions which don't lose material only, until
+     * position is quiet. When side to move is in check all evasions are searched.
+     */
+    private int quiescence(int ply, int alpha, int beta)
+    {
+        if (isTimeUp())
+        {
+            return DRAW;
+        }
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        if (MAX_PLY - 1 <= ply)
+        {
+            return evaluator.evaluate(position);
+        }
+        if (!inCheck)
+        {
+            int standPat = evaluator.evaluate(position);
+            if (standPat >= beta)
+            {
+                return standPat;
+            }
+            if (standPat > alpha)
+            {
+                alpha = standPat;
+            }
+        }
+        MoveList list = moves[ply];
+        list.clear();
+        MoveGenerator.generateLegal(position, list);
+        if (inCheck && list.isEmpty())
+        {
+            return terminalScore(ply);
+        }
+        moveOrdering.score(position, list, Moves.NO_MOVE, ply);
+        for (int i = 0; i < list.size(); i++)
+        {
+            int move = moveOrdering.next(position, list, i, ply);
+            if (!inCheck && !moveOrdering.isGoodCapture(ply, i))
+            {
+                break;
+            }
+            long undo = position.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            position.unmakeMove(move, undo);
+            if (stopped)
+            {
+                return DRAW;
+            }
+            if (score >= beta)
+            {
+                return score;
+            }
+            if (score > alpha)
+            {
+                alpha = score;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Position repeated once is scored as draw, as side which could avoid
+     * the draw would play differently, and side which is worse can repeat it again.
+     * Only positions since last capture or pawn move are compared, and since
+     * last null move, which doesn't reset half move clock.
+     */
+    private boolean isRepetition(int ply)
+    {
+        int index = historyLength + ply;
+        long key = keys[index];
+        int limit = Math.min(position.getHalfMoveClock(), index);
+        if (NO_NULL_MOVE != nullMovePly)
+        {
+            limit = Math.min(limit, ply - nullMovePly);
+        }
+        // the same position with the same side to move comes back after 4 plies at least
+        for (int back = 4; back <= limit; back += 2)
+        {
+            if (keys[index - back] == key)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Side with pawns and king only can be in zugzwang, where null move
+     * would give wrong cutoffs.
+     */
+    private boolean hasPiecesOtherThanPawns(int color)
+    {
+        return 0L != (position.getOccupancy(color)
+            & ~position.getPieces(color, PAWN) & ~position.getPieces(color, KING));
+    }
+
+    /**
+     * @return score of position without legal moves for side to move, mate if in check
+     */
+    private int terminalScore(int ply)
+    {
+        return position.isInCheck(position.getSideToMove()) ? -MATE + ply : DRAW;
+    }
+
+    private boolean isTimeUp()
+    {
+        nodes++;
+        if (0L == (nodes & TIME_CHECK_INTERVAL)
+            && (System.nanoTime() > timeManager.getDeadline() || Thread.currentThread().isInterrupted()))
+        {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * @param features selective techniques used by next searches
+     */
+    public void setFeatures(Set<SearchFeature> features)
+    {
+        this.features = features.isEmpty() ? EnumSet.noneOf(SearchFeature.class) : EnumSet.copyOf(features);
+        nullMovePruning = features.contains(SearchFeature.NULL_MOVE);
+        lateMoveReductions = features.contains(SearchFeature.LATE_MOVE_REDUCTIONS);
+        futilityPruning = features.contains(SearchFeature.FUTILITY_PRUNING);
+        reverseFutilityPruning = features.contains(SearchFeature.REVERSE_FUTILITY_PRUNING);
+        principalVariationSearch = features.contains(SearchFeature.PRINCIPAL_VARIATION_SEARCH);
+        aspirationWindows = features.contains(SearchFeature.ASPIRATION_WINDOWS);
+    }
+
+    public Set<SearchFeature> getFeatures()
+    {
+        return Collections.unmodifiableSet(features);
+    }
+
+    /**
+     * @param tablebase endgame tables giving exact scores of positions with few pieces, null for none
+     */
+    public void setTablebase(Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+    }
+
+    public Tablebase getTablebase()
+    {
+        return tablebase;
+    }
+
+    /**
+     * @return mate score of won or lost position, counted from root like scores of mates found by search
+     */
+    private static int tablebaseScore(int value, int ply)
+    {
+        if (Tablebase.isWin(value))
+        {
+            return MATE - ply - Tablebase.getDistanceToMate(value);
+        }
+        if (Tablebase.isLoss(value))
+        {
+            return -MATE + ply + Tablebase.getDistanceToMate(value);
+        }
+        return DRAW;
+    }
+
+    /**
+     * @param progressListener notified after every finished iteration, on searching thread
+     */
+    public void setProgressListener(SearchProgressListener progressListener)
+    {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @param history Zobrist keys of positions played before searched one
+     * (since last capture or pawn move is enough), oldest first; repetitions
+     * of them are scored as draws
+     */
+    public void setHistory(long[] history)
+    {
+        keys = new long[history.length + MAX_PLY + 1];
+        System.arraycopy(history, 0, keys, 0, history.length);
+        historyLength = history.length;
+    }
+
+    /**
+     * @param iterationListener notified with result and best lines of every
+     * finished iteration, on searching thread; null for none
+     */
+    public void setIterationListener(IterationListener iterationListener)
+    {
+        this.iterationListener = iterationListener;
+    }
+
+    /**
+     * @param multiPv number of best lines searched in every iteration, 1 for plain search;
+     * more lines take more time, as root is searched again for each of them
+     */
+    public void setMultiPv(int multiPv)
+    {
+        this.multiPv = Math.max(1, multiPv);
+    }
+
+    public int getMultiPv()
+    {
+        return multiPv;
+    }
+
+    void setHelperId(int helperId)
+    {
+        this.helperId = helperId;
+    }
+
+    public TranspositionTable getTranspositionTable()
+    {
+        return transpositionTable;
+    }
+
+    /**
+     * Result of search: best move and its score from side to move point of view.
+     * Lines are filled by search which finished at least one iteration.
+     */
+    public static class Result
+    {
+        private final int bestMove;
+
+        private final int score;
+
+        private final int depth;
+
+        private final long nodes;
+
+        private final long nanos;
+
+        private final List<PrincipalVariation> lines;
+
+        public Result(int bestMove, int score, int depth, long nodes, long nanos)
+        {
+            this(bestMove, score, depth, nodes, nanos, Collections.emptyList());
+        }
+
+        /**
+         * @param lines best lines, the best one first
+         */
+        public Result(int bestMove, int score, int depth, long nodes, long nanos, List<PrincipalVariation> lines)
+        {
+            this.bestMove = bestMove;
+            this.score = score;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.nanos = nanos;
+            this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+        }
+
+        public int getBestMove()
+        {
+            return bestMove;
+        }
+
+        public int getScore()
+        {
+            return score;
+        }
+
+        public int getDepth()
+        {
+            return depth;
+        }
+
+        public long getNodes()
+        {
+            return nodes;
+        }
+
+        public long getNanos()
+        {
+            return nanos;
+        }
+
+        /**
+         * @return best lines of last finished iteration, the best one first;
+         * empty if no iteration was finished
+         */
+        public List<PrincipalVariation> getLines()
+        {
+            return lines;
+        }
+
+        public boolean isMate()
+        {
+            return MATE_BOUND < Math.abs(score);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("depth %d score %d best move %s, %d nodes in %d ms",
+                depth, score, Moves.toString(bestMove), nodes, nanos / NANOS_IN_MILLISECOND);
+        }
+    }
+}
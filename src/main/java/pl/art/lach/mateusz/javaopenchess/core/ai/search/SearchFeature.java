@@ -0,0 +1,54 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+/**
+ * Selective search techniques which can be turned on and off in Search,
+ * eg. to compare results of search with and without them.
+ */
+public enum SearchFeature
+{
+    /**
+     * Opponent moves twice, if it can't get below beta with reduced depth
+     * node is cut off. Not used when side to move has only pawns (zugzwang).
+     */
+    NULL_MOVE,
+
+    /**
+     * Quiet moves far in move ordering are searched with reduced depth first.
+     */
+    LATE_MOVE_REDUCTIONS,
+
+    /**
+     * Quiet moves near leaves are skipped when static evaluation is far below alpha.
+     */
+    FUTILITY_PRUNING,
+
+    /**
+     * Nodes near leaves are cut off when static evaluation is far above beta.
+     */
+    REVERSE_FUTILITY_PRUNING,
+
+    /**
+     * Moves after the first one are searched with null window and re-searched
+     * with full window only when they turn out to be better.
+     */
+    PRINCIPAL_VARIATION_SEARCH,
+
+    /**
+     * Root is searched with narrow window around score of previous iteration.
+     */
+    ASPIRATION_WINDOWS
+}
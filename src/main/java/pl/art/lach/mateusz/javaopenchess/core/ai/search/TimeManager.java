@@ -0,0 +1,200 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+/**
+ * Decides how long single search may take. Fixed move time gives one limit,
+ * time taken from game clock gives two: optimum time, after which no new
+ * iteration is started, and maximum time, after which search is stopped.
+ * Optimum time grows when best move changes between iterations.
+ * Time is measured from creation of manager. Every search needs its own instance.
+ * Pondering search runs without limit until ponderHit() gives it limits
+ * of real search, then it's stopped like any other search.
+ */
+public class TimeManager
+{
+    /**
+     * Moves expected to be played in the rest of game are never fewer than this.
+     */
+    static final int MIN_MOVES_LEFT = 20;
+
+    /**
+     * Game is expected to last at least this number of moves.
+     */
+    static final int EXPECTED_GAME_MOVES = 60;
+
+    /**
+     * Clock counts whole seconds, moves are delivered to chessboard with delay,
+     * so this time is never used.
+     */
+    static final long SAFETY_MARGIN = 1200L;
+
+    /**
+     * Time used when clock is almost out of time, search always finishes at least depth 1.
+     */
+    static final long MIN_MOVE_TIME = 20L;
+
+    /**
+     * Search never takes more than this many times the optimum time...
+     */
+    private static final int MAX_TIME_FACTOR = 5;
+
+    /**
+     * ...and never more than this part of remaining time.
+     */
+    private static final int MAX_TIME_DIVISOR = 5;
+
+    /**
+     * New iteration usually takes longer than all previous ones together,
+     * so it's not started after this part (in percent) of optimum time.
+     */
+    private static final int NEXT_ITERATION_PERCENT = 60;
+
+    /**
+     * Optimum time is extended by this percent every time best move changes.
+     */
+    private static final int INSTABILITY_PERCENT = 40;
+
+    private static final int PERCENT = 100;
+
+    private static final long NANOS_IN_MILLISECOND = 1_000_000L;
+
+    private volatile long startTime = System.nanoTime();
+
+    private volatile long maximumTime;
+
+    private volatile long optimumTime;
+
+    private volatile boolean fixed;
+
+    private TimeManager(long optimumTime, long maximumTime, boolean fixed)
+    {
+        this.optimumTime = optimumTime;
+        this.maximumTime = maximumTime;
+        this.fixed = fixed;
+    }
+
+    /**
+     * @return manager without limit, for search on opponent's time
+     */
+    public static TimeManager pondering()
+    {
+        return fixed(0L);
+    }
+
+    /**
+     * @param moveTime time for move in milliseconds, 0 or less means no limit
+     * @return manager which lets search use whole given time
+     */
+    public static TimeManager fixed(long moveTime)
+    {
+        long time = 0 < moveTime ? moveTime : Long.MAX_VALUE;
+        return new TimeManager(time, time, true);
+    }
+
+    /**
+     * @param remainingTime time left on clock of side to move in milliseconds
+     * @param increment time added to clock after every move in milliseconds
+     * @param moveNumber number of moves already played by side to move
+     * @return manager sharing remaining time between expected rest of game
+     */
+    public static TimeManager fromClock(long remainingTime, long increment, int moveNumber)
+    {
+        long available = remainingTime - SAFETY_MARGIN;
+        if (available <= MIN_MOVE_TIME)
+        {
+            return new TimeManager(MIN_MOVE_TIME, MIN_MOVE_TIME, false);
+        }
+        int movesLeft = Math.max(MIN_MOVES_LEFT, EXPECTED_GAME_MOVES - moveNumber);
+        long optimum = available / movesLeft + increment;
+        long maximum = Math.min(optimum * MAX_TIME_FACTOR, available / MAX_TIME_DIVISOR + increment);
+        maximum = Math.max(MIN_MOVE_TIME, Math.min(maximum, available));
+        return new TimeManager(Math.max(MIN_MOVE_TIME, Math.min(optimum, maximum)), maximum, false);
+    }
+
+    /**
+     * Called when best move found by iteration differs from previous one:
+     * position is unclear, so it's worth to search longer.
+     */
+    public synchronized void bestMoveChanged()
+    {
+        if (!fixed)
+        {
+            optimumTime = Math.min(maximumTime, optimumTime + optimumTime * INSTABILITY_PERCENT / PERCENT);
+        }
+    }
+
+    /**
+     * Opponent played predicted move, so pondering search becomes real search:
+     * from now on it uses limits of given manager, counted from this moment.
+     */
+    public synchronized void ponderHit(TimeManager timeManager)
+    {
+        startTime = System.nanoTime();
+        optimumTime = timeManager.optimumTime;
+        maximumTime = timeManager.maximumTime;
+        fixed = timeManager.fixed;
+    }
+
+    /**
+     * @return true if next iteration of iterative deepening should be started
+     */
+    public boolean canStartIteration()
+    {
+        return canStartIteration((System.nanoTime() - startTime) / NANOS_IN_MILLISECOND);
+    }
+
+    /**
+     * @param elapsed time since manager was created in milliseconds
+     * @return true if next iteration of iterative deepening should be started
+     */
+    boolean canStartIteration(long elapsed)
+    {
+        return fixed || elapsed < optimumTime * NEXT_ITERATION_PERCENT / PERCENT;
+    }
+
+    /**
+     * @return System.nanoTime() value after which search is stopped
+     */
+    public long getDeadline()
+    {
+        long maximum = maximumTime;
+        return Long.MAX_VALUE / NANOS_IN_MILLISECOND > maximum
+            ? startTime + maximum * NANOS_IN_MILLISECOND
+            : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return time after which no new iteration is started, in milliseconds
+     */
+    public long getOptimumTime()
+    {
+        return optimumTime;
+    }
+
+    /**
+     * @return time after which search is stopped, Long.MAX_VALUE for no limit
+     */
+    public long getMaximumTime()
+    {
+        return maximumTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("optimum %d ms, maximum %d ms", optimumTime, maximumTime);
+    }
+}
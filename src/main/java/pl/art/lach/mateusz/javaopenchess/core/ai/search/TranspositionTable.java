@@ -0,0 +1,279 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+/**
+ * Fixed-size hash table of search results, shared by search threads without locks.
+ * Every entry takes two longs: packed data (move, score, depth, bound, age)
+ * and position key XOR-ed with that data. Entry torn by concurrent writes
+ * doesn't validate against any key, so it's just a miss.
+ * Entry is replaced when it's from older search or its depth isn't bigger.
+ */
+public class TranspositionTable
+{
+    public static final int DEFAULT_SIZE_MB = 16;
+
+    public static final int BOUND_NONE = 0;
+
+    /**
+     * Score is exact.
+     */
+    public static final int BOUND_EXACT = 1;
+
+    /**
+     * Score is lower bound (search failed high).
+     */
+    public static final int BOUND_LOWER = 2;
+
+    /**
+     * Score is upper bound (search failed low).
+     */
+    public static final int BOUND_UPPER = 3;
+
+    private static final int BYTES_PER_ENTRY = 2 * Long.BYTES;
+
+    private static final long BYTES_IN_MB = 1024L * 1024L;
+
+    private static final int MOVE_BITS = 19;
+
+    private static final int SCORE_SHIFT = MOVE_BITS;
+
+    private static final int DEPTH_SHIFT = SCORE_SHIFT + 16;
+
+    private static final int BOUND_SHIFT = DEPTH_SHIFT + 8;
+
+    private static final int AGE_SHIFT = BOUND_SHIFT + 2;
+
+    private static final long MOVE_MASK = (1L << MOVE_BITS) - 1;
+
+    private static final long SCORE_MASK = 0xFFFFL;
+
+    private static final long BYTE_MASK = 0xFFL;
+
+    private static final long BOUND_MASK = 0x3L;
+
+    private static final int AGE_MASK = 0xFF;
+
+    /**
+     * Number of entries sampled to compute usage.
+     */
+    private static final int USAGE_SAMPLE = 1000;
+
+    private final long[] keys;
+
+    private final long[] data;
+
+    private final int mask;
+
+    private volatile int age;
+
+    private final LongAdder probes = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * @param sizeInMb memory used by table, rounded down to power of two entries
+     */
+    public TranspositionTable(int sizeInMb)
+    {
+        long entries = Math.max(1L, sizeInMb * BYTES_IN_MB / BYTES_PER_ENTRY);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return packed entry for given key or 0 if there is no valid entry,
+     * use static getters to unpack it
+     */
+    public long probe(long key)
+    {
+        probes.increment();
+        int index = (int) key & mask;
+        long entry = data[index];
+        if (0L != entry && (keys[index] ^ entry) == key)
+        {
+            hits.increment();
+            return entry;
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores search result. Mate scores should be converted with toStoredScore() first.
+     */
+    public void store(long key, int move, int score, int depth, int bound)
+    {
+        int index = (int) key & mask;
+        long old = data[index];
+        boolean sameKey = (keys[index] ^ old) == key;
+        if (0L != old && getAge(old) == age && !sameKey && getDepth(old) > depth)
+        {
+            return;
+        }
+        if (sameKey && Moves.NO_MOVE == move)
+        {
+            move = getMove(old);
+        }
+        long entry = (move & MOVE_MASK)
+            | ((score & SCORE_MASK) << SCORE_SHIFT)
+            | ((depth & BYTE_MASK) << DEPTH_SHIFT)
+            | ((bound & BOUND_MASK) << BOUND_SHIFT)
+            | ((long) age << AGE_SHIFT);
+        data[index] = entry;
+        keys[index] = key ^ entry;
+        stores.increment();
+    }
+
+    /**
+     * Starts new search, so entries from previous searches become replaceable.
+     */
+    public void newSearch()
+    {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        resetStatistics();
+    }
+
+    public static int getMove(long entry)
+    {
+        return (int) (entry & MOVE_MASK);
+    }
+
+    public static int getScore(long entry)
+    {
+        return (short) (entry >>> SCORE_SHIFT);
+    }
+
+    public static int getDepth(long entry)
+    {
+        return (int) ((entry >>> DEPTH_SHIFT) & BYTE_MASK);
+    }
+
+    public static int getBound(long entry)
+    {
+        return (int) ((entry >>> BOUND_SHIFT) & BOUND_MASK);
+    }
+
+    public static int getAge(long entry)
+    {
+        return (int) (entry >>> AGE_SHIFT) & AGE_MASK;
+    }
+
+    /**
+     * Mate scores are kept as distance from stored position, not from root.
+     */
+    public static int toStoredScore(int score, int ply)
+    {
+        if (Search.MATE_BOUND < score)
+        {
+            return score + ply;
+        }
+        if (-Search.MATE_BOUND > score)
+        {
+            return score - ply;
+        }
+        return score;
+    }
+
+    public static int fromStoredScore(int score, int ply)
+    {
+        if (Search.MATE_BOUND < score)
+        {
+            return score - ply;
+        }
+        if (-Search.MATE_BOUND > score)
+        {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int getSize()
+    {
+        return keys.length;
+    }
+
+    public long getProbes()
+    {
+        return probes.sum();
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getStores()
+    {
+        return stores.sum();
+    }
+
+    /**
+     * @return hits to probes ratio (0.0 - 1.0)
+     */
+    public double getHitRate()
+    {
+        long probesCount = probes.sum();
+        return 0L == probesCount ? 0.0 : (double) hits.sum() / probesCount;
+    }
+
+    /**
+     * @return estimated permille of entries used by current search
+     */
+    public int getUsage()
+    {
+        int sample = Math.min(USAGE_SAMPLE, keys.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++)
+        {
+            long entry = data[i];
+            if (0L != entry && getAge(entry) == age)
+            {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public void resetStatistics()
+    {
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("TranspositionTable: %d entries, %d probes, %d hits (%.1f%%), %d stores, usage %.1f%%",
+            getSize(), getProbes(), getHits(), 100.0 * getHitRate(), getStores(), getUsage() / 10.0);
+    }
+}
@@ -0,0 +1,866 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import java.util.Arrays;
+import pl.art.lach.mateusz.javaopenchess.core.Colors;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Bishop;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.King;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Knight;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Pawn;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Queen;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Rook;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards.*;
+
+/**
+ * Bitboard representation of chess position: twelve piece boards
+ * (one per color and piece type), occupancy, side to move, castling rights
+ * and en passant square. Pieces are coded as color * 6 + type.
+ */
+public class BitboardPosition
+{
+    public static final int WHITE = 0;
+
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+
+    public static final int KNIGHT = 1;
+
+    public static final int BISHOP = 2;
+
+    public static final int ROOK = 3;
+
+    public static final int QUEEN = 4;
+
+    public static final int KING = 5;
+
+    public static final int NUMBER_OF_PIECE_TYPES = 6;
+
+    public static final int NUMBER_OF_PIECES = 12;
+
+    public static final int NO_PIECE = -1;
+
+    public static final int NO_SQUARE = -1;
+
+    public static final int CASTLE_WHITE_KING = 1;
+
+    public static final int CASTLE_WHITE_QUEEN = 2;
+
+    public static final int CASTLE_BLACK_KING = 4;
+
+    public static final int CASTLE_BLACK_QUEEN = 8;
+
+    public static final int CASTLE_ALL = 15;
+
+    private static final String PIECE_SYMBOLS = "PNBRQKpnbrqk";
+
+    private static final String CASTLING_SYMBOLS = "KQkq";
+
+    private static final int NUMBER_OF_FEN_FIELDS = 6;
+
+    /**
+     * Castling rights which survive a move from or to given square.
+     */
+    private static final int[] CASTLING_RIGHTS_MASK = new int[NUMBER_OF_SQUARES];
+
+    static
+    {
+        Arrays.fill(CASTLING_RIGHTS_MASK, CASTLE_ALL);
+        CASTLING_RIGHTS_MASK[0] &= ~CASTLE_WHITE_QUEEN;
+        CASTLING_RIGHTS_MASK[7] &= ~CASTLE_WHITE_KING;
+        CASTLING_RIGHTS_MASK[4] &= ~(CASTLE_WHITE_KING | CASTLE_WHITE_QUEEN);
+        CASTLING_RIGHTS_MASK[56] &= ~CASTLE_BLACK_QUEEN;
+        CASTLING_RIGHTS_MASK[63] &= ~CASTLE_BLACK_KING;
+        CASTLING_RIGHTS_MASK[60] &= ~(CASTLE_BLACK_KING | CASTLE_BLACK_QUEEN);
+    }
+
+    protected final long[] pieces = new long[NUMBER_OF_PIECES];
+
+    protected final long[] occupancy = new long[2];
+
+    protected long occupied = EMPTY;
+
+    /**
+     * Mailbox kept next to the bitboards for O(1) "what is on square" queries.
+     */
+    protected final byte[] board = new byte[NUMBER_OF_SQUARES];
+
+    protected int sideToMove = WHITE;
+
+    protected int castlingRights = 0;
+
+    protected int enPassantSquare = NO_SQUARE;
+
+    protected int halfMoveClock = 0;
+
+    /**
+     * Zobrist key, updated incrementally on every change of position.
+     */
+    protected long zobristKey = 0L;
+
+    /**
+     * Zobrist key of pawns only, for caching pawn structure evaluation.
+     */
+    protected long pawnKey = 0L;
+
+    /**
+     * Sums of PieceSquareTables values and phase weights of all pieces,
+     * updated incrementally like Zobrist key.
+     */
+    protected int middlegameScore = 0;
+
+    protected int endgameScore = 0;
+
+    protected int phase = 0;
+
+    public BitboardPosition()
+    {
+        Arrays.fill(board, (byte) NO_PIECE);
+    }
+
+    public BitboardPosition(BitboardPosition other)
+    {
+        System.arraycopy(other.pieces, 0, this.pieces, 0, NUMBER_OF_PIECES);
+        System.arraycopy(other.occupancy, 0, this.occupancy, 0, 2);
+        System.arraycopy(other.board, 0, this.board, 0, NUMBER_OF_SQUARES);
+        this.occupied = other.occupied;
+        this.sideToMove = other.sideToMove;
+        this.castlingRights = other.castlingRights;
+        this.enPassantSquare = other.enPassantSquare;
+        this.halfMoveClock = other.halfMoveClock;
+        this.zobristKey = other.zobristKey;
+        this.pawnKey = other.pawnKey;
+        this.middlegameScore = other.middlegameScore;
+        this.endgameScore = other.endgameScore;
+        this.phase = other.phase;
+    }
+
+    public BitboardPosition copy()
+    {
+        return new BitboardPosition(this);
+    }
+
+    /**
+     * Loads position from FEN without creating Game, in the same way FenNotation
+     * loads it to chessboard: castling right needs king and rook on their squares,
+     * en passant square is kept if pawn which moved two squares is behind it.
+     * Full move number is checked, but not stored.
+     * @param fen position in Forsyth-Edwards notation
+     * @throws ReadGameError if FEN is malformed
+     */
+    public static BitboardPosition fromFen(String fen) throws ReadGameError
+    {
+        String[] fields = fen.trim().split("\\s+");
+        if (NUMBER_OF_FEN_FIELDS != fields.length)
+        {
+            throw new ReadGameError("Invalid number of FEN fields: " + fen);
+        }
+        BitboardPosition position = new BitboardPosition();
+        position.loadPieces(fields[0], fen);
+        if ("b".equals(fields[1]))
+        {
+            position.setSideToMove(BLACK);
+        }
+        else if (!"w".equals(fields[1]))
+        {
+            throw new ReadGameError("Invalid side to move in FEN: " + fen);
+        }
+        position.loadCastlingRights(fields[2], fen);
+        position.loadEnPassantSquare(fields[3], fen);
+        try
+        {
+            position.setHalfMoveClock(Integer.parseInt(fields[4]));
+            Integer.parseInt(fields[5]);
+        }
+        catch (NumberFormatException exc)
+        {
+            throw new ReadGameError("Invalid move counter in FEN: " + fen);
+        }
+        return position;
+    }
+
+    private void loadPieces(String placement, String fen) throws ReadGameError
+    {
+        String[] rows = placement.split("/");
+        if (8 != rows.length)
+        {
+            throw new ReadGameError("Invalid number of FEN rows: " + fen);
+        }
+        for (int row = 0; row < rows.length; row++)
+        {
+            int rank = 7 - row;
+            int file = 0;
+            for (char symbol : rows[row].toCharArray())
+            {
+                if ('1' <= symbol && '8' >= symbol)
+                {
+                    file += symbol - '0';
+                    continue;
+                }
+                int pieceCode = PIECE_SYMBOLS.indexOf(symbol);
+                if (NO_PIECE == pieceCode || 8 <= file)
+                {
+                    throw new ReadGameError("Invalid FEN row " + rows[row] + ": " + fen);
+                }
+                put((rank << 3) | file, pieceCode);
+                file++;
+            }
+            if (8 != file)
+            {
+                throw new ReadGameError("Invalid FEN row " + rows[row] + ": " + fen);
+            }
+        }
+    }
+
+    private void loadCastlingRights(String castling, String fen) throws ReadGameError
+    {
+        if ("-".equals(castling))
+        {
+            return;
+        }
+        int rights = 0;
+        for (char symbol : castling.toCharArray())
+        {
+            int index = CASTLING_SYMBOLS.indexOf(symbol);
+            if (0 > index)
+            {
+                throw new ReadGameError("Invalid castling rights in FEN: " + fen);
+            }
+            int color = index / 2;
+            int rank = WHITE == color ? 0 : 7;
+            int rookFile = 0 == index % 2 ? 7 : 0;
+            if (pieceCode(color, KING) != board[(rank << 3) | 4]
+                || pieceCode(color, ROOK) != board[(rank << 3) | rookFile])
+            {
+                throw new ReadGameError("Castling right without king and rook in FEN: " + fen);
+            }
+            rights |= 1 << index;
+        }
+        setCastlingRights(rights);
+    }
+
+    private void loadEnPassantSquare(String enPassant, String fen) throws ReadGameError
+    {
+        if ("-".equals(enPassant))
+        {
+            return;
+        }
+        if (2 != enPassant.length() || 'a' > enPassant.charAt(0) || 'h' < enPassant.charAt(0)
+            || ('3' != enPassant.charAt(1) && '6' != enPassant.charAt(1)))
+        {
+            throw new ReadGameError("Invalid en passant square in FEN: " + fen);
+        }
+        int square = ((enPassant.charAt(1) - '1') << 3) | (enPassant.charAt(0) - 'a');
+        boolean whitePawnMoved = '3' == enPassant.charAt(1);
+        int pawnSquare = whitePawnMoved ? square + 8 : square - 8;
+        if (pieceCode(whitePawnMoved ? WHITE : BLACK, PAWN) == board[pawnSquare])
+        {
+            setEnPassantSquare(square);
+        }
+    }
+
+    public static int pieceCode(int color, int type)
+    {
+        return color * NUMBER_OF_PIECE_TYPES + type;
+    }
+
+    public static int colorOf(int pieceCode)
+    {
+        return pieceCode / NUMBER_OF_PIECE_TYPES;
+    }
+
+    public static int typeOf(int pieceCode)
+    {
+        return pieceCode % NUMBER_OF_PIECE_TYPES;
+    }
+
+    public static int opponent(int color)
+    {
+        return color ^ 1;
+    }
+
+    public static int colorIndex(Colors color)
+    {
+        return Colors.BLACK == color ? BLACK : WHITE;
+    }
+
+    public static Colors toColors(int color)
+    {
+        return BLACK == color ? Colors.BLACK : Colors.WHITE;
+    }
+
+    /**
+     * @return FEN letter of piece, eg. 'N' for white knight, 'q' for black queen
+     */
+    public static char symbolOf(int pieceCode)
+    {
+        return PIECE_SYMBOLS.charAt(pieceCode);
+    }
+
+    /**
+     * Maps Piece object to its bitboard code.
+     * @param piece piece (can be null)
+     * @return piece code or NO_PIECE if piece is null or of unknown type
+     */
+    public static int pieceCode(Piece piece)
+    {
+        if (null == piece || null == piece.getPlayer() || null == piece.getPlayer().getColor())
+        {
+            return NO_PIECE;
+        }
+        int type = pieceType(piece);
+        if (NO_PIECE == type)
+        {
+            return NO_PIECE;
+        }
+        return pieceCode(colorIndex(piece.getPlayer().getColor()), type);
+    }
+
+    private static int pieceType(Piece piece)
+    {
+        Class<?> clazz = piece.getClass();
+        if (Pawn.class == clazz)
+        {
+            return PAWN;
+        }
+        else if (Knight.class == clazz)
+        {
+            return KNIGHT;
+        }
+        else if (Bishop.class == clazz)
+        {
+            return BISHOP;
+        }
+        else if (Rook.class == clazz)
+        {
+            return ROOK;
+        }
+        else if (Queen.class == clazz)
+        {
+            return QUEEN;
+        }
+        else if (King.class == clazz)
+        {
+            return KING;
+        }
+        return NO_PIECE;
+    }
+
+    /**
+     * Puts piece on an empty square.
+     */
+    public void put(int square, int pieceCode)
+    {
+        long mask = bit(square);
+        pieces[pieceCode] |= mask;
+        occupancy[colorOf(pieceCode)] |= mask;
+        occupied |= mask;
+        board[square] = (byte) pieceCode;
+        zobristKey ^= Zobrist.piece(pieceCode, square);
+        if (PAWN == typeOf(pieceCode))
+        {
+            pawnKey ^= Zobrist.piece(pieceCode, square);
+        }
+        middlegameScore += PieceSquareTables.middlegame(pieceCode, square);
+        endgameScore += PieceSquareTables.endgame(pieceCode, square);
+        phase += PieceSquareTables.phase(pieceCode);
+    }
+
+    /**
+     * Removes piece from square.
+     * @return removed piece code, NO_PIECE if square was empty
+     */
+    public int remove(int square)
+    {
+        int pieceCode = board[square];
+        if (NO_PIECE != pieceCode)
+        {
+            long mask = ~bit(square);
+            pieces[pieceCode] &= mask;
+            occupancy[colorOf(pieceCode)] &= mask;
+            occupied &= mask;
+            board[square] = (byte) NO_PIECE;
+            zobristKey ^= Zobrist.piece(pieceCode, square);
+            if (PAWN == typeOf(pieceCode))
+            {
+                pawnKey ^= Zobrist.piece(pieceCode, square);
+            }
+            middlegameScore -= PieceSquareTables.middlegame(pieceCode, square);
+            endgameScore -= PieceSquareTables.endgame(pieceCode, square);
+            phase -= PieceSquareTables.phase(pieceCode);
+        }
+        return pieceCode;
+    }
+
+    /**
+     * Sets content of square, replacing whatever was there.
+     */
+    public void set(int square, int pieceCode)
+    {
+        if (board[square] == pieceCode)
+        {
+            return;
+        }
+        remove(square);
+        if (NO_PIECE != pieceCode)
+        {
+            put(square, pieceCode);
+        }
+    }
+
+    /**
+     * Plays move (as generated by MoveGenerator) on this position.
+     * @return undo information which must be passed to unmakeMove()
+     */
+    public long makeMove(int move)
+    {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int moved = board[from];
+        int color = colorOf(moved);
+        int captured;
+        if (Moves.isEnPassant(move))
+        {
+            captured = remove(enPassantVictim(to, color));
+        }
+        else
+        {
+            captured = remove(to);
+        }
+        long undo = (captured + 1)
+            | (castlingRights << 4)
+            | ((enPassantSquare + 1) << 8)
+            | ((long) halfMoveClock << 16);
+        remove(from);
+        put(to, Moves.isPromotion(move) ? pieceCode(color, Moves.promotion(move)) : moved);
+        if (Moves.isCastling(move))
+        {
+            moveCastlingRook(from, to, false);
+        }
+        setCastlingRights(castlingRights & CASTLING_RIGHTS_MASK[from] & CASTLING_RIGHTS_MASK[to]);
+        setEnPassantSquare(Moves.isDoublePush(move) ? (from + to) >>> 1 : NO_SQUARE);
+        halfMoveClock = (PAWN == typeOf(moved) || NO_PIECE != captured) ? 0 : halfMoveClock + 1;
+        setSideToMove(opponent(color));
+        return undo;
+    }
+
+    /**
+     * Takes back move played by makeMove().
+     * @param move move to take back
+     * @param undo value returned by makeMove() for this move
+     */
+    public void unmakeMove(int move, long undo)
+    {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int placed = remove(to);
+        int color = colorOf(placed);
+        put(from, Moves.isPromotion(move) ? pieceCode(color, PAWN) : placed);
+        int captured = (int) (undo & 0xF) - 1;
+        if (NO_PIECE != captured)
+        {
+            put(Moves.isEnPassant(move) ? enPassantVictim(to, color) : to, captured);
+        }
+        if (Moves.isCastling(move))
+        {
+            moveCastlingRook(from, to, true);
+        }
+        setCastlingRights((int) (undo >>> 4) & CASTLE_ALL);
+        setEnPassantSquare((int) ((undo >>> 8) & 0x7F) - 1);
+        halfMoveClock = (int) ((undo >>> 16) & 0xFFFF);
+        setSideToMove(color);
+    }
+
+    /**
+     * Passes the turn to opponent without moving, for null move pruning.
+     * Side to move must not be in check.
+     * @return en passant square which must be passed to unmakeNullMove()
+     */
+    public int makeNullMove()
+    {
+        int previousEnPassantSquare = enPassantSquare;
+        setEnPassantSquare(NO_SQUARE);
+        setSideToMove(opponent(sideToMove));
+        return previousEnPassantSquare;
+    }
+
+    /**
+     * Takes back null move.
+     * @param previousEnPassantSquare value returned by makeNullMove()
+     */
+    public void unmakeNullMove(int previousEnPassantSquare)
+    {
+        setSideToMove(opponent(sideToMove));
+        setEnPassantSquare(previousEnPassantSquare);
+    }
+
+    private static int enPassantVictim(int to, int color)
+    {
+        return WHITE == color ? to - 8 : to + 8;
+    }
+
+    private void moveCastlingRook(int kingFrom, int kingTo, boolean back)
+    {
+        int rookFrom = kingTo > kingFrom ? kingFrom + 3 : kingFrom - 4;
+        int rookTo = kingTo > kingFrom ? kingFrom + 1 : kingFrom - 1;
+        if (back)
+        {
+            put(rookFrom, remove(rookTo));
+        }
+        else
+        {
+            put(rookTo, remove(rookFrom));
+        }
+    }
+
+    public void clear()
+    {
+        for (int square = 0; square < NUMBER_OF_SQUARES; square++)
+        {
+            remove(square);
+        }
+        setCastlingRights(0);
+        setEnPassantSquare(NO_SQUARE);
+        setSideToMove(WHITE);
+        halfMoveClock = 0;
+    }
+
+    public int getPiece(int square)
+    {
+        return board[square];
+    }
+
+    public long getPieces(int pieceCode)
+    {
+        return pieces[pieceCode];
+    }
+
+    public long getPieces(int color, int type)
+    {
+        return pieces[pieceCode(color, type)];
+    }
+
+    public long getOccupancy(int color)
+    {
+        return occupancy[color];
+    }
+
+    public long getOccupied()
+    {
+        return occupied;
+    }
+
+    public long getEmpty()
+    {
+        return ~occupied;
+    }
+
+    /**
+     * @return square of king or NO_SQUARE if there is no king of given color
+     */
+    public int getKingSquare(int color)
+    {
+        long king = pieces[pieceCode(color, KING)];
+        return EMPTY == king ? NO_SQUARE : first(king);
+    }
+
+    /**
+     * @return all squares attacked by piece standing on given square
+     */
+    public long getAttacks(int square)
+    {
+        int pieceCode = board[square];
+        if (NO_PIECE == pieceCode)
+        {
+            return EMPTY;
+        }
+        return attacks(pieceCode, square, occupied);
+    }
+
+    static long attacks(int pieceCode, int square, long occupied)
+    {
+        switch (typeOf(pieceCode))
+        {
+            case PAWN:
+                return pawnAttacks(colorOf(pieceCode), square);
+            case KNIGHT:
+                return knightAttacks(square);
+            case BISHOP:
+                return bishopAttacks(square, occupied);
+            case ROOK:
+                return rookAttacks(square, occupied);
+            case QUEEN:
+                return queenAttacks(square, occupied);
+            default:
+                return kingAttacks(square);
+        }
+    }
+
+    /**
+     * @return set of pieces (both colors) attacking given square for given occupancy
+     */
+    public long getAttackersTo(int square, long occupied)
+    {
+        long bishopsQueens = pieces[pieceCode(WHITE, BISHOP)] | pieces[pieceCode(BLACK, BISHOP)]
+            | pieces[pieceCode(WHITE, QUEEN)] | pieces[pieceCode(BLACK, QUEEN)];
+        long rooksQueens = pieces[pieceCode(WHITE, ROOK)] | pieces[pieceCode(BLACK, ROOK)]
+            | pieces[pieceCode(WHITE, QUEEN)] | pieces[pieceCode(BLACK, QUEEN)];
+        return (pawnAttacks(BLACK, square) & pieces[pieceCode(WHITE, PAWN)])
+            | (pawnAttacks(WHITE, square) & pieces[pieceCode(BLACK, PAWN)])
+            | (knightAttacks(square) & (pieces[pieceCode(WHITE, KNIGHT)] | pieces[pieceCode(BLACK, KNIGHT)]))
+            | (kingAttacks(square) & (pieces[pieceCode(WHITE, KING)] | pieces[pieceCode(BLACK, KING)]))
+            | (bishopAttacks(square, occupied) & bishopsQueens)
+            | (rookAttacks(square, occupied) & rooksQueens);
+    }
+
+    /**
+     * @return union of squares attacked by all pieces of given color for given occupancy
+     */
+    public long getAttackedSquares(int color, long occupied)
+    {
+        long result = EMPTY;
+        long own = occupancy[color];
+        while (EMPTY != own)
+        {
+            int square = first(own);
+            own &= own - 1;
+            result |= attacks(board[square], square, occupied);
+        }
+        return result;
+    }
+
+    /**
+     * @return pieces of given color which are absolutely pinned to their king
+     */
+    public long getPinned(int color)
+    {
+        int kingSquare = getKingSquare(color);
+        if (NO_SQUARE == kingSquare)
+        {
+            return EMPTY;
+        }
+        int enemy = opponent(color);
+        long enemies = occupancy[enemy];
+        long queens = pieces[pieceCode(enemy, QUEEN)];
+        long snipers = (rookAttacks(kingSquare, enemies) & (pieces[pieceCode(enemy, ROOK)] | queens))
+            | (bishopAttacks(kingSquare, enemies) & (pieces[pieceCode(enemy, BISHOP)] | queens));
+        long result = EMPTY;
+        while (EMPTY != snipers)
+        {
+            int sniper = first(snipers);
+            snipers &= snipers - 1;
+            long blockers = between(kingSquare, sniper) & occupied;
+            if (1 == count(blockers))
+            {
+                result |= blockers & occupancy[color];
+            }
+        }
+        return result;
+    }
+
+    public boolean isAttacked(int square, int byColor)
+    {
+        return isAttacked(square, byColor, occupied);
+    }
+
+    /**
+     * Checks if square is attacked by pieces of given color, assuming given occupancy.
+     */
+    public boolean isAttacked(int square, int byColor, long occupied)
+    {
+        if (0 != (pawnAttacks(opponent(byColor), square) & pieces[pieceCode(byColor, PAWN)]))
+        {
+            return true;
+        }
+        if (0 != (knightAttacks(square) & pieces[pieceCode(byColor, KNIGHT)]))
+        {
+            return true;
+        }
+        if (0 != (kingAttacks(square) & pieces[pieceCode(byColor, KING)]))
+        {
+            return true;
+        }
+        long queens = pieces[pieceCode(byColor, QUEEN)];
+        if (0 != (bishopAttacks(square, occupied) & (pieces[pieceCode(byColor, BISHOP)] | queens)))
+        {
+            return true;
+        }
+        return 0 != (rookAttacks(square, occupied) & (pieces[pieceCode(byColor, ROOK)] | queens));
+    }
+
+    /**
+     * Checks if given color is in check.
+     */
+    public boolean isInCheck(int color)
+    {
+        int kingSquare = getKingSquare(color);
+        return NO_SQUARE != kingSquare && isAttacked(kingSquare, opponent(color));
+    }
+
+    /**
+     * Checks if king of given color could stand on given square, ie. the square is
+     * not attacked by opponent when king is lifted from its current square.
+     */
+    public boolean isSafeForKing(int square, int color)
+    {
+        long kingBoard = pieces[pieceCode(color, KING)];
+        return !isAttacked(square, opponent(color), occupied & ~kingBoard);
+    }
+
+    /**
+     * Checks without changing position if king of moving side is safe after
+     * moving piece between given squares. Handles captures and en passant.
+     * @return true if own king is not attacked after the move
+     */
+    public boolean isKingSafeAfterMove(int from, int to)
+    {
+        int moved = board[from];
+        if (NO_PIECE == moved)
+        {
+            return false;
+        }
+        int color = colorOf(moved);
+        int enemy = opponent(color);
+        long fromTo = bit(from) | bit(to);
+        long captured = board[to] != NO_PIECE ? bit(to) : EMPTY;
+        if (PAWN == typeOf(moved) && file(from) != file(to) && EMPTY == captured)
+        {
+            captured = bit((rank(from) << 3) | file(to));
+        }
+        long occupiedAfter = (occupied & ~captured & ~bit(from)) | bit(to);
+        int kingSquare = KING == typeOf(moved) ? to : getKingSquare(color);
+        if (NO_SQUARE == kingSquare)
+        {
+            return true;
+        }
+        long notCaptured = ~captured;
+        long queens = pieces[pieceCode(enemy, QUEEN)] & notCaptured;
+        return 0 == (pawnAttacks(color, kingSquare) & pieces[pieceCode(enemy, PAWN)] & notCaptured)
+            && 0 == (knightAttacks(kingSquare) & pieces[pieceCode(enemy, KNIGHT)] & notCaptured)
+            && 0 == (kingAttacks(kingSquare) & pieces[pieceCode(enemy, KING)] & ~fromTo)
+            && 0 == (bishopAttacks(kingSquare, occupiedAfter) & ((pieces[pieceCode(enemy, BISHOP)] & notCaptured) | queens))
+            && 0 == (rookAttacks(kingSquare, occupiedAfter) & ((pieces[pieceCode(enemy, ROOK)] & notCaptured) | queens));
+    }
+
+    public int getSideToMove()
+    {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int sideToMove)
+    {
+        zobristKey ^= Zobrist.sideToMove(this.sideToMove) ^ Zobrist.sideToMove(sideToMove);
+        this.sideToMove = sideToMove;
+    }
+
+    public int getCastlingRights()
+    {
+        return castlingRights;
+    }
+
+    public boolean hasCastlingRight(int right)
+    {
+        return 0 != (castlingRights & right);
+    }
+
+    public void setCastlingRights(int castlingRights)
+    {
+        zobristKey ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    public int getEnPassantSquare()
+    {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int enPassantSquare)
+    {
+        zobristKey ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    /**
+     * @return 64-bit Zobrist key of this position
+     * @see Zobrist
+     */
+    public long getZobristKey()
+    {
+        return zobristKey;
+    }
+
+    /**
+     * @return Zobrist key of pawns of both colors, 0 if there are no pawns
+     */
+    public long getPawnKey()
+    {
+        return pawnKey;
+    }
+
+    /**
+     * @return middlegame material and placement of all pieces from white point of view
+     */
+    public int getMiddlegameScore()
+    {
+        return middlegameScore;
+    }
+
+    /**
+     * @return endgame material and placement of all pieces from white point of view
+     */
+    public int getEndgameScore()
+    {
+        return endgameScore;
+    }
+
+    /**
+     * @return game phase, PieceSquareTables.MAX_PHASE with all pieces on board
+     * (can be greater after promotions), 0 with kings and pawns only
+     */
+    public int getPhase()
+    {
+        return phase;
+    }
+
+    public int getHalfMoveClock()
+    {
+        return halfMoveClock;
+    }
+
+    public void setHalfMoveClock(int halfMoveClock)
+    {
+        this.halfMoveClock = halfMoveClock;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder();
+        for (int rank = 7; rank >= 0; rank--)
+        {
+            for (int file = 0; file < 8; file++)
+            {
+                int pieceCode = board[(rank << 3) | file];
+                result.append(NO_PIECE == pieceCode ? '.' : symbolOf(pieceCode));
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,439 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Square;
+
+/**
+ * Static helpers for 64-bit board sets.
+ * Squares are indexed a1 = 0, b1 = 1 ... h8 = 63, so bit N of a bitboard
+ * represents square N. Chessboard keeps its own (pozX, pozY) coordinates
+ * where pozY = 0 is the 8th rank - use index()/pozX()/pozY() to convert.
+ * Knight, king and pawn attacks come from precomputed tables, sliding
+ * pieces use magic bitboards built once when the class is loaded.
+ */
+public final class Bitboards
+{
+    public static final int NUMBER_OF_SQUARES = 64;
+
+    public static final long EMPTY = 0L;
+
+    public static final long FILE_A = 0x0101010101010101L;
+
+    public static final long FILE_H = FILE_A << 7;
+
+    public static final long RANK_1 = 0xFFL;
+
+    public static final long RANK_2 = RANK_1 << 8;
+
+    public static final long RANK_4 = RANK_1 << 24;
+
+    public static final long RANK_5 = RANK_1 << 32;
+
+    public static final long RANK_7 = RANK_1 << 48;
+
+    public static final long RANK_8 = RANK_1 << 56;
+
+    /**
+     * Knight attacks for every square.
+     */
+    static final long[] KNIGHT_ATTACKS = new long[NUMBER_OF_SQUARES];
+
+    /**
+     * King attacks for every square (without castling).
+     */
+    static final long[] KING_ATTACKS = new long[NUMBER_OF_SQUARES];
+
+    /**
+     * Pawn capture squares, indexed [color][square].
+     */
+    static final long[][] PAWN_ATTACKS = new long[2][NUMBER_OF_SQUARES];
+
+    /**
+     * Squares strictly between two squares lying on common line, indexed [from][to].
+     */
+    private static final long[][] BETWEEN = new long[NUMBER_OF_SQUARES][NUMBER_OF_SQUARES];
+
+    /**
+     * Whole line (edge to edge) going through two squares, indexed [from][to].
+     */
+    private static final long[][] LINE = new long[NUMBER_OF_SQUARES][NUMBER_OF_SQUARES];
+
+    private static final int[][] KNIGHT_STEPS = {
+        {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}
+    };
+
+    private static final int[][] KING_STEPS = {
+        {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}
+    };
+
+    private static final int[][] ROOK_DIRECTIONS = {
+        {1, 0}, {-1, 0}, {0, 1}, {0, -1}
+    };
+
+    private static final int[][] BISHOP_DIRECTIONS = {
+        {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+    };
+
+    /**
+     * Fixed seed, so magic numbers (and table layout) are the same on every run.
+     */
+    private static final long MAGIC_SEED = 0x2545F4914F6CDD1DL;
+
+    private static final int ROOK_TABLE_SIZE = 102400;
+
+    private static final int BISHOP_TABLE_SIZE = 5248;
+
+    private static final long[] ROOK_MASKS = new long[NUMBER_OF_SQUARES];
+
+    private static final long[] ROOK_MAGICS = new long[NUMBER_OF_SQUARES];
+
+    private static final int[] ROOK_SHIFTS = new int[NUMBER_OF_SQUARES];
+
+    private static final int[] ROOK_OFFSETS = new int[NUMBER_OF_SQUARES];
+
+    private static final long[] ROOK_TABLE = new long[ROOK_TABLE_SIZE];
+
+    private static final long[] BISHOP_MASKS = new long[NUMBER_OF_SQUARES];
+
+    private static final long[] BISHOP_MAGICS = new long[NUMBER_OF_SQUARES];
+
+    private static final int[] BISHOP_SHIFTS = new int[NUMBER_OF_SQUARES];
+
+    private static final int[] BISHOP_OFFSETS = new int[NUMBER_OF_SQUARES];
+
+    private static final long[] BISHOP_TABLE = new long[BISHOP_TABLE_SIZE];
+
+    private static long magicRandomState = MAGIC_SEED;
+
+    static
+    {
+        for (int sq = 0; sq < NUMBER_OF_SQUARES; sq++)
+        {
+            KNIGHT_ATTACKS[sq] = stepAttacks(sq, KNIGHT_STEPS);
+            KING_ATTACKS[sq] = stepAttacks(sq, KING_STEPS);
+            PAWN_ATTACKS[BitboardPosition.WHITE][sq] = stepAttacks(sq, new int[][] {{-1, 1}, {1, 1}});
+            PAWN_ATTACKS[BitboardPosition.BLACK][sq] = stepAttacks(sq, new int[][] {{-1, -1}, {1, -1}});
+        }
+        initMagics(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, ROOK_TABLE);
+        initMagics(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, BISHOP_TABLE);
+        initLines();
+    }
+
+    private Bitboards()
+    {
+    }
+
+    /**
+     * @param pozX x coordinate used by Chessboard (0 = file a)
+     * @param pozY y coordinate used by Chessboard (0 = rank 8)
+     * @return square index (a1 = 0)
+     */
+    public static int index(int pozX, int pozY)
+    {
+        return ((Chessboard.LAST_SQUARE - pozY) << 3) | pozX;
+    }
+
+    public static int index(Square square)
+    {
+        return index(square.getPozX(), square.getPozY());
+    }
+
+    public static int pozX(int square)
+    {
+        return square & 7;
+    }
+
+    public static int pozY(int square)
+    {
+        return Chessboard.LAST_SQUARE - (square >>> 3);
+    }
+
+    public static int file(int square)
+    {
+        return square & 7;
+    }
+
+    public static int rank(int square)
+    {
+        return square >>> 3;
+    }
+
+    public static long bit(int square)
+    {
+        return 1L << square;
+    }
+
+    public static boolean contains(long bitboard, int square)
+    {
+        return 0 != (bitboard & (1L << square));
+    }
+
+    /**
+     * @return index of least significant set bit, 64 for empty bitboard
+     */
+    public static int first(long bitboard)
+    {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static int count(long bitboard)
+    {
+        return Long.bitCount(bitboard);
+    }
+
+    /**
+     * Helper to convert square index to its algebraic name, eg. "e4".
+     */
+    public static String name(int square)
+    {
+        return String.valueOf((char) ('a' + file(square))) + (rank(square) + 1);
+    }
+
+    public static long knightAttacks(int square)
+    {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square)
+    {
+        return KING_ATTACKS[square];
+    }
+
+    public static long pawnAttacks(int color, int square)
+    {
+        return PAWN_ATTACKS[color][square];
+    }
+
+    /**
+     * Magic bitboard lookup of rook attacks: relevant occupancy bits are
+     * multiplied by square's magic number and top bits form the table index.
+     */
+    public static long rookAttacks(int square, long occupied)
+    {
+        long relevant = occupied & ROOK_MASKS[square];
+        return ROOK_TABLE[ROOK_OFFSETS[square] + (int) ((relevant * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * Magic bitboard lookup of bishop attacks.
+     * @see #rookAttacks(int, long)
+     */
+    public static long bishopAttacks(int square, long occupied)
+    {
+        long relevant = occupied & BISHOP_MASKS[square];
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + (int) ((relevant * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * @return squares strictly between given squares, empty if they don't share a line
+     */
+    public static long between(int from, int to)
+    {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return full line going through given squares, empty if they don't share a line
+     */
+    public static long line(int from, int to)
+    {
+        return LINE[from][to];
+    }
+
+    public static long queenAttacks(int square, long occupied)
+    {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Ray-walking attacks, used only to fill magic tables (and as reference in tests).
+     */
+    static long slidingAttacks(int square, long occupied, boolean rook)
+    {
+        return slidingAttacks(square, occupied, rook ? ROOK_DIRECTIONS : BISHOP_DIRECTIONS);
+    }
+
+    private static long slidingAttacks(int square, long occupied, int[][] directions)
+    {
+        long result = EMPTY;
+        for (int[] direction : directions)
+        {
+            int file = file(square) + direction[0];
+            int rank = rank(square) + direction[1];
+            while (isOnBoard(file, rank))
+            {
+                long target = bit((rank << 3) | file);
+                result |= target;
+                if (0 != (occupied & target))
+                {
+                    break;
+                }
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return result;
+    }
+
+    private static void initLines()
+    {
+        for (int from = 0; from < NUMBER_OF_SQUARES; from++)
+        {
+            for (int to = 0; to < NUMBER_OF_SQUARES; to++)
+            {
+                if (from == to)
+                {
+                    continue;
+                }
+                int[][] directions = null;
+                if (contains(slidingAttacks(from, EMPTY, ROOK_DIRECTIONS), to))
+                {
+                    directions = ROOK_DIRECTIONS;
+                }
+                else if (contains(slidingAttacks(from, EMPTY, BISHOP_DIRECTIONS), to))
+                {
+                    directions = BISHOP_DIRECTIONS;
+                }
+                if (null != directions)
+                {
+                    BETWEEN[from][to] = slidingAttacks(from, bit(to), directions)
+                        & slidingAttacks(to, bit(from), directions);
+                    LINE[from][to] = (slidingAttacks(from, EMPTY, directions)
+                        & slidingAttacks(to, EMPTY, directions)) | bit(from) | bit(to);
+                }
+            }
+        }
+    }
+
+    /**
+     * Squares whose occupancy matters for sliding piece on given square,
+     * ie. rays without the last square on the edge of the board.
+     */
+    private static long relevantOccupancyMask(int square, int[][] directions)
+    {
+        long result = EMPTY;
+        for (int[] direction : directions)
+        {
+            int file = file(square) + direction[0];
+            int rank = rank(square) + direction[1];
+            while (isOnBoard(file + direction[0], rank + direction[1]))
+            {
+                result |= bit((rank << 3) | file);
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return result;
+    }
+
+    private static void initMagics(int[][] directions, long[] masks, long[] magics,
+        int[] shifts, int[] offsets, long[] table)
+    {
+        int offset = 0;
+        for (int sq = 0; sq < NUMBER_OF_SQUARES; sq++)
+        {
+            long mask = relevantOccupancyMask(sq, directions);
+            int bits = count(mask);
+            int size = 1 << bits;
+            long[] occupancies = new long[size];
+            long[] references = new long[size];
+            long occupied = EMPTY;
+            int i = 0;
+            do
+            {
+                occupancies[i] = occupied;
+                references[i] = slidingAttacks(sq, occupied, directions);
+                occupied = (occupied - mask) & mask;
+                i++;
+            }
+            while (EMPTY != occupied);
+
+            masks[sq] = mask;
+            shifts[sq] = NUMBER_OF_SQUARES - bits;
+            offsets[sq] = offset;
+            magics[sq] = findMagic(mask, bits, occupancies, references, table, offset);
+            offset += size;
+        }
+    }
+
+    /**
+     * Trial and error search for a multiplier mapping every occupancy subset
+     * to an index without destructive collisions. Found entries are stored
+     * in the table starting from given offset.
+     */
+    private static long findMagic(long mask, int bits, long[] occupancies, long[] references,
+        long[] table, int offset)
+    {
+        int size = 1 << bits;
+        int shift = NUMBER_OF_SQUARES - bits;
+        int[] epoch = new int[size];
+        for (int attempt = 1; ; attempt++)
+        {
+            long magic = nextMagicRandom() & nextMagicRandom() & nextMagicRandom();
+            if (count((mask * magic) & 0xFF00000000000000L) < 6)
+            {
+                continue;
+            }
+            boolean failed = false;
+            for (int i = 0; i < size && !failed; i++)
+            {
+                int index = (int) ((occupancies[i] * magic) >>> shift);
+                if (epoch[index] != attempt)
+                {
+                    epoch[index] = attempt;
+                    table[offset + index] = references[i];
+                }
+                else if (table[offset + index] != references[i])
+                {
+                    failed = true;
+                }
+            }
+            if (!failed)
+            {
+                return magic;
+            }
+        }
+    }
+
+    private static long nextMagicRandom()
+    {
+        magicRandomState ^= magicRandomState >>> 12;
+        magicRandomState ^= magicRandomState << 25;
+        magicRandomState ^= magicRandomState >>> 27;
+        return magicRandomState * 0x2545F4914F6CDD1DL;
+    }
+
+    private static long stepAttacks(int square, int[][] steps)
+    {
+        long result = EMPTY;
+        for (int[] step : steps)
+        {
+            int file = file(square) + step[0];
+            int rank = rank(square) + step[1];
+            if (isOnBoard(file, rank))
+            {
+                result |= bit((rank << 3) | file);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isOnBoard(int file, int rank)
+    {
+        return file >= 0 && file < 8 && rank >= 0 && rank < 8;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Move generator working on BitboardPosition.
+ * Moves are written into caller's MoveList, so nothing is allocated while
+ * generating. Generated moves never capture the king.<br/>
+ * generate() methods produce pseudo-legal moves which may leave own king
+ * in check - use isLegal() to filter them. generateLegal() methods compute
+ * checkers, pinned pieces and squares attacked by opponent once per call
+ * and produce strictly legal moves in one pass.
+ */
+public final class MoveGenerator
+{
+    private static final int[] PROMOTIONS = {QUEEN, ROOK, BISHOP, KNIGHT};
+
+    private MoveGenerator()
+    {
+    }
+
+    /**
+     * Generates pseudo-legal moves for side to move.
+     * @return number of moves added to the list
+     */
+    public static int generate(BitboardPosition position, MoveList moves)
+    {
+        return generate(position, position.getSideToMove(), moves);
+    }
+
+    /**
+     * Generates pseudo-legal moves of all pieces of given color.
+     * @return number of moves added to the list
+     */
+    public static int generate(BitboardPosition position, int color, MoveList moves)
+    {
+        int sizeBefore = moves.size();
+        long own = position.getOccupancy(color);
+        while (EMPTY != own)
+        {
+            int from = first(own);
+            own &= own - 1;
+            generateFrom(position, from, moves);
+        }
+        return moves.size() - sizeBefore;
+    }
+
+    /**
+     * Generates pseudo-legal moves of piece standing on given square.
+     * @return number of moves added to the list
+     */
+    public static int generateFrom(BitboardPosition position, int from, MoveList moves)
+    {
+        int pieceCode = position.getPiece(from);
+        if (NO_PIECE == pieceCode)
+        {
+            return 0;
+        }
+        int sizeBefore = moves.size();
+        int color = colorOf(pieceCode);
+        long targets = ~position.getOccupancy(color) & ~position.getPieces(opponent(color), KING);
+        generatePieceMoves(position, from, pieceCode, targets, false, moves);
+        if (KING == typeOf(pieceCode))
+        {
+            generateCastlings(position, from, color, EMPTY, moves);
+        }
+        return moves.size() - sizeBefore;
+    }
+
+    /**
+     * Generates legal moves for side to move.
+     * @return number of moves added to the list
+     */
+    public static int generateLegal(BitboardPosition position, MoveList moves)
+    {
+        return generateLegal(position, position.getSideToMove(), moves);
+    }
+
+    /**
+     * Generates legal moves of all pieces of given color.
+     * @return number of moves added to the list
+     */
+    public static int generateLegal(BitboardPosition position, int color, MoveList moves)
+    {
+        return generateLegal(position, color, position.getOccupancy(color), moves);
+    }
+
+    /**
+     * Generates legal moves of piece standing on given square.
+     * @return number of moves added to the list
+     */
+    public static int generateLegalFrom(BitboardPosition position, int from, MoveList moves)
+    {
+        int pieceCode = position.getPiece(from);
+        if (NO_PIECE == pieceCode)
+        {
+            return 0;
+        }
+        return generateLegal(position, colorOf(pieceCode), bit(from), moves);
+    }
+
+    /**
+     * @return true if given color has at least one legal move
+     */
+    public static boolean hasLegalMove(BitboardPosition position, int color, MoveList buffer)
+    {
+        int sizeBefore = buffer.size();
+        boolean result = 0 < generateLegal(position, color, buffer);
+        buffer.truncate(sizeBefore);
+        return result;
+    }
+
+    private static int generateLegal(BitboardPosition position, int color, long fromMask, MoveList moves)
+    {
+        int sizeBefore = moves.size();
+        int kingSquare = position.getKingSquare(color);
+        long own = position.getOccupancy(color) & fromMask;
+        if (NO_SQUARE == kingSquare)
+        {
+            while (EMPTY != own)
+            {
+                int from = first(own);
+                own &= own - 1;
+                generateFrom(position, from, moves);
+            }
+            return moves.size() - sizeBefore;
+        }
+        int enemy = opponent(color);
+        long occupied = position.getOccupied();
+        long targets = ~position.getOccupancy(color) & ~position.getPieces(enemy, KING);
+        long checkers = position.getAttackersTo(kingSquare, occupied) & position.getOccupancy(enemy);
+        if (contains(own, kingSquare))
+        {
+            long danger = position.getAttackedSquares(enemy, occupied & ~bit(kingSquare));
+            addMoves(position, kingSquare, kingAttacks(kingSquare) & targets & ~danger, moves);
+            if (EMPTY == checkers)
+            {
+                generateCastlings(position, kingSquare, color, danger, moves);
+            }
+            own &= ~bit(kingSquare);
+        }
+        if (1 < count(checkers) || EMPTY == own)
+        {
+            return moves.size() - sizeBefore;
+        }
+        long checkMask = EMPTY == checkers ? ~EMPTY : checkers | between(kingSquare, first(checkers));
+        long pinned = position.getPinned(color);
+        while (EMPTY != own)
+        {
+            int from = first(own);
+            own &= own - 1;
+            long allowed = targets & checkMask;
+            if (contains(pinned, from))
+            {
+                allowed &= line(kingSquare, from);
+            }
+            generatePieceMoves(position, from, position.getPiece(from), allowed, true, moves);
+        }
+        return moves.size() - sizeBefore;
+    }
+
+    /**
+     * Checks if pseudo-legal move doesn't leave own king in check.
+     * For castling also king's start and passed square must not be attacked.
+     */
+    public static boolean isLegal(BitboardPosition position, int move)
+    {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        if (Moves.isCastling(move))
+        {
+            int enemy = opponent(colorOf(position.getPiece(from)));
+            return !position.isAttacked(from, enemy)
+                && !position.isAttacked((from + to) >>> 1, enemy)
+                && position.isSafeForKing(to, opponent(enemy));
+        }
+        return position.isKingSafeAfterMove(from, to);
+    }
+
+    private static void addMoves(BitboardPosition position, int from, long targets, MoveList moves)
+    {
+        long enemies = position.getOccupied();
+        while (EMPTY != targets)
+        {
+            int to = first(targets);
+            targets &= targets - 1;
+            moves.add(Moves.create(from, to, contains(enemies, to) ? Moves.FLAG_CAPTURE : 0));
+        }
+    }
+
+    /**
+     * Adds moves of non-castling piece to squares from given mask.
+     * @param checkEnPassant if true en passant is added only when it doesn't
+     * expose own king (it removes two pieces from a line, so masks can't tell)
+     */
+    private static void generatePieceMoves(BitboardPosition position, int from, int pieceCode,
+        long allowed, boolean checkEnPassant, MoveList moves)
+    {
+        switch (typeOf(pieceCode))
+        {
+            case PAWN:
+                generatePawnMoves(position, from, colorOf(pieceCode), allowed, checkEnPassant, moves);
+                break;
+            case KING:
+                addMoves(position, from, kingAttacks(from) & allowed, moves);
+                break;
+            default:
+                addMoves(position, from, attacks(pieceCode, from, position.getOccupied()) & allowed, moves);
+                break;
+        }
+    }
+
+    private static void generatePawnMoves(BitboardPosition position, int from, int color,
+        long targets, boolean checkEnPassant, MoveList moves)
+    {
+        int forward = WHITE == color ? 8 : -8;
+        int one = from + forward;
+        if (0 > one || NUMBER_OF_SQUARES <= one)
+        {
+            return;
+        }
+        long empty = position.getEmpty();
+        if (contains(empty, one))
+        {
+            if (contains(targets, one))
+            {
+                addPawnMove(from, one, 0, moves);
+            }
+            int two = one + forward;
+            boolean onStartRank = WHITE == color ? 1 == rank(from) : 6 == rank(from);
+            if (onStartRank && contains(empty & targets, two))
+            {
+                moves.add(Moves.create(from, two, Moves.FLAG_DOUBLE_PUSH));
+            }
+        }
+        long captures = pawnAttacks(color, from) & position.getOccupancy(opponent(color)) & targets;
+        while (EMPTY != captures)
+        {
+            int to = first(captures);
+            captures &= captures - 1;
+            addPawnMove(from, to, Moves.FLAG_CAPTURE, moves);
+        }
+        int enPassant = position.getEnPassantSquare();
+        if (NO_SQUARE != enPassant && contains(pawnAttacks(color, from), enPassant)
+            && (!checkEnPassant || position.isKingSafeAfterMove(from, enPassant)))
+        {
+            moves.add(Moves.create(from, enPassant, Moves.FLAG_CAPTURE | Moves.FLAG_EN_PASSANT));
+        }
+    }
+
+    private static void addPawnMove(int from, int to, int flags, MoveList moves)
+    {
+        int targetRank = rank(to);
+        if (0 == targetRank || 7 == targetRank)
+        {
+            for (int promotion : PROMOTIONS)
+            {
+                moves.add(Moves.create(from, to, flags, promotion));
+            }
+        }
+        else
+        {
+            moves.add(Moves.create(from, to, flags));
+        }
+    }
+
+    /**
+     * Adds castlings allowed by castling rights when squares between king
+     * and rook are empty and king doesn't pass through any of danger squares.
+     * In pseudo-legal generation danger is empty and attacks are checked in isLegal().
+     */
+    private static void generateCastlings(BitboardPosition position, int from, int color,
+        long danger, MoveList moves)
+    {
+        int homeRank = WHITE == color ? 0 : 56;
+        if (from != homeRank + 4)
+        {
+            return;
+        }
+        long occupied = position.getOccupied();
+        int kingSide = WHITE == color ? CASTLE_WHITE_KING : CASTLE_BLACK_KING;
+        int queenSide = WHITE == color ? CASTLE_WHITE_QUEEN : CASTLE_BLACK_QUEEN;
+        long kingSidePath = bit(homeRank + 5) | bit(homeRank + 6);
+        long queenSidePath = bit(homeRank + 1) | bit(homeRank + 2) | bit(homeRank + 3);
+        long kingSideWalk = bit(homeRank + 5) | bit(homeRank + 6);
+        long queenSideWalk = bit(homeRank + 3) | bit(homeRank + 2);
+        if (position.hasCastlingRight(kingSide) && EMPTY == (occupied & kingSidePath)
+            && EMPTY == (danger & kingSideWalk))
+        {
+            moves.add(Moves.create(from, homeRank + 6, Moves.FLAG_CASTLING));
+        }
+        if (position.hasCastlingRight(queenSide) && EMPTY == (occupied & queenSidePath)
+            && EMPTY == (danger & queenSideWalk))
+        {
+            moves.add(Moves.create(from, homeRank + 2, Moves.FLAG_CASTLING));
+        }
+    }
+}
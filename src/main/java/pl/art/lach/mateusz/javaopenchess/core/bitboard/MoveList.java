@@ -0,0 +1,120 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of moves encoded as ints (see Moves).
+ * It's meant to be allocated once (eg. one per search ply) and cleared
+ * before every generation, so generating moves allocates nothing.
+ */
+public class MoveList
+{
+    /**
+     * No legal chess position has more than 218 moves.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+
+    private int size = 0;
+
+    public MoveList()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity)
+    {
+        this.moves = new int[capacity];
+    }
+
+    public void add(int move)
+    {
+        if (size == moves.length)
+        {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index)
+    {
+        return moves[index];
+    }
+
+    public void set(int index, int move)
+    {
+        moves[index] = move;
+    }
+
+    public void swap(int first, int second)
+    {
+        int tmp = moves[first];
+        moves[first] = moves[second];
+        moves[second] = tmp;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return 0 == size;
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Shrinks list to given size, useful to drop moves added after some point.
+     */
+    public void truncate(int size)
+    {
+        this.size = Math.min(this.size, size);
+    }
+
+    public boolean contains(int move)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (moves[i] == move)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++)
+        {
+            if (0 < i)
+            {
+                result.append(", ");
+            }
+            result.append(Moves.toString(moves[i]));
+        }
+        return result.append(']').toString();
+    }
+}
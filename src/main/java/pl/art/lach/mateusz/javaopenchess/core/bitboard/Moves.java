@@ -0,0 +1,122 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+/**
+ * Moves packed into a single int, so they can be kept in primitive buffers:<br/>
+ * bits 0-5 - from square, bits 6-11 - to square,<br/>
+ * bits 12-14 - promotion piece type (0 = no promotion),<br/>
+ * bits 15-18 - flags (capture, double pawn push, en passant, castling).
+ */
+public final class Moves
+{
+    public static final int NO_MOVE = 0;
+
+    public static final int FLAG_CAPTURE = 1 << 15;
+
+    public static final int FLAG_DOUBLE_PUSH = 1 << 16;
+
+    public static final int FLAG_EN_PASSANT = 1 << 17;
+
+    public static final int FLAG_CASTLING = 1 << 18;
+
+    private static final int SQUARE_MASK = 0x3F;
+
+    private static final int TO_SHIFT = 6;
+
+    private static final int PROMOTION_SHIFT = 12;
+
+    private static final int PROMOTION_MASK = 0x7;
+
+    private Moves()
+    {
+    }
+
+    public static int create(int from, int to)
+    {
+        return from | (to << TO_SHIFT);
+    }
+
+    public static int create(int from, int to, int flags)
+    {
+        return from | (to << TO_SHIFT) | flags;
+    }
+
+    /**
+     * @param promotion type of piece pawn is promoted to (KNIGHT..QUEEN)
+     */
+    public static int create(int from, int to, int flags, int promotion)
+    {
+        return from | (to << TO_SHIFT) | (promotion << PROMOTION_SHIFT) | flags;
+    }
+
+    public static int from(int move)
+    {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move)
+    {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * @return promoted piece type or 0 (PAWN) if move is not a promotion
+     */
+    public static int promotion(int move)
+    {
+        return (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+    }
+
+    public static boolean isPromotion(int move)
+    {
+        return 0 != promotion(move);
+    }
+
+    public static boolean isCapture(int move)
+    {
+        return 0 != (move & FLAG_CAPTURE);
+    }
+
+    public static boolean isDoublePush(int move)
+    {
+        return 0 != (move & FLAG_DOUBLE_PUSH);
+    }
+
+    public static boolean isEnPassant(int move)
+    {
+        return 0 != (move & FLAG_EN_PASSANT);
+    }
+
+    public static boolean isCastling(int move)
+    {
+        return 0 != (move & FLAG_CASTLING);
+    }
+
+    /**
+     * @return move in long algebraic (UCI) notation, eg. "e2e4" or "e7e8q"
+     */
+    public static String toString(int move)
+    {
+        String result = Bitboards.name(from(move)) + Bitboards.name(to(move));
+        if (isPromotion(move))
+        {
+            result += Character.toLowerCase(
+                BitboardPosition.symbolOf(BitboardPosition.pieceCode(BitboardPosition.WHITE, promotion(move)))
+            );
+        }
+        return result;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Material and piece-square values for middlegame and endgame, together with
+ * game phase weight of each piece. BitboardPosition keeps their sums up to date
+ * on every put and remove, so evaluation doesn't have to visit all pieces.
+ * Middlegame tables are after "Simplified Evaluation Function" by Tomasz Michniewski.
+ * Tables are written as seen from white side, first row is 8th rank.
+ * Values of black pieces are negated, sums are from white point of view.
+ */
+public final class PieceSquareTables
+{
+    public static final int[] MIDDLEGAME_VALUES = {100, 320, 330, 500, 900, 0};
+
+    public static final int[] ENDGAME_VALUES = {120, 290, 310, 530, 950, 0};
+
+    /**
+     * Phase weights of pieces, phase of initial position is MAX_PHASE.
+     */
+    public static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+
+    public static final int MAX_PHASE = 24;
+
+    private static final int[] PAWN_MIDDLEGAME = {
+         0,   0,   0,   0,   0,   0,   0,   0,
+        50,  50,  50,  50,  50,  50,  50,  50,
+        10,  10,  20,  30,  30,  20,  10,  10,
+         5,   5,  10,  25,  25,  10,   5,   5,
+         0,   0,   0,  20,  20,   0,   0,   0,
+         5,  -5, -10,   0,   0, -10,  -5,   5,
+         5,  10,  10, -20, -20,  10,  10,   5,
+         0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    private static final int[] PAWN_ENDGAME = {
+         0,   0,   0,   0,   0,   0,   0,   0,
+        80,  80,  80,  80,  80,  80,  80,  80,
+        50,  50,  50,  50,  50,  50,  50,  50,
+        30,  30,  30,  30,  30,  30,  30,  30,
+        15,  15,  15,  15,  15,  15,  15,  15,
+         5,   5,   5,   5,   5,   5,   5,   5,
+         0,   0,   0,   0,   0,   0,   0,   0,
+         0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    private static final int[] KNIGHT_MIDDLEGAME = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+
+    private static final int[] KNIGHT_ENDGAME = {
+        -40, -30, -20, -20, -20, -20, -30, -40,
+        -30, -15,  -5,   0,   0,  -5, -15, -30,
+        -20,  -5,  10,  15,  15,  10,  -5, -20,
+        -20,   0,  15,  20,  20,  15,   0, -20,
+        -20,   0,  15,  20,  20,  15,   0, -20,
+        -20,  -5,  10,  15,  15,  10,  -5, -20,
+        -30, -15,  -5,   0,   0,  -5, -15, -30,
+        -40, -30, -20, -20, -20, -20, -30, -40
+    };
+
+    private static final int[] BISHOP_MIDDLEGAME = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+
+    private static final int[] BISHOP_ENDGAME = {
+        -15, -10, -10, -10, -10, -10, -10, -15,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -15, -10, -10, -10, -10, -10, -10, -15
+    };
+
+    private static final int[] ROOK_MIDDLEGAME = {
+         0,   0,   0,   0,   0,   0,   0,   0,
+         5,  10,  10,  10,  10,  10,  10,   5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+        -5,   0,   0,   0,   0,   0,   0,  -5,
+         0,   0,   0,   5,   5,   0,   0,   0
+    };
+
+    private static final int[] ROOK_ENDGAME = {
+         5,   5,   5,   5,   5,   5,   5,   5,
+        10,  10,  10,  10,  10,  10,  10,  10,
+         0,   0,   0,   0,   0,   0,   0,   0,
+         0,   0,   0,   0,   0,   0,   0,   0,
+         0,   0,   0,   0,   0,   0,   0,   0,
+         0,   0,   0,   0,   0,   0,   0,   0,
+         0,   0,   0,   0,   0,   0,   0,   0,
+         0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    private static final int[] QUEEN_MIDDLEGAME = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+          0,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   5,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+
+    private static final int[] QUEEN_ENDGAME = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+        -10,   5,  10,  10,  10,  10,   5, -10,
+         -5,   5,  10,  15,  15,  10,   5,  -5,
+         -5,   5,  10,  15,  15,  10,   5,  -5,
+        -10,   5,  10,  10,  10,  10,   5, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+
+    private static final int[] KING_MIDDLEGAME = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20
+    };
+
+    private static final int[] KING_ENDGAME = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    private static final int[][] MIDDLEGAME_TABLES = {
+        PAWN_MIDDLEGAME, KNIGHT_MIDDLEGAME, BISHOP_MIDDLEGAME,
+        ROOK_MIDDLEGAME, QUEEN_MIDDLEGAME, KING_MIDDLEGAME
+    };
+
+    private static final int[][] ENDGAME_TABLES = {
+        PAWN_ENDGAME, KNIGHT_ENDGAME, BISHOP_ENDGAME,
+        ROOK_ENDGAME, QUEEN_ENDGAME, KING_ENDGAME
+    };
+
+    /**
+     * XOR with square index (a1 = 0) of white piece gives index in table.
+     */
+    private static final int WHITE_TABLE_FLIP = 56;
+
+    private static final int[][] MIDDLEGAME = new int[NUMBER_OF_PIECES][NUMBER_OF_SQUARES];
+
+    private static final int[][] ENDGAME = new int[NUMBER_OF_PIECES][NUMBER_OF_SQUARES];
+
+    private static final int[] PHASE = new int[NUMBER_OF_PIECES];
+
+    static
+    {
+        for (int pieceCode = 0; pieceCode < NUMBER_OF_PIECES; pieceCode++)
+        {
+            int type = typeOf(pieceCode);
+            boolean white = WHITE == colorOf(pieceCode);
+            int flip = white ? WHITE_TABLE_FLIP : 0;
+            int sign = white ? 1 : -1;
+            for (int square = 0; square < NUMBER_OF_SQUARES; square++)
+            {
+                MIDDLEGAME[pieceCode][square] = sign * (MIDDLEGAME_VALUES[type] + MIDDLEGAME_TABLES[type][square ^ flip]);
+                ENDGAME[pieceCode][square] = sign * (ENDGAME_VALUES[type] + ENDGAME_TABLES[type][square ^ flip]);
+            }
+            PHASE[pieceCode] = PHASE_WEIGHTS[type];
+        }
+    }
+
+    private PieceSquareTables()
+    {
+    }
+
+    /**
+     * @return middlegame material and placement value of piece, negative for black
+     */
+    public static int middlegame(int pieceCode, int square)
+    {
+        return MIDDLEGAME[pieceCode][square];
+    }
+
+    /**
+     * @return endgame material and placement value of piece, negative for black
+     */
+    public static int endgame(int pieceCode, int square)
+    {
+        return ENDGAME[pieceCode][square];
+    }
+
+    public static int phase(int pieceCode)
+    {
+        return PHASE[pieceCode];
+    }
+}
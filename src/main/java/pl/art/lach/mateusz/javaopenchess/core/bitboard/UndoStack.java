@@ -0,0 +1,160 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import java.util.Arrays;
+
+/**
+ * Stack of moves played by make/unmake, with undo information returned by
+ * BitboardPosition.makeMove() (captured piece, castling rights, en passant
+ * square and half move clock) and Zobrist key of position before every move.
+ * Arrays are preallocated and grow only when a game is longer than capacity,
+ * so replaying moves doesn't allocate anything.
+ */
+public class UndoStack
+{
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private int[] moves;
+
+    private long[] undos;
+
+    private long[] keys;
+
+    private int size;
+
+    public UndoStack()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public UndoStack(int capacity)
+    {
+        moves = new int[Math.max(1, capacity)];
+        undos = new long[moves.length];
+        keys = new long[moves.length];
+    }
+
+    /**
+     * Plays move on position and pushes its undo record.
+     */
+    public void make(BitboardPosition position, int move)
+    {
+        long key = position.getZobristKey();
+        push(move, position.makeMove(move), key);
+    }
+
+    /**
+     * Takes back last move pushed by make().
+     * @return move taken back
+     */
+    public int unmake(BitboardPosition position)
+    {
+        int move = getLastMove();
+        position.unmakeMove(move, getLastUndo());
+        pop();
+        return move;
+    }
+
+    /**
+     * @param move move played
+     * @param undo value returned by BitboardPosition.makeMove() for the move
+     * @param key Zobrist key of position before the move
+     */
+    public void push(int move, long undo, long key)
+    {
+        if (size == moves.length)
+        {
+            moves = Arrays.copyOf(moves, 2 * size);
+            undos = Arrays.copyOf(undos, 2 * size);
+            keys = Arrays.copyOf(keys, 2 * size);
+        }
+        moves[size] = move;
+        undos[size] = undo;
+        keys[size] = key;
+        size++;
+    }
+
+    public void pop()
+    {
+        if (0 == size)
+        {
+            throw new IllegalStateException("no move to take back");
+        }
+        size--;
+    }
+
+    public int getLastMove()
+    {
+        return getMove(size - 1);
+    }
+
+    public long getLastUndo()
+    {
+        return getUndo(size - 1);
+    }
+
+    /**
+     * @param ply index of move, 0 for the first one
+     */
+    public int getMove(int ply)
+    {
+        checkPly(ply);
+        return moves[ply];
+    }
+
+    public long getUndo(int ply)
+    {
+        checkPly(ply);
+        return undos[ply];
+    }
+
+    /**
+     * @return Zobrist key of position before move of given ply
+     */
+    public long getKey(int ply)
+    {
+        checkPly(ply);
+        return keys[ply];
+    }
+
+    private void checkPly(int ply)
+    {
+        if (0 > ply || ply >= size)
+        {
+            throw new IndexOutOfBoundsException("ply " + ply + ", size " + size);
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return 0 == size;
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    public int getCapacity()
+    {
+        return moves.length;
+    }
+}
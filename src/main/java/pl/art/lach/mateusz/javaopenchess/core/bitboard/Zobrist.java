@@ -0,0 +1,157 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Random keys for 64-bit Zobrist hashing of positions.
+ * Key of position is XOR of keys of: every piece on its square, black to move,
+ * castling rights and file of en passant square (if any).
+ * Keys are generated from fixed seed, so they are stable between runs and
+ * can be stored, eg. in game archive indexes.
+ */
+public final class Zobrist
+{
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private static final long[][] PIECE_SQUARE = new long[NUMBER_OF_PIECES][NUMBER_OF_SQUARES];
+
+    private static final long[] CASTLING = new long[CASTLE_ALL + 1];
+
+    private static final long[] EN_PASSANT_FILE = new long[8];
+
+    private static final long BLACK_TO_MOVE;
+
+    static
+    {
+        long state = SEED;
+        for (int piece = 0; piece < NUMBER_OF_PIECES; piece++)
+        {
+            for (int square = 0; square < NUMBER_OF_SQUARES; square++)
+            {
+                state = next(state);
+                PIECE_SQUARE[piece][square] = mix(state);
+            }
+        }
+        long[] singleRights = new long[4];
+        for (int i = 0; i < singleRights.length; i++)
+        {
+            state = next(state);
+            singleRights[i] = mix(state);
+        }
+        for (int rights = 0; rights <= CASTLE_ALL; rights++)
+        {
+            long key = 0L;
+            for (int i = 0; i < singleRights.length; i++)
+            {
+                if (0 != (rights & (1 << i)))
+                {
+                    key ^= singleRights[i];
+                }
+            }
+            CASTLING[rights] = key;
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++)
+        {
+            state = next(state);
+            EN_PASSANT_FILE[file] = mix(state);
+        }
+        state = next(state);
+        BLACK_TO_MOVE = mix(state);
+    }
+
+    private Zobrist()
+    {
+    }
+
+    public static long piece(int pieceCode, int square)
+    {
+        return PIECE_SQUARE[pieceCode][square];
+    }
+
+    public static long castling(int castlingRights)
+    {
+        return CASTLING[castlingRights];
+    }
+
+    /**
+     * @return key of en passant square's file, 0 if there's no en passant square
+     */
+    public static long enPassant(int enPassantSquare)
+    {
+        return NO_SQUARE == enPassantSquare ? 0L : EN_PASSANT_FILE[file(enPassantSquare)];
+    }
+
+    public static long sideToMove(int color)
+    {
+        return BLACK == color ? BLACK_TO_MOVE : 0L;
+    }
+
+    /**
+     * Computes key of position from scratch. Useful to verify incremental updates.
+     */
+    public static long compute(BitboardPosition position)
+    {
+        long key = 0L;
+        for (int square = 0; square < NUMBER_OF_SQUARES; square++)
+        {
+            int pieceCode = position.getPiece(square);
+            if (NO_PIECE != pieceCode)
+            {
+                key ^= piece(pieceCode, square);
+            }
+        }
+        return key
+            ^ sideToMove(position.getSideToMove())
+            ^ castling(position.getCastlingRights())
+            ^ enPassant(position.getEnPassantSquare());
+    }
+
+    /**
+     * Computes pawn key of position from scratch.
+     * @see BitboardPosition#getPawnKey()
+     */
+    public static long computePawnKey(BitboardPosition position)
+    {
+        long key = 0L;
+        for (int color = WHITE; color <= BLACK; color++)
+        {
+            int pieceCode = pieceCode(color, PAWN);
+            for (long pawns = position.getPieces(pieceCode); EMPTY != pawns; pawns &= pawns - 1)
+            {
+                key ^= piece(pieceCode, first(pawns));
+            }
+        }
+        return key;
+    }
+
+    private static long next(long state)
+    {
+        return state + 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long value)
+    {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.book;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn.MoveResolver;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn.PgnGame;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn.PgnMove;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn.PgnReader;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+/**
+ * Builds Polyglot opening book from PGN archives. Archives are read game by game by
+ * PgnReader, first moves of main line of every game are replayed on bitboard position
+ * (set up by FEN tag if game has one) and added to book. Move gets 2 points for every
+ * won game, 1 for every drawn or unfinished one, lost games give nothing.<br/>
+ * Usage: BookBuilder [--max-ply=N] book.bin archive.pgn...
+ */
+public class BookBuilder
+{
+    private static final Logger LOG = Logger.getLogger(BookBuilder.class);
+
+    public static final int DEFAULT_MAX_PLY = 20;
+
+    private static final String OPTION_MAX_PLY = "--max-ply=";
+
+    private static final String WHITE_WON = "1-0";
+
+    private static final String BLACK_WON = "0-1";
+
+    private static final String DRAW = "1/2-1/2";
+
+    private static final String UNKNOWN_RESULT = "*";
+
+    private static final int WIN_WEIGHT = 2;
+
+    private static final int DRAW_WEIGHT = 1;
+
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int maxPly;
+
+    /**
+     * Weights of moves, keyed by position key and Polyglot move.
+     */
+    private final Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+
+    private int games;
+
+    private int skippedGames;
+
+    public BookBuilder()
+    {
+        this(DEFAULT_MAX_PLY);
+    }
+
+    /**
+     * @param maxPly number of plies of every game added to book
+     */
+    public BookBuilder(int maxPly)
+    {
+        this.maxPly = maxPly;
+    }
+
+    /**
+     * Adds all games of PGN archive. Games which can't be read are skipped.
+     * @return number of added games
+     */
+    public int addGames(String archive)
+    {
+        try (PgnReader reader = new PgnReader(new StringReader(archive)))
+        {
+            return addGames(reader);
+        }
+        catch (IOException exc)
+        {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    /**
+     * Adds games read one by one from PGN archive. Games which can't be read are skipped.
+     * @return number of added games
+     */
+    public int addGames(PgnReader reader) throws IOException
+    {
+        int added = 0;
+        while (true)
+        {
+            try
+            {
+                PgnGame game = reader.readGame();
+                if (null == game)
+                {
+                    return added;
+                }
+                addGame(game);
+                added++;
+            }
+            catch (ReadGameError err)
+            {
+                skippedGames++;
+                LOG.warn("Game skipped: " + err.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds single game in PGN notation.
+     * @throws ReadGameError if game can't be imported
+     */
+    public void addGame(String pgn) throws ReadGameError
+    {
+        PgnGame game;
+        try (PgnReader reader = new PgnReader(new StringReader(pgn)))
+        {
+            game = reader.readGame();
+        }
+        catch (IOException exc)
+        {
+            throw new ReadGameError("Something wrong reading game: " + exc);
+        }
+        if (null == game)
+        {
+            throw new ReadGameError("Game without moves.");
+        }
+        addGame(game);
+    }
+
+    /**
+     * Adds first moves of main line of game.
+     * @throws ReadGameError if game can't be imported
+     */
+    public void addGame(PgnGame pgnGame) throws ReadGameError
+    {
+        List<PgnMove> line = pgnGame.getMoves();
+        if (line.isEmpty())
+        {
+            throw new ReadGameError("Game without moves.");
+        }
+        String result = pgnGame.getResult();
+        String fen = pgnGame.getTag(PgnGame.TAG_FEN);
+        BitboardPosition position = BitboardPosition.fromFen(null == fen ? PerftPosition.INITIAL.getFen() : fen);
+        int plies = Math.min(maxPly, line.size());
+        MoveList legalMoves = new MoveList();
+        for (int ply = 0; ply < plies; ply++)
+        {
+            String san = line.get(ply).getSan();
+            int move = MoveResolver.resolve(position, san, legalMoves);
+            if (Moves.NO_MOVE == move)
+            {
+                throw new ReadGameError("Move not found: " + san);
+            }
+            addMove(position, move, getWeight(result, position.getSideToMove()));
+            position.makeMove(move);
+        }
+        games++;
+    }
+
+    private static int getWeight(String result, int color)
+    {
+        if (DRAW.equals(result) || UNKNOWN_RESULT.equals(result))
+        {
+            return DRAW_WEIGHT;
+        }
+        String win = BitboardPosition.WHITE == color ? WHITE_WON : BLACK_WON;
+        return win.equals(result) ? WIN_WEIGHT : 0;
+    }
+
+    private void addMove(BitboardPosition position, int move, int weight)
+    {
+        weights.computeIfAbsent(Polyglot.key(position), key -> new HashMap<>())
+            .merge(Polyglot.encodeMove(move), weight, Integer::sum);
+    }
+
+    /**
+     * @return entries of book sorted by key, moves of position sorted by weight, best first.
+     * Moves with zero weight are left out and weights are scaled down to fit 16 bits.
+     */
+    public List<BookEntry> getEntries()
+    {
+        List<BookEntry> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, Integer>> position : weights.entrySet())
+        {
+            int maxWeight = position.getValue().values().stream().mapToInt(Integer::intValue).max().orElse(0);
+            for (Map.Entry<Integer, Integer> move : position.getValue().entrySet())
+            {
+                long weight = move.getValue();
+                if (MAX_WEIGHT < maxWeight)
+                {
+                    weight = weight * MAX_WEIGHT / maxWeight;
+                }
+                if (0 < weight)
+                {
+                    entries.add(new BookEntry(position.getKey(), move.getKey(), (int) weight, 0));
+                }
+            }
+        }
+        entries.sort((first, second) -> {
+            int byKey = Long.compareUnsigned(first.getKey(), second.getKey());
+            return 0 != byKey ? byKey : Integer.compare(second.getWeight(), first.getWeight());
+        });
+        return entries;
+    }
+
+    /**
+     * Writes book to file, replacing its content.
+     * @return number of written entries
+     */
+    public int write(Path path) throws IOException
+    {
+        List<BookEntry> entries = getEntries();
+        ByteBuffer buffer = ByteBuffer.allocate(entries.size() * Polyglot.ENTRY_SIZE);
+        for (BookEntry entry : entries)
+        {
+            buffer.putLong(entry.getKey());
+            buffer.putShort((short) entry.getMove());
+            buffer.putShort((short) entry.getWeight());
+            buffer.putInt(entry.getLearn());
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+        return entries.size();
+    }
+
+    /**
+     * @return number of games added to book
+     */
+    public int getGames()
+    {
+        return games;
+    }
+
+    /**
+     * @return number of games which couldn't be read
+     */
+    public int getSkippedGames()
+    {
+        return skippedGames;
+    }
+
+    /**
+     * @return number of positions in book
+     */
+    public int getPositions()
+    {
+        return weights.size();
+    }
+
+    public int getMaxPly()
+    {
+        return maxPly;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int maxPly = DEFAULT_MAX_PLY;
+        List<String> arguments = new ArrayList<>();
+        for (String arg : args)
+        {
+            if (arg.startsWith(OPTION_MAX_PLY))
+            {
+                maxPly = Integer.parseInt(arg.substring(OPTION_MAX_PLY.length()));
+            }
+            else
+            {
+                arguments.add(arg);
+            }
+        }
+        PrintStream out = System.out;
+        if (2 > arguments.size())
+        {
+            out.println("Usage: BookBuilder [--max-ply=N] book.bin archive.pgn...");
+            return;
+        }
+        BookBuilder builder = new BookBuilder(maxPly);
+        for (String archive : arguments.subList(1, arguments.size()))
+        {
+            try (PgnReader reader = new PgnReader(Files.newBufferedReader(Paths.get(archive), StandardCharsets.UTF_8)))
+            {
+                builder.addGames(reader);
+            }
+        }
+        int entries = builder.write(Paths.get(arguments.get(0)));
+        out.println(String.format("%d games, %d skipped, %d positions, %d entries written to %s",
+            builder.getGames(), builder.getSkippedGames(), builder.getPositions(), entries, arguments.get(0)));
+    }
+}
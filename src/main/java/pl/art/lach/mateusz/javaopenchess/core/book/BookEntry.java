@@ -0,0 +1,69 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.book;
+
+/**
+ * Single entry of Polyglot opening book: move recommended in position with given key.
+ */
+public class BookEntry
+{
+    private final long key;
+
+    private final int move;
+
+    private final int weight;
+
+    private final int learn;
+
+    /**
+     * @param key Polyglot key of position
+     * @param move move in Polyglot encoding, see Polyglot.encodeMove
+     * @param weight how often move should be chosen, relative to other moves of position
+     * @param learn learning data, not used by this program
+     */
+    public BookEntry(long key, int move, int weight, int learn)
+    {
+        this.key = key;
+        this.move = move;
+        this.weight = weight;
+        this.learn = learn;
+    }
+
+    public long getKey()
+    {
+        return key;
+    }
+
+    public int getMove()
+    {
+        return move;
+    }
+
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    public int getLearn()
+    {
+        return learn;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%016x %04x weight %d", key, move, weight);
+    }
+}
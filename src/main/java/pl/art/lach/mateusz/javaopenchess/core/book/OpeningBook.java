@@ -0,0 +1,235 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+/**
+ * Polyglot opening book mapped into memory. File is mapped read-only once per
+ * process and shared by all games (see open), and operating system shares its
+ * pages between processes, so many engines can use one book at almost no memory cost.
+ * Entries are found by binary search, nothing is read into heap.
+ * Book is safe to use by many threads.
+ */
+public class OpeningBook
+{
+    private static final Logger LOG = Logger.getLogger(OpeningBook.class);
+
+    /**
+     * Book used by AI in GUI, if it exists in working directory.
+     */
+    public static final String DEFAULT_FILE_NAME = "book.bin";
+
+    private static final Map<Path, OpeningBook> OPEN_BOOKS = new ConcurrentHashMap<>();
+
+    private final Path path;
+
+    /**
+     * Read only by absolute get methods, which don't change buffer's position.
+     */
+    private final ByteBuffer entries;
+
+    private final int size;
+
+    private OpeningBook(Path path, ByteBuffer entries)
+    {
+        this.path = path;
+        this.entries = entries;
+        this.size = entries.capacity() / Polyglot.ENTRY_SIZE;
+    }
+
+    /**
+     * @return book of given file, mapped on first use and shared later
+     * @throws IOException if file can't be read or isn't Polyglot book
+     */
+    public static OpeningBook open(Path path) throws IOException
+    {
+        Path realPath = path.toRealPath();
+        OpeningBook book = OPEN_BOOKS.get(realPath);
+        if (null == book)
+        {
+            synchronized (OPEN_BOOKS)
+            {
+                book = OPEN_BOOKS.get(realPath);
+                if (null == book)
+                {
+                    book = map(realPath);
+                    OPEN_BOOKS.put(realPath, book);
+                }
+            }
+        }
+        return book;
+    }
+
+    /**
+     * @return book from DEFAULT_FILE_NAME in working directory, null if there's no usable book
+     */
+    public static OpeningBook openDefault()
+    {
+        Path path = Paths.get(DEFAULT_FILE_NAME);
+        if (!Files.isRegularFile(path))
+        {
+            return null;
+        }
+        try
+        {
+            return open(path);
+        }
+        catch (IOException exc)
+        {
+            LOG.warn("Opening book can't be used: " + path, exc);
+            return null;
+        }
+    }
+
+    private static OpeningBook map(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long fileSize = channel.size();
+            if (0 != fileSize % Polyglot.ENTRY_SIZE || Integer.MAX_VALUE < fileSize)
+            {
+                throw new IOException("Not a Polyglot book: " + path);
+            }
+            LOG.info(String.format("Mapping opening book %s, %d entries", path, fileSize / Polyglot.ENTRY_SIZE));
+            return new OpeningBook(path, channel.map(FileChannel.MapMode.READ_ONLY, 0L, fileSize));
+        }
+    }
+
+    /**
+     * @return entries of position, empty list if position isn't in book
+     */
+    public List<BookEntry> getEntries(BitboardPosition position)
+    {
+        return getEntries(Polyglot.key(position));
+    }
+
+    /**
+     * @return entries with given key, in order of file
+     */
+    public List<BookEntry> getEntries(long key)
+    {
+        List<BookEntry> result = new ArrayList<>();
+        for (int index = lowerBound(key); index < size && key == getKey(index); index++)
+        {
+            result.add(getEntry(index));
+        }
+        return result;
+    }
+
+    /**
+     * Chooses one of book moves of position, at random with probability proportional to weight.
+     * @return legal move, Moves.NO_MOVE if position isn't in book
+     */
+    public int getMove(BitboardPosition position, Random random)
+    {
+        List<BookEntry> bookEntries = getEntries(position);
+        int[] moves = new int[bookEntries.size()];
+        int[] weights = new int[bookEntries.size()];
+        int totalWeight = 0;
+        for (int i = 0; i < moves.length; i++)
+        {
+            BookEntry entry = bookEntries.get(i);
+            moves[i] = Polyglot.decodeMove(position, entry.getMove());
+            weights[i] = Moves.NO_MOVE == moves[i] ? 0 : entry.getWeight();
+            totalWeight += weights[i];
+        }
+        if (0 == totalWeight)
+        {
+            return Moves.NO_MOVE;
+        }
+        int choice = random.nextInt(totalWeight);
+        for (int i = 0; i < moves.length; i++)
+        {
+            choice -= weights[i];
+            if (0 > choice)
+            {
+                return moves[i];
+            }
+        }
+        return Moves.NO_MOVE;
+    }
+
+    /**
+     * @return index of first entry with key not less than given one, keys are compared as unsigned
+     */
+    private int lowerBound(long key)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (0 > Long.compareUnsigned(getKey(middle), key))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long getKey(int index)
+    {
+        return entries.getLong(index * Polyglot.ENTRY_SIZE);
+    }
+
+    private BookEntry getEntry(int index)
+    {
+        int offset = index * Polyglot.ENTRY_SIZE;
+        return new BookEntry(
+            entries.getLong(offset),
+            Short.toUnsignedInt(entries.getShort(offset + Long.BYTES)),
+            Short.toUnsignedInt(entries.getShort(offset + Long.BYTES + Short.BYTES)),
+            entries.getInt(offset + Long.BYTES + 2 * Short.BYTES)
+        );
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public Path getPath()
+    {
+        return path;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("OpeningBook %s, %d entries", path, size);
+    }
+}
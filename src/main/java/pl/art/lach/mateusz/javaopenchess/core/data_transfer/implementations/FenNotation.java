@@ -171,6 +171,7 @@ public class FenNotation implements DataImporter, DataExporter
 
     private void importCastlingState(String castlingState, Chessboard chessboard) throws ReadGameError
     {
+        markKingsAndRooksAsMotioned(chessboard);
         for (int i = 0, size = castlingState.length(); i < size; i++)
         {
             String state = castlingState.substring(i, (i+1));
@@ -208,6 +209,26 @@ public class FenNotation implements DataImporter, DataExporter
             }
             
         }
+        chessboard.refreshCastlingRights();
+    }
+
+    /**
+     * Castling is allowed only when FEN says so, so by default every king
+     * and rook is treated as already moved.
+     */
+    private void markKingsAndRooksAsMotioned(Chessboard chessboard)
+    {
+        for (Piece piece : chessboard.getAllPieces(null))
+        {
+            if (King.class == piece.getClass())
+            {
+                ((King) piece).setWasMotioned(true);
+            }
+            else if (Rook.class == piece.getClass())
+            {
+                ((Rook) piece).setWasMotioned(true);
+            }
+        }
     }
 
     private void setupCastlingState(Square kingSquare, Square rookSquare) throws ReadGameError
@@ -281,7 +302,7 @@ public class FenNotation implements DataImporter, DataExporter
                         blackPlayer
                     );
                     Square square = game.getChessboard().getSquare(currentX, currentY);
-                    square.setPiece(piece);
+                    setPiece(game.getChessboard(), square, piece);
                     currentX++;
                 }
             }
@@ -289,6 +310,28 @@ public class FenNotation implements DataImporter, DataExporter
         }
     }
     private static final int NUMBER_OF_ROWS = 8;
+
+    /**
+     * Puts piece on square, kings are also registered in chessboard.
+     */
+    private void setPiece(Chessboard chessboard, Square square, Piece piece)
+    {
+        if (null != piece && King.class == piece.getClass())
+        {
+            if (Colors.WHITE == piece.getPlayer().getColor())
+            {
+                chessboard.setKingWhite((King) piece, square);
+            }
+            else
+            {
+                chessboard.setKingBlack((King) piece, square);
+            }
+        }
+        else
+        {
+            square.setPiece(piece);
+        }
+    }
     
     @Override
     public String exportData(Game game)
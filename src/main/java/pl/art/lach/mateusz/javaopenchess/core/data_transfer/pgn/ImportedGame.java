@@ -0,0 +1,64 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+/**
+ * Game imported by PgnImporter: game read from archive and its main line
+ * replayed as legal moves (see Moves).
+ */
+public class ImportedGame
+{
+    private final PgnGame game;
+
+    private final int[] moves;
+
+    private final long finalKey;
+
+    public ImportedGame(PgnGame game, int[] moves, long finalKey)
+    {
+        this.game = game;
+        this.moves = moves;
+        this.finalKey = finalKey;
+    }
+
+    public PgnGame getGame()
+    {
+        return game;
+    }
+
+    /**
+     * @return moves of main line, legal in position from FEN tag or initial one
+     */
+    public int[] getMoves()
+    {
+        return moves;
+    }
+
+    /**
+     * @return Zobrist key of position after last move
+     */
+    public long getFinalKey()
+    {
+        return finalKey;
+    }
+
+    /**
+     * @return line of archive where game starts, counted from 1
+     */
+    public int getLineNumber()
+    {
+        return game.getLineNumber();
+    }
+}
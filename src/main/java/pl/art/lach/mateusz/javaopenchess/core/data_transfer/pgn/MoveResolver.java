@@ -0,0 +1,153 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+/**
+ * Finds legal move of position written in PGN movetext: standard algebraic
+ * notation ("Nbd7", "exd8=Q+", "O-O") or long algebraic notation written
+ * by this application ("Ng1-f3", "e7xd8=Q", "0-0-0").
+ */
+public final class MoveResolver
+{
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private static final int NONE = -1;
+
+    private MoveResolver()
+    {
+    }
+
+    /**
+     * @param position position in which move is played
+     * @param text move as written in movetext
+     * @param legalMoves buffer for legal moves, it's overwritten
+     * @return legal move, Moves.NO_MOVE if text doesn't give exactly one legal move
+     */
+    public static int resolve(BitboardPosition position, String text, MoveList legalMoves)
+    {
+        int end = text.length();
+        while (0 < end && ('+' == text.charAt(end - 1) || '#' == text.charAt(end - 1)))
+        {
+            end--;
+        }
+        String move = text.substring(0, end);
+        legalMoves.clear();
+        MoveGenerator.generateLegal(position, legalMoves);
+        if (move.startsWith("O-O") || move.startsWith("0-0"))
+        {
+            return resolveCastling(legalMoves, 5 == move.length() ? 2 : 6);
+        }
+        int promotion = 0;
+        int promotionAt = move.indexOf('=');
+        if (0 < promotionAt)
+        {
+            promotion = pieceType(move, promotionAt + 1);
+            move = move.substring(0, promotionAt);
+        }
+        else if (2 < move.length() && Character.isUpperCase(move.charAt(move.length() - 1))
+            && Character.isDigit(move.charAt(move.length() - 2)))
+        {
+            promotion = pieceType(move, move.length() - 1);
+            move = move.substring(0, move.length() - 1);
+        }
+        if (NONE == promotion || 2 > move.length())
+        {
+            return Moves.NO_MOVE;
+        }
+        int type = BitboardPosition.PAWN;
+        int start = 0;
+        if (Character.isUpperCase(move.charAt(0)))
+        {
+            type = pieceType(move, 0);
+            start = 1;
+        }
+        int to = square(move, move.length() - 2);
+        if (NONE == type || NONE == to)
+        {
+            return Moves.NO_MOVE;
+        }
+        int fromFile = NONE;
+        int fromRank = NONE;
+        for (int i = start; i < move.length() - 2; i++)
+        {
+            char ch = move.charAt(i);
+            if ('a' <= ch && 'h' >= ch)
+            {
+                fromFile = ch - 'a';
+            }
+            else if ('1' <= ch && '8' >= ch)
+            {
+                fromRank = ch - '1';
+            }
+            else if ('x' != ch && ':' != ch && '-' != ch)
+            {
+                return Moves.NO_MOVE;
+            }
+        }
+        int result = Moves.NO_MOVE;
+        for (int i = 0; i < legalMoves.size(); i++)
+        {
+            int legalMove = legalMoves.get(i);
+            int from = Moves.from(legalMove);
+            if (to == Moves.to(legalMove) && promotion == Moves.promotion(legalMove)
+                && type == BitboardPosition.typeOf(position.getPiece(from))
+                && (NONE == fromFile || fromFile == Bitboards.file(from))
+                && (NONE == fromRank || fromRank == Bitboards.rank(from)))
+            {
+                if (Moves.NO_MOVE != result)
+                {
+                    return Moves.NO_MOVE;
+                }
+                result = legalMove;
+            }
+        }
+        return result;
+    }
+
+    private static int resolveCastling(MoveList legalMoves, int toFile)
+    {
+        for (int i = 0; i < legalMoves.size(); i++)
+        {
+            int move = legalMoves.get(i);
+            if (Moves.isCastling(move) && toFile == Bitboards.file(Moves.to(move)))
+            {
+                return move;
+            }
+        }
+        return Moves.NO_MOVE;
+    }
+
+    private static int pieceType(String move, int index)
+    {
+        return index < move.length() ? PIECE_LETTERS.indexOf(move.charAt(index)) : NONE;
+    }
+
+    private static int square(String move, int index)
+    {
+        char file = move.charAt(index);
+        char rank = move.charAt(index + 1);
+        if ('a' > file || 'h' < file || '1' > rank || '8' < rank)
+        {
+            return NONE;
+        }
+        return ((rank - '1') << 3) | (file - 'a');
+    }
+}
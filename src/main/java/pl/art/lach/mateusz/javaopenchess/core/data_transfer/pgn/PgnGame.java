@@ -0,0 +1,294 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Game read by PgnReader: tag pairs in order of appearance, main line of
+ * moves (with comments, glyphs and variations) and termination marker.
+ */
+public class PgnGame
+{
+    public static final String TAG_EVENT = "Event";
+
+    public static final String TAG_WHITE = "White";
+
+    public static final String TAG_BLACK = "Black";
+
+    public static final String TAG_RESULT = "Result";
+
+    public static final String TAG_FEN = "FEN";
+
+    public static final String UNKNOWN_RESULT = "*";
+
+    private static final int MAX_LINE_LENGTH = 79;
+
+    private final Map<String, String> tags = new LinkedHashMap<>();
+
+    private final List<PgnMove> moves = new ArrayList<>();
+
+    private int lineNumber;
+
+    private String result = UNKNOWN_RESULT;
+
+    private String comment;
+
+    /**
+     * @param lineNumber line of source where game starts, counted from 1
+     */
+    public PgnGame(int lineNumber)
+    {
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * @return line of source where game starts, counted from 1
+     */
+    public int getLineNumber()
+    {
+        return lineNumber;
+    }
+
+    /**
+     * Moves game by given number of lines, used when part of archive was read on its own.
+     */
+    void shiftLineNumber(int lines)
+    {
+        lineNumber += lines;
+    }
+
+    /**
+     * @return tag pairs in order of appearance
+     */
+    public Map<String, String> getTags()
+    {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * @return value of tag, null if game has no such tag
+     */
+    public String getTag(String name)
+    {
+        return tags.get(name);
+    }
+
+    public void setTag(String name, String value)
+    {
+        tags.put(name, value);
+    }
+
+    public String getWhite()
+    {
+        return tags.get(TAG_WHITE);
+    }
+
+    public String getBlack()
+    {
+        return tags.get(TAG_BLACK);
+    }
+
+    /**
+     * @return main line of game
+     */
+    public List<PgnMove> getMoves()
+    {
+        return moves;
+    }
+
+    public void addMove(PgnMove move)
+    {
+        moves.add(move);
+    }
+
+    /**
+     * @return termination marker of movetext, Result tag if movetext has none
+     */
+    public String getResult()
+    {
+        if (UNKNOWN_RESULT.equals(result) && tags.containsKey(TAG_RESULT))
+        {
+            return tags.get(TAG_RESULT);
+        }
+        return result;
+    }
+
+    public void setResult(String result)
+    {
+        this.result = result;
+    }
+
+    /**
+     * @return comment which isn't placed at any move (e.g. game without moves), null if none
+     */
+    public String getComment()
+    {
+        return comment;
+    }
+
+    public void setComment(String comment)
+    {
+        this.comment = comment;
+    }
+
+    /**
+     * @return number of half-moves played before first move: taken from FEN tag, 0 without it
+     */
+    public int getStartPly()
+    {
+        String fen = tags.get(TAG_FEN);
+        if (null == fen)
+        {
+            return 0;
+        }
+        String[] fields = fen.trim().split("\\s+");
+        int ply = 1 < fields.length && "b".equals(fields[1]) ? 1 : 0;
+        if (5 < fields.length)
+        {
+            try
+            {
+                ply += 2 * Math.max(0, Integer.parseInt(fields[5]) - 1);
+            }
+            catch (NumberFormatException exc)
+            {
+                return ply;
+            }
+        }
+        return ply;
+    }
+
+    /**
+     * @return moves of main line in form read by MovesHistory.setMoves(), e.g. "1. e4 e5 2. Nf3 "
+     */
+    public String getMainLine()
+    {
+        StringBuilder result = new StringBuilder();
+        for (int ply = 0; ply < moves.size(); ply++)
+        {
+            if (0 == ply % 2)
+            {
+                result.append(ply / 2 + 1).append(". ");
+            }
+            result.append(moves.get(ply).getSan()).append(' ');
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return game in PGN export format: tags, movetext wrapped to 79 characters and result
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, String> tag : tags.entrySet())
+        {
+            result.append('[').append(tag.getKey()).append(" \"")
+                .append(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\"]\n");
+        }
+        result.append('\n');
+        MovetextWriter writer = new MovetextWriter(result);
+        if (null != comment)
+        {
+            writer.append('{' + comment + '}', true);
+        }
+        writeLine(writer, moves, getStartPly());
+        writer.append(getResult(), true);
+        result.append('\n');
+        return result.toString();
+    }
+
+    private static void writeLine(MovetextWriter writer, List<PgnMove> line, int startPly)
+    {
+        int ply = startPly;
+        boolean numberNeeded = true;
+        for (PgnMove move : line)
+        {
+            if (null != move.getCommentBefore())
+            {
+                writer.append('{' + move.getCommentBefore() + '}', true);
+                numberNeeded = true;
+            }
+            if (0 == ply % 2)
+            {
+                writer.append((ply / 2 + 1) + ".", true);
+            }
+            else if (numberNeeded)
+            {
+                writer.append((ply / 2 + 1) + "...", true);
+            }
+            writer.append(move.getSan(), true);
+            numberNeeded = false;
+            for (int nag : move.getNags())
+            {
+                writer.append("$" + nag, true);
+            }
+            if (null != move.getComment())
+            {
+                writer.append('{' + move.getComment() + '}', true);
+                numberNeeded = true;
+            }
+            for (List<PgnMove> variation : move.getVariations())
+            {
+                writer.append("(", true);
+                writeLine(writer, variation, ply);
+                writer.append(")", false);
+                numberNeeded = true;
+            }
+            ply++;
+        }
+    }
+
+    /**
+     * Joins tokens with spaces and breaks lines longer than limit.
+     */
+    private static class MovetextWriter
+    {
+        private final StringBuilder out;
+
+        private int lineLength = 0;
+
+        private boolean spaceAllowed = false;
+
+        MovetextWriter(StringBuilder out)
+        {
+            this.out = out;
+        }
+
+        void append(String token, boolean space)
+        {
+            boolean separated = space && spaceAllowed;
+            if (0 < lineLength && MAX_LINE_LENGTH < lineLength + token.length() + (separated ? 1 : 0))
+            {
+                out.append('\n');
+                lineLength = 0;
+            }
+            else if (separated)
+            {
+                out.append(' ');
+                lineLength++;
+            }
+            out.append(token);
+            lineLength += token.length();
+            spaceAllowed = !"(".equals(token);
+        }
+    }
+}
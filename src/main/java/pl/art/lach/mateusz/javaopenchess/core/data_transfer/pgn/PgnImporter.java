@@ -0,0 +1,623 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+/**
+ * Imports PGN archives on all cores. Archive is split into byte ranges
+ * which start at game boundaries (tag at start of line after empty line).
+ * Ranges are memory-mapped and read by workers of fork-join pool: every
+ * game is parsed by PgnReader and its main line is replayed on its own
+ * BitboardPosition. Results are passed to PgnSink in order of games in archive.<br/>
+ * Ranges are given to workers in file order and workers don't go more than
+ * few ranges ahead of sink, so memory doesn't depend on archive size.<br/>
+ * Usage: PgnImporter [--threads=N] [--output=games.pgn] archive.pgn...
+ */
+public class PgnImporter
+{
+    private static final Logger LOG = Logger.getLogger(PgnImporter.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    /**
+     * Result keeps only this number of error messages, all errors are counted.
+     */
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * Number of ranges per thread which can be read before sink gets earlier ones.
+     */
+    private static final int RANGES_AHEAD_PER_THREAD = 2;
+
+    private static final int SCAN_WINDOW = 1 << 16;
+
+    private static final int NO_RANGE = -1;
+
+    private static final long NANOS_IN_SECOND = 1_000_000_000L;
+
+    private static final String OPTION_THREADS = "--threads=";
+
+    private static final String OPTION_OUTPUT = "--output=";
+
+    private final int threads;
+
+    private final int chunkSize;
+
+    private final BitboardPosition initialPosition;
+
+    public PgnImporter()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public PgnImporter(int threads)
+    {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param threads number of threads of fork-join pool
+     * @param chunkSize size of byte ranges read by single worker, ranges are
+     * longer by the rest of game in which they would end
+     */
+    public PgnImporter(int threads, int chunkSize)
+    {
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+        try
+        {
+            this.initialPosition = BitboardPosition.fromFen(PerftPosition.INITIAL.getFen());
+        }
+        catch (ReadGameError err)
+        {
+            throw new IllegalStateException("Initial position can't be loaded: " + err.getMessage());
+        }
+    }
+
+    /**
+     * Imports all games of archive.
+     * @param path archive in UTF-8
+     * @param sink receiver of games and errors, called in order of games in archive
+     * @return statistics of import
+     * @throws IOException if archive can't be read
+     */
+    public Result importFile(Path path, PgnSink sink) throws IOException
+    {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            Import work = new Import(channel, split(channel, chunkSize), sink);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try
+            {
+                pool.invoke(new ImportTask(work, threads));
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+            work.rethrowFailure();
+            return new Result(work.games, work.errors, channel.size(), work.ranges(),
+                System.nanoTime() - start, work.errorMessages);
+        }
+    }
+
+    /**
+     * Splits archive into ranges of at least given size which start at game boundaries.
+     * @return offsets of ranges, first is 0 and last is size of archive
+     */
+    static long[] split(FileChannel channel, long chunkSize) throws IOException
+    {
+        long size = channel.size();
+        List<Long> offsets = new ArrayList<>();
+        offsets.add(0L);
+        long offset = chunkSize;
+        while (offset < size)
+        {
+            long boundary = findGameStart(channel, offset, size);
+            if (size <= boundary)
+            {
+                break;
+            }
+            offsets.add(boundary);
+            offset = boundary + chunkSize;
+        }
+        offsets.add(size);
+        long[] result = new long[offsets.size()];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = offsets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return offset of first '[' at or after given offset which starts line
+     * following empty line, size of archive if there's none
+     */
+    private static long findGameStart(FileChannel channel, long offset, long size) throws IOException
+    {
+        long position = Math.max(0L, offset - 3);
+        while (position < size)
+        {
+            int length = (int) Math.min(SCAN_WINDOW, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = (int) (Math.max(offset, position + 3) - position); i < length; i++)
+            {
+                if ('[' == window.get(i) && '\n' == window.get(i - 1)
+                    && ('\n' == window.get(i - 2) || ('\r' == window.get(i - 2) && '\n' == window.get(i - 3))))
+                {
+                    return position + i;
+                }
+            }
+            if (size <= position + length)
+            {
+                break;
+            }
+            position += length - 3;
+        }
+        return size;
+    }
+
+    /**
+     * Reads and replays games of single range.
+     */
+    private Range readRange(FileChannel channel, long start, long end) throws IOException
+    {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = decoder.decode(bytes);
+        PgnReader reader = new PgnReader(new CharArrayReader(chars.array(), chars.arrayOffset(), chars.remaining()));
+        Range range = new Range();
+        MoveList legalMoves = new MoveList();
+        while (true)
+        {
+            PgnGame game;
+            try
+            {
+                game = reader.readGame();
+            }
+            catch (ReadGameError err)
+            {
+                String prefix = "Line " + reader.getErrorLineNumber() + ": ";
+                String message = err.getMessage();
+                range.reject(reader.getGameLineNumber(), reader.getErrorLineNumber(),
+                    message.startsWith(prefix) ? message.substring(prefix.length()) : message);
+                continue;
+            }
+            if (null == game)
+            {
+                break;
+            }
+            try
+            {
+                range.games.add(replay(game, legalMoves));
+            }
+            catch (ReadGameError err)
+            {
+                range.reject(game.getLineNumber(), game.getLineNumber(), err.getMessage());
+            }
+        }
+        range.lines = reader.getLineNumber() - 1;
+        return range;
+    }
+
+    private ImportedGame replay(PgnGame game, MoveList legalMoves) throws ReadGameError
+    {
+        String fen = game.getTag(PgnGame.TAG_FEN);
+        BitboardPosition position = null == fen ? initialPosition.copy() : BitboardPosition.fromFen(fen);
+        List<PgnMove> line = game.getMoves();
+        int[] moves = new int[line.size()];
+        for (int ply = 0; ply < moves.length; ply++)
+        {
+            String san = line.get(ply).getSan();
+            int move = MoveResolver.resolve(position, san, legalMoves);
+            if (Moves.NO_MOVE == move)
+            {
+                throw new ReadGameError(String.format("illegal move '%s' at ply %d", san, ply + 1), san);
+            }
+            moves[ply] = move;
+            position.makeMove(move);
+        }
+        return new ImportedGame(game, moves, position.getZobristKey());
+    }
+
+    /**
+     * Games and errors of single range, lines counted from start of range.
+     */
+    private static class Range
+    {
+        private final List<ImportedGame> games = new ArrayList<>();
+
+        private final List<Rejection> rejections = new ArrayList<>();
+
+        private int lines;
+
+        void reject(int gameLine, int errorLine, String message)
+        {
+            rejections.add(new Rejection(games.size(), gameLine, errorLine, message));
+        }
+    }
+
+    /**
+     * Malformed game of range.
+     */
+    private static class Rejection
+    {
+        /**
+         * Number of range's games read before this one.
+         */
+        private final int gameIndex;
+
+        private final int gameLine;
+
+        private final int errorLine;
+
+        private final String message;
+
+        Rejection(int gameIndex, int gameLine, int errorLine, String message)
+        {
+            this.gameIndex = gameIndex;
+            this.gameLine = gameLine;
+            this.errorLine = errorLine;
+            this.message = message;
+        }
+    }
+
+    /**
+     * State of import shared by workers: next range to read and ranges waiting for sink.
+     */
+    private class Import
+    {
+        private final FileChannel channel;
+
+        private final long[] offsets;
+
+        private final PgnSink sink;
+
+        private final Map<Integer, Range> finished = new HashMap<>();
+
+        private final List<String> errorMessages = new ArrayList<>();
+
+        private final int maxAhead = threads * RANGES_AHEAD_PER_THREAD;
+
+        private int nextRange;
+
+        private int nextDelivered;
+
+        private int lineOffset;
+
+        private long games;
+
+        private long errors;
+
+        private Throwable failure;
+
+        Import(FileChannel channel, long[] offsets, PgnSink sink)
+        {
+            this.channel = channel;
+            this.offsets = offsets;
+            this.sink = sink;
+        }
+
+        int ranges()
+        {
+            return offsets.length - 1;
+        }
+
+        /**
+         * Reads ranges until all are taken.
+         */
+        void work()
+        {
+            for (int index = takeRange(); NO_RANGE != index; index = takeRange())
+            {
+                try
+                {
+                    finish(index, readRange(channel, offsets[index], offsets[index + 1]));
+                }
+                catch (IOException | RuntimeException exc)
+                {
+                    fail(exc);
+                }
+            }
+        }
+
+        private synchronized int takeRange()
+        {
+            while (null == failure && nextRange < ranges() && maxAhead <= nextRange - nextDelivered)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException exc)
+                {
+                    Thread.currentThread().interrupt();
+                    fail(exc);
+                }
+            }
+            return null == failure && nextRange < ranges() ? nextRange++ : NO_RANGE;
+        }
+
+        private synchronized void finish(int index, Range range)
+        {
+            finished.put(index, range);
+            while (null == failure && finished.containsKey(nextDelivered))
+            {
+                deliver(finished.remove(nextDelivered));
+                nextDelivered++;
+            }
+            notifyAll();
+        }
+
+        private void deliver(Range range)
+        {
+            int rejection = 0;
+            for (int i = 0; i <= range.games.size(); i++)
+            {
+                while (rejection < range.rejections.size() && i == range.rejections.get(rejection).gameIndex)
+                {
+                    Rejection rejected = range.rejections.get(rejection++);
+                    int gameLine = lineOffset + rejected.gameLine;
+                    String message = String.format("Line %d: %s", lineOffset + rejected.errorLine, rejected.message);
+                    errors++;
+                    if (MAX_REPORTED_ERRORS > errorMessages.size())
+                    {
+                        errorMessages.add(message);
+                    }
+                    sink.gameRejected(gameLine, message);
+                }
+                if (i < range.games.size())
+                {
+                    ImportedGame game = range.games.get(i);
+                    game.getGame().shiftLineNumber(lineOffset);
+                    games++;
+                    sink.gameImported(game);
+                }
+            }
+            lineOffset += range.lines;
+        }
+
+        private synchronized void fail(Throwable exc)
+        {
+            if (null == failure)
+            {
+                failure = exc;
+            }
+            notifyAll();
+        }
+
+        void rethrowFailure() throws IOException
+        {
+            if (failure instanceof IOException)
+            {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException)
+            {
+                throw (RuntimeException) failure;
+            }
+            if (null != failure)
+            {
+                throw new IOException("Import interrupted", failure);
+            }
+        }
+    }
+
+    /**
+     * Splits workers in halves, every single worker reads ranges in file order.
+     */
+    private static class ImportTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Import work;
+
+        private final int workers;
+
+        ImportTask(Import work, int workers)
+        {
+            this.work = work;
+            this.workers = workers;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (1 == workers)
+            {
+                work.work();
+                return;
+            }
+            int half = workers / 2;
+            invokeAll(new ImportTask(work, half), new ImportTask(work, workers - half));
+        }
+    }
+
+    /**
+     * Statistics of import.
+     */
+    public static class Result
+    {
+        private final long games;
+
+        private final long errors;
+
+        private final long bytes;
+
+        private final int ranges;
+
+        private final long nanos;
+
+        private final List<String> errorMessages;
+
+        public Result(long games, long errors, long bytes, int ranges, long nanos, List<String> errorMessages)
+        {
+            this.games = games;
+            this.errors = errors;
+            this.bytes = bytes;
+            this.ranges = ranges;
+            this.nanos = nanos;
+            this.errorMessages = Collections.unmodifiableList(new ArrayList<>(errorMessages));
+        }
+
+        public long getGames()
+        {
+            return games;
+        }
+
+        public long getErrors()
+        {
+            return errors;
+        }
+
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        /**
+         * @return number of byte ranges read in parallel
+         */
+        public int getRanges()
+        {
+            return ranges;
+        }
+
+        public long getNanos()
+        {
+            return nanos;
+        }
+
+        public long getGamesPerSecond()
+        {
+            return 0 == nanos ? 0L : games * NANOS_IN_SECOND / nanos;
+        }
+
+        /**
+         * @return messages of first MAX_REPORTED_ERRORS errors, with line numbers, in order of archive
+         */
+        public List<String> getErrorMessages()
+        {
+            return errorMessages;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d games, %d errors, %d bytes in %d ranges, %d ms (%d games/s)",
+                games, errors, bytes, ranges, nanos / 1_000_000L, getGamesPerSecond());
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        List<String> archives = new ArrayList<>();
+        for (String arg : args)
+        {
+            if (arg.startsWith(OPTION_THREADS))
+            {
+                threads = Integer.parseInt(arg.substring(OPTION_THREADS.length()));
+            }
+            else if (arg.startsWith(OPTION_OUTPUT))
+            {
+                output = arg.substring(OPTION_OUTPUT.length());
+            }
+            else
+            {
+                archives.add(arg);
+            }
+        }
+        PrintStream out = System.out;
+        if (archives.isEmpty())
+        {
+            out.println("Usage: PgnImporter [--threads=N] [--output=games.pgn] archive.pgn...");
+            return;
+        }
+        PgnImporter importer = new PgnImporter(threads);
+        try (Writer writer = null == output ? null
+            : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8))
+        {
+            PgnSink sink = new PgnSink()
+            {
+                @Override
+                public void gameImported(ImportedGame game)
+                {
+                    if (null == writer)
+                    {
+                        return;
+                    }
+                    try
+                    {
+                        writer.write(game.getGame().toString());
+                        writer.write('\n');
+                    }
+                    catch (IOException exc)
+                    {
+                        throw new UncheckedIOException(exc);
+                    }
+                }
+
+                @Override
+                public void gameRejected(int lineNumber, String message)
+                {
+                    LOG.warn(String.format("Game at line %d rejected: %s", lineNumber, message));
+                }
+            };
+            for (String archive : archives)
+            {
+                Result result = importer.importFile(Paths.get(archive), sink);
+                out.println(archive + ": " + result);
+                for (String message : result.getErrorMessages())
+                {
+                    out.println("  " + message);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Move of PGN movetext as written (standard or long algebraic notation), with its comments,
+ * numeric annotation glyphs and variations which replace it.
+ */
+public class PgnMove
+{
+    private final String san;
+
+    private final List<Integer> nags = new ArrayList<>();
+
+    private final List<List<PgnMove>> variations = new ArrayList<>();
+
+    private String commentBefore;
+
+    private String comment;
+
+    /**
+     * @param san move as written in movetext, e.g. "Nf3", "Ng1-f3", "exd8=Q+", "0-0"
+     */
+    public PgnMove(String san)
+    {
+        this.san = san;
+    }
+
+    public String getSan()
+    {
+        return san;
+    }
+
+    /**
+     * @return numeric annotation glyphs, suffixes like "!?" are stored as glyphs too
+     */
+    public List<Integer> getNags()
+    {
+        return nags;
+    }
+
+    public void addNag(int nag)
+    {
+        nags.add(nag);
+    }
+
+    /**
+     * @return variations played instead of this move, every one starts with move replacing this one
+     */
+    public List<List<PgnMove>> getVariations()
+    {
+        return variations;
+    }
+
+    public void addVariation(List<PgnMove> variation)
+    {
+        variations.add(variation);
+    }
+
+    /**
+     * @return comment placed before this move (first move of game or variation), null if none
+     */
+    public String getCommentBefore()
+    {
+        return commentBefore;
+    }
+
+    public void setCommentBefore(String commentBefore)
+    {
+        this.commentBefore = commentBefore;
+    }
+
+    /**
+     * @return comment placed after this move, null if none
+     */
+    public String getComment()
+    {
+        return comment;
+    }
+
+    public void setComment(String comment)
+    {
+        this.comment = comment;
+    }
+
+    @Override
+    public String toString()
+    {
+        return san;
+    }
+}
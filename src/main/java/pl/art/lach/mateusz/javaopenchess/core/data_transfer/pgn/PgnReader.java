@@ -0,0 +1,773 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+/**
+ * Reads games of PGN archive one by one, so archives of any size are read
+ * with memory needed by single game. Tag pairs, brace and rest-of-line
+ * comments, escape lines, numeric annotation glyphs, suffix annotations and
+ * nested variations are read, movetext can span any number of lines.<br/>
+ * Malformed game is reported by ReadGameError with line number, next call of
+ * readGame() goes on with following game, which starts with tag at beginning
+ * of line. Such line also ends comment which isn't closed.
+ */
+public class PgnReader implements Closeable, Iterable<PgnGame>
+{
+    private static final Logger LOG = Logger.getLogger(PgnReader.class);
+
+    /**
+     * Limit of single token or comment, so malformed archive (e.g. comment
+     * without closing brace) can't take whole memory.
+     */
+    public static final int MAX_TOKEN_LENGTH = 1 << 16;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int EOF = -1;
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private static final String[] RESULTS = {"1-0", "0-1", "1/2-1/2", PgnGame.UNKNOWN_RESULT};
+
+    private static final String[] SUFFIX_ANNOTATIONS = {"!", "?", "!!", "??", "!?", "?!"};
+
+    /**
+     * Standard algebraic notation, long algebraic notation written by this
+     * application (e.g. "Ng1-f3", "e7xd8=Q"), castling with letters or digits and null moves.
+     */
+    private static final Pattern MOVE = Pattern.compile(
+        "([KQRBN]?[a-h]?[1-8]?x?[a-h][1-8](=?[QRBN])?|[KQRBN]?[a-h][1-8][-x:][a-h][1-8](=?[QRBN])?"
+        + "|O-O(-O)?|0-0(-0)?|--|Z0)[+#]?");
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private final StringBuilder token = new StringBuilder();
+
+    private int position = 0;
+
+    private int limit = 0;
+
+    private int pushedBack = EOF;
+
+    private int lineNumber = 1;
+
+    private int gameLineNumber = 1;
+
+    private int errorLineNumber = 0;
+
+    /**
+     * True if last character read is first one of its line.
+     */
+    private boolean lineStart = true;
+
+    /**
+     * True if next character starts new line.
+     */
+    private boolean nextLineStart = true;
+
+    private int games;
+
+    private int errors;
+
+    public PgnReader(Reader reader)
+    {
+        this.reader = reader;
+    }
+
+    /**
+     * @param in archive in UTF-8
+     */
+    public PgnReader(InputStream in)
+    {
+        this(in, StandardCharsets.UTF_8);
+    }
+
+    public PgnReader(InputStream in, Charset charset)
+    {
+        this(new InputStreamReader(in, charset));
+    }
+
+    /**
+     * Reads next game.
+     * @return next game, null at end of archive
+     * @throws ReadGameError if game is malformed, rest of it is skipped
+     * @throws IOException if archive can't be read
+     */
+    public PgnGame readGame() throws IOException, ReadGameError
+    {
+        if (!skipToGame())
+        {
+            return null;
+        }
+        gameLineNumber = lineNumber;
+        PgnGame game = new PgnGame(gameLineNumber);
+        boolean inTags = true;
+        try
+        {
+            readTags(game);
+            inTags = false;
+            readMovetext(game);
+        }
+        catch (ReadGameError err)
+        {
+            errors++;
+            if (inTags)
+            {
+                skipTagSection();
+                skipMovetext();
+            }
+            else
+            {
+                skipToNextTagSection();
+            }
+            throw err;
+        }
+        games++;
+        return game;
+    }
+
+    /**
+     * @return line at which current position of archive is, counted from 1
+     */
+    public int getLineNumber()
+    {
+        return lineNumber;
+    }
+
+    /**
+     * @return line at which last game (also malformed one) starts
+     */
+    public int getGameLineNumber()
+    {
+        return gameLineNumber;
+    }
+
+    /**
+     * @return line of last error, 0 if there was no error
+     */
+    public int getErrorLineNumber()
+    {
+        return errorLineNumber;
+    }
+
+    /**
+     * @return number of games read
+     */
+    public int getGames()
+    {
+        return games;
+    }
+
+    /**
+     * @return number of malformed games
+     */
+    public int getErrors()
+    {
+        return errors;
+    }
+
+    /**
+     * Iterates over games of archive, malformed games are logged and skipped.
+     * @throws UncheckedIOException when archive can't be read
+     */
+    @Override
+    public Iterator<PgnGame> iterator()
+    {
+        return new Iterator<PgnGame>()
+        {
+            private PgnGame next;
+
+            @Override
+            public boolean hasNext()
+            {
+                while (null == next)
+                {
+                    try
+                    {
+                        next = readGame();
+                        if (null == next)
+                        {
+                            return false;
+                        }
+                    }
+                    catch (ReadGameError err)
+                    {
+                        LOG.warn("Game skipped: " + err.getMessage());
+                    }
+                    catch (IOException exc)
+                    {
+                        throw new UncheckedIOException(exc);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public PgnGame next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                PgnGame game = next;
+                next = null;
+                return game;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    /**
+     * Skips white space, escape lines and comments placed between games.
+     * @return false at end of archive
+     */
+    private boolean skipToGame() throws IOException
+    {
+        while (true)
+        {
+            int ch = skipWhiteSpace();
+            if (EOF == ch)
+            {
+                return false;
+            }
+            if (';' == ch)
+            {
+                skipLine();
+                continue;
+            }
+            unread(ch);
+            return true;
+        }
+    }
+
+    private void readTags(PgnGame game) throws IOException, ReadGameError
+    {
+        while (true)
+        {
+            int ch = skipWhiteSpace();
+            if ('[' != ch)
+            {
+                unread(ch);
+                return;
+            }
+            int tagLine = lineNumber;
+            ch = skipWhiteSpace();
+            token.setLength(0);
+            while (Character.isLetterOrDigit(ch) || '_' == ch)
+            {
+                appendToken(ch);
+                ch = read();
+            }
+            if (0 == token.length())
+            {
+                throw error(tagLine, "tag without name");
+            }
+            String name = token.toString();
+            if (Character.isWhitespace(ch))
+            {
+                ch = skipWhiteSpace();
+            }
+            if ('"' != ch)
+            {
+                throw error(tagLine, "value of tag " + name + " should be quoted");
+            }
+            token.setLength(0);
+            for (ch = read(); '"' != ch; ch = read())
+            {
+                if ('\\' == ch)
+                {
+                    ch = read();
+                }
+                if (EOF == ch || '\n' == ch)
+                {
+                    throw error(tagLine, "unterminated value of tag " + name);
+                }
+                appendToken(ch);
+            }
+            if (']' != skipWhiteSpace())
+            {
+                throw error(tagLine, "tag " + name + " isn't closed");
+            }
+            game.setTag(name, token.toString());
+        }
+    }
+
+    private void readMovetext(PgnGame game) throws IOException, ReadGameError
+    {
+        Deque<List<PgnMove>> lines = new ArrayDeque<>();
+        List<PgnMove> line = game.getMoves();
+        String pendingComment = null;
+        while (true)
+        {
+            int ch = skipWhiteSpace();
+            int tokenLine = lineNumber;
+            if (EOF == ch || ('[' == ch && lineStart))
+            {
+                if (!lines.isEmpty())
+                {
+                    throw error(tokenLine, "variation isn't closed at end of game");
+                }
+                unread(ch);
+                break;
+            }
+            if ('{' == ch || ';' == ch)
+            {
+                String comment = '{' == ch ? readBraceComment() : readLineComment();
+                if (line.isEmpty())
+                {
+                    pendingComment = join(pendingComment, comment);
+                }
+                else
+                {
+                    PgnMove last = line.get(line.size() - 1);
+                    last.setComment(join(last.getComment(), comment));
+                }
+            }
+            else if ('(' == ch)
+            {
+                if (line.isEmpty())
+                {
+                    throw error(tokenLine, "variation without move to replace");
+                }
+                List<PgnMove> variation = new ArrayList<>();
+                line.get(line.size() - 1).addVariation(variation);
+                lines.push(line);
+                line = variation;
+            }
+            else if (')' == ch)
+            {
+                if (lines.isEmpty())
+                {
+                    throw error(tokenLine, "unexpected ')'");
+                }
+                if (line.isEmpty())
+                {
+                    throw error(tokenLine, "empty variation");
+                }
+                line = lines.pop();
+            }
+            else if ('$' == ch)
+            {
+                if (line.isEmpty())
+                {
+                    throw error(tokenLine, "glyph without move");
+                }
+                line.get(line.size() - 1).addNag(readNag(tokenLine));
+            }
+            else if (isSymbolPart(ch) || '*' == ch)
+            {
+                String symbol = readSymbol(ch);
+                if (isResult(symbol))
+                {
+                    if (lines.isEmpty())
+                    {
+                        game.setResult(symbol);
+                        break;
+                    }
+                    continue;
+                }
+                PgnMove move = parseMove(symbol, tokenLine, line);
+                if (null != move)
+                {
+                    move.setCommentBefore(pendingComment);
+                    pendingComment = null;
+                    line.add(move);
+                }
+            }
+            else
+            {
+                throw error(tokenLine, "unexpected character '" + (char) ch + "'");
+            }
+        }
+        if (null != pendingComment)
+        {
+            game.setComment(pendingComment);
+        }
+    }
+
+    /**
+     * @return move of symbol, null if symbol is only move number or suffix annotation
+     */
+    private PgnMove parseMove(String symbol, int tokenLine, List<PgnMove> line) throws ReadGameError
+    {
+        int start = 0;
+        while (start < symbol.length() && Character.isDigit(symbol.charAt(start)))
+        {
+            start++;
+        }
+        int dots = start;
+        while (0 < start && dots < symbol.length() && '.' == symbol.charAt(dots))
+        {
+            dots++;
+        }
+        // move number, e.g. "12." or "12...", can be joined with move; "0-0" is castling
+        start = dots == start && dots < symbol.length() ? 0 : dots;
+        int end = symbol.length();
+        while (start < end && ('!' == symbol.charAt(end - 1) || '?' == symbol.charAt(end - 1)))
+        {
+            end--;
+        }
+        int nag = 0;
+        if (end < symbol.length())
+        {
+            nag = suffixNag(symbol.substring(end), tokenLine);
+        }
+        if (start == end)
+        {
+            if (0 != nag)
+            {
+                if (line.isEmpty())
+                {
+                    throw error(tokenLine, "annotation without move");
+                }
+                line.get(line.size() - 1).addNag(nag);
+            }
+            return null;
+        }
+        String san = symbol.substring(start, end);
+        if (!MOVE.matcher(san).matches())
+        {
+            throw error(tokenLine, "unexpected token '" + symbol + "'");
+        }
+        PgnMove move = new PgnMove(san);
+        if (0 != nag)
+        {
+            move.addNag(nag);
+        }
+        return move;
+    }
+
+    private int suffixNag(String suffix, int tokenLine) throws ReadGameError
+    {
+        for (int i = 0; i < SUFFIX_ANNOTATIONS.length; i++)
+        {
+            if (SUFFIX_ANNOTATIONS[i].equals(suffix))
+            {
+                return i + 1;
+            }
+        }
+        throw error(tokenLine, "unknown annotation '" + suffix + "'");
+    }
+
+    private static boolean isResult(String symbol)
+    {
+        for (String result : RESULTS)
+        {
+            if (result.equals(symbol))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSymbolPart(int ch)
+    {
+        return Character.isLetterOrDigit(ch) || 0 <= "_+#=:-/.!?".indexOf(ch);
+    }
+
+    private String readSymbol(int first) throws IOException, ReadGameError
+    {
+        token.setLength(0);
+        appendToken(first);
+        if ('*' == first)
+        {
+            return token.toString();
+        }
+        int ch = read();
+        while (EOF != ch && isSymbolPart(ch))
+        {
+            appendToken(ch);
+            ch = read();
+        }
+        unread(ch);
+        return token.toString();
+    }
+
+    private int readNag(int tokenLine) throws IOException, ReadGameError
+    {
+        int nag = 0;
+        int digits = 0;
+        int ch = read();
+        while (Character.isDigit(ch))
+        {
+            nag = nag * 10 + ch - '0';
+            if (255 < nag)
+            {
+                throw error(tokenLine, "glyph out of range");
+            }
+            digits++;
+            ch = read();
+        }
+        unread(ch);
+        if (0 == digits)
+        {
+            throw error(tokenLine, "glyph without number");
+        }
+        return nag;
+    }
+
+    private String readBraceComment() throws IOException, ReadGameError
+    {
+        int commentLine = lineNumber;
+        token.setLength(0);
+        for (int ch = read(); '}' != ch; ch = read())
+        {
+            // tag at start of line means that next game begins
+            if (EOF == ch || ('[' == ch && lineStart))
+            {
+                unread(ch);
+                throw error(commentLine, "comment isn't closed");
+            }
+            appendToken(Character.isWhitespace(ch) ? ' ' : ch);
+        }
+        return token.toString().trim();
+    }
+
+    private String readLineComment() throws IOException, ReadGameError
+    {
+        token.setLength(0);
+        int ch = read();
+        while (EOF != ch && '\n' != ch)
+        {
+            if ('\r' != ch)
+            {
+                appendToken(ch);
+            }
+            ch = read();
+        }
+        unread(ch);
+        return token.toString().trim();
+    }
+
+    private static String join(String first, String second)
+    {
+        return null == first ? second : first + ' ' + second;
+    }
+
+    private void appendToken(int ch) throws ReadGameError
+    {
+        if (MAX_TOKEN_LENGTH <= token.length())
+        {
+            throw error(lineNumber, "token longer than " + MAX_TOKEN_LENGTH + " characters");
+        }
+        token.append((char) ch);
+    }
+
+    /**
+     * Skips white space and escape lines (starting with '%').
+     * @return first other character
+     */
+    private int skipWhiteSpace() throws IOException
+    {
+        while (true)
+        {
+            int ch = read();
+            if ('%' == ch && lineStart)
+            {
+                skipLine();
+            }
+            else if (EOF == ch || (!Character.isWhitespace(ch) && BYTE_ORDER_MARK != ch))
+            {
+                return ch;
+            }
+        }
+    }
+
+    private void skipLine() throws IOException
+    {
+        int ch = read();
+        while (EOF != ch && '\n' != ch)
+        {
+            ch = read();
+        }
+    }
+
+    /**
+     * Skips rest of malformed tag section, that is lines starting with tag.
+     */
+    private void skipTagSection() throws IOException
+    {
+        if (!nextLineStart)
+        {
+            skipLine();
+        }
+        while (true)
+        {
+            int ch = read();
+            if ('[' != ch)
+            {
+                unread(ch);
+                return;
+            }
+            skipLine();
+        }
+    }
+
+    /**
+     * Skips movetext of game with malformed tag section, up to result or
+     * blank line followed by tag. Lines starting with tag without blank line
+     * before them still belong to the malformed game.
+     */
+    private void skipMovetext() throws IOException
+    {
+        token.setLength(0);
+        boolean comment = false;
+        boolean lineBlank = false;
+        while (true)
+        {
+            int ch = read();
+            if (EOF == ch)
+            {
+                return;
+            }
+            if (lineStart)
+            {
+                if ('[' == ch && lineBlank && !comment)
+                {
+                    unread(ch);
+                    return;
+                }
+                lineBlank = true;
+            }
+            if (!Character.isWhitespace(ch))
+            {
+                lineBlank = false;
+            }
+            if (comment)
+            {
+                comment = '}' != ch;
+            }
+            else if (isSymbolPart(ch) || '*' == ch)
+            {
+                if (MAX_TOKEN_LENGTH > token.length())
+                {
+                    token.append((char) ch);
+                }
+            }
+            else
+            {
+                if (isResult(token.toString()))
+                {
+                    return;
+                }
+                token.setLength(0);
+                if ('{' == ch)
+                {
+                    comment = true;
+                }
+                else if (';' == ch)
+                {
+                    skipLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Skips rest of malformed movetext, up to line starting with tag.
+     */
+    private void skipToNextTagSection() throws IOException
+    {
+        while (true)
+        {
+            int ch = read();
+            if (EOF == ch)
+            {
+                return;
+            }
+            if ('[' == ch && lineStart)
+            {
+                unread(ch);
+                return;
+            }
+        }
+    }
+
+    private int read() throws IOException
+    {
+        int ch;
+        if (EOF != pushedBack)
+        {
+            ch = pushedBack;
+            pushedBack = EOF;
+        }
+        else
+        {
+            if (position == limit)
+            {
+                limit = reader.read(buffer, 0, BUFFER_SIZE);
+                position = 0;
+                if (0 >= limit)
+                {
+                    limit = 0;
+                    return EOF;
+                }
+            }
+            ch = buffer[position++];
+        }
+        lineStart = nextLineStart;
+        nextLineStart = '\n' == ch;
+        if (nextLineStart)
+        {
+            lineNumber++;
+        }
+        return ch;
+    }
+
+    private void unread(int ch)
+    {
+        if (EOF != ch)
+        {
+            pushedBack = ch;
+            nextLineStart = lineStart;
+            if ('\n' == ch)
+            {
+                lineNumber--;
+            }
+        }
+    }
+
+    private ReadGameError error(int line, String message)
+    {
+        errorLineNumber = line;
+        return new ReadGameError(String.format("Line %d: %s", line, message));
+    }
+}
@@ -0,0 +1,34 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+/**
+ * Receives results of PgnImporter. Methods are called by one thread at a
+ * time, in order of games in archive.
+ */
+public interface PgnSink
+{
+    /**
+     * Called for every game which was read and replayed.
+     */
+    void gameImported(ImportedGame game);
+
+    /**
+     * Called for every malformed game.
+     * @param lineNumber line of archive where game starts
+     * @param message description of error, with line of error
+     */
+    void gameRejected(int lineNumber, String message);
+}
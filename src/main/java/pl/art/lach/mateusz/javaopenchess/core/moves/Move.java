@@ -41,6 +41,12 @@ public class Move
     protected Castling castlingMove = Castling.NONE;
     
     protected boolean wasPawnTwoFieldsMove = false;
+
+    /**
+     * True if moved king or rook had already been moved before this move,
+     * so undo knows whether to restore castling possibility.
+     */
+    protected boolean movedPieceWasMotioned = false;
     
     public Move(Square from, Square to, Piece movedPiece, Piece takenPiece, Piece promotedPiece)
     {
@@ -114,6 +120,16 @@ public class Move
         return this.castlingMove;
     }
 
+    public boolean getMovedPieceWasMotioned()
+    {
+        return movedPieceWasMotioned;
+    }
+
+    public void setMovedPieceWasMotioned(boolean movedPieceWasMotioned)
+    {
+        this.movedPieceWasMotioned = movedPieceWasMotioned;
+    }
+
     public Piece getPromotedPiece()
     {
         return this.promotedTo;
@@ -0,0 +1,69 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.moves;
+
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.ChessboardListener;
+import pl.art.lach.mateusz.javaopenchess.core.Square;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
+
+/**
+ * Records moves played by Chessboard.makeMove() in MovesHistory, with their
+ * notation, like Chessboard.move() does. It's added only where history
+ * is displayed or saved, replay and search go without it.
+ */
+public class MovesHistoryListener implements ChessboardListener
+{
+    private final MovesHistory movesHistory;
+
+    public MovesHistoryListener(MovesHistory movesHistory)
+    {
+        this.movesHistory = movesHistory;
+    }
+
+    @Override
+    public void moveMade(Chessboard chessboard, int move)
+    {
+        int ply = chessboard.getUndoStack().size() - 1;
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        Square begin = new Square(Bitboards.pozX(from), Bitboards.pozY(from), chessboard.getMovedPiece(ply));
+        Square end = new Square(Bitboards.pozX(to), Bitboards.pozY(to), chessboard.getCapturedPiece(ply));
+        Castling castling = Castling.NONE;
+        if (Moves.isCastling(move))
+        {
+            castling = to > from ? Castling.SHORT_CASTLING : Castling.LONG_CASTLING;
+        }
+        Piece promotedPiece = Moves.isPromotion(move)
+            ? chessboard.getSquare(Bitboards.pozX(to), Bitboards.pozY(to)).getPiece()
+            : null;
+        movesHistory.clearMoveForwardStack();
+        movesHistory.addMove(begin, end, true, castling, Moves.isEnPassant(move), promotedPiece);
+        Move registered = movesHistory.getLastMoveFromHistory();
+        if (null != registered)
+        {
+            registered.setMovedPieceWasMotioned(chessboard.getMovedPieceWasMotioned(ply));
+        }
+    }
+
+    @Override
+    public void moveUnmade(Chessboard chessboard, int move)
+    {
+        movesHistory.undo();
+        movesHistory.clearMoveForwardStack();
+    }
+}
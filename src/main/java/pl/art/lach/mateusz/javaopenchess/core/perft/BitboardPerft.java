@@ -0,0 +1,107 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.perft;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+/**
+ * Perft over BitboardPosition using legal MoveGenerator and make/unmake.
+ * One MoveList is kept per ply, so counting doesn't allocate.
+ */
+public class BitboardPerft extends Perft
+{
+    private final BitboardPosition position;
+
+    private MoveList[] buffers = new MoveList[0];
+
+    /**
+     * @param position position to count from (it's copied)
+     */
+    public BitboardPerft(BitboardPosition position)
+    {
+        this.position = position.copy();
+    }
+
+    @Override
+    public String getName()
+    {
+        return "bitboard";
+    }
+
+    @Override
+    public long count(int depth)
+    {
+        ensureBuffers(depth);
+        return count(depth, 0);
+    }
+
+    @Override
+    public Map<String, Long> divide(int depth)
+    {
+        ensureBuffers(depth);
+        Map<String, Long> result = new LinkedHashMap<>();
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        for (int i = 0; i < moves.size(); i++)
+        {
+            int move = moves.get(i);
+            long undo = position.makeMove(move);
+            result.put(Moves.toString(move), count(depth - 1, 1));
+            position.unmakeMove(move, undo);
+        }
+        return result;
+    }
+
+    private long count(int depth, int ply)
+    {
+        if (0 == depth)
+        {
+            return 1L;
+        }
+        MoveList moves = buffers[ply];
+        moves.clear();
+        MoveGenerator.generateLegal(position, moves);
+        if (1 == depth)
+        {
+            return moves.size();
+        }
+        long nodes = 0L;
+        for (int i = 0; i < moves.size(); i++)
+        {
+            int move = moves.get(i);
+            long undo = position.makeMove(move);
+            nodes += count(depth - 1, ply + 1);
+            position.unmakeMove(move, undo);
+        }
+        return nodes;
+    }
+
+    private void ensureBuffers(int depth)
+    {
+        if (buffers.length < depth + 1)
+        {
+            buffers = new MoveList[depth + 1];
+            for (int i = 0; i < buffers.length; i++)
+            {
+                buffers[i] = new MoveList();
+            }
+        }
+    }
+}
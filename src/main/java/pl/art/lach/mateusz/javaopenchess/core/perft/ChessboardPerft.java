@@ -0,0 +1,173 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.perft;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Colors;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.Square;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.PieceFactory;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Pawn;
+
+/**
+ * Perft over Chessboard objects: moves are taken from Piece.getAllMoves()
+ * (or from piece behaviors) and played with Chessboard.move() and undo(),
+ * the same way as GUI and current AI levels do.
+ */
+public class ChessboardPerft extends Perft
+{
+    private static final String[] PROMOTIONS = {"Queen", "Rook", "Bishop", "Knight"};
+
+    private static final String PROMOTION_SYMBOLS = "qrbn";
+
+    private final Game game;
+
+    private final Chessboard chessboard;
+
+    private final boolean useBehaviors;
+
+    /**
+     * @param game game which chessboard is used for counting. Its players should
+     * not ask for promotion piece (eg. computer players), see Perft.loadGame()
+     * @param useBehaviors if true moves are taken from Piece.getAllMovesFromBehaviors()
+     */
+    public ChessboardPerft(Game game, boolean useBehaviors)
+    {
+        this.game = game;
+        this.chessboard = game.getChessboard();
+        this.useBehaviors = useBehaviors;
+    }
+
+    @Override
+    public String getName()
+    {
+        return useBehaviors ? "behaviors" : "getAllMoves";
+    }
+
+    @Override
+    public long count(int depth)
+    {
+        return count(game.getActivePlayer().getColor(), depth);
+    }
+
+    @Override
+    public Map<String, Long> divide(int depth)
+    {
+        Map<String, Long> result = new LinkedHashMap<>();
+        Colors color = game.getActivePlayer().getColor();
+        for (Piece piece : chessboard.getAllPieces(color))
+        {
+            Square from = piece.getSquare();
+            for (Square to : getMoves(piece))
+            {
+                String name = from.getAlgebraicNotation() + to.getAlgebraicNotation();
+                if (isPromotion(piece, to))
+                {
+                    for (int i = 0; i < PROMOTIONS.length; i++)
+                    {
+                        result.put(name + PROMOTION_SYMBOLS.charAt(i), countPromotion(piece, from, to, depth, i));
+                    }
+                }
+                else
+                {
+                    result.put(name, countMove(from, to, color, depth));
+                }
+            }
+        }
+        return result;
+    }
+
+    private long count(Colors color, int depth)
+    {
+        if (0 == depth)
+        {
+            return 1L;
+        }
+        long nodes = 0L;
+        for (Piece piece : chessboard.getAllPieces(color))
+        {
+            Square from = piece.getSquare();
+            for (Square to : getMoves(piece))
+            {
+                if (isPromotion(piece, to))
+                {
+                    for (int i = 0; i < PROMOTIONS.length; i++)
+                    {
+                        nodes += countPromotion(piece, from, to, depth, i);
+                    }
+                }
+                else if (1 == depth)
+                {
+                    nodes++;
+                }
+                else
+                {
+                    nodes += countMove(from, to, color, depth);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private long countMove(Square from, Square to, Colors color, int depth)
+    {
+        chessboard.move(from, to, false, true);
+        long nodes = count(opponent(color), depth - 1);
+        chessboard.undo(false);
+        return nodes;
+    }
+
+    /**
+     * Chessboard.move() leaves pawn on last rank when player doesn't choose
+     * promotion piece, so promoted piece is put there by hand.
+     */
+    private long countPromotion(Piece pawn, Square from, Square to, int depth, int promotion)
+    {
+        if (1 == depth)
+        {
+            return 1L;
+        }
+        Colors color = pawn.getPlayer().getColor();
+        chessboard.move(from, to, false, true);
+        to.setPiece(PieceFactory.getPiece(chessboard, color, PROMOTIONS[promotion], pawn.getPlayer()));
+        long nodes = count(opponent(color), depth - 1);
+        to.setPiece(pawn);
+        chessboard.undo(false);
+        return nodes;
+    }
+
+    private List<Square> getMoves(Piece piece)
+    {
+        Set<Square> moves = useBehaviors ? piece.getAllMovesFromBehaviors() : piece.getAllMoves();
+        return new ArrayList<>(moves);
+    }
+
+    private static boolean isPromotion(Piece piece, Square to)
+    {
+        return Pawn.class == piece.getClass()
+            && (Chessboard.FIRST_SQUARE == to.getPozY() || Chessboard.LAST_SQUARE == to.getPozY());
+    }
+
+    private static Colors opponent(Colors color)
+    {
+        return Colors.WHITE == color ? Colors.BLACK : Colors.WHITE;
+    }
+}
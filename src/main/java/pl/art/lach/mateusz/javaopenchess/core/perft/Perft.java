@@ -0,0 +1,279 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.perft;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import pl.art.lach.mateusz.javaopenchess.core.Colors;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.GameBuilder;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.DataTransferFactory;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.TransferFormat;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.players.PlayerFactory;
+import pl.art.lach.mateusz.javaopenchess.core.players.PlayerType;
+import pl.art.lach.mateusz.javaopenchess.utils.GameModes;
+import pl.art.lach.mateusz.javaopenchess.utils.GameTypes;
+
+/**
+ * Perft (performance test) - counts leaf nodes of legal move tree of given depth.
+ * Counts are compared with well known values to prove move generator correctness,
+ * and time spent on counting tells how fast move generator is.<br/>
+ * Usage: Perft [--generator=bitboard|getAllMoves|behaviors|all] [--divide] depth [FEN]<br/>
+ *        Perft [--generator=...] --suite [maxDepth]
+ */
+public abstract class Perft
+{
+    public static final String GENERATOR_BITBOARD = "bitboard";
+
+    public static final String GENERATOR_GET_ALL_MOVES = "getAllMoves";
+
+    public static final String GENERATOR_BEHAVIORS = "behaviors";
+
+    public static final String GENERATOR_ALL = "all";
+
+    private static final String OPTION_GENERATOR = "--generator=";
+
+    private static final String OPTION_DIVIDE = "--divide";
+
+    private static final String OPTION_SUITE = "--suite";
+
+    private static final long NANOS_IN_SECOND = 1_000_000_000L;
+
+    /**
+     * @return name of move generator used by this perft
+     */
+    public abstract String getName();
+
+    /**
+     * @return number of leaf nodes of legal move tree of given depth
+     */
+    public abstract long count(int depth);
+
+    /**
+     * @return number of leaf nodes for every legal root move, keyed by move
+     * in long algebraic notation (eg. e2e4, e7e8q)
+     */
+    public abstract Map<String, Long> divide(int depth);
+
+    /**
+     * Counts nodes and measures time.
+     */
+    public Result run(int depth)
+    {
+        long start = System.nanoTime();
+        long nodes = count(depth);
+        return new Result(getName(), depth, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Loads position from FEN into new headless game. Players are computer
+     * players, so promotions don't open any dialog.
+     */
+    public static Game loadGame(String fen) throws ReadGameError
+    {
+        Game game = new GameBuilder()
+            .setWhitePlayerType(PlayerType.COMPUTER)
+            .setBlackPlayerType(PlayerType.COMPUTER)
+            .setGameMode(GameModes.LOAD_GAME)
+            .setGameType(GameTypes.LOCAL)
+            .setPiecesForNewGame(false)
+            .setCreateUi(false)
+            .build();
+        game.getSettings().setPlayerWhite(PlayerFactory.getInstance("", Colors.WHITE, PlayerType.COMPUTER));
+        game.getSettings().setPlayerBlack(PlayerFactory.getInstance("", Colors.BLACK, PlayerType.COMPUTER));
+        game.getSettings().getPlayerBlack().setGoDown(true);
+        DataTransferFactory.getImporterInstance(TransferFormat.FEN).importData(fen, game);
+        return game;
+    }
+
+    /**
+     * Creates perft for given generator name and position.
+     */
+    public static Perft create(String generator, String fen) throws ReadGameError
+    {
+        Game game = loadGame(fen);
+        switch (generator)
+        {
+            case GENERATOR_GET_ALL_MOVES:
+                return new ChessboardPerft(game, false);
+            case GENERATOR_BEHAVIORS:
+                return new ChessboardPerft(game, true);
+            default:
+                return new BitboardPerft(game.getChessboard().getBitboardPosition());
+        }
+    }
+
+    public static void main(String[] args) throws ReadGameError
+    {
+        String generator = GENERATOR_BITBOARD;
+        boolean divide = false;
+        boolean suite = false;
+        List<String> arguments = new ArrayList<>();
+        for (String arg : args)
+        {
+            if (arg.startsWith(OPTION_GENERATOR))
+            {
+                generator = arg.substring(OPTION_GENERATOR.length());
+            }
+            else if (OPTION_DIVIDE.equals(arg))
+            {
+                divide = true;
+            }
+            else if (OPTION_SUITE.equals(arg))
+            {
+                suite = true;
+            }
+            else
+            {
+                arguments.add(arg);
+            }
+        }
+        List<String> generators = new ArrayList<>();
+        if (GENERATOR_ALL.equals(generator))
+        {
+            generators.add(GENERATOR_BITBOARD);
+            generators.add(GENERATOR_GET_ALL_MOVES);
+            generators.add(GENERATOR_BEHAVIORS);
+        }
+        else
+        {
+            generators.add(generator);
+        }
+        PrintStream out = System.out;
+        if (suite)
+        {
+            int maxDepth = arguments.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(arguments.get(0));
+            boolean passed = runSuite(generators, maxDepth, out);
+            out.println(passed ? "All counts match." : "Some counts DON'T match!");
+            if (!passed)
+            {
+                System.exit(1);
+            }
+            return;
+        }
+        if (arguments.isEmpty())
+        {
+            out.println("Usage: Perft [--generator=bitboard|getAllMoves|behaviors|all] [--divide] depth [FEN]");
+            out.println("       Perft [--generator=...] --suite [maxDepth]");
+            return;
+        }
+        int depth = Integer.parseInt(arguments.get(0));
+        String fen = 1 < arguments.size()
+            ? String.join(" ", arguments.subList(1, arguments.size()))
+            : PerftPosition.INITIAL.getFen();
+        for (String name : generators)
+        {
+            Perft perft = create(name, fen);
+            if (divide)
+            {
+                printDivide(perft, depth, out);
+            }
+            out.println(perft.run(depth));
+        }
+    }
+
+    /**
+     * Runs all reference positions up to given depth and compares node counts.
+     * @return true if all counts are correct
+     */
+    public static boolean runSuite(List<String> generators, int maxDepth, PrintStream out) throws ReadGameError
+    {
+        boolean passed = true;
+        for (PerftPosition position : PerftPosition.values())
+        {
+            out.println(position + ": " + position.getFen());
+            for (String name : generators)
+            {
+                Perft perft = create(name, position.getFen());
+                for (int depth = 1, max = Math.min(maxDepth, position.getMaxDepth()); depth <= max; depth++)
+                {
+                    Result result = perft.run(depth);
+                    boolean correct = result.getNodes() == position.getExpectedNodes(depth);
+                    passed &= correct;
+                    out.println("  " + result + (correct ? " OK" : " expected " + position.getExpectedNodes(depth)));
+                }
+            }
+        }
+        return passed;
+    }
+
+    private static void printDivide(Perft perft, int depth, PrintStream out)
+    {
+        long total = 0L;
+        for (Map.Entry<String, Long> entry : perft.divide(depth).entrySet())
+        {
+            out.println(entry.getKey() + ": " + entry.getValue());
+            total += entry.getValue();
+        }
+        out.println("Moves: " + perft.divide(1).size() + ", nodes: " + total);
+    }
+
+    /**
+     * Result of single perft run.
+     */
+    public static class Result
+    {
+        private final String generator;
+
+        private final int depth;
+
+        private final long nodes;
+
+        private final long nanos;
+
+        public Result(String generator, int depth, long nodes, long nanos)
+        {
+            this.generator = generator;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.nanos = nanos;
+        }
+
+        public String getGenerator()
+        {
+            return generator;
+        }
+
+        public int getDepth()
+        {
+            return depth;
+        }
+
+        public long getNodes()
+        {
+            return nodes;
+        }
+
+        public long getNanos()
+        {
+            return nanos;
+        }
+
+        public long getNodesPerSecond()
+        {
+            return 0 == nanos ? 0L : nodes * NANOS_IN_SECOND / nanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%-12s depth %d: %d nodes in %d ms (%d nodes/s)",
+                generator, depth, nodes, nanos / 1_000_000L, getNodesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.perft;
+
+/**
+ * Reference positions with well known perft results.
+ * Expected node counts are indexed by depth - 1.
+ */
+public enum PerftPosition
+{
+    INITIAL("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+        20L, 400L, 8902L, 197281L, 4865609L),
+
+    KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        48L, 2039L, 97862L, 4085603L),
+
+    ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        14L, 191L, 2812L, 43238L, 674624L),
+
+    PROMOTIONS("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        6L, 264L, 9467L, 422333L),
+
+    DISCOVERED_CHECKS("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        44L, 1486L, 62379L, 2103487L),
+
+    MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+        46L, 2079L, 89890L, 3894594L);
+
+    private final String fen;
+
+    private final long[] expectedNodes;
+
+    PerftPosition(String fen, long... expectedNodes)
+    {
+        this.fen = fen;
+        this.expectedNodes = expectedNodes;
+    }
+
+    public String getFen()
+    {
+        return fen;
+    }
+
+    /**
+     * @return deepest depth with known node count
+     */
+    public int getMaxDepth()
+    {
+        return expectedNodes.length;
+    }
+
+    public long getExpectedNodes(int depth)
+    {
+        return expectedNodes[depth - 1];
+    }
+}
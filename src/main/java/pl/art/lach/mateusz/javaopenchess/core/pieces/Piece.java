@@ -24,6 +24,11 @@ import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
 import pl.art.lach.mateusz.javaopenchess.core.Colors;
 import pl.art.lach.mateusz.javaopenchess.core.players.Player;
 import pl.art.lach.mateusz.javaopenchess.core.Square;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
 import pl.art.lach.mateusz.javaopenchess.core.pieces.traits.behaviors.Behavior;
 import pl.art.lach.mateusz.javaopenchess.core.helpers.Pieces;
 import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.King;
@@ -133,10 +138,39 @@ public abstract class Piece
     }    
 
     /**
-     * Annotation to superclass Piece changing pawns location
-     * @return  ArrayList with new possition of piece
+     * Annotation to superclass Piece changing pawns location.
+     * Moves are taken from bitboard move generator, behaviors are used only
+     * when piece isn't placed on chessboard's bitboard position. Moves of side
+     * to move come from chessboard's cached game state.
+     * @return  Set with new possition of piece
      */
     public Set<Square> getAllMoves()
+    {
+        if (!isOnBitboardPosition())
+        {
+            return getAllMovesFromBehaviors();
+        }
+        BitboardPosition position = chessboard.getBitboardPosition();
+        if (position.getSideToMove() == BitboardPosition.colorIndex(player.getColor()))
+        {
+            return chessboard.getGameState().getTargetSquares(chessboard, Bitboards.index(square));
+        }
+        MoveList moveList = new MoveList();
+        MoveGenerator.generateLegalFrom(position, Bitboards.index(square), moveList);
+        Set<Square> moves = new HashSet<>();
+        for (int i = 0; i < moveList.size(); i++)
+        {
+            int to = Moves.to(moveList.get(i));
+            moves.add(chessboard.getSquare(Bitboards.pozX(to), Bitboards.pozY(to)));
+        }
+        return moves;
+    }
+
+    /**
+     * Legacy way of collecting moves - asks every behavior for its legal moves.
+     * @return  Set with new possition of piece
+     */
+    public Set<Square> getAllMovesFromBehaviors()
     {
         Set<Square> moves = new HashSet<>();
         behaviors.forEach((behavior) -> {
@@ -145,6 +179,21 @@ public abstract class Piece
         return moves;
     }
 
+    /**
+     * @return true if chessboard's bitboard position has this piece on its square
+     */
+    protected boolean isOnBitboardPosition()
+    {
+        if (null == chessboard || null == square || null == chessboard.getBitboardPosition())
+        {
+            return false;
+        }
+        int pieceCode = BitboardPosition.pieceCode(this);
+        return BitboardPosition.NO_PIECE != pieceCode
+            && chessboard.getSquare(square.getPozX(), square.getPozY()) == square
+            && chessboard.getBitboardPosition().getPiece(Bitboards.index(square)) == pieceCode;
+    }
+
     public Set<Square> getSquaresInRange()
     {
         Set<Square> moves = new HashSet<>();
@@ -26,6 +26,10 @@ import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
 import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
 import pl.art.lach.mateusz.javaopenchess.core.players.Player;
 import pl.art.lach.mateusz.javaopenchess.core.Square;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
 import pl.art.lach.mateusz.javaopenchess.core.pieces.traits.behaviors.implementation.KingBehavior;
 import pl.art.lach.mateusz.javaopenchess.core.moves.Castling;
 import pl.art.lach.mateusz.javaopenchess.core.pieces.KingState;
@@ -50,15 +54,45 @@ public class King extends Piece
      */
     public boolean isChecked()
     {
+        if (isOnBitboardPosition() && isSideToMove())
+        {
+            return chessboard.getGameState().isInCheck();
+        }
         return !isSafe(this.square);
     }
 
     /**
-     * Method to check is the king is checked or stalemated
+     * Method to check is the king is checked or stalemated.
+     * Uses legal move generator to find out if any piece of king's owner can move.
      *
      * @return  state which represents current situation
      */
     public KingState getKingState()
+    {
+        if (!isOnBitboardPosition())
+        {
+            return getKingStateFromBehaviors();
+        }
+        if (isSideToMove())
+        {
+            return chessboard.getGameState().getKingState();
+        }
+        BitboardPosition position = chessboard.getBitboardPosition();
+        int color = BitboardPosition.colorIndex(this.getPlayer().getColor());
+        if (MoveGenerator.hasLegalMove(position, color, new MoveList()))
+        {
+            return KingState.FINE;
+        }
+        return position.isInCheck(color) ? KingState.CHECKMATED : KingState.STEALMATED;
+    }
+
+    private boolean isSideToMove()
+    {
+        return chessboard.getBitboardPosition().getSideToMove()
+            == BitboardPosition.colorIndex(this.getPlayer().getColor());
+    }
+
+    private KingState getKingStateFromBehaviors()
     {
         if (this.getAllMoves().isEmpty())
         {
@@ -116,36 +150,9 @@ public class King extends Piece
      */
     public boolean isSafe(Square kingSquare)
     {
-        Square[][] squares = chessboard.getSquares();
-        for (int i = 0; i < squares.length; i++)
-        {
-            for (int j = 0; j < squares[i].length; j++)
-            {
-                Square pieceSquare = squares[i][j];
-                if (canPieceBeDangerToKing(pieceSquare, kingSquare))
-                {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    private boolean canPieceBeDangerToKing(Square pieceSquare, Square kingSquare)
-    {
-        Piece piece = pieceSquare.getPiece();
-        if (piece != null)
-        {
-            if (piece.getPlayer().getColor() != this.getPlayer().getColor()
-                && piece != this)
-            {
-                if (piece.getSquaresInRange().contains(kingSquare))
-                {
-                    return true;
-                }
-            }
-        }
-        return false;
+        BitboardPosition position = chessboard.getBitboardPosition();
+        int color = BitboardPosition.colorIndex(this.getPlayer().getColor());
+        return position.isSafeForKing(Bitboards.index(kingSquare), color);
     }
 
     /**
@@ -161,24 +168,10 @@ public class King extends Piece
         {
             return false;
         }
-        Piece tmp = futureSquare.piece;
-        futureSquare.piece = currentSquare.piece; // move without redraw
-        currentSquare.piece = null;
-
-        boolean ret;
-        if (futureSquare.getPiece().getClass() == King.class)
-        {
-            ret = isSafe(futureSquare);
-        }
-        else
-        {
-            ret = isSafe();
-        }
-
-        currentSquare.piece = futureSquare.piece;
-        futureSquare.piece = tmp;
-
-        return ret;
+        return chessboard.getBitboardPosition().isKingSafeAfterMove(
+            Bitboards.index(currentSquare),
+            Bitboards.index(futureSquare)
+        );
     }
 
     /**
@@ -0,0 +1,352 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.tablebase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Material of endgame, named like KQvKR. Stronger side comes first in canonical
+ * name and plays white in table, so KRvKQ is probed in KQvKR table with colors swapped.
+ * Index of position is side to move followed by squares of white king, black king,
+ * white pieces and black pieces, 6 bits each.
+ */
+public final class Endgame
+{
+    private static final String SEPARATOR = "v";
+
+    /**
+     * Piece symbols from strongest.
+     */
+    private static final String PIECE_ORDER = "KQRBNP";
+
+    private static final int[] TYPES = {KING, QUEEN, ROOK, BISHOP, KNIGHT, PAWN};
+
+    private static final int SQUARE_BITS = 6;
+
+    private final String name;
+
+    /**
+     * Piece codes in order of index.
+     */
+    private final int[] pieceCodes;
+
+    private Endgame(String name, int[] pieceCodes)
+    {
+        this.name = name;
+        this.pieceCodes = pieceCodes;
+    }
+
+    /**
+     * @param name material like KQvK, any order of sides and pieces
+     * @return endgame of canonical name, eg. KQvKR for KRvKQ
+     * @throws IllegalArgumentException if name isn't valid endgame
+     * of at most Tablebase.MAX_PIECES pieces
+     */
+    public static Endgame of(String name)
+    {
+        String[] sides = split(name);
+        String canonical = canonicalName(sides[0], sides[1]);
+        sides = split(canonical);
+        int[] pieceCodes = new int[sides[0].length() + sides[1].length()];
+        pieceCodes[0] = pieceCode(WHITE, KING);
+        pieceCodes[1] = pieceCode(BLACK, KING);
+        int index = 2;
+        for (int color = WHITE; color <= BLACK; color++)
+        {
+            for (char symbol : sides[color].substring(1).toCharArray())
+            {
+                pieceCodes[index++] = pieceCode(color, TYPES[PIECE_ORDER.indexOf(symbol)]);
+            }
+        }
+        return new Endgame(canonical, pieceCodes);
+    }
+
+    /**
+     * @return name of material of position, white first, eg. KvKQ
+     */
+    public static String nameOf(BitboardPosition position)
+    {
+        return sideName(position, WHITE) + SEPARATOR + sideName(position, BLACK);
+    }
+
+    /**
+     * @return true if stronger side of position is black, so its colors are swapped in table
+     */
+    public static boolean isMirrored(String name)
+    {
+        String[] sides = split(name);
+        return 0 < compareSides(sides[1], sides[0]);
+    }
+
+    private static String sideName(BitboardPosition position, int color)
+    {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < TYPES.length; i++)
+        {
+            int pieces = count(position.getPieces(color, TYPES[i]));
+            for (int j = 0; j < pieces; j++)
+            {
+                result.append(PIECE_ORDER.charAt(i));
+            }
+        }
+        return result.toString();
+    }
+
+    private static String[] split(String name)
+    {
+        String[] sides = name.toUpperCase().split(SEPARATOR.toUpperCase());
+        if (2 != sides.length || Tablebase.MAX_PIECES < sides[0].length() + sides[1].length())
+        {
+            throw new IllegalArgumentException("Not an endgame of at most " + Tablebase.MAX_PIECES + " pieces: " + name);
+        }
+        for (int i = 0; i < sides.length; i++)
+        {
+            sides[i] = sortPieces(sides[i], name);
+        }
+        return sides;
+    }
+
+    private static String sortPieces(String side, String name)
+    {
+        char[] symbols = side.toCharArray();
+        Integer[] order = new Integer[symbols.length];
+        for (int i = 0; i < symbols.length; i++)
+        {
+            order[i] = PIECE_ORDER.indexOf(symbols[i]);
+            if (0 > order[i])
+            {
+                throw new IllegalArgumentException("Unknown piece " + symbols[i] + " in " + name);
+            }
+        }
+        Arrays.sort(order);
+        StringBuilder result = new StringBuilder();
+        for (int pieceIndex : order)
+        {
+            result.append(PIECE_ORDER.charAt(pieceIndex));
+        }
+        if (1 != result.length() - result.toString().replace("K", "").length() || 'K' != result.charAt(0))
+        {
+            throw new IllegalArgumentException("Every side needs one king: " + name);
+        }
+        return result.toString();
+    }
+
+    private static String canonicalName(String white, String black)
+    {
+        return 0 > compareSides(white, black) ? black + SEPARATOR + white : white + SEPARATOR + black;
+    }
+
+    /**
+     * @return positive if first side is stronger: it has more pieces or stronger piece
+     * where pieces sorted from strongest differ
+     */
+    private static int compareSides(String first, String second)
+    {
+        if (first.length() != second.length())
+        {
+            return first.length() - second.length();
+        }
+        for (int i = 0; i < first.length(); i++)
+        {
+            int difference = PIECE_ORDER.indexOf(second.charAt(i)) - PIECE_ORDER.indexOf(first.charAt(i));
+            if (0 != difference)
+            {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return index of position, which must have material of this endgame
+     * @param mirrored true if colors of position are swapped in table
+     */
+    public int index(BitboardPosition position, boolean mirrored)
+    {
+        int sideToMove = position.getSideToMove();
+        int index = mirrored ? opponent(sideToMove) : sideToMove;
+        long used = EMPTY;
+        for (int pieceCode : pieceCodes)
+        {
+            int positionCode = mirrored ? swapColor(pieceCode) : pieceCode;
+            int square = first(position.getPieces(positionCode) & ~used);
+            used |= bit(square);
+            index = (index << SQUARE_BITS) | (mirrored ? flipRank(square) : square);
+        }
+        return index;
+    }
+
+    static int swapColor(int pieceCode)
+    {
+        return pieceCode(opponent(colorOf(pieceCode)), typeOf(pieceCode));
+    }
+
+    static int flipRank(int square)
+    {
+        return square ^ 56;
+    }
+
+    /**
+     * @return square of piece with given number in position of given index
+     */
+    int getSquare(int index, int piece)
+    {
+        return (index >>> (SQUARE_BITS * (pieceCodes.length - 1 - piece))) & (NUMBER_OF_SQUARES - 1);
+    }
+
+    /**
+     * @return side to move in position of given index
+     */
+    int getSideToMove(int index)
+    {
+        return index >>> (SQUARE_BITS * pieceCodes.length);
+    }
+
+    /**
+     * @return index of position with piece of given number moved to square and other side to move
+     */
+    int withMove(int index, int piece, int square)
+    {
+        int shift = SQUARE_BITS * (pieceCodes.length - 1 - piece);
+        int moved = (index & ~((NUMBER_OF_SQUARES - 1) << shift)) | (square << shift);
+        return moved ^ (1 << (SQUARE_BITS * pieceCodes.length));
+    }
+
+    /**
+     * @return endgames reachable by capture or promotion, in no particular order
+     */
+    public List<Endgame> getSubEndgames()
+    {
+        String[] sides = split(name);
+        Set<String> names = new LinkedHashSet<>();
+        for (int color = WHITE; color <= BLACK; color++)
+        {
+            String own = sides[color];
+            String other = sides[opponent(color)];
+            for (String captured : withoutOnePiece(other))
+            {
+                names.add(canonicalName(own, captured));
+            }
+            for (String promoted : withPromotion(own))
+            {
+                names.add(canonicalName(promoted, other));
+                for (String captured : withoutOnePiece(other))
+                {
+                    names.add(canonicalName(promoted, captured));
+                }
+            }
+        }
+        List<Endgame> result = new ArrayList<>();
+        for (String subName : names)
+        {
+            result.add(of(subName));
+        }
+        return result;
+    }
+
+    private static Set<String> withoutOnePiece(String side)
+    {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 1; i < side.length(); i++)
+        {
+            result.add(side.substring(0, i) + side.substring(i + 1));
+        }
+        return result;
+    }
+
+    private static Set<String> withPromotion(String side)
+    {
+        Set<String> result = new LinkedHashSet<>();
+        int pawn = side.indexOf('P');
+        if (0 <= pawn)
+        {
+            String rest = side.substring(0, pawn) + side.substring(pawn + 1);
+            for (char piece : "QRBN".toCharArray())
+            {
+                result.add(sortPieces(rest + piece, side));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return all endgames of given number of pieces, kings included
+     */
+    public static List<Endgame> all(int pieces)
+    {
+        Set<String> names = new LinkedHashSet<>();
+        addAll(names, "K", "K", pieces - 2);
+        List<Endgame> result = new ArrayList<>();
+        for (String endgameName : names)
+        {
+            result.add(of(endgameName));
+        }
+        return result;
+    }
+
+    private static void addAll(Set<String> names, String white, String black, int piecesLeft)
+    {
+        if (0 == piecesLeft)
+        {
+            names.add(canonicalName(sortPieces(white, white), sortPieces(black, black)));
+            return;
+        }
+        for (char piece : PIECE_ORDER.substring(1).toCharArray())
+        {
+            addAll(names, white + piece, black, piecesLeft - 1);
+            addAll(names, white, black + piece, piecesLeft - 1);
+        }
+    }
+
+    /**
+     * @return number of positions in table
+     */
+    public int size()
+    {
+        return 2 << (SQUARE_BITS * pieceCodes.length);
+    }
+
+    /**
+     * @return number of pieces, kings included
+     */
+    public int getPieces()
+    {
+        return pieceCodes.length;
+    }
+
+    public int getPieceCode(int piece)
+    {
+        return pieceCodes[piece];
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import org.apache.log4j.Logger;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Endgame tablebases of up to MAX_PIECES pieces, generated by TablebaseGenerator.
+ * Every table is a file with one byte per position, mapped into memory when
+ * position of its material is probed first time. Probe is single read from mapped file.
+ * Tables don't know castling, en passant and fifty moves rule, positions with
+ * castling rights or possible en passant capture aren't probed.
+ * Tablebase is safe to use by many threads.<br/>
+ * Probe results are coded as: DRAW, win or loss of side to move (see isWin,
+ * isLoss and getDistanceToMate) or NOT_FOUND.
+ */
+public class Tablebase
+{
+    private static final Logger LOG = Logger.getLogger(Tablebase.class);
+
+    /**
+     * Tables used by AI in GUI, if it exists in working directory.
+     */
+    public static final String DEFAULT_DIRECTORY = "tablebases";
+
+    public static final String FILE_EXTENSION = ".jtb";
+
+    public static final int MAX_PIECES = 4;
+
+    public static final int NOT_FOUND = -1;
+
+    public static final int DRAW = 0;
+
+    /**
+     * Value of impossible positions, eg. with side not to move in check.
+     */
+    static final int ILLEGAL = 0xFF;
+
+    /**
+     * Longest distance to mate, in plies, which can be stored.
+     */
+    static final int MAX_DISTANCE = ILLEGAL - 3;
+
+    /**
+     * Number of piece counts of every piece code, used as digits of material key.
+     */
+    private static final int MATERIAL_BASE = MAX_PIECES - 1;
+
+    private static final int MATERIAL_KEYS = (int) Math.pow(MATERIAL_BASE, NUMBER_OF_PIECES);
+
+    private final Path directory;
+
+    /**
+     * Tables by material key, MISSING if there's no file.
+     */
+    private final Table[] tables = new Table[MATERIAL_KEYS];
+
+    private static final Table MISSING = new Table(null, false, null);
+
+    public Tablebase(Path directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * @return tables from DEFAULT_DIRECTORY in working directory, null if there isn't such directory
+     */
+    public static Tablebase openDefault()
+    {
+        Path path = Paths.get(DEFAULT_DIRECTORY);
+        return Files.isDirectory(path) ? new Tablebase(path) : null;
+    }
+
+    /**
+     * @return value of position for side to move, NOT_FOUND if it isn't in tables
+     */
+    public int probe(BitboardPosition position)
+    {
+        if (MAX_PIECES < count(position.getOccupied()) || 0 != position.getCastlingRights()
+            || isEnPassantPossible(position))
+        {
+            return NOT_FOUND;
+        }
+        Table table = getTable(position);
+        if (MISSING == table)
+        {
+            return NOT_FOUND;
+        }
+        int value = Byte.toUnsignedInt(table.values.get(table.endgame.index(position, table.mirrored)));
+        return ILLEGAL == value ? NOT_FOUND : value;
+    }
+
+    /**
+     * @return true if tables of position's material exist
+     */
+    public boolean contains(BitboardPosition position)
+    {
+        return MAX_PIECES >= count(position.getOccupied()) && MISSING != getTable(position);
+    }
+
+    private static boolean isEnPassantPossible(BitboardPosition position)
+    {
+        int square = position.getEnPassantSquare();
+        int sideToMove = position.getSideToMove();
+        return NO_SQUARE != square
+            && EMPTY != (pawnAttacks(opponent(sideToMove), square) & position.getPieces(sideToMove, PAWN));
+    }
+
+    private Table getTable(BitboardPosition position)
+    {
+        int materialKey = 0;
+        for (int pieceCode = 0; pieceCode < NUMBER_OF_PIECES; pieceCode++)
+        {
+            materialKey = materialKey * MATERIAL_BASE + Math.min(MATERIAL_BASE - 1, count(position.getPieces(pieceCode)));
+        }
+        Table table = tables[materialKey];
+        return null == table ? load(materialKey, position) : table;
+    }
+
+    /**
+     * Maps table file, tables are immutable, so they can be read without synchronization.
+     */
+    private synchronized Table load(int materialKey, BitboardPosition position)
+    {
+        Table table = tables[materialKey];
+        if (null != table)
+        {
+            return table;
+        }
+        table = MISSING;
+        String name = Endgame.nameOf(position);
+        Endgame endgame = Endgame.of(name);
+        Path path = getPath(endgame);
+        if (Files.isRegularFile(path))
+        {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                if (endgame.size() != channel.size())
+                {
+                    throw new IOException("Wrong size of table " + path);
+                }
+                table = new Table(endgame, Endgame.isMirrored(name),
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+                LOG.info("Mapped tablebase " + path);
+            }
+            catch (IOException exc)
+            {
+                LOG.warn("Tablebase can't be used: " + path, exc);
+            }
+        }
+        tables[materialKey] = table;
+        return table;
+    }
+
+    /**
+     * @return path of table file of endgame
+     */
+    public Path getPath(Endgame endgame)
+    {
+        return directory.resolve(endgame.getName() + FILE_EXTENSION);
+    }
+
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    public static boolean isWin(int value)
+    {
+        return DRAW != value && NOT_FOUND != value && 1 == getDistanceToMate(value) % 2;
+    }
+
+    public static boolean isLoss(int value)
+    {
+        return DRAW != value && NOT_FOUND != value && 0 == getDistanceToMate(value) % 2;
+    }
+
+    /**
+     * @return number of plies to mate if position is won or lost, 0 for side already mated
+     */
+    public static int getDistanceToMate(int value)
+    {
+        return value - 1;
+    }
+
+    /**
+     * @return value of position won or lost in given number of plies
+     */
+    static int valueOf(int distanceToMate)
+    {
+        return distanceToMate + 1;
+    }
+
+    /**
+     * @return probe result in words, eg. to show in analysis
+     */
+    public static String toString(int value)
+    {
+        if (NOT_FOUND == value)
+        {
+            return "not found";
+        }
+        if (DRAW == value)
+        {
+            return "draw";
+        }
+        int moves = (getDistanceToMate(value) + 1) / 2;
+        return isWin(value) ? "mate in " + moves : "mated in " + moves;
+    }
+
+    private static final class Table
+    {
+        private final Endgame endgame;
+
+        private final boolean mirrored;
+
+        /**
+         * Read only by absolute get, which doesn't change buffer's position.
+         */
+        private final ByteBuffer values;
+
+        private Table(Endgame endgame, boolean mirrored, ByteBuffer values)
+        {
+            this.endgame = endgame;
+            this.mirrored = mirrored;
+            this.values = values;
+        }
+    }
+}
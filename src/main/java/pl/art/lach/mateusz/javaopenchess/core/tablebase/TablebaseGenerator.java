@@ -0,0 +1,400 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.tablebase;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Generates tablebases by retrograde analysis. First every position is checked once:
+ * mates, stalemates and results of captures and promotions (taken from smaller tables,
+ * which are generated before) are found, and moves staying in table are counted.
+ * Then, ply by ply, predecessors of positions lost in n plies are won in n + 1,
+ * and predecessors of positions won in n plies lose one more move. Position
+ * with all moves losing is lost in n + 1. Positions not reached are draws.<br/>
+ * Usage: TablebaseGenerator directory --all|endgame...<br/>
+ * eg. TablebaseGenerator tablebases KQvK KRvK
+ */
+public class TablebaseGenerator
+{
+    private static final String OPTION_ALL = "--all";
+
+    /**
+     * Value of positions not known yet, replaced by DRAW at the end.
+     */
+    private static final byte UNKNOWN = (byte) (Tablebase.ILLEGAL - 1);
+
+    private static final int NANOS_IN_MILLISECOND = 1_000_000;
+
+    private final Path directory;
+
+    private final PrintStream out;
+
+    /**
+     * @param directory where tables are written
+     * @param out progress messages, null for none
+     */
+    public TablebaseGenerator(Path directory, PrintStream out)
+    {
+        this.directory = directory;
+        this.out = out;
+    }
+
+    /**
+     * Generates table of endgame and all smaller tables it needs, which don't exist yet.
+     */
+    public void generate(Endgame endgame) throws IOException
+    {
+        Tablebase tablebase = new Tablebase(directory);
+        if (Files.isRegularFile(tablebase.getPath(endgame)))
+        {
+            return;
+        }
+        for (Endgame subEndgame : endgame.getSubEndgames())
+        {
+            generate(subEndgame);
+        }
+        long start = System.nanoTime();
+        byte[] values = solve(endgame, new Tablebase(directory));
+        write(tablebase.getPath(endgame), values);
+        if (null != out)
+        {
+            out.println(String.format("%s: %s, %d ms", endgame, new Statistics(values),
+                (System.nanoTime() - start) / NANOS_IN_MILLISECOND));
+        }
+    }
+
+    /**
+     * @param tablebase smaller tables, to probe positions after captures and promotions
+     * @return values of all positions of endgame
+     */
+    static byte[] solve(Endgame endgame, Tablebase tablebase)
+    {
+        int size = endgame.size();
+        byte[] values = new byte[size];
+        byte[] movesLeft = new byte[size];
+        byte[] losingDistances = new byte[size];
+        int maxDistance = initialize(endgame, tablebase, values, movesLeft, losingDistances);
+        int[] squares = new int[endgame.getPieces()];
+        for (int distance = 1; distance <= maxDistance + 1 && distance <= Tablebase.MAX_DISTANCE; distance++)
+        {
+            byte previous = (byte) Tablebase.valueOf(distance - 1);
+            boolean previousIsLoss = 0 == (distance - 1) % 2;
+            for (int index = 0; index < size; index++)
+            {
+                if (previous != values[index])
+                {
+                    continue;
+                }
+                for (int i = 0; i < squares.length; i++)
+                {
+                    squares[i] = endgame.getSquare(index, i);
+                }
+                int lastMover = opponent(endgame.getSideToMove(index));
+                long occupied = EMPTY;
+                for (int square : squares)
+                {
+                    occupied |= bit(square);
+                }
+                for (int piece = 0; piece < squares.length; piece++)
+                {
+                    int pieceCode = endgame.getPieceCode(piece);
+                    if (lastMover != colorOf(pieceCode))
+                    {
+                        continue;
+                    }
+                    for (long from = getUnmoveSquares(pieceCode, squares[piece], occupied); EMPTY != from;
+                        from &= from - 1)
+                    {
+                        int predecessor = endgame.withMove(index, piece, first(from));
+                        int value = Byte.toUnsignedInt(values[predecessor]);
+                        if (previousIsLoss)
+                        {
+                            if (UNKNOWN == values[predecessor]
+                                || (Tablebase.isWin(value) && distance < Tablebase.getDistanceToMate(value)))
+                            {
+                                values[predecessor] = (byte) Tablebase.valueOf(distance);
+                                maxDistance = Math.max(maxDistance, distance);
+                            }
+                        }
+                        else if (UNKNOWN == values[predecessor] && 0 == --movesLeft[predecessor])
+                        {
+                            int lossDistance = Math.max(distance, Byte.toUnsignedInt(losingDistances[predecessor]));
+                            values[predecessor] = (byte) Tablebase.valueOf(lossDistance);
+                            maxDistance = Math.max(maxDistance, lossDistance);
+                        }
+                    }
+                }
+            }
+        }
+        for (int index = 0; index < size; index++)
+        {
+            if (UNKNOWN == values[index])
+            {
+                values[index] = Tablebase.DRAW;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Finds illegal positions, mates, stalemates and results of moves leaving table.
+     * Counts moves staying in table of other positions.
+     * @return longest distance to mate found
+     */
+    private static int initialize(Endgame endgame, Tablebase tablebase, byte[] values, byte[] movesLeft,
+        byte[] losingDistances)
+    {
+        BitboardPosition position = new BitboardPosition();
+        MoveList moves = new MoveList();
+        int maxDistance = 0;
+        for (int index = 0; index < values.length; index++)
+        {
+            values[index] = (byte) Tablebase.ILLEGAL;
+            if (!setUp(endgame, index, position))
+            {
+                continue;
+            }
+            int sideToMove = position.getSideToMove();
+            if (position.isInCheck(opponent(sideToMove)))
+            {
+                continue;
+            }
+            moves.clear();
+            MoveGenerator.generateLegal(position, moves);
+            if (moves.isEmpty())
+            {
+                values[index] = position.isInCheck(sideToMove) ? (byte) Tablebase.valueOf(0) : Tablebase.DRAW;
+                continue;
+            }
+            int winningDistance = Integer.MAX_VALUE;
+            int losingDistance = 0;
+            int notLosingMoves = 0;
+            for (int i = 0; i < moves.size(); i++)
+            {
+                int move = moves.get(i);
+                if (!Moves.isCapture(move) && !Moves.isPromotion(move))
+                {
+                    notLosingMoves++;
+                    continue;
+                }
+                long undo = position.makeMove(move);
+                int value = tablebase.probe(position);
+                position.unmakeMove(move, undo);
+                if (Tablebase.NOT_FOUND == value)
+                {
+                    throw new IllegalStateException("Missing table of position after "
+                        + Moves.toString(move) + " in " + endgame);
+                }
+                if (Tablebase.isLoss(value))
+                {
+                    winningDistance = Math.min(winningDistance, Tablebase.getDistanceToMate(value) + 1);
+                }
+                else if (Tablebase.isWin(value))
+                {
+                    losingDistance = Math.max(losingDistance, Tablebase.getDistanceToMate(value) + 1);
+                }
+                else
+                {
+                    notLosingMoves++;
+                }
+            }
+            if (Integer.MAX_VALUE != winningDistance)
+            {
+                values[index] = (byte) Tablebase.valueOf(winningDistance);
+                maxDistance = Math.max(maxDistance, winningDistance);
+            }
+            else if (0 == notLosingMoves)
+            {
+                values[index] = (byte) Tablebase.valueOf(losingDistance);
+                maxDistance = Math.max(maxDistance, losingDistance);
+            }
+            else
+            {
+                values[index] = UNKNOWN;
+                movesLeft[index] = (byte) notLosingMoves;
+                losingDistances[index] = (byte) losingDistance;
+            }
+        }
+        return maxDistance;
+    }
+
+    /**
+     * Puts pieces of position with given index on empty board.
+     * @return false if pieces stand on the same square or pawn stands on first or last rank
+     */
+    static boolean setUp(Endgame endgame, int index, BitboardPosition position)
+    {
+        position.clear();
+        for (int piece = 0; piece < endgame.getPieces(); piece++)
+        {
+            int square = endgame.getSquare(index, piece);
+            int pieceCode = endgame.getPieceCode(piece);
+            if (NO_PIECE != position.getPiece(square)
+                || (PAWN == typeOf(pieceCode) && EMPTY != (bit(square) & (RANK_1 | RANK_8))))
+            {
+                return false;
+            }
+            position.put(square, pieceCode);
+        }
+        position.setSideToMove(endgame.getSideToMove(index));
+        return true;
+    }
+
+    /**
+     * @return squares from which piece could move to given square, without capture
+     */
+    private static long getUnmoveSquares(int pieceCode, int square, long occupied)
+    {
+        switch (typeOf(pieceCode))
+        {
+            case PAWN:
+                return getPawnUnmoveSquares(colorOf(pieceCode), square, occupied);
+            case KNIGHT:
+                return knightAttacks(square) & ~occupied;
+            case BISHOP:
+                return bishopAttacks(square, occupied) & ~occupied;
+            case ROOK:
+                return rookAttacks(square, occupied) & ~occupied;
+            case QUEEN:
+                return queenAttacks(square, occupied) & ~occupied;
+            default:
+                return kingAttacks(square) & ~occupied;
+        }
+    }
+
+    private static long getPawnUnmoveSquares(int color, int square, long occupied)
+    {
+        int direction = WHITE == color ? -8 : 8;
+        int relativeRank = WHITE == color ? rank(square) : 7 - rank(square);
+        long result = EMPTY;
+        if (2 <= relativeRank && !contains(occupied, square + direction))
+        {
+            result |= bit(square + direction);
+            if (3 == relativeRank && !contains(occupied, square + 2 * direction))
+            {
+                result |= bit(square + 2 * direction);
+            }
+        }
+        return result;
+    }
+
+    private static void write(Path path, byte[] values) throws IOException
+    {
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(values);
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporary, path);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        PrintStream out = System.out;
+        if (2 > args.length)
+        {
+            out.println("Usage: TablebaseGenerator directory --all|endgame...");
+            out.println("       eg. TablebaseGenerator tablebases KQvK KRvK");
+            return;
+        }
+        List<Endgame> endgames = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            if (OPTION_ALL.equals(args[i]))
+            {
+                for (int pieces = 2; pieces <= Tablebase.MAX_PIECES; pieces++)
+                {
+                    endgames.addAll(Endgame.all(pieces));
+                }
+            }
+            else
+            {
+                endgames.add(Endgame.of(args[i]));
+            }
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(Paths.get(args[0]), out);
+        for (Endgame endgame : endgames)
+        {
+            generator.generate(endgame);
+        }
+    }
+
+    /**
+     * Numbers of won, lost and drawn positions of table.
+     */
+    static class Statistics
+    {
+        private int wins;
+
+        private int losses;
+
+        private int draws;
+
+        private int longestMate;
+
+        Statistics(byte[] values)
+        {
+            for (byte value : values)
+            {
+                int unsigned = Byte.toUnsignedInt(value);
+                if (Tablebase.ILLEGAL == unsigned)
+                {
+                    continue;
+                }
+                if (Tablebase.isWin(unsigned))
+                {
+                    wins++;
+                    longestMate = Math.max(longestMate, Tablebase.getDistanceToMate(unsigned));
+                }
+                else if (Tablebase.isLoss(unsigned))
+                {
+                    losses++;
+                }
+                else
+                {
+                    draws++;
+                }
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d won, %d lost, %d drawn, longest mate %d plies", wins, losses, draws, longestMate);
+        }
+    }
+}
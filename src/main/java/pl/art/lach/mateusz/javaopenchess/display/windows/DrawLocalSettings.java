@@ -211,7 +211,7 @@ public class DrawLocalSettings extends JPanel implements ActionListener, TextLis
                 activeGame.setAi(ai);
                 if (shouldDoComputerMove(activeGame))
                 {
-                    activeGame.doComputerMove();
+                    activeGame.startComputerMove();
                 }
             }
         }
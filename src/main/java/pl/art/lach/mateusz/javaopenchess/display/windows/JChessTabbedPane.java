@@ -80,6 +80,20 @@ public class JChessTabbedPane extends JTabbedPane
         this.updateAddIconRect();
     }
 
+    /**
+     * Closed game stops computer move search running for it.
+     */
+    @Override
+    public void removeTabAt(int index)
+    {
+        Component component = this.getComponentAt(index);
+        if (component instanceof Game)
+        {
+            ((Game) component).close();
+        }
+        super.removeTabAt(index);
+    }
+
     @Override
     public void mouseReleased(MouseEvent e){}
 
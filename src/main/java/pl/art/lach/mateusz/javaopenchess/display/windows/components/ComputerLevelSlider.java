@@ -11,7 +11,7 @@ public class ComputerLevelSlider extends JSlider
         super();
         setEnabled(true);
         setValue(1);
-        setMaximum(2);
+        setMaximum(5);
         setMinimum(1);
         setPaintTicks(true);
         setPaintLabels(true);
@@ -16,8 +16,6 @@
  */
 package pl.art.lach.mateusz.javaopenchess.network;
 
-import java.util.Objects;
-
 /**
  *
  * @author Mateusz Slawomir Lach (matlak, msl)
@@ -126,6 +124,7 @@ public class Move
     @Override
     public String toString()
     {
-        return Objects.toString(this);
+        return "Move{" + "fromX=" + fromX + ", fromY=" + fromY + ", toX=" + toX
+            + ", toY=" + toY + ", promoted=" + promoted + '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,275 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai.Level3;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.moves.MovesHistoryListener;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.King;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Rook;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Make/unmake of int moves on chessboard: squares follow bitboard position,
+ * everything is restored by unmake and listeners are notified.
+ */
+public class ChessboardTest
+{
+    @Test
+    public void makeAndUnmakeKeepSquaresInSync() throws ReadGameError
+    {
+        for (PerftPosition perftPosition : PerftPosition.values())
+        {
+            Chessboard chessboard = Perft.loadGame(perftPosition.getFen()).getChessboard();
+            checkTree(chessboard, 2);
+        }
+    }
+
+    private static void checkTree(Chessboard chessboard, int depth)
+    {
+        if (0 == depth)
+        {
+            return;
+        }
+        BitboardPosition position = chessboard.getBitboardPosition();
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        Piece[] before = snapshot(chessboard);
+        long key = position.getZobristKey();
+        for (int i = 0; i < moves.size(); i++)
+        {
+            int move = moves.get(i);
+            chessboard.makeMove(move);
+            assertInSync(chessboard, Moves.toString(move));
+            checkTree(chessboard, depth - 1);
+            assertEquals(move, chessboard.unmakeMove());
+            assertEquals(key, position.getZobristKey());
+            assertArrayEquals(Moves.toString(move), before, snapshot(chessboard));
+        }
+    }
+
+    @Test
+    public void castlingMovesRookAndIsTakenBack() throws ReadGameError
+    {
+        Chessboard chessboard = Perft.loadGame(PerftPosition.KIWIPETE.getFen()).getChessboard();
+        King king = (King) chessboard.getSquare(4, 7).getPiece();
+        Rook rook = (Rook) chessboard.getSquare(7, 7).getPiece();
+        chessboard.makeMove(move(chessboard, "e1g1"));
+        assertSame(king, chessboard.getSquare(6, 7).getPiece());
+        assertSame(rook, chessboard.getSquare(5, 7).getPiece());
+        assertTrue(king.getWasMotioned());
+        assertTrue(rook.getWasMotioned());
+        chessboard.unmakeMove();
+        assertSame(rook, chessboard.getSquare(7, 7).getPiece());
+        assertFalse(king.getWasMotioned());
+        assertFalse(rook.getWasMotioned());
+        int rights = chessboard.getBitboardPosition().getCastlingRights();
+        chessboard.refreshCastlingRights();
+        assertEquals(rights, chessboard.getBitboardPosition().getCastlingRights());
+    }
+
+    @Test
+    public void castlingRightsAreRestoredWhenRookCaptureIsTakenBack() throws ReadGameError
+    {
+        Chessboard chessboard = Perft.loadGame("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1").getChessboard();
+        BitboardPosition position = chessboard.getBitboardPosition();
+        chessboard.makeMove(move(chessboard, "h1h8"));
+        assertEquals(BitboardPosition.CASTLE_WHITE_QUEEN | BitboardPosition.CASTLE_BLACK_QUEEN,
+            position.getCastlingRights());
+        chessboard.unmakeMove();
+        assertEquals(BitboardPosition.CASTLE_ALL, position.getCastlingRights());
+        chessboard.move(7, 7, 7, 0);
+        assertEquals(BitboardPosition.CASTLE_WHITE_QUEEN | BitboardPosition.CASTLE_BLACK_QUEEN,
+            position.getCastlingRights());
+        chessboard.undo();
+        assertEquals(BitboardPosition.CASTLE_ALL, position.getCastlingRights());
+    }
+
+    @Test
+    public void enPassantPawnIsRestored() throws ReadGameError
+    {
+        Chessboard chessboard = Perft.loadGame("4k3/8/8/8/5p2/8/4P3/4K3 w - - 0 1").getChessboard();
+        chessboard.makeMove(move(chessboard, "e2e4"));
+        Piece pushed = chessboard.getSquare(4, 4).getPiece();
+        assertSame(pushed, chessboard.getTwoSquareMovedPawn());
+        chessboard.makeMove(move(chessboard, "f4e3"));
+        assertNull(chessboard.getSquare(4, 4).getPiece());
+        assertNull(chessboard.getTwoSquareMovedPawn());
+        chessboard.unmakeMove();
+        assertSame(pushed, chessboard.getSquare(4, 4).getPiece());
+        assertSame(pushed, chessboard.getTwoSquareMovedPawn());
+    }
+
+    @Test
+    public void promotedPieceIsReusedOnReplay() throws ReadGameError
+    {
+        Chessboard chessboard = Perft.loadGame("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1").getChessboard();
+        int promotion = move(chessboard, "b7b8q");
+        chessboard.makeMove(promotion);
+        Piece queen = chessboard.getSquare(1, 0).getPiece();
+        assertEquals("Queen", queen.getName());
+        chessboard.unmakeMove();
+        assertEquals("Pawn", chessboard.getSquare(1, 1).getPiece().getName());
+        chessboard.makeMove(promotion);
+        assertSame(queen, chessboard.getSquare(1, 0).getPiece());
+    }
+
+    @Test
+    public void listenersAreNotified() throws ReadGameError
+    {
+        Game game = Perft.loadGame(PerftPosition.INITIAL.getFen());
+        Chessboard chessboard = game.getChessboard();
+        List<String> events = new ArrayList<>();
+        chessboard.addChessboardListener(new ChessboardListener()
+        {
+            @Override
+            public void moveMade(Chessboard board, int move)
+            {
+                events.add("+" + Moves.toString(move));
+            }
+
+            @Override
+            public void moveUnmade(Chessboard board, int move)
+            {
+                events.add("-" + Moves.toString(move));
+            }
+        });
+        chessboard.addChessboardListener(new MovesHistoryListener(game.getMoves()));
+        chessboard.makeMove(move(chessboard, "e2e4"));
+        chessboard.makeMove(move(chessboard, "d7d5"));
+        assertEquals(2, game.getMoves().getMoveBackStack().size());
+        assertEquals(2, game.getMoves().getMoves().size());
+        chessboard.unmakeMove();
+        assertEquals(1, game.getMoves().getMoveBackStack().size());
+        assertEquals("[+e2e4, +d7d5, -d7d5]", events.toString());
+    }
+
+    @Test
+    public void knightShuffleIsThreefoldRepetition() throws ReadGameError
+    {
+        Chessboard chessboard = Perft.loadGame(PerftPosition.INITIAL.getFen()).getChessboard();
+        String[] shuffle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (int i = 0; i < 2 * shuffle.length; i++)
+        {
+            assertFalse(chessboard.isThreefoldRepetition());
+            chessboard.makeMove(move(chessboard, shuffle[i % shuffle.length]));
+        }
+        assertTrue(chessboard.isThreefoldRepetition());
+        chessboard.unmakeMove();
+        assertFalse(chessboard.isThreefoldRepetition());
+    }
+
+    @Test
+    public void repetitionIsDetectedAfterMovesOfGame() throws ReadGameError
+    {
+        Game game = Perft.loadGame(PerftPosition.INITIAL.getFen());
+        Chessboard chessboard = game.getChessboard();
+        int[][] shuffle = {{1, 7, 2, 5}, {1, 0, 2, 2}, {2, 5, 1, 7}, {2, 2, 1, 0}};
+        for (int i = 0; i < 2 * shuffle.length; i++)
+        {
+            int[] move = shuffle[i % shuffle.length];
+            chessboard.move(move[0], move[1], move[2], move[3]);
+            game.switchActivePlayer();
+        }
+        assertEquals(8, chessboard.getHalfCounter());
+        assertTrue(chessboard.isThreefoldRepetition());
+        chessboard.undo();
+        assertEquals(7, chessboard.getHalfCounter());
+        assertFalse(chessboard.isThreefoldRepetition());
+    }
+
+    @Test
+    public void castlingAdvancesHalfMoveClockOnce() throws ReadGameError
+    {
+        Chessboard chessboard = Perft.loadGame("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 5 10").getChessboard();
+        chessboard.move(4, 7, 6, 7);
+        assertEquals(6, chessboard.getHalfCounter());
+        assertEquals(6, chessboard.getBitboardPosition().getHalfMoveClock());
+        assertEquals(BitboardPosition.BLACK, chessboard.getBitboardPosition().getSideToMove());
+        chessboard.move(4, 0, 2, 0);
+        assertEquals(7, chessboard.getHalfCounter());
+        assertEquals(BitboardPosition.WHITE, chessboard.getBitboardPosition().getSideToMove());
+        chessboard.undo();
+        assertEquals(6, chessboard.getHalfCounter());
+        assertInSync(chessboard, "after undo of castling");
+    }
+
+    @Test
+    public void computerMoveEndsGameByFiftyMoveRule() throws ReadGameError
+    {
+        Game game = Perft.loadGame("4k3/8/8/8/8/8/8/R3K3 w - - 99 80");
+        game.setAi(new Level3(0L, 2, 1, 1));
+        game.doComputerMove();
+        assertTrue(game.isIsEndOfGame());
+        assertEquals("Fifty-move rule! Draw!", game.getEndOfGameMessage());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unmakeWithoutMoveFails() throws ReadGameError
+    {
+        Perft.loadGame(PerftPosition.INITIAL.getFen()).getChessboard().unmakeMove();
+    }
+
+    private static void assertInSync(Chessboard chessboard, String message)
+    {
+        BitboardPosition position = chessboard.getBitboardPosition();
+        for (int square = 0; square < Bitboards.NUMBER_OF_SQUARES; square++)
+        {
+            Square boardSquare = chessboard.getSquare(Bitboards.pozX(square), Bitboards.pozY(square));
+            Piece piece = boardSquare.getPiece();
+            assertEquals(message, position.getPiece(square), BitboardPosition.pieceCode(piece));
+            if (null != piece)
+            {
+                assertSame(message, boardSquare, piece.getSquare());
+            }
+        }
+    }
+
+    private static Piece[] snapshot(Chessboard chessboard)
+    {
+        Piece[] pieces = new Piece[Bitboards.NUMBER_OF_SQUARES];
+        for (int square = 0; square < pieces.length; square++)
+        {
+            pieces[square] = chessboard.getSquare(Bitboards.pozX(square), Bitboards.pozY(square)).getPiece();
+        }
+        return pieces;
+    }
+
+    private static int move(Chessboard chessboard, String name)
+    {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(chessboard.getBitboardPosition(), moves);
+        for (int i = 0; i < moves.size(); i++)
+        {
+            if (name.equals(Moves.toString(moves.get(i))))
+            {
+                return moves.get(i);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Bitboards;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.KingState;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
+
+import static org.junit.Assert.*;
+
+/**
+ * Game state cached by chessboard: computed once per position and dropped
+ * when position changes.
+ */
+public class GameStateTest
+{
+    @Test
+    public void stateIsComputedOncePerPosition() throws ReadGameError
+    {
+        Chessboard chessboard = Perft.loadGame(PerftPosition.KIWIPETE.getFen()).getChessboard();
+        GameState state = chessboard.getGameState();
+        assertSame(state, chessboard.getGameState());
+        chessboard.getKingWhite().getKingState();
+        chessboard.getSquare(4, 7).getPiece().getAllMoves();
+        assertSame(state, chessboard.getGameState());
+        assertEquals(48, state.getLegalMoveCount());
+
+        int move = state.getLegalMove(0);
+        chessboard.makeMove(move);
+        GameState afterMove = chessboard.getGameState();
+        assertNotSame(state, afterMove);
+        assertNotEquals(state.getSideToMove(), afterMove.getSideToMove());
+        chessboard.unmakeMove();
+        assertNotSame(afterMove, chessboard.getGameState());
+        assertEquals(state.getKey(), chessboard.getGameState().getKey());
+    }
+
+    @Test
+    public void stateFollowsMoveAndUndo() throws ReadGameError
+    {
+        Game game = Perft.loadGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        Chessboard chessboard = game.getChessboard();
+        assertEquals(KingState.FINE, chessboard.getKingBlack().getKingState());
+        chessboard.move(0, 7, 0, 0);
+        game.switchActivePlayer();
+        GameState mated = chessboard.getGameState();
+        assertTrue(mated.isCheckmate());
+        assertTrue(chessboard.getKingBlack().isChecked());
+        assertEquals(KingState.CHECKMATED, chessboard.getKingBlack().getKingState());
+        assertEquals(0, mated.getLegalMoveCount());
+        assertTrue(chessboard.undo());
+        game.switchActivePlayer();
+        assertFalse(chessboard.getGameState().isCheckmate());
+        assertFalse(chessboard.getGameState().isInCheck());
+    }
+
+    @Test
+    public void recognizesStalemate() throws ReadGameError
+    {
+        GameState state = Perft.loadGame("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1").getChessboard().getGameState();
+        assertTrue(state.isStalemate());
+        assertFalse(state.isInCheck());
+    }
+
+    @Test
+    public void pieceMovesComeFromState() throws ReadGameError
+    {
+        Chessboard chessboard = Perft.loadGame(PerftPosition.MIDDLEGAME.getFen()).getChessboard();
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(chessboard.getBitboardPosition(), moves);
+        for (int i = 0; i < moves.size(); i++)
+        {
+            assertTrue(chessboard.getGameState().isLegal(moves.get(i)));
+        }
+        for (int square = 0; square < Bitboards.NUMBER_OF_SQUARES; square++)
+        {
+            Piece piece = chessboard.getSquare(Bitboards.pozX(square), Bitboards.pozY(square)).getPiece();
+            if (null != piece && Colors.WHITE == piece.getPlayer().getColor())
+            {
+                assertEquals(String.valueOf(square), targets(chessboard, moves, square), piece.getAllMoves());
+            }
+        }
+    }
+
+    private static Set<Square> targets(Chessboard chessboard, MoveList moves, int from)
+    {
+        Set<Square> squares = new HashSet<>();
+        for (int i = 0; i < moves.size(); i++)
+        {
+            if (Moves.from(moves.get(i)) == from)
+            {
+                int to = Moves.to(moves.get(i));
+                squares.add(chessboard.getSquare(Bitboards.pozX(to), Bitboards.pozY(to)));
+            }
+        }
+        return squares;
+    }
+}
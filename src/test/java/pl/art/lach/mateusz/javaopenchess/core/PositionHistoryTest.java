@@ -0,0 +1,79 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Repetitions in ring buffer of position keys, limited by half move clock.
+ */
+public class PositionHistoryTest
+{
+    @Test
+    public void repetitionsAreCountedSinceIrreversibleMove()
+    {
+        PositionHistory history = new PositionHistory();
+        // positions A B C D A B C D, current one is A again
+        for (int i = 0; i < 8; i++)
+        {
+            history.push(i % 4, i);
+        }
+        assertEquals(2, history.countRepetitions(0L, 8));
+        assertTrue(history.isThreefoldRepetition(0L, 8));
+        // irreversible move was played 5 plies ago
+        assertEquals(1, history.countRepetitions(0L, 5));
+        assertFalse(history.isThreefoldRepetition(0L, 5));
+        // position with other side to move isn't a repetition
+        assertEquals(0, history.countRepetitions(3L, 8));
+    }
+
+    @Test
+    public void popRestoresHalfMoveClock()
+    {
+        PositionHistory history = new PositionHistory();
+        history.push(10L, 3);
+        history.push(11L, 4);
+        assertEquals(4, history.getLastHalfMoveClock());
+        assertTrue(history.pop());
+        assertEquals(3, history.getLastHalfMoveClock());
+        assertTrue(history.pop());
+        assertFalse(history.pop());
+        assertEquals(-1, history.getLastHalfMoveClock());
+    }
+
+    @Test
+    public void oldKeysAreOverwritten()
+    {
+        PositionHistory history = new PositionHistory();
+        for (int i = 0; i < PositionHistory.CAPACITY + 10; i++)
+        {
+            history.push(i, i);
+        }
+        assertEquals(PositionHistory.CAPACITY, history.size());
+        long[] keys = history.getKeys(3);
+        assertArrayEquals(new long[] {PositionHistory.CAPACITY + 7, PositionHistory.CAPACITY + 8,
+            PositionHistory.CAPACITY + 9}, keys);
+        assertEquals(PositionHistory.CAPACITY, history.getKeys(1000).length);
+    }
+
+    @Test
+    public void fiftyMoveRule()
+    {
+        assertFalse(PositionHistory.isFiftyMoveRule(99));
+        assertTrue(PositionHistory.isFiftyMoveRule(100));
+    }
+}
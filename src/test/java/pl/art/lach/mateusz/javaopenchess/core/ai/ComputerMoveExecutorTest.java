@@ -0,0 +1,109 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai.Level3;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.moves.Move;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Computer move is searched in background, cancelled search never delivers its move.
+ */
+public class ComputerMoveExecutorTest
+{
+    private static final long TIMEOUT_SECONDS = 30L;
+
+    @Test
+    public void deliversMoveAndProgress() throws ReadGameError, InterruptedException
+    {
+        Game game = Perft.loadGame(PerftPosition.INITIAL.getFen());
+        ComputerMoveExecutor executor = new ComputerMoveExecutor(Runnable::run);
+        BlockingQueue<Move> moves = new ArrayBlockingQueue<>(1);
+        List<Integer> depths = new CopyOnWriteArrayList<>();
+        executor.submit(new Level3(0L, 3, 1, 1), game, moves::add, (depth, score, nodes) -> depths.add(depth),
+            null);
+        Move move = moves.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(move);
+        assertSame(game.getChessboard().getSquare(move.getFrom().getPozX(), move.getFrom().getPozY()),
+            move.getFrom());
+        assertFalse(executor.isSearching());
+        assertEquals(3, depths.size());
+        assertEquals(Integer.valueOf(3), depths.get(2));
+        executor.shutdown();
+    }
+
+    @Test
+    public void cancelStopsSearchAndDropsMove() throws ReadGameError, InterruptedException
+    {
+        Game game = Perft.loadGame(PerftPosition.KIWIPETE.getFen());
+        ComputerMoveExecutor executor = new ComputerMoveExecutor(Runnable::run);
+        BlockingQueue<Move> moves = new ArrayBlockingQueue<>(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(new Level3(0L, Level3.DEFAULT_MAX_DEPTH, 1, 2), game, moves::add,
+            (depth, score, nodes) -> started.countDown(), null);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(executor.isSearching());
+        assertTrue(executor.cancel());
+        assertFalse(executor.isSearching());
+        assertNull(moves.poll(200L, TimeUnit.MILLISECONDS));
+        assertFalse(executor.cancel());
+        executor.shutdown();
+    }
+
+    @Test
+    public void newSubmitDropsPreviousSearch() throws ReadGameError, InterruptedException
+    {
+        Game game = Perft.loadGame(PerftPosition.INITIAL.getFen());
+        ComputerMoveExecutor executor = new ComputerMoveExecutor(Runnable::run);
+        BlockingQueue<Move> first = new ArrayBlockingQueue<>(1);
+        BlockingQueue<Move> second = new ArrayBlockingQueue<>(1);
+        executor.submit(new Level3(0L, Level3.DEFAULT_MAX_DEPTH, 1, 1), game, first::add, null, null);
+        executor.submit(new Level3(0L, 2, 1, 1), game, second::add, null, null);
+        assertNotNull(second.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(first.isEmpty());
+        executor.shutdown();
+    }
+
+    @Test
+    public void failureOfSearchIsDelivered() throws ReadGameError, InterruptedException
+    {
+        Game game = Perft.loadGame(PerftPosition.INITIAL.getFen());
+        ComputerMoveExecutor executor = new ComputerMoveExecutor(Runnable::run);
+        BlockingQueue<Move> moves = new ArrayBlockingQueue<>(1);
+        BlockingQueue<RuntimeException> failures = new ArrayBlockingQueue<>(1);
+        AI failingAi = (searchedGame, lastMove) -> {
+            throw new IllegalStateException("no move");
+        };
+        executor.submit(failingAi, game, moves::add, null, failures::add);
+        RuntimeException failure = failures.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(failure);
+        assertEquals("no move", failure.getMessage());
+        assertTrue(moves.isEmpty());
+        assertFalse(executor.isSearching());
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.analysis;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai.Level3;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.PrincipalVariation;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.Search;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Multi-PV lines, streaming of iterations and cancelling of analysis.
+ */
+public class AnalyzerTest
+{
+    private static final String MATE_IN_ONE = "6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1";
+
+    private static Analyzer createAnalyzer()
+    {
+        return new Analyzer(new Level3(0L, Level3.DEFAULT_MAX_DEPTH, 1, 1));
+    }
+
+    @Test
+    public void linesStartWithDifferentMoves() throws ReadGameError, InterruptedException
+    {
+        BitboardPosition position = Analyzer.positionOf(PerftPosition.INITIAL.getFen());
+        Search.Result result = createAnalyzer().analyze(position, 4, 4, Analyzer.INFINITE);
+        assertEquals(4, result.getLines().size());
+        Set<Integer> firstMoves = new HashSet<>();
+        for (PrincipalVariation line : result.getLines())
+        {
+            assertEquals(4, line.getDepth());
+            firstMoves.add(line.getFirstMove());
+            assertLegal(position, line);
+        }
+        assertEquals(4, firstMoves.size());
+        assertEquals(result.getBestMove(), result.getLines().get(0).getFirstMove());
+    }
+
+    @Test
+    public void mateIsTheBestLine() throws ReadGameError, InterruptedException
+    {
+        Search.Result result = createAnalyzer().analyze(Analyzer.positionOf(MATE_IN_ONE), 2, 3, Analyzer.INFINITE);
+        PrincipalVariation best = result.getLines().get(0);
+        assertEquals("a1a8", Moves.toString(best.getFirstMove()));
+        assertEquals(1, best.getMateIn());
+        assertEquals(1, best.getLength());
+        assertFalse(result.getLines().get(1).isMate());
+    }
+
+    @Test
+    public void linesAreLimitedByLegalMoves() throws ReadGameError, InterruptedException
+    {
+        BitboardPosition position = Analyzer.positionOf("7k/8/8/8/8/8/8/K7 w - - 0 1");
+        Search.Result result = createAnalyzer().analyze(position, 10, 2, Analyzer.INFINITE);
+        assertEquals(3, result.getLines().size());
+    }
+
+    @Test
+    public void iterationsAreStreamed() throws ReadGameError, InterruptedException
+    {
+        List<Search.Result> iterations = new ArrayList<>();
+        AnalysisTask task = createAnalyzer().start(Analyzer.positionOf(PerftPosition.KIWIPETE.getFen()),
+            2, 4, Analyzer.INFINITE, iterations::add);
+        Search.Result result = task.await();
+        assertTrue(task.isDone());
+        assertEquals(4, iterations.size());
+        for (int i = 0; i < iterations.size(); i++)
+        {
+            assertEquals(i + 1, iterations.get(i).getDepth());
+            assertEquals(2, iterations.get(i).getLines().size());
+        }
+        assertSame(task.getLastResult(), iterations.get(3));
+        assertEquals(4, result.getDepth());
+    }
+
+    @Test
+    public void infiniteAnalysisIsCancelled() throws ReadGameError, InterruptedException
+    {
+        CountDownLatch secondIteration = new CountDownLatch(2);
+        AnalysisTask task = createAnalyzer().startInfinite(Analyzer.positionOf(PerftPosition.MIDDLEGAME.getFen()),
+            3, result -> secondIteration.countDown());
+        assertTrue(secondIteration.await(30, TimeUnit.SECONDS));
+        assertFalse(task.isDone());
+        task.cancel();
+        Search.Result result = task.await(10, TimeUnit.SECONDS);
+        assertNotNull(result);
+        assertTrue(2 <= result.getDepth());
+        assertEquals(3, result.getLines().size());
+    }
+
+    @Test
+    public void nextAnalysisStopsPrevious() throws ReadGameError, InterruptedException
+    {
+        Analyzer analyzer = createAnalyzer();
+        AnalysisTask first = analyzer.startInfinite(Analyzer.positionOf(PerftPosition.INITIAL.getFen()), 1, null);
+        AnalysisTask second = analyzer.start(Analyzer.positionOf(MATE_IN_ONE), 1, 2, Analyzer.INFINITE, null);
+        assertTrue(first.isDone());
+        assertEquals("a1a8", Moves.toString(second.await().getBestMove()));
+    }
+
+    private static void assertLegal(BitboardPosition position, PrincipalVariation line)
+    {
+        BitboardPosition copy = position.copy();
+        for (int i = 0; i < line.getLength(); i++)
+        {
+            MoveList moves = new MoveList();
+            MoveGenerator.generateLegal(copy, moves);
+            assertTrue(line.toString(), moves.contains(line.getMove(i)));
+            copy.makeMove(line.getMove(i));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.evaluation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Storing, probing and statistics of pawn hash table.
+ */
+public class PawnHashTableTest
+{
+    @Test
+    public void sizeIsPowerOfTwo()
+    {
+        int size = new PawnHashTable(1).getSize();
+        assertEquals(0, size & (size - 1));
+        assertEquals(2 * size, new PawnHashTable(2).getSize());
+    }
+
+    @Test
+    public void storedEntryIsFound()
+    {
+        PawnHashTable table = new PawnHashTable(1);
+        long key = 0x123456789ABCDEFL;
+        assertEquals(PawnHashTable.NOT_FOUND, table.probe(key));
+        table.store(key, 15, -20, 0x1000L);
+        int index = table.probe(key);
+        assertNotEquals(PawnHashTable.NOT_FOUND, index);
+        assertEquals(15, table.getMiddlegameScore(index));
+        assertEquals(-20, table.getEndgameScore(index));
+        assertEquals(0x1000L, table.getPassedPawns(index));
+        assertEquals(2, table.getProbes());
+        assertEquals(1, table.getHits());
+        assertEquals(0.5, table.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void entryIsReplacedByKeyWithSameIndex()
+    {
+        PawnHashTable table = new PawnHashTable(1);
+        long key = 0x123456789ABCDEFL;
+        long other = key + table.getSize();
+        table.store(key, 1, 1, 0L);
+        table.store(other, 2, 2, 0L);
+        assertEquals(PawnHashTable.NOT_FOUND, table.probe(key));
+        assertEquals(2, table.getMiddlegameScore(table.probe(other)));
+        table.clear();
+        assertEquals(PawnHashTable.NOT_FOUND, table.probe(other));
+        assertEquals(1, table.getProbes());
+    }
+}
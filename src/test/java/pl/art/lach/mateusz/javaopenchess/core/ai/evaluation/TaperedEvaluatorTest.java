@@ -0,0 +1,126 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.evaluation;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.PieceSquareTables;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+import static org.junit.Assert.*;
+
+/**
+ * Evaluation must be symmetric for both colors and incremental scores
+ * must match scores of freshly set up position.
+ */
+public class TaperedEvaluatorTest
+{
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private final Evaluator evaluator = new TaperedEvaluator();
+
+    @Test
+    public void initialPositionIsEqual() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertEquals(0, evaluator.evaluate(position));
+        assertEquals(PieceSquareTables.MAX_PHASE, position.getPhase());
+    }
+
+    @Test
+    public void mirroredPositionHasSameScore() throws ReadGameError
+    {
+        BitboardPosition white = BitboardPosition.fromFen(KIWIPETE);
+        BitboardPosition black = BitboardPosition.fromFen("r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1");
+        assertEquals(evaluator.evaluate(white), evaluator.evaluate(black));
+        assertNotEquals(0, evaluator.evaluate(white));
+    }
+
+    @Test
+    public void extraMaterialIsGood() throws ReadGameError
+    {
+        assertTrue(800 < evaluator.evaluate(BitboardPosition.fromFen("4k3/8/8/8/8/8/8/3QK3 w - - 0 1")));
+        assertTrue(-800 > evaluator.evaluate(BitboardPosition.fromFen("4k3/8/8/8/8/8/8/3QK3 b - - 0 1")));
+    }
+
+    @Test
+    public void passedPawnIsBetterThanBlockedOne() throws ReadGameError
+    {
+        int passed = evaluator.evaluate(BitboardPosition.fromFen("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1"));
+        int blocked = evaluator.evaluate(BitboardPosition.fromFen("4k3/3p4/8/3P4/8/8/8/4K3 w - - 0 1"));
+        assertTrue(passed > blocked + 100);
+    }
+
+    @Test
+    public void pawnShieldProtectsKing() throws ReadGameError
+    {
+        int sheltered = evaluator.evaluate(BitboardPosition.fromFen("r1bq1rk1/ppp2ppp/2n5/8/8/2N5/PPP2PPP/R1BQ1RK1 w - - 0 1"));
+        int exposed = evaluator.evaluate(BitboardPosition.fromFen("r1bq1rk1/ppp2ppp/2n5/8/5PPP/2N5/PPP5/R1BQ1RK1 w - - 0 1"));
+        assertTrue(sheltered > exposed);
+    }
+
+    @Test
+    public void incrementalScoresFollowMakeAndUnmake() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen(KIWIPETE);
+        int middlegame = position.getMiddlegameScore();
+        int endgame = position.getEndgameScore();
+        int phase = position.getPhase();
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        for (int i = 0; i < moves.size(); i++)
+        {
+            int move = moves.get(i);
+            long undo = position.makeMove(move);
+            BitboardPosition fresh = new BitboardPosition();
+            for (int square = 0; square < 64; square++)
+            {
+                fresh.set(square, position.getPiece(square));
+            }
+            assertEquals(fresh.getMiddlegameScore(), position.getMiddlegameScore());
+            assertEquals(fresh.getEndgameScore(), position.getEndgameScore());
+            assertEquals(fresh.getPhase(), position.getPhase());
+            assertEquals(fresh.getPawnKey(), position.getPawnKey());
+            position.unmakeMove(move, undo);
+        }
+        assertEquals(middlegame, position.getMiddlegameScore());
+        assertEquals(endgame, position.getEndgameScore());
+        assertEquals(phase, position.getPhase());
+    }
+
+    @Test
+    public void cachedPawnStructureGivesSameScore() throws ReadGameError
+    {
+        TaperedEvaluator cached = new TaperedEvaluator(new PawnHashTable(1));
+        BitboardPosition position = BitboardPosition.fromFen(KIWIPETE);
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (int i = 0; i < moves.size(); i++)
+            {
+                int move = moves.get(i);
+                long undo = position.makeMove(move);
+                assertEquals(new TaperedEvaluator().evaluate(position), cached.evaluate(position));
+                position.unmakeMove(move, undo);
+            }
+        }
+        PawnHashTable pawnHashTable = cached.getPawnHashTable();
+        assertEquals(2L * moves.size(), pawnHashTable.getProbes());
+        assertTrue(pawnHashTable.getHits() >= moves.size());
+    }
+}
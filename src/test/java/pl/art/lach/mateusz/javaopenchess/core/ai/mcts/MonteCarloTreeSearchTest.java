@@ -0,0 +1,77 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.mcts;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Moves chosen by Monte Carlo tree search, playout budget and reuse of tree.
+ */
+public class MonteCarloTreeSearchTest
+{
+    private static final int POOL_SIZE = 1 << 16;
+
+    @Test
+    public void mateInOneIsFound() throws ReadGameError
+    {
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(1, POOL_SIZE);
+        MonteCarloTreeSearch.Result result = search.search(BitboardPosition.fromFen("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"), 3000);
+        assertEquals("d1d8", Moves.toString(result.getBestMove()));
+        assertTrue(0.9 < result.getWinRate());
+    }
+
+    @Test
+    public void hangingQueenIsTaken() throws ReadGameError
+    {
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(1, POOL_SIZE);
+        MonteCarloTreeSearch.Result result = search.search(BitboardPosition.fromFen("4k3/8/8/8/8/8/3q4/R3K3 w - - 0 1"), 3000);
+        assertEquals("e1d2", Moves.toString(result.getBestMove()));
+    }
+
+    @Test
+    public void budgetIsSharedByThreads() throws ReadGameError
+    {
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(3, POOL_SIZE);
+        MonteCarloTreeSearch.Result result = search.search(BitboardPosition.fromFen(PerftPosition.INITIAL.getFen()), 1000);
+        assertEquals(1000, result.getPlayouts());
+        assertNotEquals(Moves.NO_MOVE, result.getBestMove());
+    }
+
+    @Test
+    public void treeIsReusedAfterMoveAndReply() throws ReadGameError
+    {
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(1, POOL_SIZE);
+        BitboardPosition position = BitboardPosition.fromFen(PerftPosition.INITIAL.getFen());
+        MonteCarloTreeSearch.Result first = search.search(position, 2000);
+        assertEquals(0, first.getReusedVisits());
+        position.makeMove(first.getBestMove());
+        position.makeMove(search.search(position, 500).getBestMove());
+        assertTrue(0 < search.search(position, 500).getReusedVisits());
+    }
+
+    @Test
+    public void noMoveInMate() throws ReadGameError
+    {
+        MonteCarloTreeSearch search = new MonteCarloTreeSearch(1, POOL_SIZE);
+        MonteCarloTreeSearch.Result result = search.search(BitboardPosition.fromFen("3R2k1/5ppp/8/8/8/8/5PPP/6K1 b - - 0 1"), 100);
+        assertEquals(Moves.NO_MOVE, result.getBestMove());
+    }
+}
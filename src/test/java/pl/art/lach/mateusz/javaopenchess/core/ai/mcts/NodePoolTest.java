@@ -0,0 +1,91 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.mcts;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Allocation, expansion and copying of nodes.
+ */
+public class NodePoolTest
+{
+    @Test
+    public void blocksAreAllocatedUntilPoolIsFull()
+    {
+        NodePool pool = new NodePool(10);
+        assertEquals(0, pool.allocate(1));
+        assertEquals(1, pool.allocate(6));
+        assertEquals(NodePool.NO_NODE, pool.allocate(4));
+        assertTrue(pool.isFull());
+        pool.clear();
+        assertEquals(0, pool.allocate(10));
+        assertEquals(NodePool.NOT_EXPANDED, pool.getChildCount(9));
+        assertEquals(0, pool.getVisits(9));
+    }
+
+    @Test
+    public void onlyOneThreadExpandsNode()
+    {
+        NodePool pool = new NodePool(10);
+        int root = pool.allocate(1);
+        assertTrue(pool.startExpanding(root));
+        assertFalse(pool.startExpanding(root));
+        assertEquals(NodePool.EXPANDING, pool.getChildCount(root));
+        int firstChild = pool.allocate(3);
+        pool.finishExpanding(root, firstChild, 3);
+        assertEquals(3, pool.getChildCount(root));
+        assertEquals(firstChild, pool.getFirstChild(root));
+    }
+
+    @Test
+    public void nodeStaysLeafIfChildrenDontFit()
+    {
+        NodePool pool = new NodePool(2);
+        int root = pool.allocate(1);
+        assertTrue(pool.startExpanding(root));
+        pool.finishExpanding(root, pool.allocate(3), 3);
+        assertEquals(NodePool.NOT_EXPANDED, pool.getChildCount(root));
+    }
+
+    @Test
+    public void subtreeIsCopiedWithStatistics()
+    {
+        NodePool pool = new NodePool(10);
+        int root = pool.allocate(1);
+        pool.startExpanding(root);
+        int firstChild = pool.allocate(2);
+        pool.finishExpanding(root, firstChild, 2);
+        int child = firstChild + 1;
+        pool.setMove(child, 123);
+        pool.addVisit(child);
+        pool.addScore(child, 700L);
+        pool.startExpanding(child);
+        int grandchild = pool.allocate(1);
+        pool.finishExpanding(child, grandchild, 1);
+        pool.setMove(grandchild, 456);
+
+        NodePool target = new NodePool(10);
+        int copy = target.copySubtree(pool, child);
+        assertEquals(2, target.size());
+        assertEquals(123, target.getMove(copy));
+        assertEquals(1, target.getVisits(copy));
+        assertEquals(700L, target.getScore(copy));
+        assertEquals(1, target.getChildCount(copy));
+        assertEquals(456, target.getMove(target.getFirstChild(copy)));
+        assertEquals(NodePool.NOT_EXPANDED, target.getChildCount(target.getFirstChild(copy)));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.ordering;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+import static org.junit.Assert.*;
+import static pl.art.lach.mateusz.javaopenchess.core.ai.ordering.StaticExchangeTest.move;
+
+/**
+ * Hash move, good captures, killers, history and losing captures come in this order.
+ */
+public class MoveOrderingTest
+{
+    /**
+     * White can take undefended rook, defended pawn with queen or knight,
+     * or play quiet moves.
+     */
+    private static final String FEN = "4k3/8/4p3/3p4/r7/2N5/8/3QK3 w - - 0 1";
+
+    @Test
+    public void capturesByMvvLvaAndLosingCapturesLast() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen(FEN);
+        MoveList moves = legalMoves(position);
+        new MoveOrdering(1).sort(position, moves, Moves.NO_MOVE, 0);
+        assertEquals("c3a4", Moves.toString(moves.get(0)));
+        assertEquals("d1a4", Moves.toString(moves.get(1)));
+        assertEquals("d1d5", Moves.toString(moves.get(moves.size() - 1)));
+    }
+
+    @Test
+    public void hashMoveFirstThenKiller() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen(FEN);
+        MoveOrdering moveOrdering = new MoveOrdering(2);
+        int hashMove = move(position, "e1f2");
+        int killer = move(position, "d1h5");
+        MoveList moves = legalMoves(position);
+        moveOrdering.sort(position, moves, Moves.NO_MOVE, 1);
+        moveOrdering.cutoff(position, moves, indexOf(moves, killer), 1, 3);
+        assertTrue(moveOrdering.isKiller(killer, 1));
+        assertFalse(moveOrdering.isKiller(killer, 0));
+        assertTrue(0 < moveOrdering.getHistory(position.getSideToMove(), killer));
+
+        moves = legalMoves(position);
+        moveOrdering.sort(position, moves, hashMove, 1);
+        assertEquals(hashMove, moves.get(0));
+        assertEquals("c3a4", Moves.toString(moves.get(1)));
+        assertEquals("d1a4", Moves.toString(moves.get(2)));
+        assertEquals(killer, moves.get(3));
+    }
+
+    @Test
+    public void historyOrdersQuietMoves() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen(FEN);
+        MoveOrdering moveOrdering = new MoveOrdering(2);
+        int quiet = move(position, "e1d2");
+        MoveList moves = legalMoves(position);
+        moveOrdering.sort(position, moves, Moves.NO_MOVE, 0);
+        moveOrdering.cutoff(position, moves, indexOf(moves, quiet), 0, 5);
+        moves = legalMoves(position);
+        moveOrdering.sort(position, moves, Moves.NO_MOVE, 1);
+        assertEquals(quiet, moves.get(2));
+        moveOrdering.clear();
+        assertEquals(0, moveOrdering.getHistory(position.getSideToMove(), quiet));
+    }
+
+    private static MoveList legalMoves(BitboardPosition position)
+    {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        return moves;
+    }
+
+    private static int indexOf(MoveList moves, int move)
+    {
+        for (int i = 0; i < moves.size(); i++)
+        {
+            if (moves.get(i) == move)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.ordering;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exchanges on single square, including x-ray attackers and king.
+ */
+public class StaticExchangeTest
+{
+    private final StaticExchange staticExchange = new StaticExchange();
+
+    @Test
+    public void undefendedPawnIsWon() throws ReadGameError
+    {
+        assertSee(100, "4k3/8/8/3p4/4P3/8/8/4K3 w - - 0 1", "e4d5");
+    }
+
+    @Test
+    public void pawnForPawn() throws ReadGameError
+    {
+        assertSee(0, "4k3/8/4p3/3p4/4P3/8/8/4K3 w - - 0 1", "e4d5");
+    }
+
+    @Test
+    public void queenForDefendedPawnLoses() throws ReadGameError
+    {
+        assertSee(100 - 900, "4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1", "d1d5");
+        BitboardPosition position = BitboardPosition.fromFen("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1");
+        assertFalse(staticExchange.isGood(position, move(position, "d1d5")));
+    }
+
+    @Test
+    public void rookBehindRookTakesPart() throws ReadGameError
+    {
+        assertSee(100, "3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1", "d2d5");
+    }
+
+    @Test
+    public void kingDoesNotCaptureDefendedPiece() throws ReadGameError
+    {
+        assertSee(100, "8/8/4k3/3p4/8/8/8/3RK2Q w - - 0 1", "h1d5");
+    }
+
+    private void assertSee(int expected, String fen, String move) throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen(fen);
+        assertEquals(expected, staticExchange.evaluate(position, move(position, move)));
+    }
+
+    static int move(BitboardPosition position, String name)
+    {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        for (int i = 0; i < moves.size(); i++)
+        {
+            if (name.equals(Moves.toString(moves.get(i))))
+            {
+                return moves.get(i);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lazy SMP search must give the same answers as single search and leave no threads.
+ */
+public class ParallelSearchTest
+{
+    @Test
+    public void oneThreadGivesSameResultAsSearch() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen(PerftPosition.MIDDLEGAME.getFen());
+        Search.Result single = new Search(position, new TranspositionTable(1)).search(4, 0L);
+        Search.Result parallel = new ParallelSearch(position, new TranspositionTable(1), 1).search(4, 0L);
+        assertEquals(single.getBestMove(), parallel.getBestMove());
+        assertEquals(single.getScore(), parallel.getScore());
+        assertEquals(single.getNodes(), parallel.getNodes());
+    }
+
+    @Test
+    public void helpersFindMate() throws ReadGameError
+    {
+        Search.Result result = new ParallelSearch(BitboardPosition.fromFen("k7/8/2K5/8/8/8/8/6R1 w - - 0 1"),
+            new TranspositionTable(1), 4).search(6, 0L);
+        assertTrue(result.isMate());
+        assertEquals(Search.MATE - 3, result.getScore());
+    }
+
+    @Test
+    public void helperThreadsEndWithSearch() throws ReadGameError
+    {
+        ParallelSearch search = new ParallelSearch(BitboardPosition.fromFen(PerftPosition.KIWIPETE.getFen()),
+            new TranspositionTable(1), 4);
+        Search.Result result = search.search(Search.MAX_PLY - 1, 200L);
+        assertNotEquals(Moves.NO_MOVE, result.getBestMove());
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            assertFalse(thread.getName().startsWith("search-helper-"));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai.Level3;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pondering search goes on when expected move is played and is dropped otherwise.
+ */
+public class PondererTest
+{
+    private static final int DEPTH = 4;
+
+    @Test
+    public void expectedMoveContinuesPondering() throws ReadGameError
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        BitboardPosition position = BitboardPosition.fromFen(PerftPosition.MIDDLEGAME.getFen());
+        int move = new Search(position, table).search(DEPTH, 0L).getBestMove();
+        Ponderer ponderer = new Ponderer(table, 1);
+        assertTrue(ponderer.start(position, move, Search.MAX_PLY - 1));
+        int predicted = ponderer.getPredictedMove();
+        BitboardPosition played = position.copy();
+        played.makeMove(move);
+        assertTrue(isLegal(played, predicted));
+        played.makeMove(predicted);
+
+        Search.Result result = ponderer.finish(played, TimeManager.fixed(100L), null);
+        assertNotNull(result);
+        assertTrue(isLegal(played, result.getBestMove()));
+        assertEquals(1L, ponderer.getHits());
+        assertFalse(ponderer.isPondering());
+    }
+
+    @Test
+    public void otherMoveDropsPondering() throws ReadGameError
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        BitboardPosition position = BitboardPosition.fromFen(PerftPosition.MIDDLEGAME.getFen());
+        int move = new Search(position, table).search(DEPTH, 0L).getBestMove();
+        Ponderer ponderer = new Ponderer(table, 1);
+        assertTrue(ponderer.start(position, move, Search.MAX_PLY - 1));
+        BitboardPosition played = position.copy();
+        played.makeMove(move);
+        MoveList replies = new MoveList();
+        MoveGenerator.generateLegal(played, replies);
+        int other = replies.get(0) != ponderer.getPredictedMove() ? replies.get(0) : replies.get(1);
+        played.makeMove(other);
+
+        assertNull(ponderer.finish(played, TimeManager.fixed(100L), null));
+        assertEquals(1L, ponderer.getMisses());
+        assertFalse(ponderer.isPondering());
+    }
+
+    @Test
+    public void levelPondersAfterMoveUntilStopped() throws ReadGameError
+    {
+        Game game = Perft.loadGame(PerftPosition.INITIAL.getFen());
+        Level3 ai = new Level3(100L, Search.MAX_PLY - 1, 1, 1, true);
+        assertNotNull(ai.getMove(game, null));
+        assertTrue(ai.isPondering());
+        ai.stopPondering();
+        assertFalse(ai.isPondering());
+        assertEquals(Moves.NO_MOVE, ai.getPonderer().getPredictedMove());
+    }
+
+    private static boolean isLegal(BitboardPosition position, int move)
+    {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        return moves.contains(move);
+    }
+}
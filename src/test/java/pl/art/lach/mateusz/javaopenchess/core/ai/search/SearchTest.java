@@ -0,0 +1,191 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import java.util.EnumSet;
+import java.util.Set;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.ai.AIFactory;
+import pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai.Level3;
+import pl.art.lach.mateusz.javaopenchess.core.ai.joc_ai.Level4;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.moves.Move;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.implementation.Queen;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks alpha-beta search on simple tactical positions.
+ */
+public class SearchTest
+{
+    private static final int DEPTH = 4;
+
+    @Test
+    public void findsBackRankMate() throws ReadGameError
+    {
+        Search.Result result = search("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", DEPTH);
+        assertEquals("a1a8", Moves.toString(result.getBestMove()));
+        assertTrue(result.isMate());
+        assertTrue(0 < result.getScore());
+    }
+
+    @Test
+    public void findsMateInTwo() throws ReadGameError
+    {
+        Search.Result result = search("k7/8/2K5/8/8/8/8/6R1 w - - 0 1", DEPTH);
+        assertTrue(result.isMate());
+        assertEquals(Search.MATE - 3, result.getScore());
+    }
+
+    @Test
+    public void capturesHangingQueen() throws ReadGameError
+    {
+        Search.Result result = search("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", DEPTH);
+        assertEquals("d2d5", Moves.toString(result.getBestMove()));
+    }
+
+    @Test
+    public void doesNotTakeDefendedPawnWithQueen() throws ReadGameError
+    {
+        Search.Result result = search("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1", 2);
+        assertNotEquals("d1d5", Moves.toString(result.getBestMove()));
+    }
+
+    @Test
+    public void returnsNoMoveWhenMated() throws ReadGameError
+    {
+        Search.Result result = search("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1", DEPTH);
+        assertEquals(Moves.NO_MOVE, result.getBestMove());
+        assertEquals(-Search.MATE, result.getScore());
+    }
+
+    @Test
+    public void searchDoesNotChangeChessboard() throws ReadGameError
+    {
+        Game game = Perft.loadGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        BitboardPosition position = game.getChessboard().getBitboardPosition();
+        long key = position.getZobristKey();
+        new Search(position).search(3, 0L);
+        assertEquals(key, position.getZobristKey());
+    }
+
+    @Test
+    public void secondSearchReusesTranspositionTable() throws ReadGameError
+    {
+        BitboardPosition position = Perft.loadGame(PerftPosition.MIDDLEGAME.getFen())
+            .getChessboard().getBitboardPosition();
+        TranspositionTable table = new TranspositionTable(1);
+        Search.Result first = new Search(position, table).search(DEPTH, 0L);
+        Search.Result second = new Search(position, table).search(DEPTH, 0L);
+        assertEquals(first.getBestMove(), second.getBestMove());
+        assertTrue(second.getNodes() < first.getNodes());
+        assertTrue(0 < table.getHits());
+    }
+
+    @Test
+    public void level3PromotesToQueen() throws ReadGameError
+    {
+        Game game = Perft.loadGame("8/4P3/8/8/8/2k5/8/K7 w - - 0 1");
+        assertTrue(AIFactory.getAI(3) instanceof Level3);
+        Move move = new Level3(0L, DEPTH).getMove(game, null);
+        assertEquals("e7", move.getFrom().getAlgebraicNotation());
+        assertEquals("e8", move.getTo().getAlgebraicNotation());
+        assertTrue(move.getPromotedPiece() instanceof Queen);
+    }
+
+    @Test
+    public void selectiveSearchFindsTactics() throws ReadGameError
+    {
+        Set<SearchFeature> all = EnumSet.allOf(SearchFeature.class);
+        assertEquals("a1a8", Moves.toString(search("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", DEPTH, all).getBestMove()));
+        assertEquals(Search.MATE - 3, search("k7/8/2K5/8/8/8/8/6R1 w - - 0 1", DEPTH, all).getScore());
+        assertEquals("d2d5", Moves.toString(search("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", DEPTH, all).getBestMove()));
+    }
+
+    @Test
+    public void everyFeatureReducesTree() throws ReadGameError
+    {
+        String fen = PerftPosition.MIDDLEGAME.getFen();
+        long fullWidth = search(fen, DEPTH + 1, EnumSet.noneOf(SearchFeature.class)).getNodes();
+        for (SearchFeature feature : SearchFeature.values())
+        {
+            assertTrue(feature.name(), search(fen, DEPTH + 1, EnumSet.of(feature)).getNodes() < fullWidth);
+        }
+        assertTrue(search(fen, DEPTH + 1, EnumSet.allOf(SearchFeature.class)).getNodes() * 4 < fullWidth);
+    }
+
+    @Test
+    public void level4UsesAllFeatures() throws ReadGameError
+    {
+        Level4 level4 = (Level4) AIFactory.getAI(4);
+        assertEquals(EnumSet.allOf(SearchFeature.class), level4.getFeatures());
+        assertTrue(((Level3) AIFactory.getAI(3)).getFeatures().isEmpty());
+        Game game = Perft.loadGame("8/4P3/8/8/8/2k5/8/K7 w - - 0 1");
+        Move move = new Level4(0L, DEPTH + 2, EnumSet.allOf(SearchFeature.class)).getMove(game, null);
+        assertEquals("e8", move.getTo().getAlgebraicNotation());
+        assertTrue(move.getPromotedPiece() instanceof Queen);
+        level4.stopPondering();
+    }
+
+    @Test
+    public void repetitionIsScoredAsDraw() throws ReadGameError
+    {
+        String fen = "6k1/5ppp/8/8/8/1q6/r4PPP/6K1 w - - 10 30";
+        BitboardPosition position = Perft.loadGame(fen).getChessboard().getBitboardPosition();
+        assertTrue(search(fen, DEPTH).getScore() < -300);
+        BitboardPosition afterMove = position.copy();
+        afterMove.makeMove(move(position, "g1h1"));
+        Search search = new Search(position);
+        // king move would repeat position played 4 plies before it
+        search.setHistory(new long[] {afterMove.getZobristKey(), 1L, 2L});
+        Search.Result result = search.search(DEPTH, 0L);
+        assertEquals("g1h1", Moves.toString(result.getBestMove()));
+        assertEquals(Search.DRAW, result.getScore());
+    }
+
+    private static int move(BitboardPosition position, String name)
+    {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        for (int i = 0; i < moves.size(); i++)
+        {
+            if (name.equals(Moves.toString(moves.get(i))))
+            {
+                return moves.get(i);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static Search.Result search(String fen, int depth) throws ReadGameError
+    {
+        return search(fen, depth, EnumSet.noneOf(SearchFeature.class));
+    }
+
+    private static Search.Result search(String fen, int depth, Set<SearchFeature> features) throws ReadGameError
+    {
+        Search search = new Search(Perft.loadGame(fen).getChessboard().getBitboardPosition());
+        search.setFeatures(features);
+        return search.search(depth, 0L);
+    }
+}
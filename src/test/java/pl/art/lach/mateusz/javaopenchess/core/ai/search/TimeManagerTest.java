@@ -0,0 +1,85 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time for move is shared from clock, it's never more than time left.
+ */
+public class TimeManagerTest
+{
+    private static final long NANOS_IN_MILLISECOND = 1_000_000L;
+
+    @Test
+    public void fixedTimeIsUsedWhole()
+    {
+        TimeManager timeManager = TimeManager.fixed(1000L);
+        assertEquals(1000L, timeManager.getMaximumTime());
+        assertTrue(timeManager.canStartIteration(999L));
+        assertEquals(Long.MAX_VALUE, TimeManager.fixed(0L).getMaximumTime());
+    }
+
+    @Test
+    public void clockTimeIsSharedBetweenMoves()
+    {
+        long remaining = 300_000L;
+        TimeManager opening = TimeManager.fromClock(remaining, 0L, 0);
+        TimeManager endgame = TimeManager.fromClock(remaining, 0L, 80);
+        assertTrue(opening.getOptimumTime() < endgame.getOptimumTime());
+        assertTrue(opening.getOptimumTime() <= opening.getMaximumTime());
+        assertTrue(endgame.getMaximumTime() < remaining - TimeManager.SAFETY_MARGIN);
+        assertFalse(opening.canStartIteration(opening.getOptimumTime()));
+    }
+
+    @Test
+    public void unstableBestMoveExtendsTimeUpToMaximum()
+    {
+        TimeManager timeManager = TimeManager.fromClock(60_000L, 0L, 10);
+        long optimum = timeManager.getOptimumTime();
+        timeManager.bestMoveChanged();
+        assertTrue(timeManager.getOptimumTime() > optimum);
+        for (int i = 0; i < 20; i++)
+        {
+            timeManager.bestMoveChanged();
+        }
+        assertEquals(timeManager.getMaximumTime(), timeManager.getOptimumTime());
+    }
+
+    @Test
+    public void almostNoTimeLeftGivesMinimalTime()
+    {
+        TimeManager timeManager = TimeManager.fromClock(1000L, 0L, 30);
+        assertEquals(TimeManager.MIN_MOVE_TIME, timeManager.getMaximumTime());
+    }
+
+    @Test
+    public void searchEndsWithinMaximumTime() throws ReadGameError
+    {
+        TimeManager timeManager = TimeManager.fromClock(10_000L, 0L, 0);
+        Search search = new Search(Perft.loadGame(PerftPosition.KIWIPETE.getFen())
+            .getChessboard().getBitboardPosition(), new TranspositionTable(1));
+        Search.Result result = search.search(Search.MAX_PLY - 1, timeManager);
+        assertNotEquals(Moves.NO_MOVE, result.getBestMove());
+        assertTrue(0 < result.getDepth());
+        assertTrue(result.getNanos() / NANOS_IN_MILLISECOND < timeManager.getMaximumTime() + 100L);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.ai.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+
+import static org.junit.Assert.*;
+import static pl.art.lach.mateusz.javaopenchess.core.ai.search.TranspositionTable.*;
+
+/**
+ * Packing, replacement and lock-free consistency of transposition table.
+ */
+public class TranspositionTableTest
+{
+    private static final long KEY = 0x1234_5678_9ABC_DEF0L;
+
+    /**
+     * Has the same index as KEY in any table smaller than 2^32 entries.
+     */
+    private static final long OTHER_KEY = KEY ^ 0x7777_0000_0000_0000L;
+
+    @Test
+    public void sizeIsPowerOfTwo()
+    {
+        assertEquals(1 << 16, new TranspositionTable(1).getSize());
+        assertEquals(1 << 17, new TranspositionTable(2).getSize());
+        assertEquals(1 << 17, new TranspositionTable(3).getSize());
+    }
+
+    @Test
+    public void storedEntryIsUnpacked()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Moves.create(12, 28, Moves.FLAG_DOUBLE_PUSH);
+        table.store(KEY, move, -1234, 17, BOUND_LOWER);
+        long entry = table.probe(KEY);
+        assertEquals(move, getMove(entry));
+        assertEquals(-1234, getScore(entry));
+        assertEquals(17, getDepth(entry));
+        assertEquals(BOUND_LOWER, getBound(entry));
+        assertEquals(0L, table.probe(OTHER_KEY));
+        assertEquals(2, table.getProbes());
+        assertEquals(1, table.getHits());
+        assertEquals(0.5, table.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void deeperEntryOfCurrentSearchIsKept()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(KEY, Moves.NO_MOVE, 10, 8, BOUND_EXACT);
+        table.store(OTHER_KEY, Moves.NO_MOVE, 20, 3, BOUND_EXACT);
+        assertEquals(10, getScore(table.probe(KEY)));
+        assertEquals(0L, table.probe(OTHER_KEY));
+        table.newSearch();
+        table.store(OTHER_KEY, Moves.NO_MOVE, 20, 3, BOUND_EXACT);
+        assertEquals(0L, table.probe(KEY));
+        assertEquals(20, getScore(table.probe(OTHER_KEY)));
+    }
+
+    @Test
+    public void moveIsKeptWhenNewEntryHasNone()
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Moves.create(1, 18);
+        table.store(KEY, move, 0, 2, BOUND_LOWER);
+        table.store(KEY, Moves.NO_MOVE, -5, 3, BOUND_UPPER);
+        assertEquals(move, getMove(table.probe(KEY)));
+        assertEquals(-5, getScore(table.probe(KEY)));
+    }
+
+    @Test
+    public void mateScoresAreStoredRelativeToPosition()
+    {
+        int mateIn3 = Search.MATE - 5;
+        assertEquals(Search.MATE - 2, toStoredScore(mateIn3, 3));
+        assertEquals(mateIn3, fromStoredScore(toStoredScore(mateIn3, 3), 3));
+        assertEquals(-mateIn3, fromStoredScore(toStoredScore(-mateIn3, 3), 3));
+        assertEquals(150, toStoredScore(150, 3));
+    }
+
+    @Test
+    public void concurrentWritesNeverGiveCorruptedEntry() throws InterruptedException
+    {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicInteger corrupted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            final int seed = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++)
+                {
+                    long key = ((long) (i * 31 + seed) << 40) | (i & 0xF);
+                    table.store(key, Moves.NO_MOVE, scoreOf(key), 1, BOUND_EXACT);
+                    long probed = ((long) ((i + 7) * 31 + seed) << 40) | ((i + 7) & 0xF);
+                    long entry = table.probe(probed);
+                    if (0L != entry && getScore(entry) != scoreOf(probed))
+                    {
+                        corrupted.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertEquals(0, corrupted.get());
+    }
+
+    private static int scoreOf(long key)
+    {
+        return (int) (key >>> 40) % 20000;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import org.junit.Before;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.GameBuilder;
+import pl.art.lach.mateusz.javaopenchess.core.Square;
+import pl.art.lach.mateusz.javaopenchess.core.Squares;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+import pl.art.lach.mateusz.javaopenchess.core.players.PlayerType;
+import pl.art.lach.mateusz.javaopenchess.utils.GameModes;
+import pl.art.lach.mateusz.javaopenchess.utils.GameTypes;
+
+import static org.junit.Assert.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Checks that bitboard position stays in lockstep with chessboard squares.
+ */
+public class BitboardPositionTest
+{
+    private Game game;
+
+    private Chessboard chessboard;
+
+    private BitboardPosition position;
+
+    @Before
+    public void setup()
+    {
+        game = new GameBuilder()
+            .setBlackPlayerName("")
+            .setWhitePlayerName("")
+            .setWhitePlayerType(PlayerType.LOCAL_USER)
+            .setBlackPlayerType(PlayerType.LOCAL_USER)
+            .setGameMode(GameModes.NEW_GAME)
+            .setGameType(GameTypes.LOCAL)
+            .setPiecesForNewGame(true)
+            .setCreateUi(false)
+            .build();
+        chessboard = game.getChessboard();
+        position = chessboard.getBitboardPosition();
+    }
+
+    @Test
+    public void initialPosition()
+    {
+        assertEquals(32, Bitboards.count(position.getOccupied()));
+        assertEquals(Bitboards.RANK_2, position.getPieces(WHITE, PAWN));
+        assertEquals(Bitboards.RANK_7, position.getPieces(BLACK, PAWN));
+        assertEquals(4, position.getKingSquare(WHITE));
+        assertEquals(60, position.getKingSquare(BLACK));
+        assertEquals(CASTLE_ALL, position.getCastlingRights());
+        assertEquals(WHITE, position.getSideToMove());
+        assertMatchesSquares();
+    }
+
+    @Test
+    public void moveAndUndoKeepsLockstep()
+    {
+        move(Squares.SQ_E, Squares.SQ_2, Squares.SQ_E, Squares.SQ_4);
+        assertEquals(BLACK, position.getSideToMove());
+        assertEquals(20, position.getEnPassantSquare());
+        move(Squares.SQ_D, Squares.SQ_7, Squares.SQ_D, Squares.SQ_5);
+        move(Squares.SQ_E, Squares.SQ_4, Squares.SQ_D, Squares.SQ_5);
+        assertEquals(0, position.getHalfMoveClock());
+        assertEquals(15, Bitboards.count(position.getOccupancy(BLACK)));
+        assertMatchesSquares();
+
+        chessboard.undo();
+        assertEquals(WHITE, position.getSideToMove());
+        assertEquals(16, Bitboards.count(position.getOccupancy(BLACK)));
+        assertMatchesSquares();
+    }
+
+    @Test
+    public void castlingUpdatesRights()
+    {
+        chessboard.getSquare(Squares.SQ_F, Squares.SQ_1).setPiece(null);
+        chessboard.getSquare(Squares.SQ_G, Squares.SQ_1).setPiece(null);
+        move(Squares.SQ_E, Squares.SQ_1, Squares.SQ_G, Squares.SQ_1);
+        assertEquals(CASTLE_BLACK_KING | CASTLE_BLACK_QUEEN, position.getCastlingRights());
+        assertEquals(pieceCode(WHITE, ROOK), position.getPiece(5));
+        assertMatchesSquares();
+
+        chessboard.undo();
+        assertEquals(CASTLE_ALL, position.getCastlingRights());
+        assertMatchesSquares();
+    }
+
+    @Test
+    public void kingSafetyAfterMove()
+    {
+        move(Squares.SQ_E, Squares.SQ_2, Squares.SQ_E, Squares.SQ_4);
+        move(Squares.SQ_F, Squares.SQ_7, Squares.SQ_F, Squares.SQ_6);
+        move(Squares.SQ_D, Squares.SQ_1, Squares.SQ_H, Squares.SQ_5);
+        assertTrue(position.isInCheck(BLACK));
+        assertTrue(chessboard.getKingBlack().isChecked());
+        assertFalse(position.isKingSafeAfterMove(Bitboards.index(6, 1), Bitboards.index(6, 3)));
+        assertTrue(position.isKingSafeAfterMove(Bitboards.index(6, 1), Bitboards.index(6, 2)));
+    }
+
+    @Test
+    public void nullMovePassesTurn()
+    {
+        move(Squares.SQ_E, Squares.SQ_2, Squares.SQ_E, Squares.SQ_4);
+        BitboardPosition copy = position.copy();
+        long key = copy.getZobristKey();
+        int enPassantSquare = copy.makeNullMove();
+        assertEquals(20, enPassantSquare);
+        assertEquals(WHITE, copy.getSideToMove());
+        assertEquals(NO_SQUARE, copy.getEnPassantSquare());
+        assertEquals(Zobrist.compute(copy), copy.getZobristKey());
+        copy.unmakeNullMove(enPassantSquare);
+        assertEquals(BLACK, copy.getSideToMove());
+        assertEquals(20, copy.getEnPassantSquare());
+        assertEquals(key, copy.getZobristKey());
+    }
+
+    @Test
+    public void fenIsLoadedLikeChessboard() throws ReadGameError
+    {
+        BitboardPosition loaded = BitboardPosition.fromFen(PerftPosition.INITIAL.getFen());
+        assertEquals(position.getZobristKey(), loaded.getZobristKey());
+        assertEquals(CASTLE_ALL, loaded.getCastlingRights());
+        assertEquals(position.getMiddlegameScore(), loaded.getMiddlegameScore());
+        move(Squares.SQ_E, Squares.SQ_2, Squares.SQ_E, Squares.SQ_4);
+        loaded = BitboardPosition.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1");
+        assertEquals(20, loaded.getEnPassantSquare());
+        assertEquals(position.getZobristKey(), loaded.getZobristKey());
+        for (int square = 0; square < Bitboards.NUMBER_OF_SQUARES; square++)
+        {
+            assertEquals(position.getPiece(square), loaded.getPiece(square));
+        }
+        loaded = BitboardPosition.fromFen("r3k2r/8/8/8/8/8/8/4K2R w Kq - 12 40");
+        assertEquals(CASTLE_WHITE_KING | CASTLE_BLACK_QUEEN, loaded.getCastlingRights());
+        assertEquals(12, loaded.getHalfMoveClock());
+        assertEquals(Zobrist.compute(loaded), loaded.getZobristKey());
+    }
+
+    @Test
+    public void malformedFenIsRejected()
+    {
+        String[] malformed = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "4k3/8/8/8/8/8/8/4K3 w K - 0 1",
+            "4k3/8/8/8/8/8/8/4K3 x - - 0 1",
+            "4k3/8/8/8/8/8/8/4K3 w - - 0"
+        };
+        for (String fen : malformed)
+        {
+            try
+            {
+                BitboardPosition.fromFen(fen);
+                fail(fen);
+            }
+            catch (ReadGameError err)
+            {
+                assertNotNull(err.getMessage());
+            }
+        }
+    }
+
+    private void move(Squares fromX, Squares fromY, Squares toX, Squares toY)
+    {
+        chessboard.move(chessboard.getSquare(fromX, fromY), chessboard.getSquare(toX, toY));
+    }
+
+    private void assertMatchesSquares()
+    {
+        for (int x = Chessboard.FIRST_SQUARE; x <= Chessboard.LAST_SQUARE; x++)
+        {
+            for (int y = Chessboard.FIRST_SQUARE; y <= Chessboard.LAST_SQUARE; y++)
+            {
+                Square square = chessboard.getSquare(x, y);
+                assertEquals(
+                    square.getAlgebraicNotation(),
+                    BitboardPosition.pieceCode(square.getPiece()),
+                    position.getPiece(Bitboards.index(x, y))
+                );
+            }
+        }
+    }
+}
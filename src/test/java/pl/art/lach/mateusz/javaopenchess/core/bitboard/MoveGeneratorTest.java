@@ -0,0 +1,200 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.GameBuilder;
+import pl.art.lach.mateusz.javaopenchess.core.pieces.Piece;
+import pl.art.lach.mateusz.javaopenchess.core.players.PlayerType;
+import pl.art.lach.mateusz.javaopenchess.utils.GameModes;
+import pl.art.lach.mateusz.javaopenchess.utils.GameTypes;
+
+import static org.junit.Assert.*;
+import static pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition.*;
+
+/**
+ * Tests of attack tables, pseudo-legal and legal move generators.
+ */
+public class MoveGeneratorTest
+{
+    private Chessboard chessboard;
+
+    private BitboardPosition position;
+
+    @Before
+    public void setup()
+    {
+        Game game = new GameBuilder()
+            .setBlackPlayerName("")
+            .setWhitePlayerName("")
+            .setWhitePlayerType(PlayerType.LOCAL_USER)
+            .setBlackPlayerType(PlayerType.LOCAL_USER)
+            .setGameMode(GameModes.NEW_GAME)
+            .setGameType(GameTypes.LOCAL)
+            .setPiecesForNewGame(true)
+            .setCreateUi(false)
+            .build();
+        chessboard = game.getChessboard();
+        position = chessboard.getBitboardPosition();
+    }
+
+    @Test
+    public void magicAttacksMatchRayWalking()
+    {
+        Random random = new Random(42);
+        for (int square = 0; square < Bitboards.NUMBER_OF_SQUARES; square++)
+        {
+            for (int i = 0; i < 200; i++)
+            {
+                long occupied = random.nextLong() & random.nextLong();
+                assertEquals(Bitboards.slidingAttacks(square, occupied, true), Bitboards.rookAttacks(square, occupied));
+                assertEquals(Bitboards.slidingAttacks(square, occupied, false), Bitboards.bishopAttacks(square, occupied));
+            }
+        }
+    }
+
+    @Test
+    public void initialPositionHasTwentyMoves()
+    {
+        MoveList moves = new MoveList();
+        assertEquals(20, MoveGenerator.generate(position, WHITE, moves));
+        moves.clear();
+        assertEquals(20, MoveGenerator.generate(position, BLACK, moves));
+        assertTrue(moves.contains(Moves.create(52, 36, Moves.FLAG_DOUBLE_PUSH)));
+    }
+
+    @Test
+    public void promotionsAreGeneratedForEveryPieceType()
+    {
+        BitboardPosition empty = new BitboardPosition();
+        empty.put(4, pieceCode(WHITE, KING));
+        empty.put(60, pieceCode(BLACK, KING));
+        empty.put(49, pieceCode(WHITE, PAWN));
+        empty.put(56, pieceCode(BLACK, ROOK));
+        MoveList moves = new MoveList();
+        assertEquals(8, MoveGenerator.generateFrom(empty, 49, moves));
+        assertTrue(moves.contains(Moves.create(49, 56, Moves.FLAG_CAPTURE, KNIGHT)));
+        assertTrue(moves.contains(Moves.create(49, 57, 0, QUEEN)));
+    }
+
+    @Test
+    public void legalMovesOfReferencePositions()
+    {
+        assertEquals(48, countLegal("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R", WHITE, CASTLE_ALL, NO_SQUARE));
+        assertEquals(14, countLegal("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8", WHITE, 0, NO_SQUARE));
+        assertEquals(6, countLegal("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1", WHITE,
+            CASTLE_BLACK_KING | CASTLE_BLACK_QUEEN, NO_SQUARE));
+        assertEquals(44, countLegal("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R", WHITE,
+            CASTLE_WHITE_KING | CASTLE_WHITE_QUEEN, NO_SQUARE));
+    }
+
+    @Test
+    public void enPassantCannotExposeKing()
+    {
+        BitboardPosition pinned = parse("8/8/8/KPp4r/8/8/8/4k3", WHITE, 0, 42);
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(pinned, moves);
+        assertFalse(moves.contains(Moves.create(33, 42, Moves.FLAG_CAPTURE | Moves.FLAG_EN_PASSANT)));
+        assertEquals(countPseudoLegal(pinned), moves.size());
+    }
+
+    @Test
+    public void onlyKingMovesInDoubleCheck()
+    {
+        BitboardPosition doubleCheck = parse("4k3/8/8/8/1b6/8/3N4/r3K3", WHITE, 0, NO_SQUARE);
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(doubleCheck, moves);
+        for (int i = 0; i < moves.size(); i++)
+        {
+            assertEquals(4, Moves.from(moves.get(i)));
+        }
+        assertEquals(countPseudoLegal(doubleCheck), moves.size());
+    }
+
+    @Test
+    public void getAllMovesMatchesBehaviors()
+    {
+        for (int x = Chessboard.FIRST_SQUARE; x <= Chessboard.LAST_SQUARE; x++)
+        {
+            for (int y = Chessboard.FIRST_SQUARE; y <= Chessboard.LAST_SQUARE; y++)
+            {
+                Piece piece = chessboard.getSquare(x, y).getPiece();
+                if (null != piece)
+                {
+                    assertEquals(piece.getAllMovesFromBehaviors(), piece.getAllMoves());
+                }
+            }
+        }
+    }
+
+    private int countLegal(String board, int side, int castlingRights, int enPassant)
+    {
+        BitboardPosition parsed = parse(board, side, castlingRights, enPassant);
+        MoveList moves = new MoveList();
+        int result = MoveGenerator.generateLegal(parsed, moves);
+        assertEquals(countPseudoLegal(parsed), result);
+        return result;
+    }
+
+    private int countPseudoLegal(BitboardPosition position)
+    {
+        MoveList moves = new MoveList();
+        MoveGenerator.generate(position, moves);
+        int result = 0;
+        for (int i = 0; i < moves.size(); i++)
+        {
+            if (MoveGenerator.isLegal(position, moves.get(i)))
+            {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads piece placement part of FEN.
+     */
+    static BitboardPosition parse(String board, int side, int castlingRights, int enPassant)
+    {
+        BitboardPosition result = new BitboardPosition();
+        int rank = 7;
+        int file = 0;
+        for (char c : board.toCharArray())
+        {
+            if ('/' == c)
+            {
+                rank--;
+                file = 0;
+            }
+            else if (Character.isDigit(c))
+            {
+                file += c - '0';
+            }
+            else
+            {
+                result.put((rank << 3) | file, "PNBRQKpnbrqk".indexOf(c));
+                file++;
+            }
+        }
+        result.setSideToMove(side);
+        result.setCastlingRights(castlingRights);
+        result.setEnPassantSquare(enPassant);
+        return result;
+    }
+}
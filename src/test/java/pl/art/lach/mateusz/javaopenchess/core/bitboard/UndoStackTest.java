@@ -0,0 +1,62 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replay of moves with undo stack, keys of positions before moves and growth of stack.
+ */
+public class UndoStackTest
+{
+    @Test
+    public void replayIsTakenBack() throws ReadGameError
+    {
+        BitboardPosition position = Perft.loadGame(PerftPosition.KIWIPETE.getFen())
+            .getChessboard().getBitboardPosition().copy();
+        long start = position.getZobristKey();
+        UndoStack stack = new UndoStack(2);
+        MoveList moves = new MoveList();
+        long[] keys = new long[10];
+        for (int ply = 0; ply < keys.length; ply++)
+        {
+            moves.clear();
+            MoveGenerator.generateLegal(position, moves);
+            keys[ply] = position.getZobristKey();
+            stack.make(position, moves.get(moves.size() / 2));
+        }
+        assertEquals(keys.length, stack.size());
+        assertTrue(keys.length <= stack.getCapacity());
+        for (int ply = keys.length - 1; ply >= 0; ply--)
+        {
+            assertEquals(keys[ply], stack.getKey(ply));
+            stack.unmake(position);
+            assertEquals(keys[ply], position.getZobristKey());
+        }
+        assertTrue(stack.isEmpty());
+        assertEquals(start, position.getZobristKey());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void popOfEmptyStackFails()
+    {
+        new UndoStack().pop();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.bitboard;
+
+import org.junit.Before;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.Chessboard;
+import pl.art.lach.mateusz.javaopenchess.core.Game;
+import pl.art.lach.mateusz.javaopenchess.core.GameBuilder;
+import pl.art.lach.mateusz.javaopenchess.core.Squares;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.DataImporter;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.DataTransferFactory;
+import pl.art.lach.mateusz.javaopenchess.core.data_transfer.TransferFormat;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.players.PlayerType;
+import pl.art.lach.mateusz.javaopenchess.utils.GameModes;
+import pl.art.lach.mateusz.javaopenchess.utils.GameTypes;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that Zobrist key of chessboard is maintained incrementally.
+ */
+public class ZobristTest
+{
+    private final DataImporter fenImporter = DataTransferFactory.getImporterInstance(TransferFormat.FEN);
+
+    private Game game;
+
+    private Chessboard chessboard;
+
+    @Before
+    public void setup()
+    {
+        game = new GameBuilder()
+            .setBlackPlayerName("")
+            .setWhitePlayerName("")
+            .setWhitePlayerType(PlayerType.LOCAL_USER)
+            .setBlackPlayerType(PlayerType.LOCAL_USER)
+            .setGameMode(GameModes.NEW_GAME)
+            .setGameType(GameTypes.LOCAL)
+            .setPiecesForNewGame(true)
+            .setCreateUi(false)
+            .build();
+        chessboard = game.getChessboard();
+    }
+
+    @Test
+    public void incrementalKeyMatchesComputedKey()
+    {
+        long initial = chessboard.getZobristKey();
+        assertEquals(Zobrist.compute(chessboard.getBitboardPosition()), initial);
+
+        move(Squares.SQ_E, Squares.SQ_2, Squares.SQ_E, Squares.SQ_4);
+        assertKeyIsConsistent();
+        move(Squares.SQ_D, Squares.SQ_7, Squares.SQ_D, Squares.SQ_5);
+        assertKeyIsConsistent();
+        move(Squares.SQ_E, Squares.SQ_4, Squares.SQ_D, Squares.SQ_5);
+        assertKeyIsConsistent();
+
+        chessboard.undo();
+        chessboard.undo();
+        chessboard.undo();
+        assertEquals(initial, chessboard.getZobristKey());
+
+        chessboard.redo();
+        assertKeyIsConsistent();
+    }
+
+    @Test
+    public void sameKeyForTransposedMoves()
+    {
+        long initial = chessboard.getZobristKey();
+        move(Squares.SQ_G, Squares.SQ_1, Squares.SQ_F, Squares.SQ_3);
+        move(Squares.SQ_G, Squares.SQ_8, Squares.SQ_F, Squares.SQ_6);
+        move(Squares.SQ_F, Squares.SQ_3, Squares.SQ_G, Squares.SQ_1);
+        move(Squares.SQ_F, Squares.SQ_6, Squares.SQ_G, Squares.SQ_8);
+        assertEquals(initial, chessboard.getZobristKey());
+    }
+
+    @Test
+    public void pawnKeyChangesOnlyWithPawns()
+    {
+        long initial = chessboard.getBitboardPosition().getPawnKey();
+        move(Squares.SQ_G, Squares.SQ_1, Squares.SQ_F, Squares.SQ_3);
+        assertEquals(initial, chessboard.getBitboardPosition().getPawnKey());
+        move(Squares.SQ_E, Squares.SQ_7, Squares.SQ_E, Squares.SQ_5);
+        assertNotEquals(initial, chessboard.getBitboardPosition().getPawnKey());
+        move(Squares.SQ_F, Squares.SQ_3, Squares.SQ_E, Squares.SQ_5);
+        assertKeyIsConsistent();
+        chessboard.undo();
+        chessboard.undo();
+        assertEquals(initial, chessboard.getBitboardPosition().getPawnKey());
+    }
+
+    @Test
+    public void fenImportSeedsKey() throws ReadGameError
+    {
+        move(Squares.SQ_E, Squares.SQ_2, Squares.SQ_E, Squares.SQ_4);
+        long afterMove = chessboard.getZobristKey();
+
+        fenImporter.importData("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game);
+        assertEquals(afterMove, chessboard.getZobristKey());
+
+        fenImporter.importData("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - 0 1", game);
+        assertEquals(0, chessboard.getBitboardPosition().getCastlingRights());
+        assertNotEquals(afterMove, chessboard.getZobristKey());
+        assertKeyIsConsistent();
+    }
+
+    private void assertKeyIsConsistent()
+    {
+        assertEquals(Zobrist.compute(chessboard.getBitboardPosition()), chessboard.getZobristKey());
+        assertEquals(Zobrist.computePawnKey(chessboard.getBitboardPosition()),
+            chessboard.getBitboardPosition().getPawnKey());
+    }
+
+    private void move(Squares fromX, Squares fromY, Squares toX, Squares toY)
+    {
+        chessboard.move(chessboard.getSquare(fromX, fromY), chessboard.getSquare(toX, toY));
+    }
+}
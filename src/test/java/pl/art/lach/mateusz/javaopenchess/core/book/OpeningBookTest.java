@@ -0,0 +1,143 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.book;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+import static pl.art.lach.mateusz.javaopenchess.core.book.PolyglotTest.move;
+
+/**
+ * Building book from PGN archive and choosing moves from mapped book.
+ */
+public class OpeningBookTest
+{
+    private static final String ARCHIVE =
+        "[Event \"Game\"]\n[White \"a\"]\n[Black \"b\"]\n[Result \"1-0\"]\n\n"
+        + "1. e2-e4 e7-e5 2. Ng1-f3 Nb8-c6 3. Bf1-c4 Bf8-c5 4. 0-0 Ng8-f6 1-0\n\n"
+        + "[Event \"Game\"]\n[White \"a\"]\n[Black \"b\"]\n[Result \"1-0\"]\n\n"
+        + "1. e2-e4 c7-c5 2. Ng1-f3\nd7-d6 1-0\n\n"
+        + "[Event \"Game\"]\n[White \"a\"]\n[Black \"b\"]\n[Result \"1/2-1/2\"]\n\n"
+        + "1. d2-d4 d7-d5 1/2-1/2\n\n"
+        + "[Event \"Game\"]\n[White \"a\"]\n[Black \"b\"]\n[Result \"0-1\"]\n\n"
+        + "1. e2-e5 e7-e5 0-1\n";
+
+    private static final String ITALIAN_FEN =
+        "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void movesAreWeightedByResult() throws IOException, ReadGameError
+    {
+        BookBuilder builder = new BookBuilder();
+        assertEquals(3, builder.addGames(ARCHIVE));
+        assertEquals(1, builder.getSkippedGames());
+        OpeningBook book = build(builder);
+        BitboardPosition initial = BitboardPosition.fromFen(PerftPosition.INITIAL.getFen());
+        List<BookEntry> entries = book.getEntries(initial);
+        assertEquals(2, entries.size());
+        assertEquals(Polyglot.encodeMove(move(initial, "e2e4")), entries.get(0).getMove());
+        assertEquals(4, entries.get(0).getWeight());
+        assertEquals(Polyglot.encodeMove(move(initial, "d2d4")), entries.get(1).getMove());
+        assertEquals(1, entries.get(1).getWeight());
+    }
+
+    @Test
+    public void losingMovesAreLeftOut() throws IOException, ReadGameError
+    {
+        BookBuilder builder = new BookBuilder();
+        builder.addGames(ARCHIVE);
+        OpeningBook book = build(builder);
+        BitboardPosition position = BitboardPosition.fromFen("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        assertTrue(book.getEntries(position).isEmpty());
+        assertEquals(Moves.NO_MOVE, book.getMove(position, new Random()));
+    }
+
+    @Test
+    public void castlingIsPlayedFromBook() throws IOException, ReadGameError
+    {
+        BookBuilder builder = new BookBuilder();
+        builder.addGames(ARCHIVE);
+        int move = build(builder).getMove(BitboardPosition.fromFen(ITALIAN_FEN), new Random());
+        assertTrue(Moves.isCastling(move));
+        assertEquals("e1g1", Moves.toString(move));
+    }
+
+    @Test
+    public void bookIsLimitedToMaxPly() throws IOException, ReadGameError
+    {
+        BookBuilder builder = new BookBuilder(6);
+        builder.addGames(ARCHIVE);
+        assertEquals(Moves.NO_MOVE, build(builder).getMove(BitboardPosition.fromFen(ITALIAN_FEN), new Random()));
+    }
+
+    @Test
+    public void movesAreChosenByWeight() throws IOException, ReadGameError
+    {
+        BookBuilder builder = new BookBuilder();
+        builder.addGames(ARCHIVE);
+        OpeningBook book = build(builder);
+        BitboardPosition initial = BitboardPosition.fromFen(PerftPosition.INITIAL.getFen());
+        int e4 = move(initial, "e2e4");
+        int d4 = move(initial, "d2d4");
+        Random random = new Random(1L);
+        int e4Count = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            int move = book.getMove(initial, random);
+            assertTrue(e4 == move || d4 == move);
+            e4Count += e4 == move ? 1 : 0;
+        }
+        assertTrue(700 < e4Count && 900 > e4Count);
+    }
+
+    @Test
+    public void fileIsMappedOnce() throws IOException
+    {
+        Path path = folder.newFile("book.bin").toPath();
+        new BookBuilder().write(path);
+        OpeningBook book = OpeningBook.open(path);
+        assertSame(book, OpeningBook.open(path));
+        assertEquals(0, book.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void fileOfWrongSizeIsRejected() throws IOException
+    {
+        Path path = folder.newFile("broken.bin").toPath();
+        Files.write(path, new byte[Polyglot.ENTRY_SIZE + 1]);
+        OpeningBook.open(path);
+    }
+
+    private OpeningBook build(BookBuilder builder) throws IOException
+    {
+        Path path = folder.newFile().toPath();
+        builder.write(path);
+        return OpeningBook.open(path);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.book;
+
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keys and move encoding of Polyglot books.
+ */
+public class PolyglotTest
+{
+    private static final String CASTLING_FEN = "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void movesAreEncodedAsToFromAndPromotion() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen("4k3/1P6/8/8/8/8/4P3/4K3 w - - 0 1");
+        assertEquals(28 | (12 << 6), Polyglot.encodeMove(move(position, "e2e4")));
+        assertEquals(57 | (49 << 6) | (4 << 12), Polyglot.encodeMove(move(position, "b7b8q")));
+    }
+
+    @Test
+    public void castlingIsEncodedAsKingTakesRook() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen(CASTLING_FEN);
+        int shortCastling = move(position, "e1g1");
+        int longCastling = move(position, "e1c1");
+        assertEquals(7 | (4 << 6), Polyglot.encodeMove(shortCastling));
+        assertEquals(0 | (4 << 6), Polyglot.encodeMove(longCastling));
+        assertEquals(shortCastling, Polyglot.decodeMove(position, Polyglot.encodeMove(shortCastling)));
+        assertEquals(longCastling, Polyglot.decodeMove(position, Polyglot.encodeMove(longCastling)));
+    }
+
+    @Test
+    public void illegalMoveIsNotDecoded() throws ReadGameError
+    {
+        assertEquals(Moves.NO_MOVE, Polyglot.decodeMove(BitboardPosition.fromFen(CASTLING_FEN), 28 | (12 << 6)));
+    }
+
+    @Test
+    public void keysMatchPublishedPolyglotKeys() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertEquals(0x463B96181691FC9CL, Polyglot.key(position));
+        position.makeMove(move(position, "e2e4"));
+        assertEquals(0x823C9B50FD114196L, Polyglot.key(position));
+        position.makeMove(move(position, "d7d5"));
+        assertEquals(0x0756B94461C50FB0L, Polyglot.key(position));
+        position.makeMove(move(position, "e4e5"));
+        position.makeMove(move(position, "f7f5"));
+        assertEquals(0x22A48B5A8E47FF78L, Polyglot.key(position));
+        position.makeMove(move(position, "e1e2"));
+        position.makeMove(move(position, "e8f7"));
+        assertEquals(0x00FDD303C946BDD9L, Polyglot.key(position));
+        assertEquals(0x5C3F9B829B279560L,
+            Polyglot.key(BitboardPosition.fromFen("rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4")));
+    }
+
+    @Test
+    public void keyDependsOnSideToMoveAndCastling() throws ReadGameError
+    {
+        long key = Polyglot.key(BitboardPosition.fromFen(CASTLING_FEN));
+        assertNotEquals(key, Polyglot.key(BitboardPosition.fromFen("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1")));
+        assertNotEquals(key, Polyglot.key(BitboardPosition.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w Kkq - 0 1")));
+        assertEquals(key, Polyglot.key(BitboardPosition.fromFen(CASTLING_FEN)));
+    }
+
+    @Test
+    public void enPassantCountsOnlyIfPawnCanCapture() throws ReadGameError
+    {
+        assertEquals(
+            Polyglot.key(BitboardPosition.fromFen("4k3/8/8/8/4P3/8/8/4K3 b - - 0 1")),
+            Polyglot.key(BitboardPosition.fromFen("4k3/8/8/8/4P3/8/8/4K3 b - e3 0 1"))
+        );
+        assertNotEquals(
+            Polyglot.key(BitboardPosition.fromFen("4k3/8/8/8/3pP3/8/8/4K3 b - - 0 1")),
+            Polyglot.key(BitboardPosition.fromFen("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1"))
+        );
+    }
+
+    static int move(BitboardPosition position, String name)
+    {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        for (int i = 0; i < moves.size(); i++)
+        {
+            if (name.equals(Moves.toString(moves.get(i))))
+            {
+                return moves.get(i);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
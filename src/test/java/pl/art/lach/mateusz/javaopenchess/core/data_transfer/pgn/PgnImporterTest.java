@@ -0,0 +1,191 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.Moves;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+import pl.art.lach.mateusz.javaopenchess.core.perft.Perft;
+import pl.art.lach.mateusz.javaopenchess.core.perft.PerftPosition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parallel import of PGN archive: games reach sink in order of archive and
+ * malformed games are reported with their lines.
+ */
+public class PgnImporterTest
+{
+    private static final int GAMES = 300;
+
+    private static final String[] MOVETEXT = {
+        "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 {Morphy} 4. Ba4 Nf6 5. O-O Be7 (5... b5 6. Bb3) 6. Re1 b5 7. Bb3 d6 1/2-1/2",
+        "1. e2-e4 c7-c5 2. Ng1-f3 d7-d6 3. d2-d4 c5xd4 4. Nf3xd4 Ng8-f6 5. Nb1-c3 a7-a6 1-0",
+        "1. d4 d5 2. c4 e6 3. Nc3 Nf6 4. Bg5 Nbd7 5. e3 Be7 6. Nf3 O-O 7. Rc1 c6 $1 8. Bd3 dxc4 0-1",
+        "1. e4 e6 2. d4 d5 3. e5 c5 4. c3 Nc6 5. Nf3 Qb6 6. a3 c4 7. Nbd2 Na5 8. b4 cxb3 9. Nxb3 Nxb3 *",
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void gamesReachSinkInOrder() throws IOException
+    {
+        List<Integer> expectedErrorLines = new ArrayList<>();
+        Path archive = writeArchive(expectedErrorLines);
+        RecordingSink sink = new RecordingSink();
+        PgnImporter.Result result = new PgnImporter(4, 1000).importFile(archive, sink);
+        assertEquals(GAMES - expectedErrorLines.size(), result.getGames());
+        assertEquals(expectedErrorLines.size(), result.getErrors());
+        assertTrue(10 < result.getRanges());
+        assertEquals(expectedErrorLines, sink.rejectedLines);
+        assertEquals(result.getErrorMessages().size(), sink.messages.size());
+        assertTrue(sink.messages.get(0).contains("illegal move 'Nf6'"));
+        assertTrue(sink.messages.get(1).contains("unexpected ')'"));
+        int previous = -1;
+        for (ImportedGame game : sink.games)
+        {
+            int number = Integer.parseInt(game.getGame().getTag(PgnGame.TAG_EVENT));
+            assertTrue(previous < number);
+            assertEquals("Wójcik", game.getGame().getWhite());
+            assertEquals(1 + number * 7, game.getLineNumber());
+            previous = number;
+        }
+
+        RecordingSink sequential = new RecordingSink();
+        new PgnImporter(1, Integer.MAX_VALUE).importFile(archive, sequential);
+        assertEquals(sequential.rejectedLines, sink.rejectedLines);
+        assertEquals(sequential.messages, sink.messages);
+        assertEquals(sequential.games.size(), sink.games.size());
+        for (int i = 0; i < sink.games.size(); i++)
+        {
+            assertArrayEquals(sequential.games.get(i).getMoves(), sink.games.get(i).getMoves());
+            assertEquals(sequential.games.get(i).getFinalKey(), sink.games.get(i).getFinalKey());
+        }
+    }
+
+    @Test
+    public void rangesStartAtGames() throws IOException
+    {
+        Path archive = writeArchive(new ArrayList<>());
+        byte[] bytes = Files.readAllBytes(archive);
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ))
+        {
+            long[] offsets = PgnImporter.split(channel, 777);
+            assertEquals(0L, offsets[0]);
+            assertEquals(bytes.length, offsets[offsets.length - 1]);
+            for (int i = 1; i < offsets.length - 1; i++)
+            {
+                assertTrue(777 <= offsets[i] - offsets[i - 1]);
+                assertEquals('[', bytes[(int) offsets[i]]);
+                assertEquals('E', bytes[(int) offsets[i] + 1]);
+            }
+        }
+    }
+
+    @Test
+    public void movesAreReplayedFromFenTag() throws IOException
+    {
+        Path archive = folder.newFile("fen.pgn").toPath();
+        Files.write(archive, ("[Event \"0\"]\n[FEN \"8/4P3/8/8/8/2k5/8/K7 w - - 0 1\"]\n\n1. e8=Q+ Kb3 *\n")
+            .getBytes(StandardCharsets.UTF_8));
+        RecordingSink sink = new RecordingSink();
+        new PgnImporter(2).importFile(archive, sink);
+        assertEquals(1, sink.games.size());
+        int[] moves = sink.games.get(0).getMoves();
+        assertEquals("e7e8q", Moves.toString(moves[0]));
+    }
+
+    @Test
+    public void resolvesAlgebraicNotation() throws ReadGameError
+    {
+        BitboardPosition position = Perft.loadGame(PerftPosition.KIWIPETE.getFen()).getChessboard().getBitboardPosition();
+        MoveList legalMoves = new MoveList();
+        assertEquals("e1g1", Moves.toString(MoveResolver.resolve(position, "O-O", legalMoves)));
+        assertEquals("e1c1", Moves.toString(MoveResolver.resolve(position, "0-0-0", legalMoves)));
+        assertEquals("c3b5", Moves.toString(MoveResolver.resolve(position, "Nb5", legalMoves)));
+        assertEquals("e5d7", Moves.toString(MoveResolver.resolve(position, "Nxd7", legalMoves)));
+        assertEquals("e5d7", Moves.toString(MoveResolver.resolve(position, "Ne5xd7+", legalMoves)));
+        assertEquals("d5e6", Moves.toString(MoveResolver.resolve(position, "dxe6", legalMoves)));
+        assertEquals("g2h3", Moves.toString(MoveResolver.resolve(position, "gxh3", legalMoves)));
+        assertEquals(Moves.NO_MOVE, MoveResolver.resolve(position, "Qh8", legalMoves));
+        position = Perft.loadGame("8/8/8/8/8/8/1k2p3/3R1K2 b - - 0 1").getChessboard().getBitboardPosition();
+        assertEquals("e2d1n", Moves.toString(MoveResolver.resolve(position, "exd1=N", legalMoves)));
+        assertEquals("e2e1q", Moves.toString(MoveResolver.resolve(position, "e1Q", legalMoves)));
+        assertEquals(Moves.NO_MOVE, MoveResolver.resolve(position, "e1", legalMoves));
+    }
+
+    /**
+     * Writes archive of numbered games, every one takes 7 lines. Every 50th
+     * game has illegal move, every 70th one has unbalanced variation.
+     */
+    private Path writeArchive(List<Integer> errorLines) throws IOException
+    {
+        StringBuilder archive = new StringBuilder();
+        for (int i = 0; i < GAMES; i++)
+        {
+            String moves = MOVETEXT[i % MOVETEXT.length];
+            if (0 == i % 50 && 0 < i)
+            {
+                moves = moves.replace("2. ", "2. Nf6 ");
+                errorLines.add(1 + i * 7);
+            }
+            else if (0 == i % 70 && 0 < i)
+            {
+                moves = moves.replace("2. ", ") 2. ");
+                errorLines.add(1 + i * 7);
+            }
+            archive.append(String.format("[Event \"%d\"]\n[White \"Wójcik\"]\n[Black \"b\"]\n[Result \"*\"]\n\n", i));
+            archive.append(moves).append("\n\n");
+        }
+        Path path = folder.newFile("archive.pgn").toPath();
+        Files.write(path, archive.toString().getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static class RecordingSink implements PgnSink
+    {
+        private final List<ImportedGame> games = new ArrayList<>();
+
+        private final List<Integer> rejectedLines = new ArrayList<>();
+
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void gameImported(ImportedGame game)
+        {
+            games.add(game);
+        }
+
+        @Override
+        public void gameRejected(int lineNumber, String message)
+        {
+            rejectedLines.add(lineNumber);
+            messages.add(message);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.data_transfer.pgn;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+import static org.junit.Assert.*;
+
+/**
+ * Streaming reading of PGN archives: tags, movetext elements, error recovery
+ * and archives read without keeping them in memory.
+ */
+public class PgnReaderTest
+{
+    private static final String ANNOTATED =
+        "% exported by test\n"
+        + "[Event \"Open \\\"A\\\"\"]\n"
+        + "[White \"Kasparov, G.\"]\n"
+        + "[Black \"Topalov, V.\"]\n"
+        + "[Result \"1-0\"]\n"
+        + "\n"
+        + "{Opening} 1. e4 d6 2. d4 Nf6 3. Nc3 g6 4. Be3! Bg7 5. Qd2 c6 6. f3 b5 7. Nge2\n"
+        + "Nbd7 8. Bh6 Bxh6 9. Qxh6 Bb7 $6 {The bishop should stay\n"
+        + "on c8} (9... e5 10. O-O-O (10. d5 c5) 10... Qe7) 10. a3 e5 ; rest of line\n"
+        + "11. O-O-O Qe7 12. Kb1?! a6 1-0\n";
+
+    @Test
+    public void readsTagsAndMovetext() throws IOException, ReadGameError
+    {
+        PgnGame game = new PgnReader(new StringReader(ANNOTATED)).readGame();
+        assertEquals(2, game.getLineNumber());
+        assertEquals(Arrays.asList("Event", "White", "Black", "Result"), Arrays.asList(game.getTags().keySet().toArray()));
+        assertEquals("Open \"A\"", game.getTag(PgnGame.TAG_EVENT));
+        assertEquals("Kasparov, G.", game.getWhite());
+        assertEquals("1-0", game.getResult());
+        List<PgnMove> moves = game.getMoves();
+        assertEquals(24, moves.size());
+        assertEquals("Opening", moves.get(0).getCommentBefore());
+        assertEquals(Arrays.asList(1), moves.get(6).getNags());
+        PgnMove bishop = moves.get(17);
+        assertEquals("Bb7", bishop.getSan());
+        assertEquals(Arrays.asList(6), bishop.getNags());
+        assertEquals("The bishop should stay on c8", bishop.getComment());
+        List<PgnMove> variation = bishop.getVariations().get(0);
+        assertEquals(3, variation.size());
+        assertEquals("O-O-O", variation.get(1).getSan());
+        assertEquals("c5", variation.get(1).getVariations().get(0).get(1).getSan());
+        assertEquals("rest of line", moves.get(19).getComment());
+        assertEquals(Arrays.asList(6), moves.get(22).getNags());
+    }
+
+    @Test
+    public void exportedGameIsReadBack() throws IOException, ReadGameError
+    {
+        PgnGame game = new PgnReader(new StringReader(ANNOTATED)).readGame();
+        String exported = game.toString();
+        for (String line : exported.split("\n"))
+        {
+            assertTrue(line, 80 > line.length());
+        }
+        assertTrue(exported.replace('\n', ' ').contains("9. Qxh6 Bb7 $6 {The bishop should stay on c8} (9... e5 10. O-O-O (10. d5"));
+        PgnGame readBack = new PgnReader(new StringReader(exported)).readGame();
+        assertEquals(game.getTags(), readBack.getTags());
+        assertEquals(exported, readBack.toString());
+    }
+
+    @Test
+    public void malformedGameIsSkipped() throws IOException, ReadGameError
+    {
+        String archive = "[Event \"1\"]\n\n1. e4 e5 2. Nf3 *\n\n"
+            + "[Event \"2\"]\n\n1. e4 e5\n2. Nf3 Nc6 {unclosed\n\n"
+            + "[Event \"3\"]\n\n1. d4 (1. c4)) d5 *\n\n"
+            + "[Event \"4\"]\n[White \"x\"]\n\n1. d4 d5 2. c4 1/2-1/2\n";
+        PgnReader reader = new PgnReader(new StringReader(archive));
+        assertEquals("1", reader.readGame().getTag(PgnGame.TAG_EVENT));
+        try
+        {
+            reader.readGame();
+            fail("comment isn't closed");
+        }
+        catch (ReadGameError err)
+        {
+            assertEquals("Line 8: comment isn't closed", err.getMessage());
+            assertEquals(5, reader.getGameLineNumber());
+        }
+        try
+        {
+            reader.readGame();
+            fail("variation is closed twice");
+        }
+        catch (ReadGameError err)
+        {
+            assertTrue(err.getMessage().startsWith("Line 12: "));
+        }
+        PgnGame last = reader.readGame();
+        assertEquals("4", last.getTag(PgnGame.TAG_EVENT));
+        assertEquals(14, last.getLineNumber());
+        assertEquals("1/2-1/2", last.getResult());
+        assertEquals("1. d4 d5 2. c4 ", last.getMainLine());
+        assertNull(reader.readGame());
+        assertEquals(2, reader.getGames());
+        assertEquals(2, reader.getErrors());
+    }
+
+    @Test
+    public void gameWithMalformedTagIsSkippedWhole() throws IOException, ReadGameError
+    {
+        String archive = "[Event \"1\"]\n[Site bad]\n[White \"x\"]\n[Black \"y\"]\n\n1. e4 e5 2. Nf3 *\n\n"
+            + "[Event \"2\"]\n[Site \"unterminated\n[White \"x\"]\n\n1. d4 d5 { [a] }\n\n"
+            + "[Event \"3\"]\n\n1. c4 1-0\n";
+        PgnReader reader = new PgnReader(new StringReader(archive));
+        try
+        {
+            reader.readGame();
+            fail("value isn't quoted");
+        }
+        catch (ReadGameError err)
+        {
+            assertEquals("Line 2: value of tag Site should be quoted", err.getMessage());
+        }
+        try
+        {
+            reader.readGame();
+            fail("value isn't terminated");
+        }
+        catch (ReadGameError err)
+        {
+            assertEquals("Line 9: unterminated value of tag Site", err.getMessage());
+            assertEquals(8, reader.getGameLineNumber());
+        }
+        PgnGame last = reader.readGame();
+        assertEquals("3", last.getTag(PgnGame.TAG_EVENT));
+        assertEquals("1. c4 ", last.getMainLine());
+        assertNull(reader.readGame());
+        assertEquals(1, reader.getGames());
+        assertEquals(2, reader.getErrors());
+    }
+
+    @Test
+    public void readsGamesWithoutResultOrTags() throws IOException, ReadGameError
+    {
+        PgnReader reader = new PgnReader(new StringReader("1.e4 e5 2.Nf3\n[Event \"x\"]\n1. d4 0-1"));
+        PgnGame first = reader.readGame();
+        assertEquals(PgnGame.UNKNOWN_RESULT, first.getResult());
+        assertEquals("1. e4 e5 2. Nf3 ", first.getMainLine());
+        assertEquals("0-1", reader.readGame().getResult());
+        assertNull(reader.readGame());
+    }
+
+    @Test
+    public void largeArchiveIsStreamed() throws IOException
+    {
+        int games = 20000;
+        int count = 0;
+        try (PgnReader reader = new PgnReader(new RepeatingReader(ANNOTATED + "\n", games)))
+        {
+            for (PgnGame game : reader)
+            {
+                assertEquals(24, game.getMoves().size());
+                count++;
+            }
+            assertEquals(2 + (games - 1) * 11, reader.getGameLineNumber());
+        }
+        assertEquals(games, count);
+    }
+
+    /**
+     * Gives the same text many times, so archive never exists as whole.
+     */
+    private static class RepeatingReader extends Reader
+    {
+        private final String text;
+
+        private int remaining;
+
+        private int position;
+
+        RepeatingReader(String text, int times)
+        {
+            this.text = text;
+            this.remaining = times;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length)
+        {
+            if (0 == remaining)
+            {
+                return -1;
+            }
+            int count = Math.min(length, text.length() - position);
+            text.getChars(position, position + count, buffer, offset);
+            position += count;
+            if (text.length() == position)
+            {
+                position = 0;
+                remaining--;
+            }
+            return count;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
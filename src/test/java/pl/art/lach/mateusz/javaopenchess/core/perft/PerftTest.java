@@ -0,0 +1,65 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.perft;
+
+import java.util.Map;
+import org.junit.Test;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs reference perft positions against both move generation paths.
+ */
+public class PerftTest
+{
+    @Test
+    public void bitboardGeneratorMatchesReferenceCounts() throws ReadGameError
+    {
+        for (PerftPosition position : PerftPosition.values())
+        {
+            assertCounts(Perft.create(Perft.GENERATOR_BITBOARD, position.getFen()), position, 3);
+        }
+    }
+
+    @Test
+    public void getAllMovesMatchesReferenceCounts() throws ReadGameError
+    {
+        for (PerftPosition position : PerftPosition.values())
+        {
+            assertCounts(Perft.create(Perft.GENERATOR_GET_ALL_MOVES, position.getFen()), position, 2);
+        }
+        assertCounts(Perft.create(Perft.GENERATOR_GET_ALL_MOVES, PerftPosition.KIWIPETE.getFen()),
+            PerftPosition.KIWIPETE, 3);
+    }
+
+    @Test
+    public void divideSumsToCount() throws ReadGameError
+    {
+        Perft perft = Perft.create(Perft.GENERATOR_BITBOARD, PerftPosition.PROMOTIONS.getFen());
+        Map<String, Long> divide = perft.divide(3);
+        assertEquals(6, divide.size());
+        assertEquals(PerftPosition.PROMOTIONS.getExpectedNodes(3),
+            divide.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    private static void assertCounts(Perft perft, PerftPosition position, int maxDepth)
+    {
+        for (int depth = 1; depth <= maxDepth; depth++)
+        {
+            assertEquals(position + " depth " + depth, position.getExpectedNodes(depth), perft.count(depth));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.tablebase;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Names, indexes and sub-endgames of endgame materials.
+ */
+public class EndgameTest
+{
+    @Test
+    public void strongerSideComesFirst()
+    {
+        assertEquals("KQvKR", Endgame.of("KRvKQ").getName());
+        assertEquals("KRvKP", Endgame.of("kpvkr").getName());
+        assertEquals("KBNvK", Endgame.of("KvKNB").getName());
+        assertTrue(Endgame.isMirrored("KvKQ"));
+        assertFalse(Endgame.isMirrored("KQvK"));
+        assertFalse(Endgame.isMirrored("KRvKR"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyPiecesAreRejected()
+    {
+        Endgame.of("KQRvKR");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sideWithoutKingIsRejected()
+    {
+        Endgame.of("KQvR");
+    }
+
+    @Test
+    public void subEndgamesAreReachedByCapturesAndPromotions()
+    {
+        List<String> names = Endgame.of("KPvK").getSubEndgames().stream()
+            .map(Endgame::getName).sorted().collect(Collectors.toList());
+        assertEquals(Arrays.asList("KBvK", "KNvK", "KQvK", "KRvK", "KvK"), names);
+    }
+
+    @Test
+    public void allEndgamesAreListed()
+    {
+        assertEquals(1, Endgame.all(2).size());
+        assertEquals(5, Endgame.all(3).size());
+        assertEquals(30, Endgame.all(4).size());
+    }
+
+    @Test
+    public void sizeCoversAllSquaresAndSides()
+    {
+        Endgame endgame = Endgame.of("KQvKR");
+        assertEquals(2 * 64 * 64 * 64 * 64, endgame.size());
+        int index = endgame.size() - 1;
+        assertEquals(1, endgame.getSideToMove(index));
+        assertEquals(63, endgame.getSquare(index, 3));
+        int moved = endgame.withMove(index, 2, 10);
+        assertEquals(0, endgame.getSideToMove(moved));
+        assertEquals(10, endgame.getSquare(moved, 2));
+        assertEquals(63, endgame.getSquare(moved, 3));
+    }
+}
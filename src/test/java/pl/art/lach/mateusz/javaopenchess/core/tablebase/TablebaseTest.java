@@ -0,0 +1,116 @@
+/*
+#    This program is free software: you can redistribute it and/or modify
+#    it under the terms of the GNU General Public License as published by
+#    the Free Software Foundation, either version 3 of the License, or
+#    (at your option) any later version.
+#
+#    This program is distributed in the hope that it will be useful,
+#    but WITHOUT ANY WARRANTY; without even the implied warranty of
+#    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+#    GNU General Public License for more details.
+#
+#    You should have received a copy of the GNU General Public License
+#    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package pl.art.lach.mateusz.javaopenchess.core.tablebase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.art.lach.mateusz.javaopenchess.core.ai.search.Search;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.BitboardPosition;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveGenerator;
+import pl.art.lach.mateusz.javaopenchess.core.bitboard.MoveList;
+import pl.art.lach.mateusz.javaopenchess.core.exceptions.ReadGameError;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tables generated for KQvK and KRvK: known results, probing with colors
+ * swapped and playing won endgame by search.
+ */
+public class TablebaseTest
+{
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static Tablebase tablebase;
+
+    @BeforeClass
+    public static void generate() throws IOException
+    {
+        TablebaseGenerator generator = new TablebaseGenerator(folder.getRoot().toPath(), null);
+        generator.generate(Endgame.of("KQvK"));
+        generator.generate(Endgame.of("KRvK"));
+        tablebase = new Tablebase(folder.getRoot().toPath());
+    }
+
+    @Test
+    public void smallerTablesAreGeneratedFirst()
+    {
+        assertTrue(Files.isRegularFile(tablebase.getPath(Endgame.of("KvK"))));
+        assertFalse(Files.isRegularFile(tablebase.getPath(Endgame.of("KBvK"))));
+    }
+
+    @Test
+    public void mateInOneIsFound() throws ReadGameError
+    {
+        int value = tablebase.probe(BitboardPosition.fromFen("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1"));
+        assertTrue(Tablebase.isWin(value));
+        assertEquals(1, Tablebase.getDistanceToMate(value));
+        assertEquals("mate in 1", Tablebase.toString(value));
+    }
+
+    @Test
+    public void matedSideLoses() throws ReadGameError
+    {
+        int value = tablebase.probe(BitboardPosition.fromFen("Q6k/8/6K1/8/8/8/8/8 b - - 0 1"));
+        assertTrue(Tablebase.isLoss(value));
+        assertEquals(0, Tablebase.getDistanceToMate(value));
+    }
+
+    @Test
+    public void colorsAreSwappedForBlackQueen() throws ReadGameError
+    {
+        int value = tablebase.probe(BitboardPosition.fromFen("1q6/8/8/8/8/6k1/8/7K b - - 0 1"));
+        assertTrue(Tablebase.isWin(value));
+        assertEquals(1, Tablebase.getDistanceToMate(value));
+        assertTrue(Tablebase.isLoss(tablebase.probe(BitboardPosition.fromFen("7q/8/8/8/8/6k1/8/7K w - - 0 1"))));
+    }
+
+    @Test
+    public void stalemateAndLostQueenAreDraws() throws ReadGameError
+    {
+        assertEquals(Tablebase.DRAW, tablebase.probe(BitboardPosition.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1")));
+        assertEquals(Tablebase.DRAW, tablebase.probe(BitboardPosition.fromFen("7k/6Q1/8/8/8/8/8/K7 b - - 0 1")));
+    }
+
+    @Test
+    public void positionsOutsideTablesAreNotFound() throws ReadGameError
+    {
+        assertEquals(Tablebase.NOT_FOUND, tablebase.probe(BitboardPosition.fromFen("7k/8/6K1/8/8/8/8/1B6 w - - 0 1")));
+        assertEquals(Tablebase.NOT_FOUND, tablebase.probe(BitboardPosition.fromFen("7k/8/6K1/8/8/8/8/1QR5 w - - 0 1")));
+        assertEquals(Tablebase.NOT_FOUND, tablebase.probe(BitboardPosition.fromFen("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1")));
+    }
+
+    @Test
+    public void searchWinsRookEndgameInDistanceToMate() throws ReadGameError
+    {
+        BitboardPosition position = BitboardPosition.fromFen("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        int distance = Tablebase.getDistanceToMate(tablebase.probe(position));
+        assertTrue(Tablebase.isWin(tablebase.probe(position)));
+        for (int ply = 0; ply < distance; ply++)
+        {
+            Search search = new Search(position);
+            search.setTablebase(tablebase);
+            position.makeMove(search.search(2, 0L).getBestMove());
+        }
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegal(position, moves);
+        assertTrue(moves.isEmpty());
+        assertTrue(position.isInCheck(position.getSideToMove()));
+    }
+}